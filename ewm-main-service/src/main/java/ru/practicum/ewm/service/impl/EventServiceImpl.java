@@ -16,6 +16,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.ewm.EndpointHit;
 import ru.practicum.ewm.StatsClient;
+import ru.practicum.ewm.StatsQuery;
 import ru.practicum.ewm.ViewStats;
 import ru.practicum.ewm.dto.CaseUpdatedStatusDto;
 import ru.practicum.ewm.dto.NewEventDto;
@@ -536,9 +537,15 @@ public class EventServiceImpl implements EventService {
             return new HashMap<>();
         }
 
-        ResponseEntity<Object> response = statsClient.getStats(earliestDate, LocalDateTime.now(), uris, true);
-        List<ViewStats> viewStatsList = objectMapper.convertValue(response.getBody(), new TypeReference<>() {
+        ResponseEntity<Object> response = statsClient.queryStats(List.of(StatsQuery.builder()
+                .start(earliestDate)
+                .end(LocalDateTime.now())
+                .uris(uris)
+                .unique(true)
+                .build()));
+        List<List<ViewStats>> viewStatsLists = objectMapper.convertValue(response.getBody(), new TypeReference<>() {
         });
+        List<ViewStats> viewStatsList = viewStatsLists.get(0);
 
         return viewStatsList.stream()
                 .filter(statsDto -> statsDto.getUri().startsWith("/events/"))
@@ -0,0 +1,63 @@
+package ru.practicum.ewm.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.service.StatsService;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of POST /hit as the service sees it, with the write-behind buffer on and off, from several request
+ * threads. The buffer blocks when full, so sustained throughput is bounded by how fast its flusher can write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class BufferedIngestBenchmark {
+    private static final int POOL = 50_000;
+
+    @Param({"false", "true"})
+    private boolean buffered;
+
+    private final AtomicInteger next = new AtomicInteger();
+    private StatsServer server;
+    private StatsService service;
+    private List<EndpointHit> pool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new StatsServer(StatsSetup.JDBC_RAW, Map.of("stats.buffer.enabled", String.valueOf(buffered)));
+        service = server.bean(StatsService.class);
+        pool = Dataset.hits(POOL, 1000, 10_000, 1, 5);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public void saveHit() {
+        service.saveHit(pool.get(Math.floorMod(next.getAndIncrement(), POOL)));
+    }
+}
\ No newline at end of file
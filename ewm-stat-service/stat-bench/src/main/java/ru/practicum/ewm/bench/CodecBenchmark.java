@@ -0,0 +1,73 @@
+package ru.practicum.ewm.bench;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.codec.EndpointHitCodec;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-hit cost of the JSON body of POST /hit/batch against the compact binary encoding, in both directions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+public class CodecBenchmark {
+    private static final int HITS = 1000;
+    private static final TypeReference<List<EndpointHit>> HIT_LIST = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private List<EndpointHit> hits;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        hits = Dataset.hits(HITS, 1000, 10_000, 1, 11);
+        json = objectMapper.writeValueAsBytes(hits);
+        binary = EndpointHitCodec.encode(hits);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HITS)
+    public byte[] encodeJson() throws IOException {
+        return objectMapper.writeValueAsBytes(hits);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HITS)
+    public List<EndpointHit> decodeJson() throws IOException {
+        return objectMapper.readValue(json, HIT_LIST);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HITS)
+    public byte[] encodeBinary() {
+        return EndpointHitCodec.encode(hits);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(HITS)
+    public List<EndpointHit> decodeBinary() {
+        return EndpointHitCodec.decode(binary);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,56 @@
+package ru.practicum.ewm.bench;
+
+import ru.practicum.ewm.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible hits: uris are skewed so that a few of them get most of the traffic, ips are drawn from a
+ * pool of the given size and timestamps are spread evenly over the days before {@link #END}.
+ */
+public final class Dataset {
+    public static final String APP = "ewm-main-service";
+    public static final LocalDateTime END = LocalDateTime.of(2024, 6, 1, 0, 0, 0);
+
+    private Dataset() {
+    }
+
+    public static List<EndpointHit> hits(int count, int uris, int ips, int days, long seed) {
+        Random random = new Random(seed);
+        int seconds = days * 24 * 60 * 60;
+        List<EndpointHit> hits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            hits.add(EndpointHit.builder()
+                    .app(APP)
+                    .uri(uri(skewed(random, uris)))
+                    .ip(ip(random.nextInt(ips)))
+                    .timestamp(END.minusSeconds(1 + random.nextInt(seconds)))
+                    .build());
+        }
+        return hits;
+    }
+
+    public static String uri(int index) {
+        return "/events/" + index;
+    }
+
+    public static List<String> uris(int count) {
+        List<String> uris = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            uris.add(uri(i));
+        }
+        return uris;
+    }
+
+    private static int skewed(Random random, int bound) {
+        double value = random.nextDouble();
+        return (int) (bound * value * value);
+    }
+
+    private static String ip(int index) {
+        return "10." + (index >>> 16 & 0xff) + "." + (index >>> 8 & 0xff) + "." + (index & 0xff);
+    }
+}
\ No newline at end of file
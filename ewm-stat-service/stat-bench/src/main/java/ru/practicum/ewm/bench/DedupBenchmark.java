@@ -0,0 +1,102 @@
+package ru.practicum.ewm.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.dedup.HitDeduplicator;
+import ru.practicum.ewm.dedup.RotatingBloomFilter;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What the retry check adds to every hit: nothing for hits without an id, a filter lookup and a map insert for new
+ * ids, and the exact lookup for retried ids, which the filter sends to the stored ids.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class DedupBenchmark {
+    private static final long RETRIED = 100_000;
+
+    @Param({"none", "new", "retried"})
+    private String ids;
+
+    private final AtomicLong next = new AtomicLong();
+    private StatsServer server;
+    private HitDeduplicator deduplicator;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new StatsServer(StatsSetup.JDBC_RAW, Map.of("stats.dedup.enabled", "true"));
+        deduplicator = server.bean(HitDeduplicator.class);
+        if (ids.equals("retried")) {
+            for (long id = 0; id < RETRIED; id++) {
+                deduplicator.isDuplicate(hit(id));
+            }
+            deduplicator.flush();
+        } else if (ids.equals("new")) {
+            next.set(RETRIED);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public boolean isDuplicate() {
+        long id = next.getAndIncrement();
+        return deduplicator.isDuplicate(switch (ids) {
+            case "none" -> hit(null);
+            case "retried" -> hit(Math.floorMod(id, RETRIED));
+            default -> hit(id);
+        });
+    }
+
+    /**
+     * The fast path alone: one lookup and insert of a new id in the filters, without recording the id.
+     */
+    @Benchmark
+    public boolean filter(Filter filter) {
+        long id = filter.next++;
+        boolean seen = filter.filter.mightContain(id);
+        filter.filter.put(id);
+        return seen;
+    }
+
+    @State(Scope.Thread)
+    public static class Filter {
+        private final RotatingBloomFilter filter = new RotatingBloomFilter(1_000_000, 0.01);
+        private long next = ThreadLocalRandom.current().nextLong();
+    }
+
+    private static EndpointHit hit(Long id) {
+        return EndpointHit.builder()
+                .id(id)
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("10.0.0.1")
+                .timestamp(Dataset.END)
+                .build();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+package ru.practicum.ewm.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.BulkLoadResult;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.bulk.HitBulkLoader;
+import ru.practicum.ewm.repository.StatsRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingest throughput in hits per second: one insert per hit, the batched insert behind POST /hit/batch and the bulk
+ * loader behind POST /hits/import. On H2 the bulk loader falls back to JDBC batches; its COPY path needs PostgreSQL.
+ * The JDBC_INDEXED setup also pays for the per-day counters kept on ingest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class IngestBenchmark {
+    private static final int BATCH = 500;
+    private static final int POOL = 100 * BATCH;
+
+    @Param({"JDBC_RAW", "JDBC_INDEXED", "SEGMENT_LOG"})
+    private StatsSetup setup;
+
+    private StatsServer server;
+    private StatsRepository repository;
+    private HitBulkLoader bulkLoader;
+    private List<EndpointHit> pool;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new StatsServer(setup, Map.of());
+        repository = server.bean(StatsRepository.class);
+        bulkLoader = server.bean(HitBulkLoader.class);
+        pool = Dataset.hits(POOL, 1000, 10_000, 1, 5);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public void saveHit() {
+        repository.saveHit(pool.get(next));
+        next = (next + 1) % POOL;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public int saveHits() {
+        return repository.saveHits(nextBatch());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public BulkLoadResult bulkLoad() {
+        return bulkLoader.load(nextBatch().iterator(), chunk -> {
+        });
+    }
+
+    private List<EndpointHit> nextBatch() {
+        List<EndpointHit> batch = pool.subList(next, next + BATCH);
+        next = (next + BATCH) % POOL;
+        return batch;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+package ru.practicum.ewm.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.repository.StatsRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency over a generated dataset for every storage setup: rollups against raw rows for plain counts, and
+ * HyperLogLog sketches against exact counting (COUNT(DISTINCT) or the visitor bitmaps) for unique visitors. The range
+ * covers whole days with ragged edges at both ends, as the pages of the main service ask for it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class QueryBenchmark {
+    @Param({"JDBC_RAW", "JDBC_ROLLUP", "JDBC_INDEXED", "SEGMENT_LOG"})
+    private StatsSetup setup;
+
+    @Param("100000")
+    private int hits;
+
+    @Param("30")
+    private int days;
+
+    private StatsServer server;
+    private StatsRepository repository;
+    private ViewsStatsRequest request;
+    private ViewsStatsRequest uniqueRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new StatsServer(setup, Map.of());
+        server.load(Dataset.hits(hits, 500, hits / 10, days, 19));
+        repository = server.bean(StatsRepository.class);
+        request = ViewsStatsRequest.builder()
+                .start(Dataset.END.minusDays(days).plusMinutes(37))
+                .end(Dataset.END.minusMinutes(13))
+                .uris(List.of())
+                .build();
+        uniqueRequest = request.toBuilder()
+                .unique(true)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public List<ViewStats> getStats() {
+        return repository.getStats(request);
+    }
+
+    @Benchmark
+    public List<ViewStats> getUniqueStats() {
+        return repository.getUniqueStats(uniqueRequest);
+    }
+
+    @Benchmark
+    public List<ViewStats> getApproximateUniqueStats() {
+        return repository.getApproximateUniqueStats(uniqueRequest);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,93 @@
+package ru.practicum.ewm.bench;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.StatServiceApp;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.rollup.RollupJob;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Embedded stat server on a private in-memory H2 database, with the background jobs, windows and caches switched off
+ * so that a benchmark measures only the code path it calls. Rollups are folded explicitly by {@link #load}. The
+ * properties are passed as command line arguments so that they take precedence over application.properties.
+ */
+public class StatsServer implements AutoCloseable {
+    private static final int LOAD_CHUNK = 5_000;
+
+    private final StatsSetup setup;
+    private final ConfigurableApplicationContext context;
+    private final Path segmentDir;
+
+    public StatsServer(StatsSetup setup, Map<String, String> overrides) throws IOException {
+        this.setup = setup;
+        this.segmentDir = Files.createTempDirectory("stat-bench-segments");
+        Map<String, String> properties = new HashMap<>();
+        properties.put("spring.datasource.url", "jdbc:h2:mem:bench-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.driverClassName", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.sql.init.schema-locations", "classpath:schema.sql");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.org.springframework.jdbc.core.JdbcTemplate", "WARN");
+        properties.put("logging.level.org.springframework.jdbc.core.StatementCreatorUtils", "WARN");
+        properties.put("logging.level.org.springframework.transaction.interceptor", "WARN");
+        properties.put("stats.rollup.interval-ms", "86400000");
+        properties.put("stats.partition.enabled", "false");
+        properties.put("stats.window.enabled", "false");
+        properties.put("stats.top.window.enabled", "false");
+        properties.put("stats.cache.enabled", "false");
+        properties.put("stats.buffer.enabled", "false");
+        properties.put("stats.daily.enabled", "false");
+        properties.put("stats.visitors.enabled", "false");
+        properties.put("stats.dedup.enabled", "false");
+        properties.put("stats.segment.dir", segmentDir.toString());
+        properties.putAll(setup.getProperties());
+        properties.putAll(overrides);
+        context = new SpringApplicationBuilder(StatServiceApp.class)
+                .web(WebApplicationType.NONE)
+                .run(properties.entrySet().stream()
+                        .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                        .toArray(String[]::new));
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Stores the hits in chunks and, for the rollup setups, folds every chunk the way the rollup job would, so queries
+     * see a fully rolled-up dataset. Statistics are refreshed after every chunk: H2 plans the counter and rollup
+     * upserts against the still-empty tables and otherwise probes them through a foreign key index, which makes
+     * loading quadratic.
+     */
+    public void load(List<EndpointHit> hits) {
+        StatsRepository repository = bean(StatsRepository.class);
+        JdbcTemplate jdbcTemplate = bean(JdbcTemplate.class);
+        for (int from = 0; from < hits.size(); from += LOAD_CHUNK) {
+            repository.saveHits(hits.subList(from, Math.min(hits.size(), from + LOAD_CHUNK)));
+            jdbcTemplate.execute("ANALYZE");
+            if (setup.isRolledUp()) {
+                bean(RollupJob.class).rollUpTo(
+                        jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM stats", Long.class));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        context.close();
+        FileSystemUtils.deleteRecursively(segmentDir.toFile());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+package ru.practicum.ewm.bench;
+
+import java.util.Map;
+
+/**
+ * Storage configurations the benchmarks compare, each started as its own embedded stat server.
+ */
+public enum StatsSetup {
+    /**
+     * JDBC repository answering every query from raw rows.
+     */
+    JDBC_RAW(Map.of("stats.rollup.enabled", "false")),
+    /**
+     * JDBC repository with the minute/hour/day rollups and sketches.
+     */
+    JDBC_ROLLUP(Map.of()),
+    /**
+     * JDBC repository with the rollups, the per-day counters kept on ingest and the exact visitor bitmaps.
+     */
+    JDBC_INDEXED(Map.of("stats.daily.enabled", "true", "stats.visitors.enabled", "true")),
+    /**
+     * Memory-mapped segment log instead of the stats table.
+     */
+    SEGMENT_LOG(Map.of("spring.profiles.active", "segment-log"));
+
+    private final Map<String, String> properties;
+
+    StatsSetup(Map<String, String> properties) {
+        this.properties = properties;
+    }
+
+    public Map<String, String> getProperties() {
+        return properties;
+    }
+
+    public boolean isRolledUp() {
+        return this == JDBC_ROLLUP || this == JDBC_INDEXED;
+    }
+}
\ No newline at end of file
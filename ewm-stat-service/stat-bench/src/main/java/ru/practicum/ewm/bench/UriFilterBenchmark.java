@@ -0,0 +1,68 @@
+package ru.practicum.ewm.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.repository.StatsRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getStats latency when the request filters by 1, 100 or 10000 uris, which is what an event list page sends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+public class UriFilterBenchmark {
+    @Param({"1", "100", "10000"})
+    private int uris;
+
+    @Param({"JDBC_RAW", "JDBC_ROLLUP"})
+    private StatsSetup setup;
+
+    @Param("100000")
+    private int hits;
+
+    private StatsServer server;
+    private StatsRepository repository;
+    private ViewsStatsRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        server = new StatsServer(setup, Map.of());
+        server.load(Dataset.hits(hits, 20_000, hits / 10, 30, 7));
+        repository = server.bean(StatsRepository.class);
+        request = ViewsStatsRequest.builder()
+                .start(Dataset.END.minusDays(30))
+                .end(Dataset.END)
+                .uris(Dataset.uris(uris))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public List<ViewStats> getStats() {
+        return repository.getStats(request);
+    }
+}
\ No newline at end of file
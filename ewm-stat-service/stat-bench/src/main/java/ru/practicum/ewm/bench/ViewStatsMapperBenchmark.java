@@ -0,0 +1,58 @@
+package ru.practicum.ewm.bench;
+
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.practicum.ewm.mapper.ViewStatsMapper;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-row cost of mapping a stats result row, without the database round trip around it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+public class ViewStatsMapperBenchmark {
+    private static final int ROWS = 1000;
+
+    private final ViewStatsMapper mapper = new ViewStatsMapper();
+    private SimpleResultSet resultSet;
+
+    @Setup
+    public void setUp() {
+        resultSet = new SimpleResultSet();
+        resultSet.setAutoClose(false);
+        resultSet.addColumn("app", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("uri", Types.VARCHAR, 255, 0);
+        resultSet.addColumn("hits", Types.BIGINT, 19, 0);
+        for (int i = 0; i < ROWS; i++) {
+            resultSet.addRow(Dataset.APP, Dataset.uri(i), (long) (ROWS - i) * 17);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void mapRow(Blackhole blackhole) throws SQLException {
+        resultSet.beforeFirst();
+        int row = 0;
+        while (resultSet.next()) {
+            blackhole.consume(mapper.mapRow(resultSet, row++));
+        }
+    }
+}
\ No newline at end of file
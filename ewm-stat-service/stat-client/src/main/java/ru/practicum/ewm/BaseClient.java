@@ -26,12 +26,26 @@ public class BaseClient {
     }
 
     protected <T> void post(T body) {
-        makeAndSendRequest(HttpMethod.POST, "/hit", null, body);
+        post("/hit", body);
+    }
+
+    protected <T> ResponseEntity<Object> post(String path, T body) {
+        return makeAndSendRequest(HttpMethod.POST, path, null, body, MediaType.APPLICATION_JSON);
+    }
+
+    protected <T> ResponseEntity<Object> post(String path, T body, MediaType contentType) {
+        return makeAndSendRequest(HttpMethod.POST, path, null, body, contentType);
     }
 
     private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path,
                                                           @Nullable Map<String, Object> parameters, @Nullable T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders());
+        return makeAndSendRequest(method, path, parameters, body, MediaType.APPLICATION_JSON);
+    }
+
+    private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path,
+                                                          @Nullable Map<String, Object> parameters, @Nullable T body,
+                                                          MediaType contentType) {
+        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(contentType));
 
         ResponseEntity<Object> responseEntity;
         try {
@@ -46,9 +60,9 @@ public class BaseClient {
         return prepareResponse(responseEntity);
     }
 
-    private HttpHeaders defaultHeaders() {
+    private HttpHeaders defaultHeaders(MediaType contentType) {
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.setContentType(contentType);
         headers.setAccept(List.of(MediaType.APPLICATION_JSON));
         return headers;
     }
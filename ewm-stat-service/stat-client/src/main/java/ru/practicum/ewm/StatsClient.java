@@ -3,10 +3,12 @@ package ru.practicum.ewm;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import ru.practicum.ewm.codec.EndpointHitCodec;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -15,6 +17,7 @@ import java.util.Map;
 
 @Service
 public class StatsClient extends BaseClient {
+    private static final MediaType BINARY_HITS = MediaType.parseMediaType(EndpointHitCodec.MEDIA_TYPE);
     private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
     @Autowired
@@ -28,7 +31,11 @@ public class StatsClient extends BaseClient {
     }
 
     public void postStats(EndpointHit endpointHitDto) {
-        post(endpointHitDto);
+        post("/hit", EndpointHitCodec.encode(List.of(endpointHitDto)), BINARY_HITS);
+    }
+
+    public ResponseEntity<Object> postStats(List<EndpointHit> endpointHitDtos) {
+        return post("/hit/batch", EndpointHitCodec.encode(endpointHitDtos), BINARY_HITS);
     }
 
     public ResponseEntity<Object> getStats(LocalDateTime start, LocalDateTime end, List<String> uris,
@@ -41,4 +48,12 @@ public class StatsClient extends BaseClient {
         );
         return get("/stats?start={start}&end={end}&uris={uris}&unique={unique}", parameters);
     }
+
+    /**
+     * Asks for several windows at once; the response holds one list of stats per query, in the order of the queries.
+     * The queries travel in the body, so unlike {@link #getStats} any number of uris fits.
+     */
+    public ResponseEntity<Object> queryStats(List<StatsQuery> queries) {
+        return post("/stats/query", queries);
+    }
 }
\ No newline at end of file
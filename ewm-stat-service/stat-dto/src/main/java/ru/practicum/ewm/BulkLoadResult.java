@@ -0,0 +1,19 @@
+package ru.practicum.ewm;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Getter
+@Builder
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkLoadResult {
+    private String method;
+    private long rows;
+    private long elapsedMs;
+    private long rowsPerSecond;
+}
\ No newline at end of file
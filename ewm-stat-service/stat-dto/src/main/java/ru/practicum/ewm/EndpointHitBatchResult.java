@@ -0,0 +1,16 @@
+package ru.practicum.ewm;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Getter
+@Builder
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+public class EndpointHitBatchResult {
+    private int accepted;
+}
\ No newline at end of file
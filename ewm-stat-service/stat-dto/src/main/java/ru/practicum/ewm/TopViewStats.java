@@ -0,0 +1,23 @@
+package ru.practicum.ewm;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * One heavy hitter of a range. {@code hits} never undercounts; the true number of hits lies within
+ * {@code [hits - error, hits]}.
+ */
+@Builder
+@Getter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+public class TopViewStats {
+    private String app;
+    private String uri;
+    private Long hits;
+    private Long error;
+}
\ No newline at end of file
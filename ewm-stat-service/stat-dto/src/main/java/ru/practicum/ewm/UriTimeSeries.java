@@ -0,0 +1,18 @@
+package ru.practicum.ewm;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Builder
+@Getter
+@ToString
+@AllArgsConstructor
+@NoArgsConstructor
+public class UriTimeSeries {
+    private String app;
+    private String uri;
+    private long[] counts;
+}
\ No newline at end of file
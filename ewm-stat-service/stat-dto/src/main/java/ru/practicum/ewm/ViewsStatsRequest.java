@@ -17,5 +17,7 @@ public class ViewsStatsRequest {
     @Builder.Default
     private LocalDateTime end = LocalDateTime.now();
     private boolean unique;
+    private boolean approximate;
     private String application;
+    private Integer limit;
 }
\ No newline at end of file
@@ -0,0 +1,253 @@
+package ru.practicum.ewm.codec;
+
+import ru.practicum.ewm.EndpointHit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidParameterException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of a stream of hits, an alternative to JSON for the hit endpoints. A stream starts with "EH"
+ * and a version byte, followed by one record per hit:
+ * <pre>
+ * timestamp  8 bytes, epoch millis of the local date-time read as UTC
+ * app        varint index into the apps seen so far in this stream; an index equal to their count introduces a new
+ *            app, whose varint length and UTF-8 bytes follow
+ * uri        varint length and UTF-8 bytes
+ * ip         1 byte length (4 or 16) and the address bytes
+ * id         1 byte, 1 if the client gave the hit an id and 0 otherwise, then the 8 byte id if it did
+ * </pre>
+ * Version 1 streams, whose records end after the ip, are still read.
+ */
+public final class EndpointHitCodec {
+    public static final String MEDIA_TYPE = "application/x-ewm-hits";
+
+    private static final int MAGIC = ('E' << 8) | 'H';
+    private static final int VERSION = 2;
+    private static final int VERSION_WITHOUT_ID = 1;
+    private static final int MAX_STRING_LENGTH = 64 * 1024;
+
+    private EndpointHitCodec() {
+    }
+
+    public static byte[] encode(List<EndpointHit> hits) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(hits.size() * 32 + 3);
+        try {
+            Encoder encoder = new Encoder(out);
+            for (EndpointHit hit : hits) {
+                encoder.write(hit);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    public static List<EndpointHit> decode(byte[] bytes) {
+        List<EndpointHit> hits = new ArrayList<>();
+        try (Decoder decoder = new Decoder(new ByteArrayInputStream(bytes))) {
+            while (decoder.hasNext()) {
+                hits.add(decoder.next());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return hits;
+    }
+
+    public static class Encoder {
+        private final OutputStream out;
+        private final Map<String, Integer> apps = new HashMap<>();
+
+        public Encoder(OutputStream out) throws IOException {
+            this.out = out;
+            out.write(MAGIC >>> 8);
+            out.write(MAGIC & 0xff);
+            out.write(VERSION);
+        }
+
+        public void write(EndpointHit hit) throws IOException {
+            writeLong(hit.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli());
+            Integer app = apps.get(hit.getApp());
+            if (app != null) {
+                writeVarint(app);
+            } else {
+                writeVarint(apps.size());
+                apps.put(hit.getApp(), apps.size());
+                writeString(hit.getApp());
+            }
+            writeString(hit.getUri());
+            byte[] ip = IpAddresses.encode(hit.getIp());
+            out.write(ip.length);
+            out.write(ip);
+            if (hit.getId() == null) {
+                out.write(0);
+            } else {
+                out.write(1);
+                writeLong(hit.getId());
+            }
+        }
+
+        private void writeLong(long value) throws IOException {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (value >>> shift));
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            out.write(bytes);
+        }
+
+        private void writeVarint(int value) throws IOException {
+            while ((value & ~0x7f) != 0) {
+                out.write((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+    }
+
+    /**
+     * Reads hits one at a time; malformed or truncated input is reported as an {@link InvalidParameterException}.
+     */
+    public static class Decoder implements AutoCloseable {
+        private final InputStream in;
+        private final List<String> apps = new ArrayList<>();
+        private final boolean withIds;
+        private int next = -2;
+
+        public Decoder(InputStream in) throws IOException {
+            this.in = in;
+            int magic = (readByte() << 8) | readByte();
+            int version = readByte();
+            if (magic != MAGIC || version != VERSION && version != VERSION_WITHOUT_ID) {
+                throw new InvalidParameterException("Not an " + MEDIA_TYPE + " v" + VERSION_WITHOUT_ID + "-"
+                        + VERSION + " stream");
+            }
+            withIds = version == VERSION;
+        }
+
+        public boolean hasNext() throws IOException {
+            if (next == -2) {
+                next = in.read();
+            }
+            return next >= 0;
+        }
+
+        public EndpointHit next() throws IOException {
+            if (!hasNext()) {
+                throw new InvalidParameterException("No more hits in stream");
+            }
+            long millis = next;
+            next = -2;
+            for (int i = 1; i < 8; i++) {
+                millis = (millis << 8) | readByte();
+            }
+            int appIndex = readVarint();
+            String app;
+            if (appIndex < apps.size()) {
+                app = apps.get(appIndex);
+            } else if (appIndex == apps.size()) {
+                app = readString();
+                apps.add(app);
+            } else {
+                throw new InvalidParameterException("Unknown app index " + appIndex);
+            }
+            String uri = readString();
+            int ipLength = readByte();
+            if (ipLength != 4 && ipLength != 16) {
+                throw new InvalidParameterException("Invalid ip address length " + ipLength);
+            }
+            byte[] ip = in.readNBytes(ipLength);
+            if (ip.length != ipLength) {
+                throw new InvalidParameterException("Truncated hit record");
+            }
+            Long id = null;
+            if (withIds) {
+                int hasId = readByte();
+                if (hasId == 1) {
+                    id = readLong();
+                } else if (hasId != 0) {
+                    throw new InvalidParameterException("Invalid id marker " + hasId);
+                }
+            }
+            return EndpointHit.builder()
+                    .id(id)
+                    .app(app)
+                    .uri(uri)
+                    .ip(IpAddresses.decode(ip))
+                    .timestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000L),
+                            (int) Math.floorMod(millis, 1000L) * 1_000_000, ZoneOffset.UTC))
+                    .build();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private String readString() throws IOException {
+            int length = readVarint();
+            if (length > MAX_STRING_LENGTH) {
+                throw new InvalidParameterException("String of " + length + " bytes exceeds the limit");
+            }
+            byte[] bytes = in.readNBytes(length);
+            if (bytes.length != length) {
+                throw new InvalidParameterException("Truncated hit record");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private long readLong() throws IOException {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        /**
+         * Reads an unsigned varint of at most five bytes; the fifth carries the top four bits, and a value that does
+         * not fit a non-negative int is rejected rather than used as an index or a length.
+         */
+        private int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                if (shift == 28 && b > 0x0f) {
+                    throw new InvalidParameterException("Malformed varint");
+                }
+                value |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    if (value < 0) {
+                        throw new InvalidParameterException("Varint " + Integer.toUnsignedString(value)
+                                + " is out of range");
+                    }
+                    return value;
+                }
+            }
+            throw new InvalidParameterException("Malformed varint");
+        }
+
+        private int readByte() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                throw new InvalidParameterException("Truncated hit record");
+            }
+            return b;
+        }
+    }
+}
\ No newline at end of file
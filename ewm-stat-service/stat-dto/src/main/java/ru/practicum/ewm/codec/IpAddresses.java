@@ -0,0 +1,122 @@
+package ru.practicum.ewm.codec;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.security.InvalidParameterException;
+
+/**
+ * Converts textual IPv4/IPv6 addresses to their 4 or 16 byte form and back without any name resolution.
+ */
+public final class IpAddresses {
+    private static final int IPV4_LENGTH = 4;
+    private static final int IPV6_LENGTH = 16;
+
+    private IpAddresses() {
+    }
+
+    public static byte[] encode(String ip) {
+        byte[] bytes = ip == null ? null : parse(ip);
+        if (bytes == null) {
+            throw new InvalidParameterException("Invalid ip address: " + ip);
+        }
+        return bytes;
+    }
+
+    public static String decode(byte[] bytes) {
+        if (bytes.length == IPV4_LENGTH) {
+            return (bytes[0] & 0xff) + "." + (bytes[1] & 0xff) + "." + (bytes[2] & 0xff) + "." + (bytes[3] & 0xff);
+        }
+        try {
+            return InetAddress.getByAddress(bytes).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid ip address length: " + bytes.length, e);
+        }
+    }
+
+    private static byte[] parse(String ip) {
+        int zone = ip.indexOf('%');
+        String address = zone >= 0 ? ip.substring(0, zone) : ip;
+        return address.indexOf(':') >= 0 ? parseIpv6(address) : parseIpv4(address, new byte[IPV4_LENGTH], 0);
+    }
+
+    private static byte[] parseIpv4(String ip, byte[] target, int offset) {
+        String[] parts = ip.split("\\.", -1);
+        if (parts.length != IPV4_LENGTH) {
+            return null;
+        }
+        for (int i = 0; i < IPV4_LENGTH; i++) {
+            int value = parseNumber(parts[i], 10, 3);
+            if (value < 0 || value > 255) {
+                return null;
+            }
+            target[offset + i] = (byte) value;
+        }
+        return target;
+    }
+
+    private static byte[] parseIpv6(String ip) {
+        byte[] result = new byte[IPV6_LENGTH];
+        int compression = ip.indexOf("::");
+        if (compression >= 0 && ip.indexOf("::", compression + 1) >= 0) {
+            return null;
+        }
+        String head = compression >= 0 ? ip.substring(0, compression) : ip;
+        String tail = compression >= 0 ? ip.substring(compression + 2) : "";
+
+        int headLength = fillGroups(head, result, 0, compression < 0);
+        if (headLength < 0) {
+            return null;
+        }
+        if (compression < 0) {
+            return headLength == IPV6_LENGTH ? result : null;
+        }
+        byte[] tailBytes = new byte[IPV6_LENGTH];
+        int tailLength = fillGroups(tail, tailBytes, 0, true);
+        if (tailLength < 0 || headLength + tailLength > IPV6_LENGTH - 2) {
+            return null;
+        }
+        System.arraycopy(tailBytes, 0, result, IPV6_LENGTH - tailLength, tailLength);
+        return result;
+    }
+
+    private static int fillGroups(String groups, byte[] target, int offset, boolean allowIpv4Suffix) {
+        if (groups.isEmpty()) {
+            return 0;
+        }
+        String[] parts = groups.split(":", -1);
+        int position = offset;
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i];
+            boolean last = i == parts.length - 1;
+            if (last && allowIpv4Suffix && part.indexOf('.') >= 0) {
+                if (position + IPV4_LENGTH > IPV6_LENGTH || parseIpv4(part, target, position) == null) {
+                    return -1;
+                }
+                position += IPV4_LENGTH;
+                continue;
+            }
+            int value = parseNumber(part, 16, 4);
+            if (value < 0 || position + 2 > IPV6_LENGTH) {
+                return -1;
+            }
+            target[position++] = (byte) (value >>> 8);
+            target[position++] = (byte) value;
+        }
+        return position - offset;
+    }
+
+    private static int parseNumber(String text, int radix, int maxDigits) {
+        if (text.isEmpty() || text.length() > maxDigits) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int digit = Character.digit(text.charAt(i), radix);
+            if (digit < 0) {
+                return -1;
+            }
+            value = value * radix + digit;
+        }
+        return value;
+    }
+}
\ No newline at end of file
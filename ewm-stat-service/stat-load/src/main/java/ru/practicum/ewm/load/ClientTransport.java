@@ -0,0 +1,59 @@
+package ru.practicum.ewm.load;
+
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.StatsClient;
+import ru.practicum.ewm.codec.EndpointHitCodec;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Drives the server through {@link StatsClient}, the way the main service does, including its binary hit encoding
+ * and its connection pool.
+ */
+public class ClientTransport implements StatsTransport {
+    private final CheckedStatsClient client;
+
+    public ClientTransport(String serverUrl) {
+        client = new CheckedStatsClient(serverUrl);
+    }
+
+    @Override
+    public void hit(EndpointHit hit) throws RejectedException {
+        check(client.postHit(hit));
+    }
+
+    @Override
+    public void stats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique)
+            throws RejectedException {
+        check(client.getStats(start, end, uris, unique));
+    }
+
+    private static void check(ResponseEntity<Object> response) throws RejectedException {
+        if (RejectedException.isRejection(response.getStatusCode().value())) {
+            throw new RejectedException(response.getStatusCode().value());
+        }
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            throw new IllegalStateException("Stat server responded with " + response.getStatusCode());
+        }
+    }
+
+    /**
+     * {@link StatsClient#postStats(EndpointHit)} drops the response, so rejected hits would go unnoticed; this posts
+     * the same request and keeps it.
+     */
+    private static class CheckedStatsClient extends StatsClient {
+        private static final MediaType BINARY_HITS = MediaType.parseMediaType(EndpointHitCodec.MEDIA_TYPE);
+
+        CheckedStatsClient(String serverUrl) {
+            super(serverUrl, new RestTemplateBuilder());
+        }
+
+        ResponseEntity<Object> postHit(EndpointHit hit) {
+            return post("/hit", EndpointHitCodec.encode(List.of(hit)), BINARY_HITS);
+        }
+    }
+}
\ No newline at end of file
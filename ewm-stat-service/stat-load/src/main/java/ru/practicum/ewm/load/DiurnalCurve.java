@@ -0,0 +1,39 @@
+package ru.practicum.ewm.load;
+
+/**
+ * Daily traffic shape: the rate swings along a cosine between {@code peak * (1 - amplitude)} at midnight and the
+ * peak at noon. A day can be compressed into a few minutes so that a short run still covers a whole cycle.
+ */
+public class DiurnalCurve {
+    private final double peakRate;
+    private final double amplitude;
+    private final double dayLengthSeconds;
+    private final double startPhase;
+
+    /**
+     * @param startHour hour of the day the run starts at, so a run can start at the trough, the peak or in between
+     */
+    public DiurnalCurve(double peakRate, double amplitude, double dayLengthSeconds, double startHour) {
+        if (peakRate <= 0) {
+            throw new IllegalArgumentException("Peak rate must be positive");
+        }
+        if (amplitude < 0 || amplitude >= 1) {
+            throw new IllegalArgumentException("Diurnal amplitude must be in [0, 1)");
+        }
+        if (dayLengthSeconds <= 0) {
+            throw new IllegalArgumentException("Day length must be positive");
+        }
+        this.peakRate = peakRate;
+        this.amplitude = amplitude;
+        this.dayLengthSeconds = dayLengthSeconds;
+        this.startPhase = startHour / 24;
+    }
+
+    /**
+     * Target rate, in operations per second, at the given time since the start of the run.
+     */
+    public double rate(double elapsedSeconds) {
+        double phase = startPhase + elapsedSeconds / dayLengthSeconds;
+        return peakRate * (1 - amplitude * (1 + Math.cos(2 * Math.PI * phase)) / 2);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+package ru.practicum.ewm.load;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.ewm.StatServiceApp;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The stat server on a random local port and a private in-memory H2 database, with the production configuration
+ * otherwise: the same write path, rollups, windows and caches as in application.properties. Properties are passed
+ * as command line arguments so that they take precedence over application.properties. A non-zero database latency
+ * wraps the data source in a {@link SlowDataSource}.
+ */
+public class EmbeddedStatServer implements AutoCloseable {
+    private final ConfigurableApplicationContext context;
+
+    public EmbeddedStatServer(Map<String, String> overrides, Duration dbLatency) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.datasource.url", "jdbc:h2:mem:load-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.driverClassName", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.sql.init.schema-locations", "classpath:schema.sql");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.org.springframework.jdbc.core.JdbcTemplate", "WARN");
+        properties.put("logging.level.org.springframework.jdbc.core.StatementCreatorUtils", "WARN");
+        properties.put("logging.level.org.springframework.transaction.interceptor", "WARN");
+        properties.putAll(overrides);
+        context = new SpringApplicationBuilder(StatServiceApp.class)
+                .initializers(context -> {
+                    if (!dbLatency.isZero()) {
+                        context.getBeanFactory().addBeanPostProcessor(slowDataSource(dbLatency));
+                    }
+                })
+                .run(properties.entrySet().stream()
+                        .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                        .toArray(String[]::new));
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    private static BeanPostProcessor slowDataSource(Duration latency) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource ? new SlowDataSource(dataSource, latency) : bean;
+            }
+        };
+    }
+}
\ No newline at end of file
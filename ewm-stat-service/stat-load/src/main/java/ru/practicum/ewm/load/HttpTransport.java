@@ -0,0 +1,78 @@
+package ru.practicum.ewm.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ru.practicum.ewm.EndpointHit;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Drives the server with plain JSON requests over the JDK HTTP client, without the connection pool limits of
+ * {@link ClientTransport}, so the server rather than the client sets the concurrency.
+ */
+public class HttpTransport implements StatsTransport {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final String serverUrl;
+    private final Duration timeout;
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final HttpClient client;
+
+    public HttpTransport(String serverUrl, Duration timeout) {
+        this.serverUrl = serverUrl;
+        this.timeout = timeout;
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(executor)
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    @Override
+    public void hit(EndpointHit hit) throws Exception {
+        send(HttpRequest.newBuilder(URI.create(serverUrl + "/hit"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(hit))));
+    }
+
+    @Override
+    public void stats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) throws Exception {
+        String query = "start=" + encode(start.format(FORMATTER))
+                + "&end=" + encode(end.format(FORMATTER))
+                + "&uris=" + encode(String.join(",", uris))
+                + "&unique=" + unique;
+        send(HttpRequest.newBuilder(URI.create(serverUrl + "/stats?" + query)).GET());
+    }
+
+    @Override
+    public void close() {
+        client.shutdownNow();
+        executor.close();
+    }
+
+    private void send(HttpRequest.Builder request) throws Exception {
+        HttpResponse<Void> response = client.send(request.timeout(timeout).build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (RejectedException.isRejection(response.statusCode())) {
+            throw new RejectedException(response.statusCode());
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("Stat server responded with " + response.statusCode());
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
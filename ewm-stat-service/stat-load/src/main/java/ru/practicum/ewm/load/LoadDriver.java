@@ -0,0 +1,159 @@
+package ru.practicum.ewm.load;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.ewm.EndpointHit;
+
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load: hits arrive as a Poisson process whose rate follows the {@link DiurnalCurve}, each on its own
+ * virtual thread, whether or not earlier requests have completed. A share of the arrivals is followed by a
+ * {@code /stats} query at the same moment. The scheduling thread never waits for the server, so the offered rate
+ * stays on target and a slow server shows up as latency, up to {@code max-in-flight} outstanding requests beyond which
+ * arrivals are dropped and counted.
+ */
+@Slf4j
+public class LoadDriver {
+    private final LoadOptions options;
+    private final StatsTransport transport;
+    private final TrafficModel model;
+    private final DiurnalCurve curve;
+    private final Random random;
+    private final Semaphore inFlight;
+    private final PrintStream out;
+
+    private volatile OperationStats hits = new OperationStats("hit");
+    private volatile OperationStats queries = new OperationStats("stats");
+
+    public LoadDriver(LoadOptions options, StatsTransport transport, PrintStream out) {
+        this.options = options;
+        this.transport = transport;
+        this.out = out;
+        model = new TrafficModel(options.getApp(), options.getUris(), options.getZipf(), options.getIps());
+        curve = new DiurnalCurve(options.getRate(), options.getAmplitude(), options.getDay().toMillis() / 1000.0,
+                options.getStartHour());
+        random = new Random(options.getSeed());
+        inFlight = new Semaphore(options.getMaxInFlight());
+    }
+
+    public LoadReport run() throws InterruptedException {
+        long start = System.nanoTime();
+        long warmupEnd = start + options.getWarmup().toNanos();
+        long end = warmupEnd + options.getDuration().toNanos();
+        long scheduledHits = 0;
+        boolean measuring = false;
+        double arrival = 0;
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            long interval = options.getReportInterval().toMillis();
+            reporter.scheduleAtFixedRate(() -> progress(start, warmupEnd), interval, interval, TimeUnit.MILLISECONDS);
+            while (true) {
+                double elapsed = Math.max(0, arrival - options.getWarmup().toNanos() / 1e9);
+                arrival += -Math.log(1 - random.nextDouble()) / curve.rate(elapsed);
+                long scheduled = start + (long) (arrival * 1e9);
+                if (scheduled >= end) {
+                    break;
+                }
+                if (!measuring && scheduled >= warmupEnd) {
+                    hits = new OperationStats("hit");
+                    queries = new OperationStats("stats");
+                    measuring = true;
+                }
+                parkUntil(scheduled);
+                if (measuring) {
+                    scheduledHits++;
+                }
+                EndpointHit hit = model.hit(random, LocalDateTime.now());
+                submit(executor, hits, scheduled, () -> transport.hit(hit));
+                if (random.nextDouble() < options.getQueryRatio()) {
+                    LocalDateTime now = LocalDateTime.now();
+                    List<String> uris = model.queryUris(random, options.getQueryUris());
+                    boolean unique = random.nextDouble() < options.getUniqueRatio();
+                    submit(executor, queries, scheduled,
+                            () -> transport.stats(now.minus(options.getQueryWindow()), now, uris, unique));
+                }
+            }
+            if (!inFlight.tryAcquire(options.getMaxInFlight(), options.getTimeout().toMillis(),
+                    TimeUnit.MILLISECONDS)) {
+                log.warn("Gave up waiting for {} requests still in flight",
+                        options.getMaxInFlight() - inFlight.availablePermits());
+                executor.shutdownNow();
+            }
+        } finally {
+            reporter.shutdownNow();
+        }
+        double seconds = options.getDuration().toMillis() / 1000.0;
+        return LoadReport.builder()
+                .server(options.isEmbedded() ? "embedded" : options.getUrl())
+                .transport(options.getTransport().name().toLowerCase())
+                .targetRate(options.getRate())
+                .seconds(seconds)
+                .scheduledHits(scheduledHits)
+                .operations(List.of(hits.summary(seconds), queries.summary(seconds)))
+                .build();
+    }
+
+    private void submit(ExecutorService executor, OperationStats stats, long scheduled, Call call) {
+        if (!inFlight.tryAcquire()) {
+            stats.dropped();
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                call.run();
+                stats.success(System.nanoTime() - scheduled);
+            } catch (RejectedException e) {
+                stats.rejected();
+            } catch (Exception e) {
+                stats.error(e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private void progress(long start, long warmupEnd) {
+        long now = System.nanoTime();
+        double elapsed = (now - start) / 1e9;
+        double seconds = options.getReportInterval().toMillis() / 1000.0;
+        LatencyHistogram hitLatencies = hits.nextInterval();
+        LatencyHistogram queryLatencies = queries.nextInterval();
+        out.printf("%s%6.0f s  target %7.1f/s  hits %7.1f/s p50 %7.2f p99 %8.2f ms  stats %6.1f/s p99 %8.2f ms  "
+                        + "shed %d  errors %d  in flight %d%n",
+                now < warmupEnd ? "warmup " : "", elapsed,
+                curve.rate(Math.max(0, (now - warmupEnd) / 1e9)),
+                hitLatencies.count() / seconds, hitLatencies.percentileMillis(50), hitLatencies.percentileMillis(99),
+                queryLatencies.count() / seconds, queryLatencies.percentileMillis(99),
+                hits.rejections() + queries.rejections(), hits.errors() + queries.errors(),
+                options.getMaxInFlight() - inFlight.availablePermits());
+        String hitError = hits.takeLastError();
+        if (hitError != null) {
+            log.warn("Hit failed: {}", hitError);
+        }
+        String queryError = queries.takeLastError();
+        if (queryError != null) {
+            log.warn("Stats query failed: {}", queryError);
+        }
+    }
+
+    private static void parkUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        void run() throws Exception;
+    }
+}
\ No newline at end of file
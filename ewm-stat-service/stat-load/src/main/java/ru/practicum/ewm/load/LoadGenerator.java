@@ -0,0 +1,54 @@
+package ru.practicum.ewm.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Generates synthetic traffic against a stat server and reports throughput and latency percentiles. Without
+ * {@code url=...} it starts an embedded server on H2, so a run needs nothing but the JDK:
+ * <pre>
+ * mvn -B -pl ewm-stat-service/stat-load -am -Pload process-classes \
+ *     -Dload.args="rate=2000 duration=120 uris=50000 zipf=1.2 ips=200000 report=target/load.json"
+ * </pre>
+ * To see admission control at work, slow the embedded database down and offer more hits than it can take, once with
+ * {@code stats.admission.enabled=false} and once with {@code true}; rejected hits are counted apart from the latencies:
+ * <pre>
+ *     -Dload.args="rate=400 amplitude=0 db-latency=0.02 max-in-flight=300 stats.admission.enabled=true"
+ * </pre>
+ * To compare request handling on platform and virtual threads with ten thousand clients, use the socket transport and
+ * run once as is and once with {@code spring.profiles.active=virtual-threads}:
+ * <pre>
+ *     -Dload.args="transport=socket rate=300 amplitude=0 db-latency=0.01 max-in-flight=10000"
+ * </pre>
+ * See {@link LoadOptions} for the options.
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        try (EmbeddedStatServer server = options.isEmbedded()
+                ? new EmbeddedStatServer(options.getServerProperties(), options.getDbLatency()) : null;
+             StatsTransport transport = transport(options, server == null ? options.getUrl() : server.getUrl())) {
+            LoadReport report = new LoadDriver(options, transport, System.out).run();
+            report.print(System.out);
+            if (!options.getReport().isEmpty()) {
+                new ObjectMapper().findAndRegisterModules()
+                        .enable(SerializationFeature.INDENT_OUTPUT)
+                        .writeValue(new File(options.getReport()), Map.of(
+                                "options", options,
+                                "report", report));
+            }
+        }
+    }
+
+    private static StatsTransport transport(LoadOptions options, String url) {
+        return switch (options.getTransport()) {
+            case HTTP -> new HttpTransport(url, options.getTimeout());
+            case CLIENT -> new ClientTransport(url);
+            case SOCKET -> new SocketTransport(url, options.getTimeout());
+        };
+    }
+}
\ No newline at end of file
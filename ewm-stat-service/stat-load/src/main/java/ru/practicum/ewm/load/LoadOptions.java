@@ -0,0 +1,122 @@
+package ru.practicum.ewm.load;
+
+import lombok.Getter;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Options of a load run, given as {@code key=value} arguments. Keys that contain a dot, such as
+ * {@code stats.buffer.enabled=true}, are properties of the embedded stat server.
+ */
+@Getter
+public class LoadOptions {
+    public enum Transport {
+        HTTP, CLIENT, SOCKET
+    }
+
+    /**
+     * Stat server to load; an embedded server on H2 is started when empty.
+     */
+    private String url = "";
+    private Transport transport = Transport.HTTP;
+    /**
+     * Hits per second at the peak of the day.
+     */
+    private double rate = 500;
+    private Duration duration = Duration.ofSeconds(60);
+    /**
+     * Time before measuring starts, long enough for the JIT, the connection pools and the database to warm up.
+     */
+    private Duration warmup = Duration.ofSeconds(30);
+    private String app = "ewm-main-service";
+    private int uris = 10_000;
+    private double zipf = 1.1;
+    private int ips = 100_000;
+    /**
+     * Depth of the nightly dip, as a share of the peak rate.
+     */
+    private double amplitude = 0.5;
+    /**
+     * Length of a simulated day; defaults to the duration of the run, so that one run covers one day.
+     */
+    private Duration day;
+    private double startHour = 0;
+    /**
+     * {@code /stats} queries per hit, interleaved with the hits.
+     */
+    private double queryRatio = 0.01;
+    private int queryUris = 10;
+    private Duration queryWindow = Duration.ofHours(24);
+    private double uniqueRatio = 0.5;
+    private int maxInFlight = 10_000;
+    private Duration timeout = Duration.ofSeconds(10);
+    private Duration reportInterval = Duration.ofSeconds(10);
+    private long seed = 42;
+    /**
+     * Latency added to every connection the embedded server takes from its pool, to see how the server behaves when
+     * the database slows down; none when zero.
+     */
+    private Duration dbLatency = Duration.ZERO;
+    /**
+     * File to write the JSON summary to, so that runs can be compared; none when empty.
+     */
+    private String report = "";
+    private final Map<String, String> serverProperties = new LinkedHashMap<>();
+
+    public static LoadOptions parse(String... args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got " + arg);
+            }
+            options.set(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        if (options.day == null) {
+            options.day = options.duration;
+        }
+        return options;
+    }
+
+    public boolean isEmbedded() {
+        return url.isEmpty();
+    }
+
+    private void set(String key, String value) {
+        if (key.contains(".")) {
+            serverProperties.put(key, value);
+            return;
+        }
+        switch (key) {
+            case "url" -> url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+            case "transport" -> transport = Transport.valueOf(value.toUpperCase());
+            case "rate" -> rate = Double.parseDouble(value);
+            case "duration" -> duration = seconds(value);
+            case "warmup" -> warmup = seconds(value);
+            case "app" -> app = value;
+            case "uris" -> uris = Integer.parseInt(value);
+            case "zipf" -> zipf = Double.parseDouble(value);
+            case "ips" -> ips = Integer.parseInt(value);
+            case "amplitude" -> amplitude = Double.parseDouble(value);
+            case "day" -> day = seconds(value);
+            case "start-hour" -> startHour = Double.parseDouble(value);
+            case "query-ratio" -> queryRatio = Double.parseDouble(value);
+            case "query-uris" -> queryUris = Integer.parseInt(value);
+            case "query-window" -> queryWindow = Duration.ofHours(Long.parseLong(value));
+            case "unique-ratio" -> uniqueRatio = Double.parseDouble(value);
+            case "max-in-flight" -> maxInFlight = Integer.parseInt(value);
+            case "timeout" -> timeout = seconds(value);
+            case "report-interval" -> reportInterval = seconds(value);
+            case "seed" -> seed = Long.parseLong(value);
+            case "db-latency" -> dbLatency = seconds(value);
+            case "report" -> report = value;
+            default -> throw new IllegalArgumentException("Unknown option " + key);
+        }
+    }
+
+    private static Duration seconds(String value) {
+        return Duration.ofMillis(Math.round(Double.parseDouble(value) * 1000));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+package ru.practicum.ewm.load;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Summary of the measured part of a run. Latencies are taken from the moment a request was scheduled, not from when
+ * it was sent, so a server that falls behind the target rate shows up in the tail instead of slowing the generator.
+ */
+@Getter
+@Builder
+public class LoadReport {
+    private final String server;
+    private final String transport;
+    private final double targetRate;
+    private final double seconds;
+    /**
+     * Hits the schedule called for; fewer completed hits mean the server or the generator did not keep up.
+     */
+    private final long scheduledHits;
+    private final List<Operation> operations;
+
+    public void print(PrintStream out) {
+        out.printf("%nServer %s over %s, %.0f s measured, peak target %.0f hits/s, %d hits scheduled%n",
+                server, transport, seconds, targetRate, scheduledHits);
+        out.printf("%-8s %10s %8s %9s %8s %10s %9s %9s %9s %9s %9s %9s%n", "op", "count", "errors", "rejected",
+                "dropped", "ops/s", "mean ms", "p50 ms", "p90 ms", "p99 ms", "p999 ms", "max ms");
+        for (Operation operation : operations) {
+            out.printf("%-8s %10d %8d %9d %8d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n", operation.name,
+                    operation.count, operation.errors, operation.rejected, operation.dropped, operation.throughput,
+                    operation.meanMs, operation.p50Ms, operation.p90Ms, operation.p99Ms, operation.p999Ms,
+                    operation.maxMs);
+        }
+    }
+
+    @Getter
+    @Builder
+    public static class Operation {
+        private final String name;
+        private final long count;
+        private final long errors;
+        /**
+         * Requests the server shed with 429 or 503; they are not in the latencies.
+         */
+        private final long rejected;
+        private final long dropped;
+        private final double throughput;
+        private final double meanMs;
+        private final double p50Ms;
+        private final double p90Ms;
+        private final double p99Ms;
+        private final double p999Ms;
+        private final double maxMs;
+    }
+}
\ No newline at end of file
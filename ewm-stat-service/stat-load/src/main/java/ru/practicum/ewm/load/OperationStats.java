@@ -0,0 +1,79 @@
+package ru.practicum.ewm.load;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcomes of one kind of request: latencies of the successful ones over the whole run and since the last progress
+ * line, errors, requests the server shed, and requests that were never sent because too many were already in flight.
+ */
+class OperationStats {
+    private final String name;
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final AtomicReference<LatencyHistogram> interval = new AtomicReference<>(new LatencyHistogram());
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicReference<String> lastError = new AtomicReference<>();
+
+    OperationStats(String name) {
+        this.name = name;
+    }
+
+    void success(long latencyNanos) {
+        total.record(latencyNanos);
+        interval.get().record(latencyNanos);
+    }
+
+    void error(Exception e) {
+        errors.increment();
+        lastError.set(e.getClass().getSimpleName() + ": " + e.getMessage());
+    }
+
+    void rejected() {
+        rejected.increment();
+    }
+
+    void dropped() {
+        dropped.increment();
+    }
+
+    /**
+     * Returns the latencies recorded since the previous call and starts a new interval.
+     */
+    LatencyHistogram nextInterval() {
+        return interval.getAndSet(new LatencyHistogram());
+    }
+
+    long errors() {
+        return errors.sum();
+    }
+
+    long rejections() {
+        return rejected.sum();
+    }
+
+    /**
+     * Returns the latest error since the previous call, if any.
+     */
+    String takeLastError() {
+        return lastError.getAndSet(null);
+    }
+
+    LoadReport.Operation summary(double seconds) {
+        return LoadReport.Operation.builder()
+                .name(name)
+                .count(total.count())
+                .errors(errors.sum())
+                .rejected(rejected.sum())
+                .dropped(dropped.sum())
+                .throughput(total.count() / seconds)
+                .meanMs(total.meanMillis())
+                .p50Ms(total.percentileMillis(50))
+                .p90Ms(total.percentileMillis(90))
+                .p99Ms(total.percentileMillis(99))
+                .p999Ms(total.percentileMillis(99.9))
+                .maxMs(total.maxMillis())
+                .build();
+    }
+}
\ No newline at end of file
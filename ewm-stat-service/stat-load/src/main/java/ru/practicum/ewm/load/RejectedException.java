@@ -0,0 +1,18 @@
+package ru.practicum.ewm.load;
+
+/**
+ * The server shed the request with 429 or 503, as its admission control does under overload. Counted apart from
+ * errors, since a shed request is the server working as intended.
+ */
+public class RejectedException extends Exception {
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    public RejectedException(int status) {
+        super("Stat server shed the request with " + status);
+    }
+
+    static boolean isRejection(int status) {
+        return status == TOO_MANY_REQUESTS || status == SERVICE_UNAVAILABLE;
+    }
+}
\ No newline at end of file
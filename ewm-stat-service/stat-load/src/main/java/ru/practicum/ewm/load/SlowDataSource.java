@@ -0,0 +1,35 @@
+package ru.practicum.ewm.load;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Stands in for a database that has slowed down: every connection is held for an extra {@code latency} before it is
+ * handed out, as if its first statement had been slow, so the pool drains and requests queue the way they do when the
+ * real database lags.
+ */
+class SlowDataSource extends DelegatingDataSource {
+    private final Duration latency;
+
+    SlowDataSource(DataSource target, Duration latency) {
+        super(target);
+        this.latency = latency;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            connection.close();
+            throw new SQLException("Interrupted while simulating database latency", e);
+        }
+        return connection;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,238 @@
+package ru.practicum.ewm.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ru.practicum.ewm.EndpointHit;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Speaks HTTP/1.1 over plain blocking sockets from the calling virtual thread, one keep-alive connection per request
+ * in flight. There is no selector thread between the requests and the sockets as in {@link HttpTransport}, so ten
+ * thousand concurrent clients cost ten thousand parked virtual threads and their sockets, which one core can drive.
+ * Use it for runs with that many clients.
+ */
+public class SocketTransport implements StatsTransport {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final String host;
+    private final InetSocketAddress address;
+    private final int timeoutMillis;
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final Deque<Connection> idle = new ConcurrentLinkedDeque<>();
+    private final Set<Connection> open = ConcurrentHashMap.newKeySet();
+
+    public SocketTransport(String serverUrl, Duration timeout) {
+        URI uri = URI.create(serverUrl);
+        host = uri.getHost();
+        address = new InetSocketAddress(host, uri.getPort() < 0 ? 80 : uri.getPort());
+        timeoutMillis = Math.toIntExact(timeout.toMillis());
+    }
+
+    @Override
+    public void hit(EndpointHit hit) throws Exception {
+        exchange("POST", "/hit", objectMapper.writeValueAsBytes(hit));
+    }
+
+    @Override
+    public void stats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) throws Exception {
+        exchange("GET", "/stats?start=" + encode(start.format(FORMATTER))
+                + "&end=" + encode(end.format(FORMATTER))
+                + "&uris=" + encode(String.join(",", uris))
+                + "&unique=" + unique, null);
+    }
+
+    @Override
+    public void close() {
+        for (Connection connection : open) {
+            connection.close();
+        }
+    }
+
+    /**
+     * Sends the request on an idle connection, or on a new one when there is none or the idle one turns out to have
+     * been closed by the server before it answered.
+     */
+    private void exchange(String method, String target, byte[] body) throws Exception {
+        Connection connection = idle.pollFirst();
+        int status;
+        if (connection != null) {
+            try {
+                status = connection.exchange(method, target, body);
+            } catch (EOFException e) {
+                connection.close();
+                connection = connect();
+                status = exchangeOrClose(connection, method, target, body);
+            } catch (IOException e) {
+                connection.close();
+                throw e;
+            }
+        } else {
+            connection = connect();
+            status = exchangeOrClose(connection, method, target, body);
+        }
+        if (connection.keepAlive) {
+            idle.offerFirst(connection);
+        } else {
+            connection.close();
+        }
+        if (RejectedException.isRejection(status)) {
+            throw new RejectedException(status);
+        }
+        if (status / 100 != 2) {
+            throw new IllegalStateException("Stat server responded with " + status);
+        }
+    }
+
+    private int exchangeOrClose(Connection connection, String method, String target, byte[] body)
+            throws IOException {
+        try {
+            return connection.exchange(method, target, body);
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private Connection connect() throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(timeoutMillis);
+            socket.connect(address, timeoutMillis);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        Connection connection = new Connection(socket);
+        open.add(connection);
+        return connection;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private class Connection implements Closeable {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        private boolean keepAlive;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            in = new BufferedInputStream(socket.getInputStream());
+            out = new BufferedOutputStream(socket.getOutputStream());
+        }
+
+        /**
+         * Sends one request and reads the whole response, returning its status. Throws {@link EOFException} when the
+         * server closed the connection before the status line.
+         */
+        int exchange(String method, String target, byte[] body) throws IOException {
+            StringBuilder head = new StringBuilder()
+                    .append(method).append(' ').append(target).append(" HTTP/1.1\r\n")
+                    .append("Host: ").append(host).append("\r\n");
+            if (body != null) {
+                head.append("Content-Type: application/json\r\n")
+                        .append("Content-Length: ").append(body.length).append("\r\n");
+            }
+            out.write(head.append("\r\n").toString().getBytes(StandardCharsets.US_ASCII));
+            if (body != null) {
+                out.write(body);
+            }
+            out.flush();
+
+            String statusLine = readLine();
+            if (statusLine == null) {
+                throw new EOFException("Connection closed before the response");
+            }
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+            long length = status == 204 || status == 304 ? 0 : -1;
+            boolean chunked = false;
+            keepAlive = true;
+            for (String line = header(); !line.isEmpty(); line = header()) {
+                int colon = line.indexOf(':');
+                String name = line.substring(0, colon).trim();
+                String value = line.substring(colon + 1).trim();
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    length = Long.parseLong(value);
+                } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                    chunked = value.equalsIgnoreCase("chunked");
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    keepAlive = !value.equalsIgnoreCase("close");
+                }
+            }
+            if (chunked) {
+                for (long size = chunkSize(); size > 0; size = chunkSize()) {
+                    in.skipNBytes(size + 2);
+                }
+                while (!header().isEmpty()) {
+                    // trailer fields
+                }
+            } else if (length >= 0) {
+                in.skipNBytes(length);
+            } else {
+                in.transferTo(OutputStream.nullOutputStream());
+                keepAlive = false;
+            }
+            return status;
+        }
+
+        @Override
+        public void close() {
+            open.remove(this);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // nothing left to release
+            }
+        }
+
+        private long chunkSize() throws IOException {
+            String line = header();
+            int extension = line.indexOf(';');
+            return Long.parseLong((extension < 0 ? line : line.substring(0, extension)).trim(), 16);
+        }
+
+        private String header() throws IOException {
+            String line = readLine();
+            if (line == null) {
+                throw new IOException("Connection closed in the middle of a response");
+            }
+            return line;
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+            for (int b = in.read(); b != '\n'; b = in.read()) {
+                if (b < 0) {
+                    return line.size() == 0 ? null : line.toString(StandardCharsets.US_ASCII);
+                }
+                if (b != '\r') {
+                    line.write(b);
+                }
+            }
+            return line.toString(StandardCharsets.US_ASCII);
+        }
+    }
+}
\ No newline at end of file
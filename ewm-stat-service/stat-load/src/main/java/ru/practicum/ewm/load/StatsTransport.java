@@ -0,0 +1,22 @@
+package ru.practicum.ewm.load;
+
+import ru.practicum.ewm.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The way the generator talks to the stat server. Implementations are called from many virtual threads at once and
+ * throw {@link RejectedException} when the server sheds a request, and any other exception on transport failures and
+ * on responses that are not 2xx, so that those count as errors.
+ */
+public interface StatsTransport extends AutoCloseable {
+
+    void hit(EndpointHit hit) throws Exception;
+
+    void stats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) throws Exception;
+
+    @Override
+    default void close() {
+    }
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+package ru.practicum.ewm.load;
+
+import ru.practicum.ewm.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Synthetic hits of the main service: {@code /events/{id}} uris with Zipf-distributed popularity, visitors drawn
+ * uniformly from a fixed number of IPv4 addresses, and {@code /stats} queries over the most likely uris.
+ */
+public class TrafficModel {
+    private static final int MAX_IPS = 1 << 24;
+
+    private final String app;
+    private final ZipfDistribution uris;
+    private final int ips;
+
+    public TrafficModel(String app, int uris, double zipfExponent, int ips) {
+        if (ips < 1 || ips > MAX_IPS) {
+            throw new IllegalArgumentException("IP cardinality must be in [1, " + MAX_IPS + "]");
+        }
+        this.app = app;
+        this.uris = new ZipfDistribution(uris, zipfExponent);
+        this.ips = ips;
+    }
+
+    public EndpointHit hit(Random random, LocalDateTime timestamp) {
+        return EndpointHit.builder()
+                .app(app)
+                .uri(uri(uris.sample(random)))
+                .ip(ip(random.nextInt(ips)))
+                .timestamp(timestamp)
+                .build();
+    }
+
+    /**
+     * Distinct uris for one stats query, drawn with the same skew as the hits, the way event pages ask for the views
+     * of what is being looked at.
+     */
+    public List<String> queryUris(Random random, int count) {
+        int limit = Math.min(count, uris.size());
+        Set<String> result = new LinkedHashSet<>();
+        while (result.size() < limit) {
+            result.add(uri(uris.sample(random)));
+        }
+        return new ArrayList<>(result);
+    }
+
+    static String uri(int id) {
+        return "/events/" + id;
+    }
+
+    static String ip(int index) {
+        return "10." + (index >>> 16) + "." + ((index >>> 8) & 0xff) + "." + (index & 0xff);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package ru.practicum.ewm.load;
+
+import java.util.Random;
+
+/**
+ * Zipf distribution over ranks {@code 1..n}: rank k is drawn with probability proportional to {@code 1 / k^s}.
+ * The cumulative distribution is computed once, so a draw is a binary search over it.
+ */
+public class ZipfDistribution {
+    private final double[] cumulative;
+
+    public ZipfDistribution(int n, double exponent) {
+        if (n < 1) {
+            throw new IllegalArgumentException("Zipf distribution needs at least one rank");
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Zipf exponent must not be negative");
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int k = 1; k <= n; k++) {
+            sum += 1 / Math.pow(k, exponent);
+            cumulative[k - 1] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cumulative[i] /= sum;
+        }
+    }
+
+    public int size() {
+        return cumulative.length;
+    }
+
+    public double probability(int rank) {
+        return cumulative[rank - 1] - (rank > 1 ? cumulative[rank - 2] : 0);
+    }
+
+    public int sample(Random random) {
+        double u = random.nextDouble();
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulative[middle] <= u) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low + 1;
+    }
+}
\ No newline at end of file
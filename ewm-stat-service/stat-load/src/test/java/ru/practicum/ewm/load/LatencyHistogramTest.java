@@ -0,0 +1,71 @@
+package ru.practicum.ewm.load;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentilesShouldBeWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(13);
+        long[] micros = new long[100_000];
+        for (int i = 0; i < micros.length; i++) {
+            micros[i] = (long) Math.exp(random.nextDouble() * 14);
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros[i]));
+        }
+        Arrays.sort(micros);
+
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            double exact = micros[(int) Math.ceil(percentile / 100 * micros.length) - 1] / 1000.0;
+            double reported = histogram.percentileMillis(percentile);
+            assertTrue(reported >= exact && reported <= exact * 1.02 + 0.001,
+                    percentile + ": " + reported + " vs " + exact);
+        }
+        assertEquals(micros[micros.length - 1] / 1000.0, histogram.maxMillis(), 1e-9);
+        assertEquals(micros[micros.length - 1] / 1000.0, histogram.percentileMillis(100), 1e-9);
+    }
+
+    @Test
+    void bucketsShouldCoverValuesWithoutGaps() {
+        for (long value = 0; value < 1 << 20; value++) {
+            int index = LatencyHistogram.index(value);
+            assertTrue(value <= LatencyHistogram.upperBound(index), "value " + value);
+            assertTrue(index == 0 || value > LatencyHistogram.upperBound(index - 1), "value " + value);
+        }
+    }
+
+    @Test
+    void concurrentRecordsShouldAllBeCounted() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1000; i++) {
+                executor.execute(() -> {
+                    for (int j = 0; j < 100; j++) {
+                        histogram.record(TimeUnit.MILLISECONDS.toNanos(j));
+                    }
+                });
+            }
+        }
+
+        assertEquals(100_000, histogram.count());
+        assertEquals(49.5, histogram.meanMillis(), 1e-9);
+    }
+
+    @Test
+    void emptyHistogramShouldReportZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentileMillis(99));
+        assertEquals(0, histogram.meanMillis());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,87 @@
+package ru.practicum.ewm.load;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.EndpointHit;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SocketTransportTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 6, 1, 12, 0, 0);
+
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger hitStatus = new AtomicInteger(201);
+    private HttpServer server;
+    private SocketTransport transport;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/hit", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(hitStatus.get(), -1);
+            exchange.close();
+        });
+        server.createContext("/stats", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                for (int i = 0; i < 100; i++) {
+                    body.write("[{\"app\":\"a\",\"uri\":\"/events/1\",\"hits\":1}]".getBytes(StandardCharsets.UTF_8));
+                    body.flush();
+                }
+            }
+        });
+        server.start();
+        transport = new SocketTransport("http://localhost:" + server.getAddress().getPort(), Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+        server.stop(0);
+    }
+
+    @Test
+    void sequentialRequestsShouldShareOneConnection() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            transport.hit(hit());
+            transport.stats(NOW.minusDays(1), NOW, List.of("/events/1"), false);
+        }
+
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    void shedRequestsShouldBeReportedAsRejected() {
+        hitStatus.set(429);
+
+        assertThrows(RejectedException.class, () -> transport.hit(hit()));
+    }
+
+    @Test
+    void failedRequestsShouldBeReportedAsErrors() {
+        hitStatus.set(500);
+
+        assertThrows(IllegalStateException.class, () -> transport.hit(hit()));
+    }
+
+    private static EndpointHit hit() {
+        return EndpointHit.builder().app("a").uri("/events/1").ip("10.0.0.1").timestamp(NOW).build();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,92 @@
+package ru.practicum.ewm.load;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrafficModelTest {
+
+    @Test
+    void zipfShouldFollowPowerLaw() {
+        ZipfDistribution zipf = new ZipfDistribution(1000, 1.0);
+        Random random = new Random(3);
+        int[] counts = new int[zipf.size() + 1];
+        int draws = 200_000;
+        for (int i = 0; i < draws; i++) {
+            counts[zipf.sample(random)]++;
+        }
+
+        for (int rank : new int[]{1, 2, 10}) {
+            double expected = zipf.probability(rank) * draws;
+            assertEquals(expected, counts[rank], expected * 0.05, "rank " + rank);
+        }
+        assertEquals(2.0, zipf.probability(1) / zipf.probability(2), 1e-9);
+    }
+
+    @Test
+    void zipfWithZeroExponentShouldBeUniform() {
+        ZipfDistribution zipf = new ZipfDistribution(4, 0);
+
+        for (int rank = 1; rank <= 4; rank++) {
+            assertEquals(0.25, zipf.probability(rank), 1e-9);
+        }
+    }
+
+    @Test
+    void diurnalCurveShouldDipAtMidnightAndPeakAtNoon() {
+        DiurnalCurve curve = new DiurnalCurve(1000, 0.6, 240, 0);
+
+        assertEquals(400, curve.rate(0), 1e-6);
+        assertEquals(700, curve.rate(60), 1e-6);
+        assertEquals(1000, curve.rate(120), 1e-6);
+        assertEquals(400, curve.rate(240), 1e-6);
+        assertEquals(1000, new DiurnalCurve(1000, 0.6, 240, 12).rate(0), 1e-6);
+    }
+
+    @Test
+    void hitsShouldStayWithinIpCardinalityAndUriRange() {
+        TrafficModel model = new TrafficModel("ewm-main-service", 50, 1.1, 20);
+        Random random = new Random(5);
+        LocalDateTime now = LocalDateTime.of(2024, 6, 1, 12, 0);
+        Set<String> ips = new HashSet<>();
+        Map<String, Integer> uris = new HashMap<>();
+
+        for (int i = 0; i < 10_000; i++) {
+            EndpointHit hit = model.hit(random, now);
+            assertEquals("ewm-main-service", hit.getApp());
+            assertEquals(now, hit.getTimestamp());
+            ips.add(hit.getIp());
+            uris.merge(hit.getUri(), 1, Integer::sum);
+        }
+
+        assertEquals(20, ips.size());
+        assertTrue(uris.keySet().stream().allMatch(uri -> uri.matches("/events/([1-9]|[1-4][0-9]|50)")));
+        assertTrue(uris.get("/events/1") > uris.get("/events/10"));
+    }
+
+    @Test
+    void queryUrisShouldBeDistinct() {
+        TrafficModel model = new TrafficModel("ewm-main-service", 5, 2, 10);
+
+        List<String> uris = model.queryUris(new Random(7), 10);
+
+        assertEquals(5, uris.size());
+        assertEquals(5, new HashSet<>(uris).size());
+    }
+
+    @Test
+    void ipShouldSpreadIndexOverOctets() {
+        assertEquals("10.0.0.0", TrafficModel.ip(0));
+        assertEquals("10.1.2.3", TrafficModel.ip((1 << 16) + (2 << 8) + 3));
+    }
+}
\ No newline at end of file
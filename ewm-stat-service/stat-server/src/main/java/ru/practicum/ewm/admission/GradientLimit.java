@@ -0,0 +1,92 @@
+package ru.practicum.ewm.admission;
+
+/**
+ * Concurrency limit that follows the latency of the work it admits. Samples are grouped into windows of about one
+ * limit's worth of requests; at the end of each window the window's mean latency is compared with a slowly moving
+ * long-term baseline. While the two agree within {@code tolerance} the limit grows by a small queue allowance, and
+ * once the recent latency runs ahead of the baseline the limit shrinks by their ratio, down to half per window. A
+ * window with a failed request (the database gave up, the buffer overflowed) cuts the limit multiplicatively instead.
+ * <p>
+ * The baseline drifts towards recent latency, so a lasting slowdown of the database is eventually accepted as the new
+ * normal rather than pinning the limit at its minimum; while recent latency is well below it, the baseline is pulled
+ * down faster so that the limit can recover. The limit does not grow while less than half of it is in use, since such
+ * windows say nothing about what more concurrency would cost.
+ */
+public class GradientLimit {
+    private static final int MIN_WINDOW_SAMPLES = 10;
+    private static final int LONG_WINDOWS = 600;
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    private static final double BACKOFF = 0.9;
+    private static final double QUEUE_SIZE = 4;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double estimate;
+    private volatile int limit;
+    private double longRtt;
+    private long windowRtt;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private boolean windowDropped;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max, got min " + minLimit
+                    + ", initial " + initialLimit + ", max " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.estimate = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Records a completed request.
+     *
+     * @param rttNanos how long the request took
+     * @param inFlight requests in flight when it was admitted, itself included
+     * @param dropped  whether it failed in a way that signals overload
+     */
+    public synchronized void onSample(long rttNanos, int inFlight, boolean dropped) {
+        windowRtt += rttNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlight);
+        windowDropped |= dropped;
+        if (windowSamples >= Math.max(MIN_WINDOW_SAMPLES, limit)) {
+            update();
+        }
+    }
+
+    private void update() {
+        double shortRtt = (double) windowRtt / windowSamples;
+        double next;
+        if (windowDropped) {
+            next = estimate * BACKOFF;
+        } else {
+            if (longRtt == 0) {
+                longRtt = shortRtt;
+            } else if (longRtt > 2 * shortRtt) {
+                longRtt = (longRtt + shortRtt) / 2;
+            } else {
+                longRtt += (shortRtt - longRtt) / LONG_WINDOWS;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+            double target = estimate * gradient + QUEUE_SIZE;
+            if (target > estimate && windowMaxInFlight < estimate / 2) {
+                target = estimate;
+            }
+            next = estimate * (1 - SMOOTHING) + target * SMOOTHING;
+        }
+        estimate = Math.max(minLimit, Math.min(maxLimit, next));
+        limit = (int) estimate;
+        windowRtt = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+        windowDropped = false;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,118 @@
+package ru.practicum.ewm.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.exceptions.BufferOverflowException;
+import ru.practicum.ewm.exceptions.HitRejectedException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * Admission control for hit ingest. Saves run under a {@link GradientLimit} on concurrency; a hit arriving while the
+ * limit is in use is rejected at once with {@link HitRejectedException} instead of queueing on a request thread behind
+ * a slow database, which keeps the latency of the admitted hits bounded and leaves the caller free to retry later or
+ * give the hit up.
+ * <p>
+ * Batches share the same limit, weighted by size: every {@code stats.admission.hits-per-slot} hits take one slot.
+ * Their latency grows with their size, which would read as overload, so only their failures are fed to the limit.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HitAdmission {
+    private final MeterRegistry meterRegistry;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Value("${stats.admission.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stats.admission.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${stats.admission.min-limit:4}")
+    private int minLimit;
+
+    @Value("${stats.admission.max-limit:200}")
+    private int maxLimit;
+
+    @Value("${stats.admission.hits-per-slot:100}")
+    private int hitsPerSlot;
+
+    @Value("${stats.admission.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    private GradientLimit limit;
+    private Counter acceptedCounter;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        limit = new GradientLimit(initialLimit, minLimit, maxLimit);
+        acceptedCounter = meterRegistry.counter("stats.admission.hits", "result", "accepted");
+        rejectedCounter = meterRegistry.counter("stats.admission.hits", "result", "rejected");
+        Gauge.builder("stats.admission.limit", limit, GradientLimit::getLimit).register(meterRegistry);
+        Gauge.builder("stats.admission.in-flight", inFlight, AtomicInteger::get).register(meterRegistry);
+        log.info("Hit admission control started: limit {} in [{}, {}]", initialLimit, minLimit, maxLimit);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs the save if the limit allows one more, and throws {@link HitRejectedException} otherwise.
+     */
+    public void admit(Runnable save) {
+        admit(1, 1, true, () -> {
+            save.run();
+            return 1;
+        });
+    }
+
+    /**
+     * Runs a batch save if the limit has room for its slots, and throws {@link HitRejectedException} otherwise. A batch
+     * that needs more slots than the whole limit is still admitted when nothing else is in flight.
+     *
+     * @return what the save returns
+     */
+    public int admitBatch(int hits, IntSupplier save) {
+        return admit(hits, Math.max(1, (hits + hitsPerSlot - 1) / hitsPerSlot), false, save);
+    }
+
+    private int admit(int hits, int slots, boolean sampled, IntSupplier save) {
+        if (!enabled) {
+            return save.getAsInt();
+        }
+        int current = inFlight.addAndGet(slots);
+        if (current > limit.getLimit() && current > slots) {
+            inFlight.addAndGet(-slots);
+            rejectedCounter.increment(hits);
+            throw new HitRejectedException("Too many hits in flight, limit " + limit.getLimit(), retryAfterSeconds);
+        }
+        acceptedCounter.increment(hits);
+        long started = System.nanoTime();
+        boolean dropped = false;
+        try {
+            return save.getAsInt();
+        } catch (DataAccessException | BufferOverflowException e) {
+            dropped = true;
+            throw e;
+        } finally {
+            inFlight.addAndGet(-slots);
+            if (sampled || dropped) {
+                limit.onSample(System.nanoTime() - started, current, dropped);
+            }
+        }
+    }
+}
\ No newline at end of file
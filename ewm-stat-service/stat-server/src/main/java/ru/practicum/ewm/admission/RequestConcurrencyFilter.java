@@ -0,0 +1,96 @@
+package ru.practicum.ewm.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the number of requests served at once. With virtual threads the connector no longer caps concurrency, so
+ * every open connection gets a thread and all of them would compete for the CPU and the connection pool; here the
+ * excess waits on a fair {@link Semaphore}, parked and in arrival order. A request that finds the queue full, or
+ * cannot get a permit within the queue timeout, is answered with 503 and Retry-After: under overload a long queue
+ * only spends the CPU on requests whose callers will have timed out by the time they are served.
+ * <p>
+ * Off when {@code stats.requests.max-concurrent} is 0, the default; the {@code virtual-threads} profile turns it on.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RequestConcurrencyFilter extends OncePerRequestFilter {
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stats.requests.max-concurrent:0}")
+    private int maxConcurrent;
+
+    @Value("${stats.requests.max-queued:200}")
+    private int maxQueued;
+
+    @Value("${stats.requests.queue-timeout-ms:1000}")
+    private long queueTimeoutMs;
+
+    @Value("${stats.admission.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    private Semaphore permits;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void start() {
+        if (maxConcurrent <= 0) {
+            return;
+        }
+        permits = new Semaphore(maxConcurrent, true);
+        rejectedCounter = meterRegistry.counter("stats.requests.rejected");
+        Gauge.builder("stats.requests.queued", permits, Semaphore::getQueueLength).register(meterRegistry);
+        log.info("Request concurrency limited to {}, queue {} for {} ms", maxConcurrent, maxQueued, queueTimeoutMs);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return permits == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (!acquire()) {
+            rejectedCounter.increment();
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many requests in progress");
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean acquire() {
+        try {
+            if (permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            return permits.getQueueLength() < maxQueued && permits.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
\ No newline at end of file
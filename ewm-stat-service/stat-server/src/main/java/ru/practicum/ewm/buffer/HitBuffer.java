@@ -0,0 +1,200 @@
+package ru.practicum.ewm.buffer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.cache.StatsQueryCache;
+import ru.practicum.ewm.dedup.HitDeduplicator;
+import ru.practicum.ewm.exceptions.BufferOverflowException;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.topk.TopHitsWindow;
+import ru.practicum.ewm.window.RecentStatsWindow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for incoming hits. Hits are queued in memory and a single flusher thread
+ * writes them with {@link StatsRepository#saveHits} once a batch is full or the flush interval elapses.
+ * The flusher is a virtual thread when the server runs on virtual threads ({@code virtual-threads} profile).
+ * The recent stats and top hits windows count a batch and cached stats covering it are dropped once the batch is
+ * saved, not when its hits are queued, so a batch that fails to flush is not counted.
+ * Hits of a batch that fails to flush are lost, and their ids are given back to the {@link HitDeduplicator} so that
+ * client retries are accepted.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HitBuffer {
+    private static final long STOP_CHECK_INTERVAL_MS = 100;
+
+    private final StatsRepository statsRepository;
+    private final MeterRegistry meterRegistry;
+    private final HitDeduplicator deduplicator;
+    private final StatsQueryCache queryCache;
+    private final RecentStatsWindow recentStats;
+    private final TopHitsWindow topHits;
+
+    @Value("${stats.buffer.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stats.buffer.capacity:10000}")
+    private int capacity;
+
+    @Value("${stats.buffer.flush-size:500}")
+    private int flushSize;
+
+    @Value("${stats.buffer.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    @Value("${stats.buffer.overflow-policy:BLOCK}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private BlockingQueue<EndpointHit> queue;
+    private Thread flusher;
+    private Timer flushTimer;
+    private Counter droppedCounter;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(capacity);
+        flushTimer = Timer.builder("stats.buffer.flush.latency")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        droppedCounter = meterRegistry.counter("stats.buffer.hits.dropped");
+        Gauge.builder("stats.buffer.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+
+        running = true;
+        flusher = (virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform())
+                .name("hit-buffer-flusher")
+                .start(this::runFlusher);
+        log.info("Hit buffer started: capacity {}, flush size {}, flush interval {} ms, overflow policy {}",
+                capacity, flushSize, flushIntervalMs, overflowPolicy);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        flusher.join();
+        log.info("Hit buffer stopped, all queued hits flushed.");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean add(EndpointHit hit) {
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(hit);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new BufferOverflowException("Interrupted while waiting for free space in hit buffer");
+                }
+                return true;
+            case DROP:
+                if (!queue.offer(hit)) {
+                    droppedCounter.increment();
+                    return false;
+                }
+                return true;
+            default:
+                if (!queue.offer(hit)) {
+                    throw new BufferOverflowException("Hit buffer is full");
+                }
+                return true;
+        }
+    }
+
+    public int size() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    private void runFlusher() {
+        List<EndpointHit> batch = new ArrayList<>(flushSize);
+        try {
+            while (running) {
+                EndpointHit first = queue.poll(Math.min(flushIntervalMs, STOP_CHECK_INTERVAL_MS),
+                        TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    fillBatch(batch);
+                    flush(batch);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        while (!batch.isEmpty() || !queue.isEmpty()) {
+            queue.drainTo(batch, flushSize - batch.size());
+            flush(batch);
+        }
+    }
+
+    private void fillBatch(List<EndpointHit> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < flushSize) {
+            queue.drainTo(batch, flushSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= flushSize || remaining <= 0 || !running) {
+                return;
+            }
+            EndpointHit next = queue.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(STOP_CHECK_INTERVAL_MS)),
+                    TimeUnit.NANOSECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+    }
+
+    private void flush(List<EndpointHit> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            flushTimer.record(() -> statsRepository.saveHits(batch));
+            recentStats.recordAll(batch);
+            topHits.recordAll(batch);
+            queryCache.recordAll(batch);
+        } catch (RuntimeException e) {
+            log.error("Failed to flush {} buffered hits", batch.size(), e);
+            droppedCounter.increment(batch.size());
+            forget(batch);
+        }
+        batch.clear();
+    }
+
+    /**
+     * Gives the ids of a dropped batch back to the deduplicator. This needs the database that just failed the flush,
+     * so a failure is only logged; the flusher has to keep running for the queue to drain once it is back.
+     */
+    private void forget(List<EndpointHit> batch) {
+        try {
+            deduplicator.forget(batch);
+        } catch (RuntimeException e) {
+            log.error("Failed to forget the dedup ids of {} dropped hits", batch.size(), e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,7 @@
+package ru.practicum.ewm.buffer;
+
+public enum OverflowPolicy {
+    BLOCK,
+    DROP,
+    REJECT
+}
\ No newline at end of file
@@ -0,0 +1,156 @@
+package ru.practicum.ewm.bulk;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import ru.practicum.ewm.BulkLoadResult;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.codec.IpAddresses;
+import ru.practicum.ewm.dictionary.StatsDictionary;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.rollup.DailyCounters;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.InvalidParameterException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Loads large numbers of hits, for backfills and replays, in chunks of {@code stats.bulk.chunk-size}. On PostgreSQL
+ * each chunk is streamed into {@code stats} with a single {@code COPY}; elsewhere, or when
+ * {@code stats.bulk.copy-enabled} is off, it goes through {@link StatsRepository#saveHits}. Each chunk commits on its
+ * own, so a failed load keeps every chunk before the failing one.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HitBulkLoader {
+    private static final String COPY_HITS = "COPY stats (app_id, uri_id, ip, created) FROM STDIN (FORMAT csv)";
+    private static final DateTimeFormatter CREATED = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StatsRepository statsRepository;
+    private final StatsDictionary dictionary;
+    private final DailyCounters dailyCounters;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${stats.bulk.copy-enabled:true}")
+    private boolean copyEnabled;
+
+    @Value("${stats.bulk.chunk-size:50000}")
+    private int chunkSize;
+
+    @Value("${stats.bulk.progress-interval-ms:5000}")
+    private long progressIntervalMs;
+
+    @Value("${stats.bulk.import-dir:}")
+    private String importDir;
+
+    /**
+     * Loads every hit from {@code hits}, passing each chunk to {@code onChunk} once it is committed.
+     */
+    public BulkLoadResult load(Iterator<EndpointHit> hits, Consumer<List<EndpointHit>> onChunk) {
+        boolean copy = copyEnabled && supportsCopy();
+        String method = copy ? "copy" : "batch";
+        long started = System.nanoTime();
+        long reported = started;
+        long rows = 0;
+        List<EndpointHit> chunk = new ArrayList<>(Math.min(chunkSize, 10_000));
+        while (hits.hasNext()) {
+            chunk.add(hits.next());
+            if (chunk.size() < chunkSize && hits.hasNext()) {
+                continue;
+            }
+            rows += copy ? copy(chunk) : statsRepository.saveHits(chunk);
+            onChunk.accept(chunk);
+            chunk = new ArrayList<>(chunk.size());
+            long now = System.nanoTime();
+            if (now - reported >= progressIntervalMs * 1_000_000) {
+                reported = now;
+                log.info("Bulk load ({}): {} rows, {} rows/s", method, rows, rowsPerSecond(rows, now - started));
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        BulkLoadResult result = BulkLoadResult.builder()
+                .method(method)
+                .rows(rows)
+                .elapsedMs(elapsed / 1_000_000)
+                .rowsPerSecond(rowsPerSecond(rows, elapsed))
+                .build();
+        log.info("Bulk load ({}) finished: {} rows in {} ms, {} rows/s", method, rows, result.getElapsedMs(),
+                result.getRowsPerSecond());
+        return result;
+    }
+
+    /**
+     * Resolves a file name against {@code stats.bulk.import-dir}, refusing anything outside that directory.
+     */
+    public Path resolveImportFile(String name) {
+        if (!StringUtils.hasText(importDir)) {
+            throw new InvalidParameterException("File import is disabled, set stats.bulk.import-dir to enable it");
+        }
+        Path dir = Path.of(importDir).toAbsolutePath().normalize();
+        Path file = dir.resolve(name).normalize();
+        if (!file.startsWith(dir) || file.equals(dir)) {
+            throw new InvalidParameterException("Import file must be inside the import directory: " + name);
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new InvalidParameterException("Import file not found: " + name);
+        }
+        return file;
+    }
+
+    private boolean supportsCopy() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute(
+                (ConnectionCallback<Boolean>) connection -> connection.isWrapperFor(PGConnection.class)));
+    }
+
+    private long copy(List<EndpointHit> chunk) {
+        StringBuilder csv = new StringBuilder(chunk.size() * 48);
+        for (EndpointHit hit : chunk) {
+            appendRow(csv, dictionary.appId(hit.getApp()), dictionary.uriId(hit.getUri()),
+                    IpAddresses.encode(hit.getIp()), hit.getTimestamp());
+        }
+        Long copied = transactionTemplate.execute(status -> {
+            Long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+                try {
+                    return connection.unwrap(PGConnection.class).getCopyAPI()
+                            .copyIn(COPY_HITS, new StringReader(csv.toString()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            dailyCounters.apply(chunk);
+            return rows;
+        });
+        return copied == null ? 0 : copied;
+    }
+
+    static void appendRow(StringBuilder csv, int appId, int uriId, byte[] ip, LocalDateTime created) {
+        csv.append(appId).append(',')
+                .append(uriId).append(',')
+                .append("\\x").append(HEX.formatHex(ip)).append(',');
+        CREATED.formatTo(created, csv);
+        csv.append('\n');
+    }
+
+    private static long rowsPerSecond(long rows, long elapsedNanos) {
+        return elapsedNanos == 0 ? 0 : rows * 1_000_000_000 / elapsedNanos;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,190 @@
+package ru.practicum.ewm.bulk;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.export.ExportFormat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidParameterException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads hits one at a time from NDJSON or CSV, so an upload or a backfill file is never held in memory. CSV columns
+ * are matched by the header, which must name {@code app}, {@code uri}, {@code ip} and {@code timestamp}; any other
+ * column, such as the {@code id} written by {@link ru.practicum.ewm.export.HitExportWriter}, is ignored.
+ */
+public class HitImportReader implements Iterator<EndpointHit>, AutoCloseable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final MappingIterator<EndpointHit> json;
+    private final BufferedReader csv;
+    private final int[] columns;
+    private EndpointHit next;
+    private long line;
+
+    public HitImportReader(ExportFormat format, ObjectMapper objectMapper, InputStream in) throws IOException {
+        if (format == ExportFormat.NDJSON) {
+            json = objectMapper.readerFor(EndpointHit.class).readValues(in);
+            csv = null;
+            columns = null;
+        } else {
+            json = null;
+            csv = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+            columns = readHeader();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = json != null ? nextJson() : nextCsv();
+        }
+        return next != null;
+    }
+
+    @Override
+    public EndpointHit next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        EndpointHit hit = next;
+        next = null;
+        return hit;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (json != null) {
+            json.close();
+        } else {
+            csv.close();
+        }
+    }
+
+    private EndpointHit nextJson() {
+        try {
+            return json.hasNextValue() ? json.nextValue() : null;
+        } catch (JsonProcessingException e) {
+            throw new InvalidParameterException("Malformed hit: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private EndpointHit nextCsv() {
+        List<String> fields = readRecord();
+        if (fields == null) {
+            return null;
+        }
+        if (fields.size() <= max(columns)) {
+            throw new InvalidParameterException("Expected " + (max(columns) + 1) + " fields on line " + line);
+        }
+        try {
+            return EndpointHit.builder()
+                    .app(fields.get(columns[0]))
+                    .uri(fields.get(columns[1]))
+                    .ip(fields.get(columns[2]))
+                    .timestamp(LocalDateTime.parse(fields.get(columns[3]), TIMESTAMP))
+                    .build();
+        } catch (DateTimeParseException e) {
+            throw new InvalidParameterException("Malformed timestamp on line " + line + ": " + e.getParsedString());
+        }
+    }
+
+    private int[] readHeader() {
+        List<String> header = readRecord();
+        if (header == null) {
+            return new int[]{0, 1, 2, 3};
+        }
+        int[] result = new int[]{header.indexOf("app"), header.indexOf("uri"), header.indexOf("ip"),
+                header.indexOf("timestamp")};
+        for (int column : result) {
+            if (column < 0) {
+                throw new InvalidParameterException("CSV header must name app, uri, ip and timestamp, got "
+                        + String.join(",", header));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads one RFC 4180 record, where a quoted field may hold commas, doubled quotes and line breaks. Blank lines are
+     * skipped; {@code null} means the input is exhausted.
+     */
+    private List<String> readRecord() {
+        try {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean any = false;
+            int c;
+            while ((c = csv.read()) >= 0) {
+                if (quoted) {
+                    if (c != '"') {
+                        field.append((char) c);
+                    } else {
+                        csv.mark(1);
+                        if (csv.read() == '"') {
+                            field.append('"');
+                        } else {
+                            csv.reset();
+                            quoted = false;
+                        }
+                    }
+                    continue;
+                }
+                if (c == '\r') {
+                    continue;
+                }
+                if (c == '\n') {
+                    line++;
+                    if (!any) {
+                        continue;
+                    }
+                    break;
+                }
+                any = true;
+                if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append((char) c);
+                }
+            }
+            if (quoted) {
+                throw new InvalidParameterException("Unterminated quoted field on line " + line);
+            }
+            if (!any) {
+                return null;
+            }
+            fields.add(field.toString());
+            return fields;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int max(int[] values) {
+        int result = 0;
+        for (int value : values) {
+            result = Math.max(result, value);
+        }
+        return result;
+    }
+}
\ No newline at end of file
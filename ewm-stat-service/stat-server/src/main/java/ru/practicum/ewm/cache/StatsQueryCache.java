@@ -0,0 +1,282 @@
+package ru.practicum.ewm.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewsStatsRequest;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Caches stats query results. Requests are keyed with their uris sorted and the end rounded down to
+ * {@code end-granularity-ms}, so the "until now" queries of many pages collapse into one entry; a request shares the
+ * result computed for the first request of its key, which may miss up to one granularity of hits at the end of the
+ * range.
+ * <p>
+ * Entries are dropped when the cache is full (least recently used first), when they outlive the TTL, and when hits
+ * were saved into their range. Callers record hits only once they are durable, and the overlapping entries are
+ * dropped before {@link #record} returns, so a query made after a hit was saved always sees it. A query already
+ * running when an overlapping hit is recorded may or may not have counted it, so its result is returned but not
+ * cached.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StatsQueryCache {
+    private final MeterRegistry meterRegistry;
+    private final List<Running> running = new ArrayList<>();
+
+    @Value("${stats.cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stats.cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${stats.cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${stats.cache.end-granularity-ms:10000}")
+    private long endGranularityMs;
+
+    private Map<Key, Entry> entries;
+    private Counter hitCounter;
+    private Counter missCounter;
+    private Counter sizeEvictions;
+    private Counter expiredEvictions;
+    private Counter invalidatedEvictions;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() <= maxEntries) {
+                    return false;
+                }
+                sizeEvictions.increment();
+                return true;
+            }
+        };
+        hitCounter = meterRegistry.counter("stats.cache.requests", "result", "hit");
+        missCounter = meterRegistry.counter("stats.cache.requests", "result", "miss");
+        sizeEvictions = meterRegistry.counter("stats.cache.evictions", "cause", "size");
+        expiredEvictions = meterRegistry.counter("stats.cache.evictions", "cause", "expired");
+        invalidatedEvictions = meterRegistry.counter("stats.cache.evictions", "cause", "invalidated");
+        Gauge.builder("stats.cache.size", this, StatsQueryCache::size).register(meterRegistry);
+        log.info("Stats query cache started: {} entries, ttl {} ms, end granularity {} ms", maxEntries, ttlMs,
+                endGranularityMs);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<ViewStats> get(ViewsStatsRequest request, Supplier<List<ViewStats>> query) {
+        Key key = new Key(request, endGranularityMs);
+        long now = System.currentTimeMillis();
+        Running computing;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && now - entry.createdAt < ttlMs) {
+                hitCounter.increment();
+                return entry.stats;
+            }
+            if (entry != null) {
+                entries.remove(key);
+                expiredEvictions.increment();
+            }
+            computing = start(key);
+        }
+        missCounter.increment();
+        try {
+            List<ViewStats> stats = List.copyOf(query.get());
+            synchronized (this) {
+                if (!computing.stale) {
+                    entries.put(key, new Entry(stats, now));
+                }
+            }
+            return stats;
+        } finally {
+            finish(List.of(computing));
+        }
+    }
+
+    /**
+     * Like {@link #get} for several requests: the ones without a fresh entry are handed to the query together, in
+     * their original order, and its results are stored for them.
+     */
+    public List<List<ViewStats>> getAll(List<ViewsStatsRequest> requests,
+                                        Function<List<ViewsStatsRequest>, List<List<ViewStats>>> query) {
+        List<Key> keys = requests.stream().map(request -> new Key(request, endGranularityMs)).toList();
+        List<List<ViewStats>> results = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        List<Integer> missed = new ArrayList<>();
+        List<Running> queries = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            for (int i = 0; i < requests.size(); i++) {
+                Entry entry = entries.get(keys.get(i));
+                if (entry != null && now - entry.createdAt < ttlMs) {
+                    hitCounter.increment();
+                    results.set(i, entry.stats);
+                    continue;
+                }
+                if (entry != null) {
+                    entries.remove(keys.get(i));
+                    expiredEvictions.increment();
+                }
+                missCounter.increment();
+                missed.add(i);
+                queries.add(start(keys.get(i)));
+            }
+        }
+        if (missed.isEmpty()) {
+            return results;
+        }
+        try {
+            List<List<ViewStats>> computed = query.apply(missed.stream().map(requests::get).toList());
+            synchronized (this) {
+                for (int i = 0; i < missed.size(); i++) {
+                    int index = missed.get(i);
+                    List<ViewStats> stats = List.copyOf(computed.get(i));
+                    results.set(index, stats);
+                    if (!queries.get(i).stale) {
+                        entries.put(keys.get(index), new Entry(stats, now));
+                    }
+                }
+            }
+            return results;
+        } finally {
+            finish(queries);
+        }
+    }
+
+    /**
+     * Drops the entries whose range holds the hit. Call once the hit is durable, so that a query refilling an entry
+     * right after this returns already counts it.
+     */
+    public void record(EndpointHit hit) {
+        long millis = millisOf(hit.getTimestamp());
+        invalidate(millis, millis);
+    }
+
+    /**
+     * Like {@link #record} for several hits, in one pass over the entries that covers the whole time span of the hits.
+     */
+    public void recordAll(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        long from = Long.MAX_VALUE;
+        long to = Long.MIN_VALUE;
+        for (EndpointHit hit : hits) {
+            long millis = millisOf(hit.getTimestamp());
+            from = Math.min(from, millis);
+            to = Math.max(to, millis);
+        }
+        invalidate(from, to);
+    }
+
+    private synchronized double size() {
+        return entries.size();
+    }
+
+    private synchronized void invalidate(long from, long to) {
+        if (!enabled) {
+            return;
+        }
+        Iterator<Key> keys = entries.keySet().iterator();
+        while (keys.hasNext()) {
+            if (keys.next().overlaps(from, to)) {
+                keys.remove();
+                invalidatedEvictions.increment();
+            }
+        }
+        for (Running query : running) {
+            if (query.key.overlaps(from, to)) {
+                query.stale = true;
+            }
+        }
+    }
+
+    private Running start(Key key) {
+        Running query = new Running(key);
+        running.add(query);
+        return query;
+    }
+
+    private synchronized void finish(List<Running> queries) {
+        running.removeAll(queries);
+    }
+
+    private static long millisOf(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    @EqualsAndHashCode
+    private static class Key {
+        private final TreeSet<String> uris;
+        private final long startMillis;
+        private final long endBucket;
+        private final boolean unique;
+        private final boolean approximate;
+        private final String application;
+        private final Integer limit;
+        @EqualsAndHashCode.Exclude
+        private final long endMillis;
+
+        private Key(ViewsStatsRequest request, long endGranularityMs) {
+            uris = request.getUris() == null ? new TreeSet<>() : new TreeSet<>(request.getUris());
+            startMillis = millisOf(request.getStart());
+            endBucket = Math.floorDiv(millisOf(request.getEnd()), endGranularityMs);
+            unique = request.isUnique();
+            approximate = request.isUnique() && request.isApproximate();
+            application = request.getApplication();
+            limit = request.getLimit();
+            endMillis = (endBucket + 1) * endGranularityMs - 1;
+        }
+
+        /**
+         * Whether the range may hold a hit between {@code from} and {@code to}. Any end within the rounded bucket
+         * shares the entry, so the range runs to the last millisecond of that bucket.
+         */
+        private boolean overlaps(long from, long to) {
+            return startMillis <= to && endMillis >= from;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class Entry {
+        private final List<ViewStats> stats;
+        private final long createdAt;
+    }
+
+    /**
+     * A query computing a missed entry. Marked stale when an overlapping hit is recorded while it runs.
+     */
+    @RequiredArgsConstructor
+    private static class Running {
+        private final Key key;
+        private boolean stale;
+    }
+}
\ No newline at end of file
@@ -1,24 +1,50 @@
 package ru.practicum.ewm.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.ewm.BulkLoadResult;
 import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.EndpointHitBatchResult;
+import ru.practicum.ewm.StatsQuery;
+import ru.practicum.ewm.TopViewStats;
 import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewTimeSeries;
 import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.admission.HitAdmission;
+import ru.practicum.ewm.bulk.HitBulkLoader;
+import ru.practicum.ewm.bulk.HitImportReader;
+import ru.practicum.ewm.codec.EndpointHitCodec;
+import ru.practicum.ewm.export.ExportFormat;
+import ru.practicum.ewm.export.HitExportWriter;
+import ru.practicum.ewm.rollup.TimeBucket;
 import ru.practicum.ewm.service.StatsService;
+import ru.practicum.ewm.topk.TopHits;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.InvalidParameterException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Slf4j
@@ -27,33 +53,264 @@ import java.util.List;
 @RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 public class StatsController {
     private static final String DATE_TIME_PATTERN = "yyyy-MM-dd HH:mm:ss";
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final String ERROR_BOUND_HEADER = "X-Stats-Error-Bound";
 
     private final StatsService service;
+    private final ObjectMapper objectMapper;
+    private final HitBulkLoader bulkLoader;
+    private final HitAdmission admission;
+
+    @Value("${stats.hit.batch-size:500}")
+    private int batchSize;
+
+    @Value("${stats.query.max-queries:100}")
+    private int maxQueries;
 
     @PostMapping("/hit")
     @ResponseStatus(code = HttpStatus.CREATED)
     public void hit(@RequestBody EndpointHit hit) {
-        log.info("POST request to save information.");
-        service.saveHit(hit);
+        admission.admit(() -> service.saveHit(hit));
+    }
+
+    @PostMapping(value = "/hit", consumes = EndpointHitCodec.MEDIA_TYPE)
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public void hitBinary(InputStream body) throws IOException {
+        EndpointHitCodec.Decoder decoder = new EndpointHitCodec.Decoder(body);
+        EndpointHit hit = decoder.next();
+        if (decoder.hasNext()) {
+            throw new InvalidParameterException("Expected a single hit, use /hit/batch for more");
+        }
+        admission.admit(() -> service.saveHit(hit));
+    }
+
+    @PostMapping(value = "/hit/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public EndpointHitBatchResult hitBatch(@RequestBody List<EndpointHit> hits) {
+        return new EndpointHitBatchResult(admission.admitBatch(hits.size(), () -> service.saveHits(hits)));
+    }
+
+    @PostMapping(value = "/hit/batch", consumes = APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public EndpointHitBatchResult hitStream(InputStream body) throws IOException {
+        log.debug("POST request to save a stream of hits.");
+        return new EndpointHitBatchResult(admitStream(() -> {
+            int accepted = 0;
+            try (MappingIterator<EndpointHit> iterator = objectMapper.readerFor(EndpointHit.class).readValues(body)) {
+                List<EndpointHit> chunk = new ArrayList<>(batchSize);
+                while (iterator.hasNextValue()) {
+                    chunk.add(iterator.nextValue());
+                    if (chunk.size() == batchSize) {
+                        accepted += service.saveHits(chunk);
+                        chunk.clear();
+                    }
+                }
+                accepted += service.saveHits(chunk);
+            }
+            return accepted;
+        }));
+    }
+
+    @PostMapping(value = "/hit/batch", consumes = EndpointHitCodec.MEDIA_TYPE)
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public EndpointHitBatchResult hitBinaryStream(InputStream body) throws IOException {
+        log.debug("POST request to save a binary stream of hits.");
+        return new EndpointHitBatchResult(admitStream(() -> {
+            int accepted = 0;
+            EndpointHitCodec.Decoder decoder = new EndpointHitCodec.Decoder(body);
+            List<EndpointHit> chunk = new ArrayList<>(batchSize);
+            while (decoder.hasNext()) {
+                chunk.add(decoder.next());
+                if (chunk.size() == batchSize) {
+                    accepted += service.saveHits(chunk);
+                    chunk.clear();
+                }
+            }
+            accepted += service.saveHits(chunk);
+            return accepted;
+        }));
+    }
+
+    @PostMapping(value = "/hits/import", consumes = APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public BulkLoadResult importNdjson(InputStream body) throws IOException {
+        log.debug("POST request to bulk load NDJSON hits.");
+        return importHits(ExportFormat.NDJSON, body);
+    }
+
+    @PostMapping(value = "/hits/import", consumes = TEXT_CSV_VALUE)
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public BulkLoadResult importCsv(InputStream body) throws IOException {
+        log.debug("POST request to bulk load CSV hits.");
+        return importHits(ExportFormat.CSV, body);
+    }
+
+    @PostMapping("/hits/import/file")
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public BulkLoadResult importFile(@RequestParam String name,
+                                     @RequestParam(defaultValue = "ndjson") String format) throws IOException {
+        log.debug("POST request to bulk load hits from file {}.", name);
+        ExportFormat importFormat = ExportFormat.from(format);
+        Path file = bulkLoader.resolveImportFile(name);
+        try (InputStream in = Files.newInputStream(file)) {
+            return importHits(importFormat, in);
+        }
+    }
+
+    @GetMapping(value = "/hits/export", produces = MediaType.ALL_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportHits(
+            @RequestParam @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime end,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, defaultValue = "") String acceptEncoding) {
+        log.debug("GET request to export hits from {} to {}.", start, end);
+        if (end.isBefore(start)) {
+            throw new InvalidParameterException("Uncorrected format of dates");
+        }
+        ExportFormat exportFormat = ExportFormat.from(format);
+        boolean gzip = acceptEncoding.contains("gzip");
+        StreamingResponseBody body = out -> {
+            try (HitExportWriter writer = new HitExportWriter(exportFormat, gzip, objectMapper, out)) {
+                service.exportHits(start, end, writer::write);
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()));
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
     @GetMapping("/stats")
-    public List<ViewStats> getStats(@RequestParam @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime start,
-                                    @RequestParam @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime end,
-                                    @RequestParam(defaultValue = "") List<String> uris,
-                                    @RequestParam(defaultValue = "false") boolean unique) {
-        log.info("GET request to get all statistic.");
+    public ResponseEntity<List<ViewStats>> getStats(
+            @RequestParam @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime end,
+            @RequestParam(defaultValue = "") List<String> uris,
+            @RequestParam(defaultValue = "false") boolean unique,
+            @RequestParam(defaultValue = "false") boolean approximate,
+            @RequestParam(required = false) Integer limit) {
         if (end.isBefore(start)) {
             log.info("Uncorrected format of dates start {} и end {}", start, end);
             throw new InvalidParameterException("Uncorrected format of dates");
         }
-        return service.getViewStatsList(
+        if (limit != null && limit <= 0) {
+            throw new InvalidParameterException("Limit must be positive");
+        }
+        List<ViewStats> stats = service.getViewStatsList(
                 ViewsStatsRequest.builder()
                         .start(start)
                         .end(end)
                         .uris(uris)
                         .unique(unique)
+                        .approximate(approximate)
+                        .limit(limit)
                         .build()
         );
+        if (unique && approximate) {
+            return ResponseEntity.ok()
+                    .header(ERROR_BOUND_HEADER, String.valueOf(service.getApproximationError()))
+                    .body(stats);
+        }
+        return ResponseEntity.ok(stats);
+    }
+
+    @PostMapping(value = "/stats/query", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public List<List<ViewStats>> queryStats(@RequestBody List<StatsQuery> queries) {
+        log.debug("POST request to get stats for {} windows.", queries.size());
+        if (queries.isEmpty() || queries.size() > maxQueries) {
+            throw new InvalidParameterException("Expected from 1 to " + maxQueries + " queries");
+        }
+        List<ViewsStatsRequest> requests = new ArrayList<>(queries.size());
+        for (StatsQuery query : queries) {
+            if (query.getStart() == null || query.getEnd() == null) {
+                throw new InvalidParameterException("Start and end are required");
+            }
+            if (query.getEnd().isBefore(query.getStart())) {
+                throw new InvalidParameterException("Uncorrected format of dates");
+            }
+            requests.add(ViewsStatsRequest.builder()
+                    .start(query.getStart())
+                    .end(query.getEnd())
+                    .uris(query.getUris() == null ? List.of() : query.getUris())
+                    .unique(query.isUnique())
+                    .build());
+        }
+        return service.getViewStatsLists(requests);
+    }
+
+    @GetMapping("/stats/timeseries")
+    public ViewTimeSeries getTimeSeries(
+            @RequestParam @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime end,
+            @RequestParam(defaultValue = "") List<String> uris,
+            @RequestParam(defaultValue = "hour") String bucket,
+            @RequestParam(required = false) Integer limit) {
+        log.debug("GET request to get {} hits from {} to {}.", bucket, start, end);
+        if (end.isBefore(start)) {
+            throw new InvalidParameterException("Uncorrected format of dates");
+        }
+        if (limit != null && limit <= 0) {
+            throw new InvalidParameterException("Limit must be positive");
+        }
+        return service.getTimeSeries(ViewsStatsRequest.builder()
+                .start(start)
+                .end(end)
+                .uris(uris)
+                .limit(limit)
+                .build(), TimeBucket.from(bucket));
+    }
+
+    @GetMapping("/stats/top")
+    public ResponseEntity<List<TopViewStats>> getTopStats(
+            @RequestParam @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime start,
+            @RequestParam @DateTimeFormat(pattern = DATE_TIME_PATTERN) LocalDateTime end,
+            @RequestParam(defaultValue = "10") int k,
+            @RequestParam(required = false) String app) {
+        log.debug("GET request to get top {} uris from {} to {}.", k, start, end);
+        if (end.isBefore(start)) {
+            throw new InvalidParameterException("Uncorrected format of dates");
+        }
+        if (k <= 0) {
+            throw new InvalidParameterException("k must be positive");
+        }
+        TopHits top = service.getTopStats(ViewsStatsRequest.builder()
+                .start(start)
+                .end(end)
+                .application(app)
+                .limit(k)
+                .build());
+        return ResponseEntity.ok()
+                .header(ERROR_BOUND_HEADER, String.valueOf(top.getFloor()))
+                .body(top.getStats());
+    }
+
+    /**
+     * Admits a stream once, before reading it, as one chunk's worth of hits: it saves a chunk at a time, and a
+     * rejection then never leaves a stream half saved.
+     */
+    private int admitStream(StreamSave save) throws IOException {
+        try {
+            return admission.admitBatch(batchSize, () -> {
+                try {
+                    return save.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private BulkLoadResult importHits(ExportFormat format, InputStream in) throws IOException {
+        try (HitImportReader reader = new HitImportReader(format, objectMapper, in)) {
+            return service.bulkLoad(reader);
+        }
+    }
+
+    private interface StreamSave {
+        int run() throws IOException;
     }
 }
\ No newline at end of file
@@ -0,0 +1,181 @@
+package ru.practicum.ewm.dedup;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.repository.SqlArrays;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Drops retried hits: a hit that carries a client-generated id is counted once per id within the dedup window.
+ * <p>
+ * Ids are looked up in a {@link RotatingBloomFilter} first. An id the filter has not seen is new for certain, which
+ * is the common case and costs no I/O. Only ids the filter reports as probably seen are checked exactly, against the
+ * ids accepted since the last flush and the {@code stats_hit_ids} table, so a false positive of the filter costs one
+ * indexed lookup and never a lost hit. Accepted ids are written to the table in batches every
+ * {@code flush-interval-ms}, after which the table alone answers for them; the filter is reloaded from the table on
+ * start, which carries the window over restarts. Ids are kept for at least {@code window-ms} and at most twice as long.
+ * <p>
+ * The window holds per instance only: an id this instance's filter has never seen is accepted without a lookup, so a
+ * retry that reaches another instance than the original hit is counted again.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HitDeduplicator {
+    private static final String POSTGRES_INSERT = "INSERT INTO stats_hit_ids (id, created) VALUES (?, ?) "
+            + "ON CONFLICT (id) DO NOTHING";
+    private static final String MERGE_INSERT = "MERGE INTO stats_hit_ids KEY (id) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<Long, Long> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    @Value("${stats.dedup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stats.dedup.window-ms:600000}")
+    private long windowMs;
+
+    @Value("${stats.dedup.expected-hits:1000000}")
+    private long expectedHits;
+
+    @Value("${stats.dedup.fpp:0.01}")
+    private double fpp;
+
+    private RotatingBloomFilter filter;
+    private String insert;
+    private Counter newCounter;
+    private Counter duplicateCounter;
+    private Counter falsePositiveCounter;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        insert = "PostgreSQL".equals(product) ? POSTGRES_INSERT : MERGE_INSERT;
+        newCounter = meterRegistry.counter("stats.dedup.hits", "result", "new");
+        duplicateCounter = meterRegistry.counter("stats.dedup.hits", "result", "duplicate");
+        falsePositiveCounter = meterRegistry.counter("stats.dedup.hits", "result", "false-positive");
+        filter = new RotatingBloomFilter(expectedHits, fpp);
+        long[] loaded = new long[1];
+        jdbcTemplate.query("SELECT id FROM stats_hit_ids WHERE created >= ?", rs -> {
+            filter.put(rs.getLong("id"));
+            loaded[0]++;
+        }, new Timestamp(System.currentTimeMillis() - windowMs));
+        log.info("Hit dedup started: {} KiB of filters for {} ids per {} ms window, {} recent ids loaded",
+                filter.getBitSize() / 8 / 1024, expectedHits, windowMs, loaded[0]);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns whether a hit with the same id was already accepted, and remembers the id otherwise. Hits without an
+     * id are never duplicates.
+     */
+    public boolean isDuplicate(EndpointHit hit) {
+        if (!enabled || hit.getId() == null) {
+            return false;
+        }
+        long id = hit.getId();
+        if (filter.mightContain(id)) {
+            if (pending.containsKey(id) || isStored(id)) {
+                duplicateCounter.increment();
+                return true;
+            }
+            falsePositiveCounter.increment();
+        }
+        filter.put(id);
+        if (pending.putIfAbsent(id, System.currentTimeMillis()) != null) {
+            duplicateCounter.increment();
+            return true;
+        }
+        newCounter.increment();
+        return false;
+    }
+
+    /**
+     * Forgets the ids of accepted hits that could not be saved after all, so that their retries are not dropped. The
+     * ids leave the pending map before the stored ones are deleted, so retries to this instance are accepted even when
+     * the delete fails, as it will while the database that failed the save is down; the failure is still thrown.
+     * Runs under the flush lock, so a flush that already took an id cannot write it back after it was deleted.
+     */
+    public void forget(List<EndpointHit> hits) {
+        if (!enabled) {
+            return;
+        }
+        List<Long> ids = hits.stream()
+                .map(EndpointHit::getId)
+                .filter(Objects::nonNull)
+                .toList();
+        if (ids.isEmpty()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            ids.forEach(pending::remove);
+            jdbcTemplate.update("DELETE FROM stats_hit_ids WHERE id = ANY(?)", SqlArrays.longs(ids));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the ids accepted since the last flush. They stay in the pending map until the write has committed, so
+     * an id is always found in one place or the other.
+     */
+    @Scheduled(fixedDelayString = "${stats.dedup.flush-interval-ms:200}")
+    public void flush() {
+        if (!enabled || pending.isEmpty()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            List<Object[]> rows = new ArrayList<>(pending.size());
+            pending.forEach((id, created) -> rows.add(new Object[]{id, new Timestamp(created)}));
+            jdbcTemplate.batchUpdate(insert, rows);
+            for (Object[] row : rows) {
+                pending.remove((Long) row[0], ((Timestamp) row[1]).getTime());
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.dedup.window-ms:600000}",
+            initialDelayString = "${stats.dedup.window-ms:600000}")
+    public void rotate() {
+        if (!enabled) {
+            return;
+        }
+        filter.rotate();
+        int expired = jdbcTemplate.update("DELETE FROM stats_hit_ids WHERE created < ?",
+                new Timestamp(System.currentTimeMillis() - 2 * windowMs));
+        log.debug("Hit dedup filters rotated, {} expired ids deleted", expired);
+    }
+
+    private boolean isStored(long id) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats_hit_ids WHERE id = ?", Integer.class, id) > 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package ru.practicum.ewm.dedup;
+
+/**
+ * Two {@link BloomFilter} generations: keys go into the current one and are looked up in both. Each
+ * {@link #rotate()} drops the previous generation and starts an empty current one, so with rotations every
+ * {@code window} a key is remembered for at least one window and at most two, in bounded memory however long the
+ * stream runs. With both generations full the false-positive probability is about twice that of one generation.
+ */
+public class RotatingBloomFilter {
+    private final long expectedInsertions;
+    private final double fpp;
+    private volatile BloomFilter current;
+    private volatile BloomFilter previous;
+
+    public RotatingBloomFilter(long expectedInsertions, double fpp) {
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.current = new BloomFilter(expectedInsertions, fpp);
+        this.previous = new BloomFilter(expectedInsertions, fpp);
+    }
+
+    public boolean mightContain(long key) {
+        return current.mightContain(key) || previous.mightContain(key);
+    }
+
+    public void put(long key) {
+        current.put(key);
+    }
+
+    public synchronized void rotate() {
+        previous = current;
+        current = new BloomFilter(expectedInsertions, fpp);
+    }
+
+    /**
+     * Bits held by both generations.
+     */
+    public long getBitSize() {
+        return 2 * current.getBitSize();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package ru.practicum.ewm.dictionary;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * All known uris in code-point order, for answering prefix patterns with a range walk instead of a {@code LIKE} scan.
+ * A database range scan would follow the column collation, which on PostgreSQL is usually not code-point order, so
+ * the index is kept in process. Uris resolved by the {@link StatsDictionary} are added as soon as they are known.
+ * Uris are never deleted, so the ones inserted by other instances are caught up by reading ids above the highest one
+ * read so far, a primary key range read that is normally empty, at most once per refresh interval; until then a prefix
+ * query may miss a uri first seen by another instance. A uri another instance committed below that id is picked up by
+ * the periodic resync.
+ */
+@Component
+@RequiredArgsConstructor
+public class SortedUriIndex {
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile ConcurrentSkipListMap<String, Integer> uris = new ConcurrentSkipListMap<>();
+    private volatile long nextRefresh = System.nanoTime();
+    private int lastId;
+
+    @Value("${stats.dictionary.refresh-interval-ms:1000}")
+    private long refreshIntervalMs;
+
+    public List<Integer> findByPrefix(String prefix) {
+        refresh();
+        List<Integer> ids = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : uris.tailMap(prefix).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            ids.add(entry.getValue());
+        }
+        return ids;
+    }
+
+    public void add(String uri, int id) {
+        uris.put(uri, id);
+    }
+
+    public void clear() {
+        lock.lock();
+        try {
+            uris = new ConcurrentSkipListMap<>();
+            lastId = 0;
+            nextRefresh = System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reloads the whole table into a fresh map and swaps it in, so that readers never see a partly loaded index.
+     */
+    @Scheduled(fixedDelayString = "${stats.dictionary.resync-interval-ms:600000}",
+            initialDelayString = "${stats.dictionary.resync-interval-ms:600000}")
+    public void resync() {
+        lock.lock();
+        try {
+            ConcurrentSkipListMap<String, Integer> loaded = new ConcurrentSkipListMap<>();
+            jdbcTemplate.query("SELECT id, uri FROM uris", rs -> {
+                loaded.put(rs.getString("uri"), rs.getInt("id"));
+            });
+            lastId = loaded.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+            uris = loaded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Catches up with the uris table once the refresh interval has passed. A caller that finds it not due, or another
+     * caller already refreshing, reads the index as it is instead of waiting. Guarded by a lock rather than a monitor:
+     * the query would otherwise pin a virtual thread to its carrier while it waits for the database.
+     */
+    private void refresh() {
+        if (System.nanoTime() - nextRefresh < 0 || !lock.tryLock()) {
+            return;
+        }
+        try {
+            if (System.nanoTime() - nextRefresh < 0) {
+                return;
+            }
+            jdbcTemplate.query("SELECT id, uri FROM uris WHERE id > ?", rs -> {
+                int id = rs.getInt("id");
+                uris.put(rs.getString("uri"), id);
+                lastId = Math.max(lastId, id);
+            }, lastId);
+            nextRefresh = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(refreshIntervalMs);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,175 @@
+package ru.practicum.ewm.dictionary;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.ewm.repository.SqlArrays;
+
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns app names and uris as integer ids. Resolved ids are cached in process, so ingest normally needs no extra
+ * round trip; ids never change once assigned, so the cache is simply cleared when it grows past its limit.
+ * <p>
+ * Writers resolve ids before they open the transaction that inserts hits. An id resolved inside a transaction is
+ * cached only once that transaction commits, since a rollback takes a row inserted by it along.
+ */
+@Component
+@RequiredArgsConstructor
+public class StatsDictionary {
+    private static final char WILDCARD = '*';
+    private static final String POSTGRES_INSERT = "INSERT INTO %s (%s) VALUES (?) ON CONFLICT (%2$s) DO NOTHING";
+    private static final String MERGE_INSERT = "MERGE INTO %s (%s) KEY (%2$s) VALUES (?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SortedUriIndex sortedUris;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Integer> apps = new ConcurrentHashMap<>();
+    private final Map<String, Integer> uris = new ConcurrentHashMap<>();
+
+    @Value("${stats.dictionary.cache-size:100000}")
+    private int cacheSize;
+
+    private String insert;
+
+    @PostConstruct
+    public void start() {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        insert = "PostgreSQL".equals(product) ? POSTGRES_INSERT : MERGE_INSERT;
+        Gauge.builder("stats.dictionary.cache.size", apps, Map::size)
+                .description("Ids cached in process")
+                .tag("table", "apps")
+                .register(meterRegistry);
+        Gauge.builder("stats.dictionary.cache.size", uris, Map::size)
+                .description("Ids cached in process")
+                .tag("table", "uris")
+                .register(meterRegistry);
+    }
+
+    public int appId(String app) {
+        return resolve(apps, "apps", "name", app);
+    }
+
+    public int uriId(String uri) {
+        return resolve(uris, "uris", "uri", uri);
+    }
+
+    /**
+     * Resolves the ids of known uris. A value ending in {@code *} matches every uri starting with the part before it;
+     * any other {@code *} is rejected.
+     */
+    public List<Integer> findUriIds(Collection<String> values) {
+        Set<Integer> ids = new LinkedHashSet<>(values.size());
+        List<String> missing = new ArrayList<>();
+        for (String value : values) {
+            int wildcard = value.indexOf(WILDCARD);
+            if (wildcard >= 0) {
+                if (wildcard != value.length() - 1) {
+                    throw new InvalidParameterException("Only a trailing " + WILDCARD + " is supported, got " + value);
+                }
+                ids.addAll(sortedUris.findByPrefix(value.substring(0, wildcard)));
+                continue;
+            }
+            Integer id = uris.get(value);
+            if (id != null) {
+                ids.add(id);
+            } else {
+                missing.add(value);
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.query("SELECT id, uri FROM uris WHERE uri = ANY(?)", rs -> {
+                int id = rs.getInt("id");
+                cache(uris, rs.getString("uri"), id);
+                ids.add(id);
+            }, SqlArrays.strings(missing));
+        }
+        return new ArrayList<>(ids);
+    }
+
+    public Map<Integer, String> appNames(Collection<Integer> ids) {
+        return names("apps", "name", ids);
+    }
+
+    public Map<Integer, String> uriNames(Collection<Integer> ids) {
+        return names("uris", "uri", ids);
+    }
+
+    public void clear() {
+        apps.clear();
+        uris.clear();
+        sortedUris.clear();
+    }
+
+    private int resolve(Map<String, Integer> cache, String table, String column, String value) {
+        Integer id = cache.get(value);
+        if (id != null) {
+            return id;
+        }
+        id = find(table, column, value);
+        if (id == null) {
+            // a row inserted concurrently is left alone instead of failing, which would abort a surrounding transaction
+            jdbcTemplate.update(String.format(insert, table, column), value);
+            id = find(table, column, value);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            int resolved = id;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remember(cache, value, resolved);
+                }
+            });
+        } else {
+            remember(cache, value, id);
+        }
+        return id;
+    }
+
+    private Map<Integer, String> names(String table, String column, Collection<Integer> ids) {
+        Map<Integer, String> names = new HashMap<>();
+        if (ids.isEmpty()) {
+            return names;
+        }
+        jdbcTemplate.query("SELECT id, " + column + " FROM " + table + " WHERE id = ANY(?)", rs -> {
+            names.put(rs.getInt("id"), rs.getString(column));
+        }, SqlArrays.integers(ids));
+        return names;
+    }
+
+    private Integer find(String table, String column, String value) {
+        List<Integer> ids = jdbcTemplate.queryForList(
+                "SELECT id FROM " + table + " WHERE " + column + " = ?", Integer.class, value);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    private void remember(Map<String, Integer> cache, String value, int id) {
+        cache(cache, value, id);
+        if (cache == uris) {
+            sortedUris.add(value, id);
+        }
+    }
+
+    private void cache(Map<String, Integer> cache, String value, int id) {
+        if (cache.size() >= cacheSize) {
+            cache.clear();
+        }
+        cache.put(value, id);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,7 @@
+package ru.practicum.ewm.exceptions;
+
+public class BufferOverflowException extends RuntimeException {
+    public BufferOverflowException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,14 @@
+package ru.practicum.ewm.exceptions;
+
+public class HitRejectedException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public HitRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,24 @@
+package ru.practicum.ewm.export;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.security.InvalidParameterException;
+
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String contentType;
+
+    public static ExportFormat from(String value) {
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new InvalidParameterException("Unknown export format: " + value);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+package ru.practicum.ewm.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import ru.practicum.ewm.EndpointHit;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes exported hits one at a time as NDJSON or CSV, optionally gzip-compressed. Nothing but the output buffers is
+ * kept between rows, so memory use does not depend on the number of hits written.
+ */
+public class HitExportWriter implements AutoCloseable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String CSV_HEADER = "id,app,uri,ip,timestamp";
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final ExportFormat format;
+    private final OutputStream out;
+    private final GZIPOutputStream gzip;
+    private final Writer writer;
+    private final JsonGenerator generator;
+    private final ObjectWriter objectWriter;
+
+    public HitExportWriter(ExportFormat format, boolean gzip, ObjectMapper objectMapper, OutputStream out)
+            throws IOException {
+        this.format = format;
+        this.out = out;
+        this.gzip = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        this.writer = new BufferedWriter(new OutputStreamWriter(gzip ? this.gzip : out, StandardCharsets.UTF_8),
+                BUFFER_SIZE);
+        if (format == ExportFormat.NDJSON) {
+            generator = objectMapper.getFactory().createGenerator(writer)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            objectWriter = objectMapper.writerFor(EndpointHit.class)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        } else {
+            generator = null;
+            objectWriter = null;
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+    }
+
+    public void write(EndpointHit hit) {
+        try {
+            if (format == ExportFormat.NDJSON) {
+                objectWriter.writeValue(generator, hit);
+                generator.writeRaw('\n');
+            } else {
+                writer.write(String.valueOf(hit.getId()));
+                writer.write(',');
+                writeCsvField(hit.getApp());
+                writer.write(',');
+                writeCsvField(hit.getUri());
+                writer.write(',');
+                writeCsvField(hit.getIp());
+                writer.write(',');
+                writer.write(TIMESTAMP.format(hit.getTimestamp()));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes everything written so far and ends the gzip stream, leaving the underlying stream open for its owner.
+     */
+    @Override
+    public void close() throws IOException {
+        if (generator != null) {
+            generator.close();
+        }
+        writer.flush();
+        if (gzip != null) {
+            gzip.finish();
+        }
+        out.flush();
+    }
+
+    private void writeCsvField(String value) throws IOException {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+package ru.practicum.ewm.metrics;
+
+/**
+ * Rows a stats query reads from storage, counted on the query's thread so that the repositories report them without
+ * extra arguments: whatever they pass to {@link #add} between {@link #start} and {@link #finish} on the same thread is
+ * attributed to that query. Outside a scan {@link #add} does nothing.
+ */
+public final class QueryScan {
+    private static final ThreadLocal<QueryScan> CURRENT = new ThreadLocal<>();
+
+    private final QueryScan outer;
+    private final long started;
+    private long rows;
+    private long elapsedNanos;
+
+    private QueryScan(QueryScan outer) {
+        this.outer = outer;
+        this.started = System.nanoTime();
+    }
+
+    public static QueryScan start() {
+        QueryScan scan = new QueryScan(CURRENT.get());
+        CURRENT.set(scan);
+        return scan;
+    }
+
+    public static void add(long rows) {
+        QueryScan scan = CURRENT.get();
+        if (scan != null) {
+            scan.rows += rows;
+        }
+    }
+
+    public void finish() {
+        elapsedNanos = System.nanoTime() - started;
+        if (outer == null) {
+            CURRENT.remove();
+        } else {
+            outer.rows += rows;
+            CURRENT.set(outer);
+        }
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
\ No newline at end of file
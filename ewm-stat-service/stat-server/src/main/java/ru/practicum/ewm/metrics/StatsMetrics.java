@@ -0,0 +1,143 @@
+package ru.practicum.ewm.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.ViewsStatsRequest;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency histograms and row counters of the ingest and stats query paths. Queries are split by unique and by the
+ * number of requested uris, since both change the plan far more than the range does.
+ * <p>
+ * Instead of a log line per request, a sampled share of the requests, {@code stats.log.sample-rate}, is logged at
+ * INFO as {@code key=value} pairs, which keeps the hot path free of logging at any rate.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StatsMetrics {
+    static final String[] URI_BUCKETS = {"all", "1", "2-10", "11-100", "101-1000", "1001+"};
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stats.log.sample-rate:0}")
+    private double sampleRate;
+
+    private Timer bufferedSaveTimer;
+    private Timer directSaveTimer;
+    private Timer[][] queryTimers;
+    private Timer batchQueryTimer;
+    private DistributionSummary batchQuerySize;
+    private Counter[] rowsReturned;
+    private Counter[] rowsScanned;
+
+    @PostConstruct
+    public void start() {
+        bufferedSaveTimer = saveTimer("buffered");
+        directSaveTimer = saveTimer("direct");
+        queryTimers = new Timer[2][URI_BUCKETS.length];
+        batchQueryTimer = Timer.builder("stats.query.batch")
+                .description("Batch stats query latency")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+        batchQuerySize = DistributionSummary.builder("stats.query.batch.size")
+                .description("Windows per batch stats query")
+                .register(meterRegistry);
+        rowsReturned = new Counter[2];
+        rowsScanned = new Counter[2];
+        for (int unique = 0; unique < 2; unique++) {
+            String tag = String.valueOf(unique == 1);
+            for (int bucket = 0; bucket < URI_BUCKETS.length; bucket++) {
+                queryTimers[unique][bucket] = Timer.builder("stats.query")
+                        .description("Stats query latency")
+                        .tag("unique", tag)
+                        .tag("uris", URI_BUCKETS[bucket])
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofSeconds(30))
+                        .register(meterRegistry);
+            }
+            rowsReturned[unique] = Counter.builder("stats.query.rows.returned")
+                    .description("View stats rows returned by stats queries")
+                    .tag("unique", tag)
+                    .register(meterRegistry);
+            rowsScanned[unique] = Counter.builder("stats.query.rows.scanned")
+                    .description("Rows stats queries read from storage")
+                    .tag("unique", tag)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Records a save of one or more hits, buffered or written through to the repository.
+     */
+    public void hitsSaved(boolean buffered, int hits, long elapsedNanos) {
+        (buffered ? bufferedSaveTimer : directSaveTimer).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (sampled()) {
+            log.info("stats_save buffered={} hits={} elapsed_us={}", buffered, hits,
+                    TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+        }
+    }
+
+    public void queried(ViewsStatsRequest request, int rows, QueryScan scan) {
+        int unique = request.isUnique() ? 1 : 0;
+        int uris = request.getUris() == null ? 0 : request.getUris().size();
+        queryTimers[unique][uriBucket(uris)].record(scan.getElapsedNanos(), TimeUnit.NANOSECONDS);
+        rowsReturned[unique].increment(rows);
+        rowsScanned[unique].increment(scan.getRows());
+        if (sampled()) {
+            log.info("stats_query unique={} approximate={} uris={} start={} end={} rows={} scanned={} elapsed_us={}",
+                    request.isUnique(), request.isApproximate(), uris, request.getStart(),
+                    request.getEnd(), rows, scan.getRows(), TimeUnit.NANOSECONDS.toMicros(scan.getElapsedNanos()));
+        }
+    }
+
+    /**
+     * Records a batch of stats queries answered together, with one latency for the whole batch.
+     */
+    public void batchQueried(int queries, int rows, QueryScan scan) {
+        batchQueryTimer.record(scan.getElapsedNanos(), TimeUnit.NANOSECONDS);
+        batchQuerySize.record(queries);
+        if (sampled()) {
+            log.info("stats_query_batch queries={} rows={} scanned={} elapsed_us={}", queries, rows, scan.getRows(),
+                    TimeUnit.NANOSECONDS.toMicros(scan.getElapsedNanos()));
+        }
+    }
+
+    static int uriBucket(int uris) {
+        if (uris == 0) {
+            return 0;
+        }
+        int bucket = 1;
+        for (int limit = 1; uris > limit && bucket < URI_BUCKETS.length - 1; limit *= 10) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private Timer saveTimer(String mode) {
+        return Timer.builder("stats.hit.save")
+                .description("Latency of saving hits, per request")
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(10_000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(meterRegistry);
+    }
+
+    private boolean sampled() {
+        return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate && log.isInfoEnabled();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+package ru.practicum.ewm.partition;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Decides which partitions a maintenance run has to create and which ones have fallen out of the retention window.
+ */
+@Getter
+public class PartitionPlan {
+    private final List<StatsPartition> toCreate = new ArrayList<>();
+    private final List<LocalDate> toExpire = new ArrayList<>();
+    private final LocalDate retainFrom;
+
+    private PartitionPlan(LocalDate retainFrom) {
+        this.retainFrom = retainFrom;
+    }
+
+    /**
+     * @param today         current date
+     * @param granularity   width of one partition
+     * @param premake       number of partitions to keep ready after the current one
+     * @param retentionDays raw hits older than this many days are expired, {@code 0} keeps everything
+     * @param existing      lower bounds of the partitions that already exist
+     */
+    public static PartitionPlan of(LocalDate today, PartitionGranularity granularity, int premake, int retentionDays,
+                                   Collection<LocalDate> existing) {
+        PartitionPlan plan = new PartitionPlan(retentionDays > 0 ? today.minusDays(retentionDays) : null);
+        LocalDate from = granularity.floor(today);
+        for (int i = 0; i <= premake; i++) {
+            if (!existing.contains(from)) {
+                plan.toCreate.add(StatsPartition.of(from, granularity));
+            }
+            from = granularity.next(from);
+        }
+        if (plan.retainFrom != null) {
+            existing.stream()
+                    .filter(start -> !granularity.next(start).isAfter(plan.retainFrom))
+                    .sorted()
+                    .forEach(plan.toExpire::add);
+        }
+        return plan;
+    }
+
+    public boolean hasRetention() {
+        return retainFrom != null;
+    }
+}
\ No newline at end of file
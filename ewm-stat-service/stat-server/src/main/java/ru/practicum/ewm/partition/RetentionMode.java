@@ -0,0 +1,6 @@
+package ru.practicum.ewm.partition;
+
+public enum RetentionMode {
+    DROP,
+    DETACH
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+package ru.practicum.ewm.partition;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * One range partition of the stats table, covering {@code [from, to)}. The name carries the lower bound, so existing
+ * partitions can be recognised from the catalog without parsing their bound expressions.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class StatsPartition {
+    private static final String PREFIX = "stats_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final LocalDate from;
+    private final LocalDate to;
+
+    public StatsPartition(LocalDate from, LocalDate to) {
+        this.from = from;
+        this.to = to;
+    }
+
+    public static StatsPartition of(LocalDate from, PartitionGranularity granularity) {
+        return new StatsPartition(from, granularity.next(from));
+    }
+
+    public static Optional<LocalDate> parseStart(String name) {
+        if (!name.startsWith(PREFIX)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(LocalDate.parse(name.substring(PREFIX.length()), SUFFIX));
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    public String getName() {
+        return PREFIX + from.format(SUFFIX);
+    }
+}
\ No newline at end of file
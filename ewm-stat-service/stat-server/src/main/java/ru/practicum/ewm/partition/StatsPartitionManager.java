@@ -0,0 +1,120 @@
+package ru.practicum.ewm.partition;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps the range partitions of the stats table ahead of the clock and expires raw hits older than the retention
+ * window. On PostgreSQL, where schema-postgresql.sql partitions the table by {@code created}, expired partitions are
+ * dropped or detached as a whole and rows that landed in the default partition are trimmed by range. Databases
+ * without a partitioned stats table (H2 in tests) only get the retention part, applied as a range delete.
+ * <p>
+ * Rollups and sketches are left alone, so totals over expired ranges remain available from them.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StatsPartitionManager {
+    private static final String DEFAULT_PARTITION = "stats_default";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${stats.partition.enabled:true}")
+    private boolean enabled;
+
+    @Value("${stats.partition.granularity:DAY}")
+    private PartitionGranularity granularity;
+
+    @Value("${stats.partition.premake:7}")
+    private int premake;
+
+    @Value("${stats.partition.retention-days:0}")
+    private int retentionDays;
+
+    @Value("${stats.partition.retention-mode:DROP}")
+    private RetentionMode retentionMode;
+
+    @Scheduled(fixedDelayString = "${stats.partition.interval-ms:3600000}")
+    public void maintain() {
+        if (enabled) {
+            maintain(LocalDate.now());
+        }
+    }
+
+    public void maintain(LocalDate today) {
+        if (!isPartitioned()) {
+            PartitionPlan plan = PartitionPlan.of(today, granularity, 0, retentionDays, List.of());
+            if (plan.hasRetention()) {
+                int deleted = jdbcTemplate.update("DELETE FROM stats WHERE created < ?",
+                        plan.getRetainFrom().atStartOfDay());
+                log.debug("Expired {} hits older than {}", deleted, plan.getRetainFrom());
+            }
+            return;
+        }
+        List<LocalDate> existing = jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i "
+                        + "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'stats'::regclass", String.class)
+                .stream()
+                .map(StatsPartition::parseStart)
+                .flatMap(Optional::stream)
+                .toList();
+        PartitionPlan plan = PartitionPlan.of(today, granularity, premake, retentionDays, existing);
+        plan.getToCreate().forEach(this::create);
+        for (LocalDate start : plan.getToExpire()) {
+            expire(StatsPartition.of(start, granularity));
+        }
+        if (plan.hasRetention()) {
+            jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE created < ?",
+                    plan.getRetainFrom().atStartOfDay());
+        }
+    }
+
+    private void create(StatsPartition partition) {
+        String bounds = "FOR VALUES FROM ('" + partition.getFrom() + "') TO ('" + partition.getTo() + "')";
+        transactionTemplate.executeWithoutResult(status -> {
+            Boolean misplaced = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION
+                    + " WHERE created >= ? AND created < ?)", Boolean.class, partition.getFrom().atStartOfDay(),
+                    partition.getTo().atStartOfDay());
+            if (Boolean.TRUE.equals(misplaced)) {
+                // A partition cannot be added over rows the default partition already holds, so move them first
+                jdbcTemplate.execute("CREATE TABLE " + partition.getName()
+                        + " (LIKE stats INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+                jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                        + " WHERE created >= ? AND created < ? RETURNING *) INSERT INTO " + partition.getName()
+                        + " SELECT * FROM moved", partition.getFrom().atStartOfDay(), partition.getTo().atStartOfDay());
+                jdbcTemplate.execute("ALTER TABLE stats ATTACH PARTITION " + partition.getName() + " " + bounds);
+            } else {
+                jdbcTemplate.execute("CREATE TABLE " + partition.getName() + " PARTITION OF stats " + bounds);
+            }
+        });
+        log.info("Created stats partition {} for [{}, {})", partition.getName(), partition.getFrom(),
+                partition.getTo());
+    }
+
+    private void expire(StatsPartition partition) {
+        if (retentionMode == RetentionMode.DETACH) {
+            jdbcTemplate.execute("ALTER TABLE stats DETACH PARTITION " + partition.getName());
+            log.info("Detached stats partition {} for archiving", partition.getName());
+        } else {
+            jdbcTemplate.execute("DROP TABLE " + partition.getName());
+            log.info("Dropped stats partition {}", partition.getName());
+        }
+    }
+
+    private boolean isPartitioned() {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        return "PostgreSQL".equals(product) && "p".equals(jdbcTemplate.queryForObject(
+                "SELECT relkind FROM pg_class WHERE oid = to_regclass('stats')", String.class));
+    }
+}
\ No newline at end of file
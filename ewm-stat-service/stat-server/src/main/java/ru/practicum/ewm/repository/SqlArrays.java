@@ -0,0 +1,48 @@
+package ru.practicum.ewm.repository;
+
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.support.AbstractSqlTypeValue;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+/**
+ * Binds a collection as a single SQL array parameter, for use with {@code column = ANY(?)}. Unlike an expanded
+ * {@code IN (?, ?, ...)} list the statement text does not depend on the number of values, so it is parsed once and
+ * stays in the prepared-statement caches of the driver and the server.
+ */
+public final class SqlArrays {
+
+    private SqlArrays() {
+    }
+
+    public static SqlTypeValue integers(Collection<Integer> values) {
+        return of("integer", values);
+    }
+
+    public static SqlTypeValue longs(Collection<Long> values) {
+        return of("bigint", values);
+    }
+
+    public static SqlTypeValue strings(Collection<String> values) {
+        return of("varchar", values);
+    }
+
+    public static SqlTypeValue timestamps(Collection<LocalDateTime> values) {
+        return of("timestamp", values.stream().map(Timestamp::valueOf).toList());
+    }
+
+    private static SqlTypeValue of(String elementType, Collection<?> values) {
+        Object[] elements = values.toArray();
+        return new AbstractSqlTypeValue() {
+            @Override
+            protected Object createTypeValue(Connection connection, int sqlType, String typeName)
+                    throws SQLException {
+                return connection.createArrayOf(elementType, elements);
+            }
+        };
+    }
+}
\ No newline at end of file
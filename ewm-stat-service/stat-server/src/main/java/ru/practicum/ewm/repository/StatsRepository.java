@@ -2,14 +2,32 @@ package ru.practicum.ewm.repository;
 
 import ru.practicum.ewm.EndpointHit;
 import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewTimeSeries;
 import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.rollup.TimeBucket;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsRepository {
     void saveHit(EndpointHit hit);
 
+    int saveHits(List<EndpointHit> hits);
+
     List<ViewStats> getStats(ViewsStatsRequest request);
 
+    /**
+     * Answers several non-unique requests at once, returning their results in the order of the requests. The stored
+     * hits are read once for all of the requests rather than once per request.
+     */
+    List<List<ViewStats>> getStats(List<ViewsStatsRequest> requests);
+
     List<ViewStats> getUniqueStats(ViewsStatsRequest request);
+
+    List<ViewStats> getApproximateUniqueStats(ViewsStatsRequest request);
+
+    ViewTimeSeries getTimeSeries(ViewsStatsRequest request, TimeBucket bucket);
+
+    void exportHits(LocalDateTime start, LocalDateTime end, Consumer<EndpointHit> consumer);
 }
\ No newline at end of file
@@ -1,53 +1,600 @@
 package ru.practicum.ewm.repository.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.UriTimeSeries;
 import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewTimeSeries;
 import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.codec.IpAddresses;
+import ru.practicum.ewm.dictionary.StatsDictionary;
 import ru.practicum.ewm.mapper.ViewStatsMapper;
+import ru.practicum.ewm.metrics.QueryScan;
+import ru.practicum.ewm.repository.SqlArrays;
 import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.rollup.DailyCounters;
+import ru.practicum.ewm.rollup.RangeSegment;
+import ru.practicum.ewm.rollup.RollupPlan;
+import ru.practicum.ewm.rollup.TimeBucket;
+import ru.practicum.ewm.sketch.HyperLogLog;
+import ru.practicum.ewm.sketch.SketchStore;
+import ru.practicum.ewm.visitor.RoaringBitmap;
+import ru.practicum.ewm.visitor.VisitorIndex;
 
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.security.InvalidParameterException;
+import java.sql.ResultSet;
+import java.sql.Statement;
 import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Component
+@Profile("!segment-log")
 @RequiredArgsConstructor
 public class StatsRepositoryImpl implements StatsRepository {
+    private static final String INSERT_HIT = "INSERT INTO stats (app_id, uri_id, ip, created) VALUES (?, ?, ?, ?)";
+    private static final String EXPORT_HITS = "SELECT s.id, a.name AS app, u.uri AS uri, s.ip, s.created FROM stats s "
+            + "JOIN apps a ON a.id = s.app_id JOIN uris u ON u.id = s.uri_id "
+            + "WHERE s.created >= ? AND s.created <= ? ORDER BY s.created";
+    private static final String UNROLLED = "id > (SELECT last_hit_id FROM stats_rollup_state WHERE id = 1)";
+
     private final JdbcTemplate jdbcTemplate;
     private final ViewStatsMapper viewStatsMapper;
+    private final SketchStore sketchStore;
+    private final StatsDictionary dictionary;
+    private final TransactionTemplate transactionTemplate;
+    private final DailyCounters dailyCounters;
+    private final VisitorIndex visitorIndex;
+
+    @Value("${stats.hit.batch-size:500}")
+    private int batchSize;
+
+    @Value("${stats.rollup.enabled:true}")
+    private boolean rollupEnabled;
 
+    @Value("${stats.export.fetch-size:1000}")
+    private int exportFetchSize;
+
+    @Value("${stats.timeseries.max-buckets:10000}")
+    private int maxBuckets;
+
+    /**
+     * Resolves the app and uri ids before the transaction opens, so that interning a new name never runs inside it.
+     */
     @Override
     public void saveHit(EndpointHit hit) {
-        jdbcTemplate.update("INSERT INTO stats (app, uri, ip, created) VALUES (?, ?, ?, ?)",
-                hit.getApp(), hit.getUri(), hit.getIp(), Timestamp.valueOf(hit.getTimestamp()));
+        Object[] row = toRow(hit);
+        if (!dailyCounters.isEnabled()) {
+            jdbcTemplate.update(INSERT_HIT, row);
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(INSERT_HIT, row);
+            dailyCounters.apply(List.of(hit));
+        });
+    }
+
+    @Override
+    public int saveHits(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> rows = hits.stream()
+                .map(this::toRow)
+                .collect(Collectors.toList());
+        if (!dailyCounters.isEnabled()) {
+            return insertHits(rows);
+        }
+        return transactionTemplate.execute(status -> {
+            int accepted = insertHits(rows);
+            dailyCounters.apply(hits);
+            return accepted;
+        });
     }
 
     @Override
     public List<ViewStats> getStats(ViewsStatsRequest request) {
-        String query = "SELECT app, uri, COUNT (ip) AS hits FROM stats WHERE (created >= ? AND created <= ?) ";
-        if (!request.getUris().isEmpty()) {
-            query += createUrisQuery(request.getUris());
+        List<Integer> uriIds = findUriIds(request.getUris());
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
         }
-        query += " GROUP BY app, uri ORDER BY hits DESC";
-        return jdbcTemplate.query(query, viewStatsMapper, request.getStart(), request.getEnd());
+        List<Object> params = new ArrayList<>();
+        String counts = createCountsQuery(planCounts(request.getStart(), request.getEnd(), uriIds), params);
+        String query = withNames(counts, params, request.getLimit());
+        return scanned(jdbcTemplate.query(query, viewStatsMapper, params.toArray()));
+    }
+
+    /**
+     * Counts hits for all requests with one scan of each of the daily counters, the rollups and the raw rows. Every
+     * request is planned as for a single request, but the parts of all plans on one table are read together: the
+     * table is scanned once for the union of those parts, and every request sums the rows of its own part with a
+     * {@code FILTER} clause. A row that falls into several requests is read once and counted for each of them.
+     */
+    @Override
+    public List<List<ViewStats>> getStats(List<ViewsStatsRequest> requests) {
+        List<CountsPlan> plans = new ArrayList<>(requests.size());
+        for (ViewsStatsRequest request : requests) {
+            List<Integer> uriIds = findUriIds(request.getUris());
+            plans.add(uriIds != null && uriIds.isEmpty() ? null
+                    : planCounts(request.getStart(), request.getEnd(), uriIds));
+        }
+        Map<Long, long[]> counts = new HashMap<>();
+        sumFiltered("stats_daily", "SUM(hits)", plans, plan -> plan.daily, counts);
+        sumFiltered("stats_rollup", "SUM(hits)", plans, plan -> plan.rollup, counts);
+        sumFiltered("stats", "COUNT(ip)", plans, plan -> plan.raw, counts);
+
+        List<List<ViewStats>> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            Map<Long, Long> hits = new HashMap<>();
+            for (Map.Entry<Long, long[]> entry : counts.entrySet()) {
+                if (entry.getValue()[i] > 0) {
+                    hits.put(entry.getKey(), entry.getValue()[i]);
+                }
+            }
+            results.add(withNames(hits, requests.get(i).getLimit()));
+        }
+        return results;
+    }
+
+    /**
+     * Scans {@code table} once for the parts {@code parts} picks from every plan and adds each plan's aggregate per app
+     * and uri to its column of {@code counts}.
+     */
+    private void sumFiltered(String table, String aggregate, List<CountsPlan> plans,
+                             Function<CountsPlan, List<Condition>> parts, Map<Long, long[]> counts) {
+        List<String> columns = new ArrayList<>();
+        List<String> conditions = new ArrayList<>();
+        List<Object> columnParams = new ArrayList<>();
+        List<Object> conditionParams = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < plans.size(); i++) {
+            Condition condition = plans.get(i) == null ? null : plans.get(i).on(parts.apply(plans.get(i)));
+            if (condition == null) {
+                continue;
+            }
+            columns.add(aggregate + " FILTER (WHERE " + condition.sql + ") AS r" + i);
+            conditions.add(condition.sql);
+            columnParams.addAll(condition.params);
+            conditionParams.addAll(condition.params);
+            indexes.add(i);
+        }
+        if (columns.isEmpty()) {
+            return;
+        }
+        columnParams.addAll(conditionParams);
+        jdbcTemplate.query("SELECT app_id, uri_id, " + String.join(", ", columns) + " FROM " + table + " WHERE "
+                + String.join(" OR ", conditions) + " GROUP BY app_id, uri_id", rs -> {
+            QueryScan.add(1);
+            long[] row = counts.computeIfAbsent(key(rs.getInt("app_id"), rs.getInt("uri_id")),
+                    key -> new long[plans.size()]);
+            for (int i = 0; i < indexes.size(); i++) {
+                row[indexes.get(i)] += rs.getLong(3 + i);
+            }
+        }, columnParams.toArray());
     }
 
     @Override
     public List<ViewStats> getUniqueStats(ViewsStatsRequest request) {
-        String query = "SELECT app, uri, COUNT (DISTINCT ip) AS hits FROM stats WHERE (created >= ? AND created <= ?) ";
-        if (!request.getUris().isEmpty()) {
-            query += createUrisQuery(request.getUris());
+        List<Integer> uriIds = findUriIds(request.getUris());
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
+        }
+        if (visitorIndex.isEnabled()) {
+            RollupPlan plan = RollupPlan.of(request.getStart(), request.getEnd(), VisitorIndex.LEVELS);
+            if (plan.hasAlignedPart()) {
+                return getUniqueStatsFromVisitors(plan, uriIds, request.getLimit());
+            }
+        }
+        String counts = "SELECT app_id, uri_id, COUNT (DISTINCT ip) AS hits FROM stats "
+                + "WHERE (created >= ? AND created <= ?) " + createUrisQuery(uriIds) + "GROUP BY app_id, uri_id";
+        List<Object> params = new ArrayList<>(List.of(request.getStart(), request.getEnd()));
+        addUris(params, uriIds);
+        String query = withNames(counts, params, request.getLimit());
+        return scanned(jdbcTemplate.query(query, viewStatsMapper, params.toArray()));
+    }
+
+    @Override
+    public List<ViewStats> getApproximateUniqueStats(ViewsStatsRequest request) {
+        RollupPlan plan = RollupPlan.of(request.getStart(), request.getEnd(), SketchStore.LEVELS);
+        if (!plan.hasAlignedPart()) {
+            return getUniqueStats(request);
+        }
+        List<Integer> uriIds = findUriIds(request.getUris());
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
+        }
+        List<Object> sketchParams = new ArrayList<>();
+        String buckets = createBucketsQuery(plan, sketchParams);
+        addUris(sketchParams, uriIds);
+        List<Object> rawParams = new ArrayList<>(rawParams(plan));
+        addUris(rawParams, uriIds);
+
+        Map<Long, HyperLogLog> sketches = new HashMap<>();
+        jdbcTemplate.query("SELECT app_id, uri_id, sketch FROM stats_sketch WHERE " + buckets
+                + createUrisQuery(uriIds), rs -> {
+            QueryScan.add(1);
+            sketches.merge(key(rs.getInt("app_id"), rs.getInt("uri_id")),
+                    HyperLogLog.fromBytes(rs.getBytes("sketch")), (left, right) -> {
+                        left.merge(right);
+                        return left;
+                    });
+        }, sketchParams.toArray());
+        jdbcTemplate.query("SELECT DISTINCT app_id, uri_id, ip FROM stats WHERE " + createRawQuery()
+                + createUrisQuery(uriIds), rs -> {
+            QueryScan.add(1);
+            sketches.computeIfAbsent(key(rs.getInt("app_id"), rs.getInt("uri_id")),
+                    key -> sketchStore.newSketch()).add(rs.getBytes("ip"));
+        }, rawParams.toArray());
+
+        Map<Long, Long> counts = new HashMap<>();
+        sketches.forEach((key, sketch) -> counts.put(key, sketch.estimate()));
+        return withNames(counts, request.getLimit());
+    }
+
+    /**
+     * Counts hits per bucket in one grouped query. Buckets fully inside the range come from the rollup of the same
+     * granularity, the ragged first and last bucket and hits the rollup job has not folded yet from raw rows.
+     */
+    @Override
+    public ViewTimeSeries getTimeSeries(ViewsStatsRequest request, TimeBucket bucket) {
+        LocalDateTime first = bucket.floor(request.getStart());
+        long buckets = bucket.getUnit().between(first, bucket.floor(request.getEnd())) + 1;
+        if (buckets > maxBuckets) {
+            throw new InvalidParameterException("Range spans " + buckets + " buckets, at most " + maxBuckets
+                    + " are allowed");
+        }
+        List<LocalDateTime> timestamps = new ArrayList<>((int) buckets);
+        for (int i = 0; i < buckets; i++) {
+            timestamps.add(first.plus(i, bucket.getUnit()));
+        }
+        ViewTimeSeries result = ViewTimeSeries.builder()
+                .bucket(bucket.name())
+                .timestamps(timestamps)
+                .series(new ArrayList<>())
+                .build();
+        List<Integer> uriIds = findUriIds(request.getUris());
+        if (uriIds != null && uriIds.isEmpty()) {
+            return result;
+        }
+
+        String truncated = "DATE_TRUNC('" + bucket.getSqlUnit() + "', created)";
+        String urisFilter = createUrisQuery(uriIds);
+        List<Object> params = new ArrayList<>();
+        String counts;
+        RollupPlan plan = RollupPlan.of(request.getStart(), request.getEnd(), bucket);
+        if (rollupEnabled && plan.hasAlignedPart()) {
+            String rollupBuckets = createBucketsQuery(plan, params);
+            addUris(params, uriIds);
+            params.addAll(rawParams(plan));
+            addUris(params, uriIds);
+            counts = "SELECT app_id, uri_id, bucket, SUM(hits) AS hits FROM ("
+                    + "SELECT app_id, uri_id, bucket, hits FROM stats_rollup WHERE " + rollupBuckets + urisFilter
+                    + "UNION ALL "
+                    + "SELECT app_id, uri_id, " + truncated + " AS bucket, COUNT (ip) AS hits FROM stats WHERE "
+                    + createRawQuery() + urisFilter + "GROUP BY app_id, uri_id, " + truncated
+                    + ") AS combined GROUP BY app_id, uri_id, bucket";
+        } else {
+            params.add(request.getStart());
+            params.add(request.getEnd());
+            addUris(params, uriIds);
+            counts = "SELECT app_id, uri_id, " + truncated + " AS bucket, COUNT (ip) AS hits FROM stats "
+                    + "WHERE (created >= ? AND created <= ?) " + urisFilter + "GROUP BY app_id, uri_id, " + truncated;
+        }
+
+        Map<Long, long[]> series = new HashMap<>();
+        jdbcTemplate.query(counts, rs -> {
+            int index = (int) bucket.getUnit().between(first, rs.getTimestamp("bucket").toLocalDateTime());
+            series.computeIfAbsent(key(rs.getInt("app_id"), rs.getInt("uri_id")),
+                    key -> new long[(int) buckets])[index] += rs.getLong("hits");
+        }, params.toArray());
+
+        Map<Integer, String> apps = dictionary.appNames(series.keySet().stream()
+                .map(key -> (int) (key >>> 32))
+                .collect(Collectors.toSet()));
+        Map<Integer, String> uris = dictionary.uriNames(series.keySet().stream()
+                .map(Long::intValue)
+                .collect(Collectors.toSet()));
+        series.forEach((key, values) -> result.getSeries().add(UriTimeSeries.builder()
+                .app(apps.get((int) (key >>> 32)))
+                .uri(uris.get(key.intValue()))
+                .counts(values)
+                .build()));
+        Comparator<UriTimeSeries> byTotal = Comparator.comparingLong(item -> Arrays.stream(item.getCounts()).sum());
+        result.getSeries().sort(byTotal.reversed().thenComparing(UriTimeSeries::getUri));
+        if (request.getLimit() != null && result.getSeries().size() > request.getLimit()) {
+            result.getSeries().subList(request.getLimit(), result.getSeries().size()).clear();
+        }
+        return result;
+    }
+
+    /**
+     * Streams matching hits to the consumer through a forward-only cursor. The transaction is what lets the PostgreSQL
+     * driver honour the fetch size instead of reading the whole result into memory.
+     */
+    @Override
+    public void exportHits(LocalDateTime start, LocalDateTime end, Consumer<EndpointHit> consumer) {
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(EXPORT_HITS, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(exportFetchSize);
+            statement.setTimestamp(1, Timestamp.valueOf(start));
+            statement.setTimestamp(2, Timestamp.valueOf(end));
+            return statement;
+        }, (RowCallbackHandler) rs -> consumer.accept(EndpointHit.builder()
+                .id(rs.getLong("id"))
+                .app(rs.getString("app"))
+                .uri(rs.getString("uri"))
+                .ip(IpAddresses.decode(rs.getBytes("ip")))
+                .timestamp(rs.getTimestamp("created").toLocalDateTime())
+                .build())));
+    }
+
+    /**
+     * Plans the counts of hits in {@code [start, end]}. Whole days come from the daily counters when they are kept;
+     * whatever is left is read from the rollups and raw rows as {@link #planRange} decides.
+     */
+    private CountsPlan planCounts(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        CountsPlan plan = new CountsPlan(uriIds);
+        if (dailyCounters.isEnabled()) {
+            RollupPlan days = RollupPlan.of(start, end, TimeBucket.DAY);
+            if (days.hasAlignedPart()) {
+                plan.daily.add(new Condition("(bucket >= ? AND bucket < ?) ",
+                        List.of(days.getAlignedStart(), days.getAlignedEnd())));
+                if (start.isBefore(days.getAlignedStart())) {
+                    planRange(start, days.getAlignedStart().minusNanos(1), plan);
+                }
+                planRange(days.getAlignedEnd(), end, plan);
+                return plan;
+            }
         }
-        query += " GROUP BY app, uri ORDER BY hits DESC";
-        return jdbcTemplate.query(query, viewStatsMapper, request.getStart(), request.getEnd());
+        planRange(start, end, plan);
+        return plan;
     }
 
+    private void planRange(LocalDateTime start, LocalDateTime end, CountsPlan counts) {
+        if (rollupEnabled) {
+            RollupPlan plan = RollupPlan.of(start, end);
+            if (plan.hasAlignedPart()) {
+                List<Object> params = new ArrayList<>();
+                counts.rollup.add(new Condition(createBucketsQuery(plan, params), params));
+                counts.raw.add(new Condition("(" + createRawQuery() + ") ", rawParams(plan)));
+                return;
+            }
+        }
+        counts.raw.add(new Condition("(created >= ? AND created <= ?) ", List.of(start, end)));
+    }
+
+    /**
+     * The counts of one request, summed over the parts of its plan that have anything to read.
+     */
+    private String createCountsQuery(CountsPlan plan, List<Object> params) {
+        List<String> parts = new ArrayList<>();
+        Condition daily = plan.on(plan.daily);
+        if (daily != null) {
+            parts.add("SELECT app_id, uri_id, hits FROM stats_daily WHERE " + daily.sql);
+            params.addAll(daily.params);
+        }
+        Condition rollup = plan.on(plan.rollup);
+        if (rollup != null) {
+            parts.add("SELECT app_id, uri_id, hits FROM stats_rollup WHERE " + rollup.sql);
+            params.addAll(rollup.params);
+        }
+        Condition raw = plan.on(plan.raw);
+        params.addAll(raw.params);
+        String rawCounts = "SELECT app_id, uri_id, COUNT (ip) AS hits FROM stats WHERE " + raw.sql
+                + "GROUP BY app_id, uri_id";
+        if (parts.isEmpty()) {
+            return rawCounts;
+        }
+        parts.add(rawCounts);
+        StringBuilder union = new StringBuilder();
+        for (int i = 0; i < parts.size(); i++) {
+            union.append(i == 0 ? "" : " UNION ALL ")
+                    .append("SELECT app_id, uri_id, hits FROM (").append(parts.get(i)).append(") AS p").append(i);
+        }
+        return "SELECT app_id, uri_id, SUM(hits) AS hits FROM (" + union + ") AS combined GROUP BY app_id, uri_id";
+    }
+
+    /**
+     * Counts distinct visitors exactly: the day bitmaps of the aligned part are unioned with the ips of the raw edges
+     * and of the hits not folded yet. A raw ip without a visitor id has never been folded, so it cannot be in any
+     * bitmap and is counted on its own.
+     */
+    private List<ViewStats> getUniqueStatsFromVisitors(RollupPlan plan, List<Integer> uriIds, Integer limit) {
+        List<Object> bitmapParams = new ArrayList<>();
+        String buckets = createBucketsQuery(plan, bitmapParams);
+        addUris(bitmapParams, uriIds);
+        List<Object> rawParams = new ArrayList<>(rawParams(plan));
+        addUris(rawParams, uriIds);
+
+        Map<Long, RoaringBitmap> visitors = new HashMap<>();
+        jdbcTemplate.query("SELECT app_id, uri_id, visitors FROM stats_visitors WHERE " + buckets
+                + createUrisQuery(uriIds), rs -> {
+            QueryScan.add(1);
+            visitors.merge(key(rs.getInt("app_id"), rs.getInt("uri_id")),
+                    RoaringBitmap.fromBytes(rs.getBytes("visitors")), (left, right) -> {
+                        left.or(right);
+                        return left;
+                    });
+        }, bitmapParams.toArray());
+        Map<Long, Set<ByteBuffer>> unfolded = new HashMap<>();
+        jdbcTemplate.query("SELECT r.app_id, r.uri_id, r.ip, i.id AS visitor FROM (SELECT DISTINCT app_id, uri_id, ip "
+                + "FROM stats WHERE " + createRawQuery() + createUrisQuery(uriIds) + ") AS r "
+                + "LEFT JOIN ips i ON i.ip = r.ip", rs -> {
+            QueryScan.add(1);
+            long key = key(rs.getInt("app_id"), rs.getInt("uri_id"));
+            int visitor = rs.getInt("visitor");
+            if (rs.wasNull()) {
+                unfolded.computeIfAbsent(key, k -> new HashSet<>()).add(ByteBuffer.wrap(rs.getBytes("ip")));
+            } else {
+                visitors.computeIfAbsent(key, k -> new RoaringBitmap()).add(visitor);
+            }
+        }, rawParams.toArray());
+
+        Map<Long, Long> counts = new HashMap<>();
+        visitors.forEach((key, bitmap) -> counts.put(key, bitmap.cardinality()));
+        unfolded.forEach((key, ips) -> counts.merge(key, (long) ips.size(), Long::sum));
+        return withNames(counts, limit);
+    }
+
+    private int insertHits(List<Object[]> rows) {
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_HIT, rows, batchSize, (ps, row) -> {
+            ps.setInt(1, (Integer) row[0]);
+            ps.setInt(2, (Integer) row[1]);
+            ps.setBytes(3, (byte[]) row[2]);
+            ps.setTimestamp(4, (Timestamp) row[3]);
+        });
+        int accepted = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count == Statement.SUCCESS_NO_INFO) {
+                    accepted++;
+                } else if (count > 0) {
+                    accepted += count;
+                }
+            }
+        }
+        return accepted;
+    }
+
+    private Object[] toRow(EndpointHit hit) {
+        return new Object[]{dictionary.appId(hit.getApp()), dictionary.uriId(hit.getUri()),
+                IpAddresses.encode(hit.getIp()), Timestamp.valueOf(hit.getTimestamp())};
+    }
+
+    private String withNames(String counts, List<Object> params, Integer limit) {
+        String query = "SELECT a.name AS app, u.uri AS uri, c.hits AS hits FROM (" + counts + ") AS c "
+                + "JOIN apps a ON a.id = c.app_id JOIN uris u ON u.id = c.uri_id ORDER BY hits DESC, u.uri";
+        if (limit == null) {
+            return query;
+        }
+        params.add(limit);
+        return query + " LIMIT ?";
+    }
+
+    private List<ViewStats> withNames(Map<Long, Long> counts, Integer limit) {
+        Map<Integer, String> apps = dictionary.appNames(counts.keySet().stream()
+                .map(key -> (int) (key >>> 32))
+                .collect(Collectors.toSet()));
+        Map<Integer, String> uris = dictionary.uriNames(counts.keySet().stream()
+                .map(Long::intValue)
+                .collect(Collectors.toSet()));
+        List<ViewStats> result = new ArrayList<>();
+        counts.forEach((key, hits) -> result.add(ViewStats.builder()
+                .app(apps.get((int) (key >>> 32)))
+                .uri(uris.get(key.intValue()))
+                .hits(hits)
+                .build()));
+        result.sort(Comparator.comparing(ViewStats::getHits).reversed().thenComparing(ViewStats::getUri));
+        if (limit != null && result.size() > limit) {
+            return result.subList(0, limit);
+        }
+        return result;
+    }
+
+    private String createBucketsQuery(RollupPlan plan, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        for (RangeSegment segment : plan.getSegments()) {
+            conditions.add("(granularity = ? AND bucket >= ? AND bucket < ?)");
+            params.add(segment.getBucket().name());
+            params.add(segment.getFrom());
+            params.add(segment.getTo());
+        }
+        return "(" + String.join(" OR ", conditions) + ") ";
+    }
+
+    /**
+     * The leading range repeats the request bounds so that a partitioned stats table can prune on it directly instead
+     * of having to reason about the disjunction that follows.
+     */
+    private String createRawQuery() {
+        return "(created >= ? AND created <= ?) AND ((created >= ? AND created < ?) OR (created >= ? AND created <= ?) "
+                + "OR (" + UNROLLED + " AND created >= ? AND created < ?)) ";
+    }
+
+    private List<Object> rawParams(RollupPlan plan) {
+        return List.of(plan.getStart(), plan.getEnd(), plan.getStart(), plan.getAlignedStart(), plan.getAlignedEnd(),
+                plan.getEnd(), plan.getAlignedStart(), plan.getAlignedEnd());
+    }
+
+    /**
+     * Returns {@code null} when the request does not filter by uri and an empty list when none of the requested uris
+     * has ever been hit.
+     */
+    private List<Integer> findUriIds(List<String> uris) {
+        return uris.isEmpty() ? null : dictionary.findUriIds(uris);
+    }
+
+    private String createUrisQuery(List<Integer> uriIds) {
+        return uriIds == null ? "" : "AND uri_id = ANY(?) ";
+    }
+
+    private void addUris(List<Object> params, List<Integer> uriIds) {
+        if (uriIds != null) {
+            params.add(SqlArrays.integers(uriIds));
+        }
+    }
+
+    private static List<ViewStats> scanned(List<ViewStats> stats) {
+        QueryScan.add(stats.size());
+        return stats;
+    }
+
+    private static long key(int appId, int uriId) {
+        return ((long) appId << 32) | (uriId & 0xffffffffL);
+    }
+
+    /**
+     * Where one request is counted from: conditions on the daily counters, the rollups and the raw rows, each part
+     * covering its own stretch of the request's range.
+     */
+    @RequiredArgsConstructor
+    private static class CountsPlan {
+        private final List<Integer> uriIds;
+        private final List<Condition> daily = new ArrayList<>();
+        private final List<Condition> rollup = new ArrayList<>();
+        private final List<Condition> raw = new ArrayList<>();
+
+        /**
+         * Joins the parts on one table into a single condition with the uri filter, or returns {@code null} when the
+         * request reads nothing from that table.
+         */
+        private Condition on(List<Condition> parts) {
+            if (parts.isEmpty()) {
+                return null;
+            }
+            List<Object> params = new ArrayList<>();
+            parts.forEach(part -> params.addAll(part.params));
+            String sql = "(" + parts.stream().map(part -> part.sql).collect(Collectors.joining("OR ")) + ") ";
+            if (uriIds != null) {
+                sql += "AND uri_id = ANY(?) ";
+                params.add(SqlArrays.integers(uriIds));
+            }
+            return new Condition("(" + sql + ") ", params);
+        }
+    }
 
-    private String createUrisQuery(List<String> uris) {
-        StringBuilder result = new StringBuilder("AND uri IN ('");
-        result.append(String.join("', '", uris));
-        return result.append("') ").toString();
+    @RequiredArgsConstructor
+    private static class Condition {
+        private final String sql;
+        private final List<Object> params;
     }
 }
\ No newline at end of file
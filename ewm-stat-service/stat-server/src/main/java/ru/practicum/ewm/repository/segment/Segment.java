@@ -0,0 +1,392 @@
+package ru.practicum.ewm.repository.segment;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.ewm.metrics.QueryScan;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * One fixed-size, memory-mapped file of the segment log. After a 16 byte header (magic, version, segment id) the file
+ * holds framed records: a length, the record type and payload, and a CRC32 of type and payload. A zero length marks
+ * the end of the written part.
+ * <pre>
+ * APP / URI  UTF-8 name; its index is the number of records of the same type before it in this segment
+ * HIT        8 byte epoch millis, 4 byte app index, 4 byte uri index, 1 byte ip length, ip bytes
+ * </pre>
+ * Every segment carries its own app and uri dictionary, so a segment can be read without any other file. Hits are
+ * grouped into blocks of {@value #BLOCK_HITS} with their earliest and latest timestamp, which lets a scan skip the
+ * blocks and segments that do not overlap the requested range.
+ * <p>
+ * Opening a segment replays its records and stops at the first frame that is cut short or fails its checksum, which is
+ * what a crash in the middle of an append leaves behind; everything from there on is zeroed and overwritten by the
+ * next appends. Appends are serialized by the caller; scans run concurrently against a snapshot of the written part.
+ */
+@Slf4j
+final class Segment implements Closeable {
+    static final int HEADER_SIZE = 16;
+
+    private static final int MAGIC = 0x45574D53;
+    private static final int VERSION = 1;
+    private static final byte APP = 1;
+    private static final byte URI = 2;
+    private static final byte HIT = 3;
+    private static final int FRAME_OVERHEAD = 4 + 1 + 4;
+    private static final int HIT_SIZE = 8 + 4 + 4 + 1;
+    private static final int BLOCK_HITS = 1024;
+
+    private final long id;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final CRC32 crc = new CRC32();
+
+    private final Map<String, Integer> appIndex = new HashMap<>();
+    private final Map<String, Integer> uriIndex = new HashMap<>();
+    private String[] apps = new String[16];
+    private String[] uris = new String[256];
+    private int appCount;
+    private int uriCount;
+
+    private final List<Block> blocks = new ArrayList<>();
+    private Block openBlock;
+    private int position = HEADER_SIZE;
+    private long minMillis = Long.MAX_VALUE;
+    private long maxMillis = Long.MIN_VALUE;
+
+    private Segment(long id, FileChannel channel, MappedByteBuffer buffer) {
+        this.id = id;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.openBlock = new Block(HEADER_SIZE);
+    }
+
+    static Segment create(Path path, long id, int size) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(8, id);
+        return new Segment(id, channel, buffer);
+    }
+
+    static Segment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            channel.close();
+            throw new IOException("Not a stats segment: " + path);
+        }
+        Segment segment = new Segment(buffer.getLong(8), channel, buffer);
+        segment.recover(path);
+        return segment;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    /**
+     * Appends a hit together with any dictionary entries it needs, or returns {@code false} without writing anything
+     * when the segment has no room left for them.
+     */
+    boolean append(String app, String uri, long millis, byte[] ip) {
+        Integer appId = appIndex.get(app);
+        Integer uriId = uriIndex.get(uri);
+        byte[] appBytes = appId == null ? app.getBytes(StandardCharsets.UTF_8) : null;
+        byte[] uriBytes = uriId == null ? uri.getBytes(StandardCharsets.UTF_8) : null;
+        int needed = FRAME_OVERHEAD + HIT_SIZE + ip.length
+                + (appBytes == null ? 0 : FRAME_OVERHEAD + appBytes.length)
+                + (uriBytes == null ? 0 : FRAME_OVERHEAD + uriBytes.length);
+        if (position + needed + 4 > buffer.capacity()) {
+            return false;
+        }
+        if (appBytes != null) {
+            appId = appCount;
+            writeName(APP, appBytes);
+            apps = add(apps, appCount++, app);
+            appIndex.put(app, appId);
+        }
+        if (uriBytes != null) {
+            uriId = uriCount;
+            writeName(URI, uriBytes);
+            uris = add(uris, uriCount++, uri);
+            uriIndex.put(uri, uriId);
+        }
+        int start = position;
+        buffer.put(start + 4, HIT);
+        buffer.putLong(start + 5, millis);
+        buffer.putInt(start + 13, appId);
+        buffer.putInt(start + 17, uriId);
+        buffer.put(start + 21, (byte) ip.length);
+        buffer.put(start + 22, ip);
+        seal(start, HIT_SIZE + ip.length);
+        indexHit(millis);
+        return true;
+    }
+
+    /**
+     * Whether the segment's hits may overlap {@code [fromMillis, toMillis]}. Segments without hits never do.
+     */
+    synchronized boolean overlaps(long fromMillis, long toMillis) {
+        return minMillis <= toMillis && maxMillis >= fromMillis;
+    }
+
+    /**
+     * Calls the visitor for every hit with a timestamp in {@code [fromMillis, toMillis]}, reading only the blocks
+     * whose time span overlaps the range, and reports the hits of those blocks to the current {@link QueryScan}. The
+     * returned names resolve the app and uri indexes the visitor saw.
+     */
+    Names scan(long fromMillis, long toMillis, HitVisitor visitor) {
+        Snapshot snapshot = snapshot();
+        ByteBuffer view = buffer.duplicate();
+        Hit hit = new Hit(view, snapshot.apps, snapshot.uris);
+        long scanned = 0;
+        for (Block block : snapshot.blocks) {
+            if (block.minMillis > toMillis || block.maxMillis < fromMillis) {
+                continue;
+            }
+            int offset = block.start;
+            int end = block.end < 0 ? snapshot.limit : block.end;
+            while (offset < end) {
+                int length = view.getInt(offset);
+                if (view.get(offset + 4) == HIT) {
+                    scanned++;
+                    long millis = view.getLong(offset + 5);
+                    if (millis >= fromMillis && millis <= toMillis) {
+                        hit.offset = offset;
+                        visitor.visit(hit);
+                    }
+                }
+                offset += FRAME_OVERHEAD - 1 + length;
+            }
+        }
+        QueryScan.add(scanned);
+        return new Names(snapshot.apps, snapshot.uris);
+    }
+
+    /**
+     * Forces the written part to the storage device.
+     */
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private synchronized Snapshot snapshot() {
+        List<Block> copy = new ArrayList<>(blocks.size() + 1);
+        copy.addAll(blocks);
+        if (openBlock.hits > 0) {
+            copy.add(openBlock.copy());
+        }
+        return new Snapshot(position, apps, uris, copy);
+    }
+
+    private void writeName(byte type, byte[] name) {
+        int start = position;
+        buffer.put(start + 4, type);
+        buffer.put(start + 5, name);
+        seal(start, name.length);
+    }
+
+    /**
+     * Writes the checksum and then the length of a record whose body is already in place. A crash before the length
+     * lands leaves a zero length, which ends the segment at the previous record.
+     */
+    private void seal(int start, int payloadLength) {
+        int length = 1 + payloadLength;
+        crc.reset();
+        crc.update(buffer.slice(start + 4, length));
+        buffer.putInt(start + 4 + length, (int) crc.getValue());
+        synchronized (this) {
+            buffer.putInt(start, length);
+            position = start + FRAME_OVERHEAD + payloadLength;
+        }
+    }
+
+    private synchronized void indexHit(long millis) {
+        openBlock.add(millis);
+        minMillis = Math.min(minMillis, millis);
+        maxMillis = Math.max(maxMillis, millis);
+        if (openBlock.hits == BLOCK_HITS) {
+            openBlock.end = position;
+            blocks.add(openBlock);
+            openBlock = new Block(position);
+        }
+    }
+
+    private void recover(Path path) {
+        int offset = HEADER_SIZE;
+        int capacity = buffer.capacity();
+        while (offset + FRAME_OVERHEAD <= capacity) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + FRAME_OVERHEAD - 1 + length > capacity) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.slice(offset + 4, length));
+            if (buffer.getInt(offset + 4 + length) != (int) crc.getValue()) {
+                break;
+            }
+            byte type = buffer.get(offset + 4);
+            if (type == APP || type == URI) {
+                byte[] name = new byte[length - 1];
+                buffer.get(offset + 5, name);
+                String value = new String(name, StandardCharsets.UTF_8);
+                if (type == APP) {
+                    appIndex.put(value, appCount);
+                    apps = add(apps, appCount++, value);
+                } else {
+                    uriIndex.put(value, uriCount);
+                    uris = add(uris, uriCount++, value);
+                }
+            } else if (type != HIT) {
+                break;
+            }
+            long millis = type == HIT ? buffer.getLong(offset + 5) : 0;
+            offset += FRAME_OVERHEAD - 1 + length;
+            position = offset;
+            if (type == HIT) {
+                indexHit(millis);
+            }
+        }
+        boolean dirty = false;
+        for (int i = position; i < capacity; i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+                dirty = true;
+            }
+        }
+        if (dirty) {
+            log.warn("Discarded a partially written tail of segment {} at offset {}", path, position);
+            buffer.force();
+        }
+    }
+
+    private static String[] add(String[] names, int index, String name) {
+        String[] target = index < names.length ? names : Arrays.copyOf(names, names.length * 2);
+        target[index] = name;
+        return target;
+    }
+
+    interface HitVisitor {
+        void visit(Hit hit);
+    }
+
+    /**
+     * Flyweight over the hit record a scan is positioned at; only valid inside {@link HitVisitor#visit}.
+     */
+    static final class Hit {
+        private final ByteBuffer view;
+        private final String[] apps;
+        private final String[] uris;
+        private int offset;
+
+        private Hit(ByteBuffer view, String[] apps, String[] uris) {
+            this.view = view;
+            this.apps = apps;
+            this.uris = uris;
+        }
+
+        long millis() {
+            return view.getLong(offset + 5);
+        }
+
+        int appIndex() {
+            return view.getInt(offset + 13);
+        }
+
+        int uriIndex() {
+            return view.getInt(offset + 17);
+        }
+
+        String app() {
+            return apps[appIndex()];
+        }
+
+        String uri() {
+            return uris[uriIndex()];
+        }
+
+        byte[] ip() {
+            byte[] ip = new byte[view.get(offset + 21)];
+            view.get(offset + 22, ip);
+            return ip;
+        }
+    }
+
+    static final class Names {
+        private final String[] apps;
+        private final String[] uris;
+
+        private Names(String[] apps, String[] uris) {
+            this.apps = apps;
+            this.uris = uris;
+        }
+
+        String app(int index) {
+            return apps[index];
+        }
+
+        String uri(int index) {
+            return uris[index];
+        }
+    }
+
+    private static final class Block {
+        private final int start;
+        private int end = -1;
+        private int hits;
+        private long minMillis = Long.MAX_VALUE;
+        private long maxMillis = Long.MIN_VALUE;
+
+        private Block(int start) {
+            this.start = start;
+        }
+
+        private void add(long millis) {
+            hits++;
+            minMillis = Math.min(minMillis, millis);
+            maxMillis = Math.max(maxMillis, millis);
+        }
+
+        private Block copy() {
+            Block copy = new Block(start);
+            copy.hits = hits;
+            copy.minMillis = minMillis;
+            copy.maxMillis = maxMillis;
+            return copy;
+        }
+    }
+
+    private static final class Snapshot {
+        private final int limit;
+        private final String[] apps;
+        private final String[] uris;
+        private final List<Block> blocks;
+
+        private Snapshot(int limit, String[] apps, String[] uris, List<Block> blocks) {
+            this.limit = limit;
+            this.apps = apps;
+            this.uris = uris;
+            this.blocks = blocks;
+        }
+    }
+}
\ No newline at end of file
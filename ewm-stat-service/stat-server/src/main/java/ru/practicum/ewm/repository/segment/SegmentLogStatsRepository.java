@@ -0,0 +1,352 @@
+package ru.practicum.ewm.repository.segment;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.UriTimeSeries;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewTimeSeries;
+import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.codec.IpAddresses;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.rollup.TimeBucket;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.InvalidParameterException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Stores hits in an append-only log of memory-mapped {@link Segment} files instead of the database, for hit volumes
+ * where a row insert per hit is too expensive. Queries scan the segments, and within them the blocks, whose time span
+ * overlaps the range. Enabled by the {@code segment-log} profile.
+ * <p>
+ * Only the raw hits live here: the rollups, sketches and heavy-hitter summaries are folded from the stats table and
+ * stay empty, so the windows and the rollup job should be switched off with this profile. Approximate unique stats
+ * are answered exactly, and exported hits come in append order rather than time order.
+ */
+@Slf4j
+@Component
+@Profile("segment-log")
+public class SegmentLogStatsRepository implements StatsRepository {
+    private static final String SUFFIX = ".seg";
+
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    /**
+     * Serializes appends. A lock rather than a monitor, since appends fault in pages of the mapped file, roll to a new
+     * file and may force it, which would pin a virtual thread to its carrier for the whole write.
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private Segment active;
+
+    @Value("${stats.segment.dir:segments}")
+    private Path directory;
+
+    @Value("${stats.segment.size-bytes:67108864}")
+    private int segmentSize;
+
+    @Value("${stats.segment.force-on-write:false}")
+    private boolean forceOnWrite;
+
+    @Value("${stats.timeseries.max-buckets:10000}")
+    private int maxBuckets;
+
+    @PostConstruct
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        for (Path file : files) {
+            segments.add(Segment.open(file));
+        }
+        active = segments.isEmpty() ? roll() : segments.get(segments.size() - 1);
+        log.info("Opened {} stats segments in {}", segments.size(), directory);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            for (Segment segment : segments) {
+                segment.close();
+            }
+            segments.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void saveHit(EndpointHit hit) {
+        writeLock.lock();
+        try {
+            append(hit);
+            if (forceOnWrite) {
+                active.force();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int saveHits(List<EndpointHit> hits) {
+        writeLock.lock();
+        try {
+            for (EndpointHit hit : hits) {
+                append(hit);
+            }
+            if (forceOnWrite) {
+                active.force();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return hits.size();
+    }
+
+    @Override
+    public List<ViewStats> getStats(ViewsStatsRequest request) {
+        UriFilter filter = UriFilter.of(request.getUris());
+        Map<Key, Long> counts = new HashMap<>();
+        for (Segment segment : overlapping(request.getStart(), request.getEnd())) {
+            Map<Long, long[]> local = new HashMap<>();
+            UriFilter.Matches matches = filter.matches();
+            Segment.Names names = segment.scan(millisOf(request.getStart()), millisOf(request.getEnd()), hit -> {
+                if (matches.test(hit)) {
+                    local.computeIfAbsent(key(hit), key -> new long[1])[0]++;
+                }
+            });
+            local.forEach((key, count) -> counts.merge(key(names, key), count[0], Long::sum));
+        }
+        return toStats(counts, request.getLimit());
+    }
+
+    /**
+     * Counts hits for all requests in one scan over the union of their ranges; every hit is checked against the range
+     * and uris of each request.
+     */
+    @Override
+    public List<List<ViewStats>> getStats(List<ViewsStatsRequest> requests) {
+        int size = requests.size();
+        long[] starts = new long[size];
+        long[] ends = new long[size];
+        UriFilter[] filters = new UriFilter[size];
+        List<Map<Key, Long>> counts = new ArrayList<>(size);
+        long from = Long.MAX_VALUE;
+        long to = Long.MIN_VALUE;
+        for (int i = 0; i < size; i++) {
+            ViewsStatsRequest request = requests.get(i);
+            starts[i] = millisOf(request.getStart());
+            ends[i] = millisOf(request.getEnd());
+            filters[i] = UriFilter.of(request.getUris());
+            counts.add(new HashMap<>());
+            from = Math.min(from, starts[i]);
+            to = Math.max(to, ends[i]);
+        }
+        for (Segment segment : segments) {
+            if (!segment.overlaps(from, to)) {
+                continue;
+            }
+            List<Map<Long, long[]>> local = new ArrayList<>(size);
+            UriFilter.Matches[] matches = new UriFilter.Matches[size];
+            for (int i = 0; i < size; i++) {
+                local.add(new HashMap<>());
+                matches[i] = filters[i].matches();
+            }
+            Segment.Names names = segment.scan(from, to, hit -> {
+                long millis = hit.millis();
+                for (int i = 0; i < size; i++) {
+                    if (millis >= starts[i] && millis <= ends[i] && matches[i].test(hit)) {
+                        local.get(i).computeIfAbsent(key(hit), key -> new long[1])[0]++;
+                    }
+                }
+            });
+            for (int i = 0; i < size; i++) {
+                Map<Key, Long> requestCounts = counts.get(i);
+                local.get(i).forEach((key, count) -> requestCounts.merge(key(names, key), count[0], Long::sum));
+            }
+        }
+        List<List<ViewStats>> results = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            results.add(toStats(counts.get(i), requests.get(i).getLimit()));
+        }
+        return results;
+    }
+
+    @Override
+    public List<ViewStats> getUniqueStats(ViewsStatsRequest request) {
+        UriFilter filter = UriFilter.of(request.getUris());
+        Map<Key, Set<String>> ips = new HashMap<>();
+        for (Segment segment : overlapping(request.getStart(), request.getEnd())) {
+            Map<Long, Set<String>> local = new HashMap<>();
+            UriFilter.Matches matches = filter.matches();
+            Segment.Names names = segment.scan(millisOf(request.getStart()), millisOf(request.getEnd()), hit -> {
+                if (matches.test(hit)) {
+                    local.computeIfAbsent(key(hit), key -> new HashSet<>())
+                            .add(new String(hit.ip(), StandardCharsets.ISO_8859_1));
+                }
+            });
+            local.forEach((key, set) -> ips.computeIfAbsent(key(names, key), k -> new HashSet<>()).addAll(set));
+        }
+        Map<Key, Long> counts = new HashMap<>();
+        ips.forEach((key, set) -> counts.put(key, (long) set.size()));
+        return toStats(counts, request.getLimit());
+    }
+
+    @Override
+    public List<ViewStats> getApproximateUniqueStats(ViewsStatsRequest request) {
+        return getUniqueStats(request);
+    }
+
+    @Override
+    public ViewTimeSeries getTimeSeries(ViewsStatsRequest request, TimeBucket bucket) {
+        LocalDateTime first = bucket.floor(request.getStart());
+        long buckets = bucket.getUnit().between(first, bucket.floor(request.getEnd())) + 1;
+        if (buckets > maxBuckets) {
+            throw new InvalidParameterException("Range spans " + buckets + " buckets, at most " + maxBuckets
+                    + " are allowed");
+        }
+        long firstMillis = millisOf(first);
+        long bucketMillis = bucket.getUnit().getDuration().toMillis();
+        UriFilter filter = UriFilter.of(request.getUris());
+        Map<Key, long[]> series = new HashMap<>();
+        for (Segment segment : overlapping(request.getStart(), request.getEnd())) {
+            Map<Long, long[]> local = new HashMap<>();
+            UriFilter.Matches matches = filter.matches();
+            Segment.Names names = segment.scan(millisOf(request.getStart()), millisOf(request.getEnd()), hit -> {
+                if (matches.test(hit)) {
+                    int index = (int) ((hit.millis() - firstMillis) / bucketMillis);
+                    local.computeIfAbsent(key(hit), key -> new long[(int) buckets])[index]++;
+                }
+            });
+            local.forEach((key, counts) -> {
+                long[] target = series.computeIfAbsent(key(names, key), k -> new long[(int) buckets]);
+                for (int i = 0; i < counts.length; i++) {
+                    target[i] += counts[i];
+                }
+            });
+        }
+        List<LocalDateTime> timestamps = new ArrayList<>((int) buckets);
+        for (int i = 0; i < buckets; i++) {
+            timestamps.add(first.plus(i, bucket.getUnit()));
+        }
+        List<UriTimeSeries> items = new ArrayList<>();
+        series.forEach((key, counts) -> items.add(UriTimeSeries.builder()
+                .app(key.app)
+                .uri(key.uri)
+                .counts(counts)
+                .build()));
+        Comparator<UriTimeSeries> byTotal = Comparator.comparingLong(item -> Arrays.stream(item.getCounts()).sum());
+        items.sort(byTotal.reversed().thenComparing(UriTimeSeries::getUri));
+        if (request.getLimit() != null && items.size() > request.getLimit()) {
+            items.subList(request.getLimit(), items.size()).clear();
+        }
+        return ViewTimeSeries.builder()
+                .bucket(bucket.name())
+                .timestamps(timestamps)
+                .series(items)
+                .build();
+    }
+
+    @Override
+    public void exportHits(LocalDateTime start, LocalDateTime end, Consumer<EndpointHit> consumer) {
+        for (Segment segment : overlapping(start, end)) {
+            segment.scan(millisOf(start), millisOf(end), hit -> consumer.accept(EndpointHit.builder()
+                    .app(hit.app())
+                    .uri(hit.uri())
+                    .ip(IpAddresses.decode(hit.ip()))
+                    .timestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(hit.millis(), 1000L),
+                            (int) Math.floorMod(hit.millis(), 1000L) * 1_000_000, ZoneOffset.UTC))
+                    .build()));
+        }
+    }
+
+    private void append(EndpointHit hit) {
+        byte[] ip = IpAddresses.encode(hit.getIp());
+        long millis = millisOf(hit.getTimestamp());
+        if (active.append(hit.getApp(), hit.getUri(), millis, ip)) {
+            return;
+        }
+        active = roll();
+        if (!active.append(hit.getApp(), hit.getUri(), millis, ip)) {
+            throw new IllegalArgumentException("Hit does not fit into an empty segment of " + segmentSize + " bytes");
+        }
+    }
+
+    private Segment roll() {
+        long id = segments.isEmpty() ? 0 : segments.get(segments.size() - 1).getId() + 1;
+        try {
+            Segment segment = Segment.create(directory.resolve(String.format("%020d%s", id, SUFFIX)), id, segmentSize);
+            segments.add(segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Segment> overlapping(LocalDateTime start, LocalDateTime end) {
+        long from = millisOf(start);
+        long to = millisOf(end);
+        return segments.stream()
+                .filter(segment -> segment.overlaps(from, to))
+                .toList();
+    }
+
+    private static List<ViewStats> toStats(Map<Key, Long> counts, Integer limit) {
+        List<ViewStats> stats = new ArrayList<>(counts.size());
+        counts.forEach((key, hits) -> stats.add(ViewStats.builder()
+                .app(key.app)
+                .uri(key.uri)
+                .hits(hits)
+                .build()));
+        stats.sort(Comparator.comparing(ViewStats::getHits).reversed().thenComparing(ViewStats::getUri));
+        if (limit != null && stats.size() > limit) {
+            return stats.subList(0, limit);
+        }
+        return stats;
+    }
+
+    private static long key(Segment.Hit hit) {
+        return ((long) hit.appIndex() << 32) | (hit.uriIndex() & 0xffffffffL);
+    }
+
+    private static Key key(Segment.Names names, long key) {
+        return new Key(names.app((int) (key >>> 32)), names.uri((int) key));
+    }
+
+    private static long millisOf(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class Key {
+        private final String app;
+        private final String uri;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+package ru.practicum.ewm.repository.segment;
+
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The uris of a request as exact values and trailing-{@code *} prefixes, with the same rules as the dictionary applies
+ * for the database. Each segment numbers its uris on its own, so the decision per uri index is remembered per segment
+ * scan.
+ */
+final class UriFilter {
+    private static final char WILDCARD = '*';
+
+    private final Set<String> exact;
+    private final List<String> prefixes;
+
+    private UriFilter(Set<String> exact, List<String> prefixes) {
+        this.exact = exact;
+        this.prefixes = prefixes;
+    }
+
+    static UriFilter of(List<String> uris) {
+        if (uris == null || uris.isEmpty()) {
+            return new UriFilter(null, List.of());
+        }
+        Set<String> exact = new HashSet<>();
+        List<String> prefixes = new ArrayList<>();
+        for (String uri : uris) {
+            int wildcard = uri.indexOf(WILDCARD);
+            if (wildcard < 0) {
+                exact.add(uri);
+            } else if (wildcard == uri.length() - 1) {
+                prefixes.add(uri.substring(0, wildcard));
+            } else {
+                throw new InvalidParameterException("Only a trailing " + WILDCARD + " is supported, got " + uri);
+            }
+        }
+        return new UriFilter(exact, prefixes);
+    }
+
+    Matches matches() {
+        return new Matches();
+    }
+
+    final class Matches {
+        private static final byte UNKNOWN = 0;
+        private static final byte MATCH = 1;
+        private static final byte SKIP = 2;
+
+        private byte[] decisions = new byte[256];
+
+        boolean test(Segment.Hit hit) {
+            if (exact == null) {
+                return true;
+            }
+            int index = hit.uriIndex();
+            if (index >= decisions.length) {
+                decisions = Arrays.copyOf(decisions, Math.max(decisions.length * 2, index + 1));
+            }
+            if (decisions[index] == UNKNOWN) {
+                String uri = hit.uri();
+                decisions[index] = exact.contains(uri) || prefixes.stream().anyMatch(uri::startsWith) ? MATCH : SKIP;
+            }
+            return decisions[index] == MATCH;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,101 @@
+package ru.practicum.ewm.rollup;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.dictionary.StatsDictionary;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps exact per-day hit counts in {@code stats_daily}, updated in the same transaction as the hits they count, so
+ * whole days of a stats query never have to be re-counted or wait for {@link RollupJob}. Every write coalesces its
+ * hits in memory first: a flush applies one upsert per (app, uri, day) it touches, whatever the number of hits.
+ * Upserts are issued in key order so that concurrent flushes lock rows in the same order.
+ */
+@Component
+@RequiredArgsConstructor
+public class DailyCounters {
+    private static final String POSTGRES_UPSERT = "INSERT INTO stats_daily (bucket, app_id, uri_id, hits) "
+            + "VALUES (?, ?, ?, ?) "
+            + "ON CONFLICT (app_id, uri_id, bucket) DO UPDATE SET hits = stats_daily.hits + EXCLUDED.hits";
+    private static final String MERGE_UPSERT = "MERGE INTO stats_daily d USING (VALUES (CAST(? AS TIMESTAMP), "
+            + "CAST(? AS INT), CAST(? AS INT), CAST(? AS BIGINT))) AS v (bucket, app_id, uri_id, hits) "
+            + "ON d.app_id = v.app_id AND d.uri_id = v.uri_id AND d.bucket = v.bucket "
+            + "WHEN MATCHED THEN UPDATE SET hits = d.hits + v.hits "
+            + "WHEN NOT MATCHED THEN INSERT (bucket, app_id, uri_id, hits) "
+            + "VALUES (v.bucket, v.app_id, v.uri_id, v.hits)";
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparingInt((Key key) -> key.appId)
+            .thenComparingInt(key -> key.uriId)
+            .thenComparing(key -> key.day);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StatsDictionary dictionary;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${stats.daily.enabled:false}")
+    private boolean enabled;
+
+    private String upsert;
+    private Counter upserts;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        upsert = "PostgreSQL".equals(product) ? POSTGRES_UPSERT : MERGE_UPSERT;
+        upserts = meterRegistry.counter("stats.daily.upserts");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds the hits to their days' counters. Callers run this in the transaction that inserts the hits.
+     */
+    public void apply(Collection<EndpointHit> hits) {
+        if (!enabled || hits.isEmpty()) {
+            return;
+        }
+        Map<Key, long[]> deltas = new HashMap<>();
+        for (EndpointHit hit : hits) {
+            Key key = new Key(dictionary.appId(hit.getApp()), dictionary.uriId(hit.getUri()),
+                    TimeBucket.DAY.floor(hit.getTimestamp()));
+            deltas.computeIfAbsent(key, k -> new long[1])[0]++;
+        }
+        List<Key> keys = new ArrayList<>(deltas.keySet());
+        keys.sort(KEY_ORDER);
+        List<Object[]> rows = new ArrayList<>(keys.size());
+        for (Key key : keys) {
+            rows.add(new Object[]{Timestamp.valueOf(key.day), key.appId, key.uriId, deltas.get(key)[0]});
+        }
+        jdbcTemplate.batchUpdate(upsert, rows);
+        upserts.increment(rows.size());
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class Key {
+        private final int appId;
+        private final int uriId;
+        private final LocalDateTime day;
+    }
+}
\ No newline at end of file
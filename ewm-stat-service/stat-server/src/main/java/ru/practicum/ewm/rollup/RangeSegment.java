@@ -0,0 +1,18 @@
+package ru.practicum.ewm.rollup;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public class RangeSegment {
+    private final TimeBucket bucket;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+}
\ No newline at end of file
@@ -0,0 +1,138 @@
+package ru.practicum.ewm.rollup;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.sketch.SketchStore;
+import ru.practicum.ewm.topk.TopHitsStore;
+import ru.practicum.ewm.visitor.VisitorIndex;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Folds raw hits into the minute/hour/day rollups, the unique-visitor sketches, the heavy-hitter summaries and the
+ * exact visitor index. Rows are picked up by id, not by timestamp, so hits that arrive with old timestamps are still
+ * counted exactly once.
+ *
+ * <p>Ids are drawn before the rows that carry them commit, so a long transaction (a 50k-row COPY chunk, a batch
+ * insert) can commit ids below ones that are already visible. Each run therefore records the largest visible id as a
+ * candidate and only folds a candidate once every writer that could still hold a lower id has finished. On
+ * PostgreSQL the candidate carries the next transaction id of its snapshot and becomes safe when the oldest running
+ * transaction is newer than that; the only gap left is a writer that has drawn its first id but not yet inserted the
+ * row, which takes no longer than the statement itself. Other databases fold the candidate of the previous run, which
+ * tolerates transactions shorter than one interval.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RollupJob {
+    private static final String SELECT_WATERMARK = "SELECT last_hit_id FROM stats_rollup_state WHERE id = 1";
+    private static final String SELECT_CANDIDATE = "SELECT COALESCE(MAX(id), 0) AS max_id, "
+            + "pg_snapshot_xmax(pg_current_snapshot())::text::bigint AS xmax FROM stats";
+    private static final String SELECT_OLDEST_RUNNING =
+            "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final SketchStore sketchStore;
+    private final TopHitsStore topHitsStore;
+    private final VisitorIndex visitorIndex;
+
+    @Value("${stats.rollup.enabled:true}")
+    private boolean enabled;
+
+    private final Deque<Candidate> candidates = new ArrayDeque<>();
+    private boolean postgres;
+
+    @PostConstruct
+    public void start() {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        postgres = "PostgreSQL".equals(product);
+    }
+
+    @Scheduled(fixedDelayString = "${stats.rollup.interval-ms:10000}",
+            initialDelayString = "${stats.rollup.interval-ms:10000}")
+    public void rollUp() {
+        if (!enabled) {
+            return;
+        }
+        long oldestRunning = postgres ? jdbcTemplate.queryForObject(SELECT_OLDEST_RUNNING, Long.class)
+                : Long.MAX_VALUE;
+        long target = 0;
+        while (!candidates.isEmpty() && candidates.peekFirst().nextXid() <= oldestRunning) {
+            target = candidates.pollFirst().maxId();
+        }
+        if (!candidates.isEmpty()) {
+            log.debug("Rollup held back by {} candidates until transactions older than xid {} finish",
+                    candidates.size(), candidates.peekFirst().nextXid());
+        }
+        candidates.addLast(postgres
+                ? jdbcTemplate.queryForObject(SELECT_CANDIDATE,
+                        (rs, rowNum) -> new Candidate(rs.getLong("max_id"), rs.getLong("xmax")))
+                : new Candidate(jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM stats", Long.class), 0));
+        if (target > 0) {
+            rollUpTo(target);
+        }
+    }
+
+    public void rollUpTo(long maxHitId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            long watermark = jdbcTemplate.queryForObject(SELECT_WATERMARK, Long.class);
+            if (maxHitId <= watermark) {
+                return;
+            }
+            for (TimeBucket bucket : TimeBucket.values()) {
+                fold(bucket, watermark, maxHitId);
+            }
+            sketchStore.fold(watermark, maxHitId);
+            topHitsStore.fold(watermark, maxHitId);
+            visitorIndex.fold(watermark, maxHitId);
+            int updated = jdbcTemplate.update(
+                    "UPDATE stats_rollup_state SET last_hit_id = ? WHERE id = 1 AND last_hit_id = ?",
+                    maxHitId, watermark);
+            if (updated != 1) {
+                throw new IllegalStateException("Rollup watermark was moved by a concurrent job");
+            }
+            log.debug("Rolled up hits with ids ({}, {}]", watermark, maxHitId);
+        });
+    }
+
+    private void fold(TimeBucket bucket, long fromId, long toId) {
+        String truncated = "DATE_TRUNC('" + bucket.getSqlUnit() + "', created)";
+        List<Object[]> deltas = jdbcTemplate.query(
+                "SELECT " + truncated + " AS bucket, app_id, uri_id, COUNT(ip) AS hits "
+                        + "FROM stats WHERE id > ? AND id <= ? GROUP BY " + truncated + ", app_id, uri_id",
+                (rs, rowNum) -> new Object[]{rs.getLong("hits"), bucket.name(), rs.getTimestamp("bucket"),
+                        rs.getInt("app_id"), rs.getInt("uri_id")},
+                fromId, toId);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        int[] updated = jdbcTemplate.batchUpdate("UPDATE stats_rollup SET hits = hits + ? "
+                + "WHERE granularity = ? AND bucket = ? AND app_id = ? AND uri_id = ?", deltas);
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                Object[] delta = deltas.get(i);
+                inserts.add(new Object[]{delta[1], delta[2], delta[3], delta[4], delta[0]});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO stats_rollup (granularity, bucket, app_id, uri_id, hits) "
+                    + "VALUES (?, ?, ?, ?, ?)", inserts);
+        }
+    }
+
+    private record Candidate(long maxId, long nextXid) {
+    }
+}
\ No newline at end of file
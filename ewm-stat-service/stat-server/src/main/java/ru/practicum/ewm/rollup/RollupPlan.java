@@ -0,0 +1,66 @@
+package ru.practicum.ewm.rollup;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits an inclusive range {@code [start, end]} into the part aligned to the finest bucket
+ * {@code [alignedStart, alignedEnd)}, covered by the coarsest buckets that fit, and two ragged edges that have to be
+ * read from raw rows: {@code [start, alignedStart)} and {@code [alignedEnd, end]}.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class RollupPlan {
+    private final LocalDateTime start;
+    private final LocalDateTime alignedStart;
+    private final LocalDateTime alignedEnd;
+    private final LocalDateTime end;
+    private final List<RangeSegment> segments;
+
+    public static RollupPlan of(LocalDateTime start, LocalDateTime end) {
+        return of(start, end, TimeBucket.values());
+    }
+
+    public static RollupPlan of(LocalDateTime start, LocalDateTime end, TimeBucket... levels) {
+        LocalDateTime alignedStart = levels[0].ceil(start);
+        LocalDateTime alignedEnd = levels[0].floor(end);
+        if (!alignedStart.isBefore(alignedEnd)) {
+            return new RollupPlan(start, start, start, end, List.of());
+        }
+        List<RangeSegment> segments = new ArrayList<>();
+        split(alignedStart, alignedEnd, levels, levels.length - 1, segments);
+        return new RollupPlan(start, alignedStart, alignedEnd, end, segments);
+    }
+
+    public boolean hasAlignedPart() {
+        return !segments.isEmpty();
+    }
+
+    private static void split(LocalDateTime from, LocalDateTime to, TimeBucket[] levels, int level,
+                              List<RangeSegment> segments) {
+        TimeBucket bucket = levels[level];
+        if (level == 0) {
+            segments.add(new RangeSegment(bucket, from, to));
+            return;
+        }
+        LocalDateTime innerFrom = bucket.ceil(from);
+        LocalDateTime innerTo = bucket.floor(to);
+        if (!innerFrom.isBefore(innerTo)) {
+            split(from, to, levels, level - 1, segments);
+            return;
+        }
+        if (from.isBefore(innerFrom)) {
+            split(from, innerFrom, levels, level - 1, segments);
+        }
+        segments.add(new RangeSegment(bucket, innerFrom, innerTo));
+        if (innerTo.isBefore(to)) {
+            split(innerTo, to, levels, level - 1, segments);
+        }
+    }
+}
\ No newline at end of file
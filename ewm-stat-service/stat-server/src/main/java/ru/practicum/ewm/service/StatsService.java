@@ -1,13 +1,34 @@
 package ru.practicum.ewm.service;
 
+import ru.practicum.ewm.BulkLoadResult;
 import ru.practicum.ewm.EndpointHit;
 import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewTimeSeries;
 import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.rollup.TimeBucket;
+import ru.practicum.ewm.topk.TopHits;
 
+import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsService {
     void saveHit(EndpointHit hit);
 
+    int saveHits(List<EndpointHit> hits);
+
+    BulkLoadResult bulkLoad(Iterator<EndpointHit> hits);
+
     List<ViewStats> getViewStatsList(ViewsStatsRequest request);
+
+    List<List<ViewStats>> getViewStatsLists(List<ViewsStatsRequest> requests);
+
+    double getApproximationError();
+
+    TopHits getTopStats(ViewsStatsRequest request);
+
+    ViewTimeSeries getTimeSeries(ViewsStatsRequest request, TimeBucket bucket);
+
+    void exportHits(LocalDateTime start, LocalDateTime end, Consumer<EndpointHit> consumer);
 }
\ No newline at end of file
@@ -1,31 +1,245 @@
 package ru.practicum.ewm.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import ru.practicum.ewm.BulkLoadResult;
 import ru.practicum.ewm.EndpointHit;
 import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewTimeSeries;
 import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.buffer.HitBuffer;
+import ru.practicum.ewm.bulk.HitBulkLoader;
+import ru.practicum.ewm.cache.StatsQueryCache;
+import ru.practicum.ewm.dedup.HitDeduplicator;
+import ru.practicum.ewm.metrics.QueryScan;
+import ru.practicum.ewm.metrics.StatsMetrics;
 import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.rollup.TimeBucket;
+import ru.practicum.ewm.sketch.HyperLogLog;
+import ru.practicum.ewm.sketch.SketchStore;
 import ru.practicum.ewm.service.StatsService;
+import ru.practicum.ewm.topk.HeavyHitters;
+import ru.practicum.ewm.topk.TopHits;
+import ru.practicum.ewm.topk.TopHitsWindow;
+import ru.practicum.ewm.window.RecentStatsWindow;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class StatsServiceImpl implements StatsService {
     private final StatsRepository statRepository;
+    private final HitBuffer hitBuffer;
+    private final SketchStore sketchStore;
+    private final RecentStatsWindow recentStats;
+    private final TopHitsWindow topHits;
+    private final HeavyHitters heavyHitters;
+    private final StatsQueryCache queryCache;
+    private final HitBulkLoader bulkLoader;
+    private final StatsMetrics metrics;
+    private final HitDeduplicator deduplicator;
 
     @Override
     public void saveHit(EndpointHit hit) {
-        statRepository.saveHit(hit);
+        long started = System.nanoTime();
+        if (deduplicator.isDuplicate(hit)) {
+            return;
+        }
+        if (hitBuffer.isEnabled()) {
+            bufferHits(List.of(hit));
+            metrics.hitsSaved(true, 1, System.nanoTime() - started);
+            return;
+        }
+        try {
+            statRepository.saveHit(hit);
+        } catch (RuntimeException e) {
+            forget(List.of(hit), e);
+            throw e;
+        }
+        recentStats.record(hit);
+        topHits.record(hit);
+        queryCache.record(hit);
+        metrics.hitsSaved(false, 1, System.nanoTime() - started);
+    }
+
+    @Override
+    public int saveHits(List<EndpointHit> hits) {
+        long started = System.nanoTime();
+        List<EndpointHit> fresh = deduplicator.isEnabled() ? withoutDuplicates(hits) : hits;
+        if (hitBuffer.isEnabled()) {
+            int accepted = bufferHits(fresh);
+            metrics.hitsSaved(true, accepted, System.nanoTime() - started);
+            return accepted;
+        }
+        int accepted;
+        try {
+            accepted = statRepository.saveHits(fresh);
+        } catch (RuntimeException e) {
+            forget(fresh, e);
+            throw e;
+        }
+        recentStats.recordAll(fresh);
+        topHits.recordAll(fresh);
+        queryCache.recordAll(fresh);
+        metrics.hitsSaved(false, accepted, System.nanoTime() - started);
+        return accepted;
+    }
+
+    @Override
+    public BulkLoadResult bulkLoad(Iterator<EndpointHit> hits) {
+        return bulkLoader.load(hits, chunk -> {
+            recentStats.recordAll(chunk);
+            topHits.recordAll(chunk);
+            queryCache.recordAll(chunk);
+        });
     }
 
     @Override
     public List<ViewStats> getViewStatsList(ViewsStatsRequest request) {
+        QueryScan scan = QueryScan.start();
+        List<ViewStats> stats;
+        try {
+            stats = queryCache.isEnabled() ? queryCache.get(request, () -> queryStats(request)) : queryStats(request);
+        } finally {
+            scan.finish();
+        }
+        metrics.queried(request, stats.size(), scan);
+        return stats;
+    }
+
+    @Override
+    public List<List<ViewStats>> getViewStatsLists(List<ViewsStatsRequest> requests) {
+        QueryScan scan = QueryScan.start();
+        List<List<ViewStats>> stats;
+        try {
+            stats = queryCache.isEnabled() ? queryCache.getAll(requests, this::queryStats) : queryStats(requests);
+        } finally {
+            scan.finish();
+        }
+        metrics.batchQueried(requests.size(), stats.stream().mapToInt(List::size).sum(), scan);
+        return stats;
+    }
+
+    @Override
+    public double getApproximationError() {
+        return 3 * HyperLogLog.standardError(sketchStore.getPrecision());
+    }
+
+    @Override
+    public TopHits getTopStats(ViewsStatsRequest request) {
+        return heavyHitters.top(request);
+    }
+
+    @Override
+    public ViewTimeSeries getTimeSeries(ViewsStatsRequest request, TimeBucket bucket) {
+        return statRepository.getTimeSeries(request, bucket);
+    }
+
+    @Override
+    public void exportHits(LocalDateTime start, LocalDateTime end, Consumer<EndpointHit> consumer) {
+        statRepository.exportHits(start, end, consumer);
+    }
+
+    /**
+     * Queues the hits; the in-memory windows count them once {@link HitBuffer} has saved them. The ids of hits the
+     * buffer did not take, including those after one it failed on, are forgotten, so that their retries are not
+     * dropped as duplicates. A failure to forget the ids of dropped hits is only logged, since the accepted ones are
+     * queued already.
+     */
+    private int bufferHits(List<EndpointHit> hits) {
+        int accepted = 0;
+        List<EndpointHit> dropped = new ArrayList<>();
+        for (int i = 0; i < hits.size(); i++) {
+            EndpointHit hit = hits.get(i);
+            boolean added;
+            try {
+                added = hitBuffer.add(hit);
+            } catch (RuntimeException e) {
+                dropped.addAll(hits.subList(i, hits.size()));
+                forget(dropped, e);
+                throw e;
+            }
+            if (!added) {
+                dropped.add(hit);
+                continue;
+            }
+            accepted++;
+        }
+        if (!dropped.isEmpty()) {
+            try {
+                deduplicator.forget(dropped);
+            } catch (RuntimeException e) {
+                log.error("Failed to forget the dedup ids of {} hits the buffer dropped", dropped.size(), e);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * Forgets the ids of hits that could not be saved. The save failure stays the one thrown, with a failure to
+     * forget, likely from the same outage, attached to it.
+     */
+    private void forget(List<EndpointHit> hits, RuntimeException failure) {
+        try {
+            deduplicator.forget(hits);
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private List<EndpointHit> withoutDuplicates(List<EndpointHit> hits) {
+        List<EndpointHit> fresh = new ArrayList<>(hits.size());
+        for (EndpointHit hit : hits) {
+            if (!deduplicator.isDuplicate(hit)) {
+                fresh.add(hit);
+            }
+        }
+        return fresh;
+    }
+
+    private List<ViewStats> queryStats(ViewsStatsRequest request) {
         if (request.isUnique()) {
+            if (request.isApproximate()) {
+                return statRepository.getApproximateUniqueStats(request);
+            }
             return statRepository.getUniqueStats(request);
         }
 
-        return statRepository.getStats(request);
+        return recentStats.getStats(request)
+                .orElseGet(() -> statRepository.getStats(request));
+    }
+
+    /**
+     * Answers unique requests one by one and non-unique ones from the recent window where it can; the non-unique
+     * requests left over go to the repository together.
+     */
+    private List<List<ViewStats>> queryStats(List<ViewsStatsRequest> requests) {
+        List<List<ViewStats>> stats = new ArrayList<>(Collections.nCopies(requests.size(), null));
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            ViewsStatsRequest request = requests.get(i);
+            Optional<List<ViewStats>> answered = request.isUnique()
+                    ? Optional.of(queryStats(request)) : recentStats.getStats(request);
+            if (answered.isPresent()) {
+                stats.set(i, answered.get());
+            } else {
+                pending.add(i);
+            }
+        }
+        if (!pending.isEmpty()) {
+            List<List<ViewStats>> counts = statRepository.getStats(pending.stream().map(requests::get).toList());
+            for (int i = 0; i < pending.size(); i++) {
+                stats.set(pending.get(i), counts.get(i));
+            }
+        }
+        return stats;
     }
 }
\ No newline at end of file
@@ -0,0 +1,104 @@
+package ru.practicum.ewm.sketch;
+
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.repository.SqlArrays;
+import ru.practicum.ewm.rollup.TimeBucket;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps a HyperLogLog sketch of visitor ips per hour and per day for every app and uri id. A fold reads the stored
+ * sketches it touches with one query per level and writes the merged ones back in two batches.
+ */
+@Component
+@RequiredArgsConstructor
+public class SketchStore {
+    public static final TimeBucket[] LEVELS = {TimeBucket.HOUR, TimeBucket.DAY};
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${stats.sketch.precision:12}")
+    private int precision;
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public HyperLogLog newSketch() {
+        return new HyperLogLog(precision);
+    }
+
+    public void fold(long fromId, long toId) {
+        Map<SketchKey, HyperLogLog> deltas = new HashMap<>();
+        jdbcTemplate.query("SELECT DISTINCT DATE_TRUNC('hour', created) AS bucket, app_id, uri_id, ip FROM stats "
+                + "WHERE id > ? AND id <= ?", rs -> {
+                    LocalDateTime hour = rs.getTimestamp("bucket").toLocalDateTime();
+                    for (TimeBucket level : LEVELS) {
+                        SketchKey key = new SketchKey(level, level.floor(hour), rs.getInt("app_id"), rs.getInt("uri_id"));
+                        deltas.computeIfAbsent(key, k -> newSketch()).add(rs.getBytes("ip"));
+                    }
+                }, fromId, toId);
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Set<SketchKey> existing = new HashSet<>();
+        for (TimeBucket level : LEVELS) {
+            Set<LocalDateTime> buckets = new HashSet<>();
+            Set<Integer> uriIds = new HashSet<>();
+            for (SketchKey key : deltas.keySet()) {
+                if (key.bucket == level) {
+                    buckets.add(key.from);
+                    uriIds.add(key.uriId);
+                }
+            }
+            jdbcTemplate.query("SELECT bucket, app_id, uri_id, sketch FROM stats_sketch "
+                    + "WHERE granularity = ? AND bucket = ANY(?) AND uri_id = ANY(?)", rs -> {
+                        SketchKey key = new SketchKey(level, rs.getTimestamp("bucket").toLocalDateTime(),
+                                rs.getInt("app_id"), rs.getInt("uri_id"));
+                        HyperLogLog delta = deltas.get(key);
+                        if (delta != null) {
+                            delta.merge(HyperLogLog.fromBytes(rs.getBytes("sketch")));
+                            existing.add(key);
+                        }
+                    }, level.name(), SqlArrays.timestamps(buckets), SqlArrays.integers(uriIds));
+        }
+
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        deltas.forEach((key, sketch) -> {
+            if (existing.contains(key)) {
+                updates.add(new Object[]{sketch.toBytes(), key.bucket.name(), key.from, key.appId, key.uriId});
+            } else {
+                inserts.add(new Object[]{key.bucket.name(), key.from, key.appId, key.uriId, sketch.toBytes()});
+            }
+        });
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE stats_sketch SET sketch = ? "
+                    + "WHERE granularity = ? AND bucket = ? AND app_id = ? AND uri_id = ?", updates);
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO stats_sketch (granularity, bucket, app_id, uri_id, sketch) "
+                    + "VALUES (?, ?, ?, ?, ?)", inserts);
+        }
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class SketchKey {
+        private final TimeBucket bucket;
+        private final LocalDateTime from;
+        private final int appId;
+        private final int uriId;
+    }
+}
\ No newline at end of file
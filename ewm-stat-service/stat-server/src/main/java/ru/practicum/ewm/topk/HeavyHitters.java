@@ -0,0 +1,106 @@
+package ru.practicum.ewm.topk;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.TopViewStats;
+import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.dictionary.StatsDictionary;
+import ru.practicum.ewm.rollup.RangeSegment;
+import ru.practicum.ewm.rollup.RollupPlan;
+import ru.practicum.ewm.rollup.TimeBucket;
+
+import java.security.InvalidParameterException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Answers top-k requests by merging Space-Saving summaries: the part of the range still held by the top hits window
+ * comes from memory, everything older from the persisted hour and day summaries and, for the ragged edges, the minute
+ * rollups. The work depends on the length of the range and the summary capacity, not on how many distinct uris exist.
+ * <p>
+ * Ranges are widened to whole minutes. Each result carries the error of its count, and only {@code k} up to the
+ * summary capacity can be asked for. The app filter is applied to the merged summary, which is shared by all apps, so
+ * an app whose uris are not among the heaviest overall can get fewer than {@code k} results; every uri left out had at
+ * most the floor of the summary hits, which is returned along with the list.
+ */
+@Component
+@RequiredArgsConstructor
+public class HeavyHitters {
+    private static final TimeBucket[] LEVELS = {TimeBucket.MINUTE, TimeBucket.HOUR, TimeBucket.DAY};
+
+    private final TopHitsWindow window;
+    private final TopHitsStore store;
+    private final StatsDictionary statsDictionary;
+
+    public TopHits top(ViewsStatsRequest request) {
+        int k = request.getLimit();
+        if (k > store.getCapacity()) {
+            throw new InvalidParameterException("k must not exceed " + store.getCapacity());
+        }
+        LocalDateTime start = TimeBucket.MINUTE.floor(request.getStart());
+        LocalDateTime end = TimeBucket.MINUTE.floor(request.getEnd()).plusMinutes(1);
+
+        LocalDateTime split = window.coveredFrom();
+        SpaceSaving<HitKey> recent = null;
+        if (split != null && split.isBefore(end)) {
+            if (split.isBefore(start)) {
+                split = start;
+            }
+            recent = window.summary(split, end);
+        }
+        if (recent == null) {
+            split = end;
+        }
+
+        SpaceSaving<HitKey> summary = resolve(stored(start, split));
+        if (recent != null) {
+            summary.merge(recent);
+        }
+        List<TopViewStats> top = new ArrayList<>(k);
+        for (SpaceSaving.Counter<HitKey> counter : summary.top(summary.getCapacity())) {
+            if (request.getApplication() != null && !request.getApplication().equals(counter.getKey().getApp())) {
+                continue;
+            }
+            top.add(TopViewStats.builder()
+                    .app(counter.getKey().getApp())
+                    .uri(counter.getKey().getUri())
+                    .hits(counter.getCount())
+                    .error(counter.getError())
+                    .build());
+            if (top.size() == k) {
+                break;
+            }
+        }
+        return new TopHits(top, summary.getFloor());
+    }
+
+    private SpaceSaving<Long> stored(LocalDateTime start, LocalDateTime end) {
+        SpaceSaving<Long> merged = new SpaceSaving<>(store.getCapacity());
+        if (!start.isBefore(end)) {
+            return merged;
+        }
+        for (RangeSegment segment : RollupPlan.of(start, end, LEVELS).getSegments()) {
+            merged.merge(store.summary(segment));
+        }
+        return merged;
+    }
+
+    private SpaceSaving<HitKey> resolve(SpaceSaving<Long> summary) {
+        Set<Integer> appIds = new HashSet<>();
+        Set<Integer> uriIds = new HashSet<>();
+        for (SpaceSaving.Counter<Long> counter : summary.counters()) {
+            appIds.add(TopHitsStore.appId(counter.getKey()));
+            uriIds.add(TopHitsStore.uriId(counter.getKey()));
+        }
+        if (appIds.isEmpty()) {
+            return summary.mapKeys(key -> null);
+        }
+        Map<Integer, String> apps = statsDictionary.appNames(appIds);
+        Map<Integer, String> uris = statsDictionary.uriNames(uriIds);
+        return summary.mapKeys(key -> new HitKey(apps.get(TopHitsStore.appId(key)), uris.get(TopHitsStore.uriId(key))));
+    }
+}
\ No newline at end of file
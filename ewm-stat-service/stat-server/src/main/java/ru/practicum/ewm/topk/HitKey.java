@@ -0,0 +1,13 @@
+package ru.practicum.ewm.topk;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@EqualsAndHashCode
+@RequiredArgsConstructor
+class HitKey {
+    private final String app;
+    private final String uri;
+}
\ No newline at end of file
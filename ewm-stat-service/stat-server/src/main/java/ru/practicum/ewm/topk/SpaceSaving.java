@@ -0,0 +1,197 @@
+package ru.practicum.ewm.topk;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Space-Saving heavy-hitter summary holding at most {@code capacity} counters. Each counter overestimates the count of
+ * its key by no more than its error, and any key without a counter occurred at most {@link #getFloor()} times, so every
+ * key seen more than {@code total / capacity} times is guaranteed a counter. Summaries of disjoint streams merge into a
+ * summary of their union with the same guarantees, which is how ranges are assembled from per-bucket summaries.
+ * <p>
+ * Counters sit in a min-heap on their count, which keeps an update at {@code O(log capacity)} however many distinct
+ * keys the stream has. Not thread-safe.
+ */
+public class SpaceSaving<K> {
+    @Getter
+    private final int capacity;
+    private final Map<K, Counter<K>> counters;
+    private final Counter<K>[] heap;
+    private int size;
+    @Getter
+    private long floor;
+
+    @SuppressWarnings("unchecked")
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Space-Saving capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+        this.heap = new Counter[capacity];
+    }
+
+    public void add(K key, long weight) {
+        Counter<K> counter = counters.get(key);
+        if (counter != null) {
+            counter.count += weight;
+            siftDown(counter.index);
+            return;
+        }
+        if (size < capacity) {
+            counter = new Counter<>(key, weight, floor);
+            counter.count += floor;
+            counter.index = size;
+            heap[size++] = counter;
+            counters.put(key, counter);
+            siftUp(counter.index);
+            return;
+        }
+        Counter<K> min = heap[0];
+        counters.remove(min.key);
+        floor = Math.max(floor, min.count);
+        min.key = key;
+        min.error = min.count;
+        min.count += weight;
+        counters.put(key, min);
+        siftDown(0);
+    }
+
+    /**
+     * Folds a summary of a disjoint stream into this one. A key missing from either side is bounded by that side's
+     * floor, and the counters that do not fit afterwards raise the floor to the largest count they held.
+     */
+    public void merge(SpaceSaving<K> other) {
+        Map<K, Counter<K>> merged = new HashMap<>((size + other.size) * 2);
+        for (int i = 0; i < size; i++) {
+            Counter<K> counter = heap[i];
+            merged.put(counter.key, new Counter<>(counter.key, counter.count + other.floor,
+                    counter.error + other.floor));
+        }
+        for (int i = 0; i < other.size; i++) {
+            Counter<K> counter = other.heap[i];
+            Counter<K> existing = merged.get(counter.key);
+            if (existing != null) {
+                existing.count += counter.count - other.floor;
+                existing.error += counter.error - other.floor;
+            } else {
+                merged.put(counter.key, new Counter<>(counter.key, counter.count + floor, counter.error + floor));
+            }
+        }
+        List<Counter<K>> sorted = new ArrayList<>(merged.values());
+        sorted.sort(Comparator.comparingLong((Counter<K> counter) -> counter.count).reversed());
+        long newFloor = floor + other.floor;
+        if (sorted.size() > capacity) {
+            newFloor = Math.max(newFloor, sorted.get(capacity).count);
+            sorted = sorted.subList(0, capacity);
+        }
+        reset(sorted, newFloor);
+    }
+
+    /**
+     * Returns the {@code k} largest counters, highest count first.
+     */
+    public List<Counter<K>> top(int k) {
+        Counter<K>[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted, Comparator.comparingLong((Counter<K> counter) -> counter.count).reversed());
+        return List.of(Arrays.copyOf(sorted, Math.min(k, size)));
+    }
+
+    public List<Counter<K>> counters() {
+        return List.of(Arrays.copyOf(heap, size));
+    }
+
+    public <R> SpaceSaving<R> mapKeys(Function<K, R> mapper) {
+        SpaceSaving<R> mapped = new SpaceSaving<>(capacity);
+        List<Counter<R>> counters = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            counters.add(new Counter<>(mapper.apply(heap[i].key), heap[i].count, heap[i].error));
+        }
+        mapped.reset(counters, floor);
+        return mapped;
+    }
+
+    public static <K> SpaceSaving<K> of(int capacity, long floor, List<Counter<K>> counters) {
+        if (counters.size() > capacity) {
+            throw new IllegalArgumentException("More counters than the summary capacity");
+        }
+        SpaceSaving<K> summary = new SpaceSaving<>(capacity);
+        summary.reset(counters, floor);
+        return summary;
+    }
+
+    private void reset(List<Counter<K>> entries, long newFloor) {
+        counters.clear();
+        Arrays.fill(heap, null);
+        size = 0;
+        floor = newFloor;
+        for (Counter<K> entry : entries) {
+            Counter<K> counter = new Counter<>(entry.key, entry.count, entry.error);
+            counter.index = size;
+            heap[size++] = counter;
+            counters.put(counter.key, counter);
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap[parent].count <= heap[index].count) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left].count < heap[smallest].count) {
+                smallest = left;
+            }
+            if (right < size && heap[right].count < heap[smallest].count) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        Counter<K> counter = heap[i];
+        heap[i] = heap[j];
+        heap[j] = counter;
+        heap[i].index = i;
+        heap[j].index = j;
+    }
+
+    @Getter
+    public static final class Counter<K> {
+        private K key;
+        private long count;
+        private long error;
+        private int index;
+
+        public Counter(K key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
\ No newline at end of file
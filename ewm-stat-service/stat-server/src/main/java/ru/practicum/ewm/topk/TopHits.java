@@ -0,0 +1,18 @@
+package ru.practicum.ewm.topk;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import ru.practicum.ewm.TopViewStats;
+
+import java.util.List;
+
+/**
+ * A top-k answer: the listed uris with their counts and errors, and the floor of the merged summary, which bounds the
+ * count of every uri that is not listed.
+ */
+@Getter
+@RequiredArgsConstructor
+public class TopHits {
+    private final List<TopViewStats> stats;
+    private final long floor;
+}
\ No newline at end of file
@@ -0,0 +1,143 @@
+package ru.practicum.ewm.topk;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.repository.SqlArrays;
+import ru.practicum.ewm.rollup.RangeSegment;
+import ru.practicum.ewm.rollup.TimeBucket;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps a Space-Saving summary of the hits per hour and per day, keyed by app and uri id packed into one long.
+ * Summaries are folded by the rollup job, so they lag behind ingest by up to two rollup intervals; a fold reads the
+ * summaries it touches with one query per level and writes them back in two batches. Minute segments are not
+ * summarized; they are read from the minute rollups, which only ever cover the ragged edges of a range.
+ * <p>
+ * The serialized form is the capacity, the floor and the counter count followed by key, count and error per counter.
+ */
+@Component
+@RequiredArgsConstructor
+public class TopHitsStore {
+    public static final TimeBucket[] LEVELS = {TimeBucket.HOUR, TimeBucket.DAY};
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${stats.top.capacity:1000}")
+    private int capacity;
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void fold(long fromId, long toId) {
+        Map<TimeBucket, Map<LocalDateTime, SpaceSaving<Long>>> deltas = new HashMap<>();
+        jdbcTemplate.query("SELECT DATE_TRUNC('hour', created) AS bucket, app_id, uri_id, COUNT(*) AS hits "
+                + "FROM stats WHERE id > ? AND id <= ? GROUP BY DATE_TRUNC('hour', created), app_id, uri_id", rs -> {
+                    LocalDateTime hour = rs.getTimestamp("bucket").toLocalDateTime();
+                    long key = key(rs.getInt("app_id"), rs.getInt("uri_id"));
+                    for (TimeBucket level : LEVELS) {
+                        deltas.computeIfAbsent(level, l -> new HashMap<>())
+                                .computeIfAbsent(level.floor(hour), b -> new SpaceSaving<>(capacity))
+                                .add(key, rs.getLong("hits"));
+                    }
+                }, fromId, toId);
+
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        deltas.forEach((level, buckets) -> {
+            Set<LocalDateTime> existing = new HashSet<>();
+            jdbcTemplate.query("SELECT bucket, summary FROM stats_top WHERE granularity = ? AND bucket = ANY(?)",
+                    rs -> {
+                        LocalDateTime bucket = rs.getTimestamp("bucket").toLocalDateTime();
+                        SpaceSaving<Long> summary = fromBytes(rs.getBytes("summary"));
+                        summary.merge(buckets.get(bucket));
+                        buckets.put(bucket, summary);
+                        existing.add(bucket);
+                    }, level.name(), SqlArrays.timestamps(buckets.keySet()));
+            buckets.forEach((bucket, summary) -> {
+                if (existing.contains(bucket)) {
+                    updates.add(new Object[]{toBytes(summary), level.name(), bucket});
+                } else {
+                    inserts.add(new Object[]{level.name(), bucket, toBytes(summary)});
+                }
+            });
+        });
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE stats_top SET summary = ? WHERE granularity = ? AND bucket = ?", updates);
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO stats_top (granularity, bucket, summary) VALUES (?, ?, ?)", inserts);
+        }
+    }
+
+    /**
+     * Summarizes the rolled-up hits of one aligned segment.
+     */
+    public SpaceSaving<Long> summary(RangeSegment segment) {
+        SpaceSaving<Long> merged = new SpaceSaving<>(capacity);
+        if (segment.getBucket() == TimeBucket.MINUTE) {
+            jdbcTemplate.query("SELECT app_id, uri_id, SUM(hits) AS hits FROM stats_rollup "
+                    + "WHERE granularity = ? AND bucket >= ? AND bucket < ? GROUP BY app_id, uri_id",
+                    rs -> {
+                        merged.add(key(rs.getInt("app_id"), rs.getInt("uri_id")), rs.getLong("hits"));
+                    }, TimeBucket.MINUTE.name(), segment.getFrom(), segment.getTo());
+            return merged;
+        }
+        jdbcTemplate.query("SELECT summary FROM stats_top WHERE granularity = ? AND bucket >= ? AND bucket < ?",
+                rs -> {
+                    merged.merge(fromBytes(rs.getBytes("summary")));
+                }, segment.getBucket().name(), segment.getFrom(), segment.getTo());
+        return merged;
+    }
+
+    static long key(int appId, int uriId) {
+        return ((long) appId << 32) | (uriId & 0xFFFFFFFFL);
+    }
+
+    static int appId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    static int uriId(long key) {
+        return (int) key;
+    }
+
+    static byte[] toBytes(SpaceSaving<Long> summary) {
+        List<SpaceSaving.Counter<Long>> counters = summary.counters();
+        ByteBuffer buffer = ByteBuffer.allocate(16 + counters.size() * 24);
+        buffer.putInt(summary.getCapacity());
+        buffer.putLong(summary.getFloor());
+        buffer.putInt(counters.size());
+        for (SpaceSaving.Counter<Long> counter : counters) {
+            buffer.putLong(counter.getKey());
+            buffer.putLong(counter.getCount());
+            buffer.putLong(counter.getError());
+        }
+        return buffer.array();
+    }
+
+    static SpaceSaving<Long> fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int summaryCapacity = buffer.getInt();
+        long floor = buffer.getLong();
+        int size = buffer.getInt();
+        if (bytes.length != 16 + size * 24) {
+            throw new IllegalArgumentException("Corrupted Space-Saving summary");
+        }
+        List<SpaceSaving.Counter<Long>> counters = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            counters.add(new SpaceSaving.Counter<>(buffer.getLong(), buffer.getLong(), buffer.getLong()));
+        }
+        return SpaceSaving.of(summaryCapacity, floor, counters);
+    }
+}
\ No newline at end of file
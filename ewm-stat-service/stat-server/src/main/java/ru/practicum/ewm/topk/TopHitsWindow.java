@@ -0,0 +1,142 @@
+package ru.practicum.ewm.topk;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A ring of per-minute Space-Saving summaries over the last few hours, updated on ingest. Recent top-k ranges are
+ * merged from these summaries, so they see hits the rollup job has not folded yet and cost the same however many
+ * distinct uris were hit.
+ * <p>
+ * Like the recent stats window it only sees hits that pass through this instance.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TopHitsWindow {
+    private static final long NO_MINUTE = Long.MIN_VALUE;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${stats.top.window.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stats.top.window.hours:6}")
+    private int hours;
+
+    @Value("${stats.top.capacity:1000}")
+    private int capacity;
+
+    private int minutes;
+    private long[] slotMinute;
+    private SpaceSaving<HitKey>[] summaries;
+    private long trackedFrom;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        minutes = hours * 60;
+        rebuild();
+    }
+
+    /**
+     * Reloads the summaries from the hits stored for the current window, before the server accepts requests.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void rebuild() {
+        slotMinute = new long[minutes];
+        Arrays.fill(slotMinute, NO_MINUTE);
+        summaries = new SpaceSaving[minutes];
+        trackedFrom = minuteOf(LocalDateTime.now()) - minutes + 1;
+
+        jdbcTemplate.query("SELECT a.name AS app, u.uri AS uri, MIN(s.created) AS first_hit, COUNT(*) AS hits "
+                + "FROM stats s JOIN apps a ON a.id = s.app_id JOIN uris u ON u.id = s.uri_id WHERE s.created >= ? "
+                + "GROUP BY a.name, u.uri, DATE_TRUNC('minute', s.created)", rs -> {
+            record(minuteOf(rs.getTimestamp("first_hit").toLocalDateTime()),
+                    new HitKey(rs.getString("app"), rs.getString("uri")), rs.getLong("hits"));
+        }, dateTimeOf(trackedFrom));
+        log.info("Top hits window rebuilt over the last {} minutes", minutes);
+    }
+
+    public void record(EndpointHit hit) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (this) {
+            record(minuteOf(hit.getTimestamp()), new HitKey(hit.getApp(), hit.getUri()), 1);
+        }
+    }
+
+    public void recordAll(List<EndpointHit> hits) {
+        hits.forEach(this::record);
+    }
+
+    /**
+     * First minute the ring still holds in full, or {@code null} when the window is disabled.
+     */
+    public LocalDateTime coveredFrom() {
+        if (!enabled) {
+            return null;
+        }
+        return dateTimeOf(Math.max(trackedFrom, minuteOf(LocalDateTime.now()) - minutes + 1));
+    }
+
+    /**
+     * Merges the summaries of {@code [from, to)}, both on minute boundaries, or returns {@code null} when part of the
+     * range has already left the ring.
+     */
+    public synchronized SpaceSaving<HitKey> summary(LocalDateTime from, LocalDateTime to) {
+        long fromMinute = minuteOf(from);
+        long toMinute = minuteOf(to);
+        if (!enabled || fromMinute < trackedFrom || toMinute - fromMinute > minutes) {
+            return null;
+        }
+        SpaceSaving<HitKey> merged = new SpaceSaving<>(capacity);
+        for (long minute = fromMinute; minute < toMinute; minute++) {
+            int slot = slot(minute);
+            if (slotMinute[slot] > minute) {
+                return null;
+            }
+            if (slotMinute[slot] == minute) {
+                merged.merge(summaries[slot]);
+            }
+        }
+        return merged;
+    }
+
+    private void record(long minute, HitKey key, long hits) {
+        int slot = slot(minute);
+        if (minute < trackedFrom || slotMinute[slot] > minute) {
+            return;
+        }
+        if (slotMinute[slot] < minute) {
+            slotMinute[slot] = minute;
+            summaries[slot] = new SpaceSaving<>(capacity);
+        }
+        summaries[slot].add(key, hits);
+    }
+
+    private int slot(long minute) {
+        return (int) Math.floorMod(minute, (long) minutes);
+    }
+
+    private static long minuteOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60L);
+    }
+
+    private static LocalDateTime dateTimeOf(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,245 @@
+package ru.practicum.ewm.visitor;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative ints in the Roaring layout: values are grouped by their high 16 bits, and each group
+ * keeps its low 16 bits either as a sorted array, while it holds at most {@value #ARRAY_LIMIT} values, or as a
+ * 65536-bit bitmap. Dense runs of visitor ids therefore cost about one bit each and sparse ones two bytes each.
+ * <p>
+ * The serialized form is the number of groups, then for every group its high bits as a short, a type byte and either
+ * the value count followed by the sorted low bits, or the 1024 words of its bitmap.
+ */
+public class RoaringBitmap {
+    static final int ARRAY_LIMIT = 4096;
+
+    private static final byte ARRAY = 0;
+    private static final byte BITMAP = 1;
+    private static final int WORDS = 1024;
+
+    private char[] keys = new char[0];
+    private Object[] containers = new Object[0];
+    private int[] sizes = new int[0];
+    private int groups;
+
+    public static RoaringBitmap fromBytes(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            RoaringBitmap bitmap = new RoaringBitmap();
+            int groups = buffer.getInt();
+            bitmap.ensureCapacity(groups);
+            for (int i = 0; i < groups; i++) {
+                bitmap.keys[i] = buffer.getChar();
+                byte type = buffer.get();
+                if (type == ARRAY) {
+                    char[] values = new char[buffer.getShort() & 0xffff];
+                    buffer.asCharBuffer().get(values);
+                    buffer.position(buffer.position() + values.length * 2);
+                    bitmap.containers[i] = values;
+                    bitmap.sizes[i] = values.length;
+                } else if (type == BITMAP) {
+                    long[] words = new long[WORDS];
+                    buffer.asLongBuffer().get(words);
+                    buffer.position(buffer.position() + WORDS * 8);
+                    bitmap.containers[i] = words;
+                    bitmap.sizes[i] = cardinality(words);
+                } else {
+                    throw new IllegalArgumentException("Corrupted bitmap");
+                }
+            }
+            bitmap.groups = groups;
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException("Corrupted bitmap");
+            }
+            return bitmap;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Corrupted bitmap", e);
+        }
+    }
+
+    public void add(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Only non-negative values are supported");
+        }
+        char key = (char) (value >>> 16);
+        char low = (char) value;
+        int index = find(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertGroup(index, key, new char[4], 0);
+        }
+        if (containers[index] instanceof long[] words) {
+            if (setBit(words, low)) {
+                sizes[index]++;
+            }
+            return;
+        }
+        char[] values = (char[]) containers[index];
+        int size = sizes[index];
+        int position = Arrays.binarySearch(values, 0, size, low);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        if (size == ARRAY_LIMIT) {
+            long[] words = toWords(values, size);
+            setBit(words, low);
+            containers[index] = words;
+            sizes[index] = size + 1;
+            return;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, Math.max(4, size * 2)));
+            containers[index] = values;
+        }
+        System.arraycopy(values, position, values, position + 1, size - position);
+        values[position] = low;
+        sizes[index] = size + 1;
+    }
+
+    public boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = find((char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        if (containers[index] instanceof long[] words) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) containers[index], 0, sizes[index], low) >= 0;
+    }
+
+    /**
+     * Adds every value of {@code other} to this bitmap.
+     */
+    public void or(RoaringBitmap other) {
+        for (int i = 0; i < other.groups; i++) {
+            int index = find(other.keys[i]);
+            if (index < 0) {
+                index = -index - 1;
+                Object copy = other.containers[i] instanceof long[] words ? words.clone()
+                        : Arrays.copyOf((char[]) other.containers[i], Math.max(4, other.sizes[i]));
+                insertGroup(index, other.keys[i], copy, other.sizes[i]);
+                continue;
+            }
+            long[] words = containers[index] instanceof long[] own ? own
+                    : toWords((char[]) containers[index], sizes[index]);
+            if (other.containers[i] instanceof long[] otherWords) {
+                for (int w = 0; w < WORDS; w++) {
+                    words[w] |= otherWords[w];
+                }
+            } else {
+                char[] values = (char[]) other.containers[i];
+                for (int v = 0; v < other.sizes[i]; v++) {
+                    setBit(words, values[v]);
+                }
+            }
+            int size = cardinality(words);
+            if (size <= ARRAY_LIMIT) {
+                containers[index] = toValues(words, size);
+            } else {
+                containers[index] = words;
+            }
+            sizes[index] = size;
+        }
+    }
+
+    public long cardinality() {
+        long result = 0;
+        for (int i = 0; i < groups; i++) {
+            result += sizes[i];
+        }
+        return result;
+    }
+
+    public byte[] toBytes() {
+        int length = 4;
+        for (int i = 0; i < groups; i++) {
+            length += 3 + (containers[i] instanceof long[] ? WORDS * 8 : 2 + sizes[i] * 2);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.putInt(groups);
+        for (int i = 0; i < groups; i++) {
+            buffer.putChar(keys[i]);
+            if (containers[i] instanceof long[] words) {
+                buffer.put(BITMAP);
+                for (long word : words) {
+                    buffer.putLong(word);
+                }
+            } else {
+                char[] values = (char[]) containers[i];
+                buffer.put(ARRAY);
+                buffer.putShort((short) sizes[i]);
+                for (int v = 0; v < sizes[i]; v++) {
+                    buffer.putChar(values[v]);
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, groups, key);
+    }
+
+    private void insertGroup(int index, char key, Object container, int size) {
+        ensureCapacity(groups + 1);
+        System.arraycopy(keys, index, keys, index + 1, groups - index);
+        System.arraycopy(containers, index, containers, index + 1, groups - index);
+        System.arraycopy(sizes, index, sizes, index + 1, groups - index);
+        keys[index] = key;
+        containers[index] = container;
+        sizes[index] = size;
+        groups++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            int length = Math.max(capacity, keys.length * 2);
+            keys = Arrays.copyOf(keys, length);
+            containers = Arrays.copyOf(containers, length);
+            sizes = Arrays.copyOf(sizes, length);
+        }
+    }
+
+    private static boolean setBit(long[] words, char low) {
+        long mask = 1L << low;
+        long word = words[low >>> 6];
+        words[low >>> 6] = word | mask;
+        return (word & mask) == 0;
+    }
+
+    private static long[] toWords(char[] values, int size) {
+        long[] words = new long[WORDS];
+        for (int i = 0; i < size; i++) {
+            setBit(words, values[i]);
+        }
+        return words;
+    }
+
+    private static char[] toValues(long[] words, int size) {
+        char[] values = new char[Math.max(4, size)];
+        int position = 0;
+        for (int w = 0; w < WORDS; w++) {
+            long word = words[w];
+            while (word != 0) {
+                values[position++] = (char) (w * 64 + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+
+    private static int cardinality(long[] words) {
+        int result = 0;
+        for (long word : words) {
+            result += Long.bitCount(word);
+        }
+        return result;
+    }
+}
\ No newline at end of file
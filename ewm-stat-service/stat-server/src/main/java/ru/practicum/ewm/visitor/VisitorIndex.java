@@ -0,0 +1,134 @@
+package ru.practicum.ewm.visitor;
+
+import jakarta.annotation.PostConstruct;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.ewm.repository.SqlArrays;
+import ru.practicum.ewm.rollup.TimeBucket;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps an exact set of visitors per day for every app and uri id, as a {@link RoaringBitmap} of visitor ids. Ips are
+ * interned into {@code ips}, whose identity column hands out dense ids, so the bitmaps of popular uris stay compact.
+ * The index is folded by {@link ru.practicum.ewm.rollup.RollupJob} under the rollup watermark, like the sketches, and
+ * is rebuilt from the folded raw hits on startup when it is empty. A fold reads the bitmaps it touches in one query
+ * and writes them back in two batches.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VisitorIndex {
+    public static final TimeBucket[] LEVELS = {TimeBucket.DAY};
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${stats.visitors.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stats.rollup.enabled:true}")
+    private boolean rollupEnabled;
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        rebuildIfMissing();
+    }
+
+    /**
+     * The index is only kept while the rollup job runs; without it the watermark never moves and every unique query
+     * would have to read raw rows anyway.
+     */
+    public boolean isEnabled() {
+        return enabled && rollupEnabled;
+    }
+
+    public void rebuildIfMissing() {
+        transactionTemplate.executeWithoutResult(status -> {
+            long watermark = jdbcTemplate.queryForObject(
+                    "SELECT last_hit_id FROM stats_rollup_state WHERE id = 1", Long.class);
+            if (watermark == 0 || jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM stats_visitors", Long.class) > 0) {
+                return;
+            }
+            log.info("Rebuilding the visitor index from hits up to id {}", watermark);
+            fold(0, watermark);
+        });
+    }
+
+    public void fold(long fromId, long toId) {
+        if (!isEnabled()) {
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO ips (ip) SELECT DISTINCT s.ip FROM stats s WHERE s.id > ? AND s.id <= ? "
+                + "AND NOT EXISTS (SELECT 1 FROM ips i WHERE i.ip = s.ip)", fromId, toId);
+        Map<VisitorKey, RoaringBitmap> deltas = new HashMap<>();
+        jdbcTemplate.query("SELECT DISTINCT DATE_TRUNC('day', s.created) AS bucket, s.app_id, s.uri_id, "
+                + "i.id AS visitor FROM stats s JOIN ips i ON i.ip = s.ip WHERE s.id > ? AND s.id <= ?", rs -> {
+                    VisitorKey key = new VisitorKey(rs.getTimestamp("bucket").toLocalDateTime(), rs.getInt("app_id"),
+                            rs.getInt("uri_id"));
+                    deltas.computeIfAbsent(key, k -> new RoaringBitmap()).add(rs.getInt("visitor"));
+                }, fromId, toId);
+
+        if (deltas.isEmpty()) {
+            return;
+        }
+        Set<LocalDateTime> days = new HashSet<>();
+        Set<Integer> uriIds = new HashSet<>();
+        for (VisitorKey key : deltas.keySet()) {
+            days.add(key.day);
+            uriIds.add(key.uriId);
+        }
+        Set<VisitorKey> existing = new HashSet<>();
+        jdbcTemplate.query("SELECT bucket, app_id, uri_id, visitors FROM stats_visitors "
+                + "WHERE granularity = ? AND bucket = ANY(?) AND uri_id = ANY(?)", rs -> {
+                    VisitorKey key = new VisitorKey(rs.getTimestamp("bucket").toLocalDateTime(), rs.getInt("app_id"),
+                            rs.getInt("uri_id"));
+                    RoaringBitmap visitors = deltas.get(key);
+                    if (visitors != null) {
+                        visitors.or(RoaringBitmap.fromBytes(rs.getBytes("visitors")));
+                        existing.add(key);
+                    }
+                }, TimeBucket.DAY.name(), SqlArrays.timestamps(days), SqlArrays.integers(uriIds));
+
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        deltas.forEach((key, visitors) -> {
+            if (existing.contains(key)) {
+                updates.add(new Object[]{visitors.toBytes(), TimeBucket.DAY.name(), key.day, key.appId, key.uriId});
+            } else {
+                inserts.add(new Object[]{TimeBucket.DAY.name(), key.day, key.appId, key.uriId, visitors.toBytes()});
+            }
+        });
+        if (!updates.isEmpty()) {
+            jdbcTemplate.batchUpdate("UPDATE stats_visitors SET visitors = ? "
+                    + "WHERE granularity = ? AND bucket = ? AND app_id = ? AND uri_id = ?", updates);
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO stats_visitors (granularity, bucket, app_id, uri_id, visitors) "
+                    + "VALUES (?, ?, ?, ?, ?)", inserts);
+        }
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class VisitorKey {
+        private final LocalDateTime day;
+        private final int appId;
+        private final int uriId;
+    }
+}
\ No newline at end of file
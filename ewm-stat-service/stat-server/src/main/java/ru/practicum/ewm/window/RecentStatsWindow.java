@@ -0,0 +1,318 @@
+package ru.practicum.ewm.window;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.repository.StatsRepository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Per-minute hit counters for the last few hours, kept in primitive ring buffers so that non-unique stats over recent
+ * ranges are answered without touching the database. Each slot of the ring holds one minute; a hit for a newer minute
+ * recycles the slot, which is what slides the window forward.
+ * <p>
+ * Answers are exact. Every minute of the range must still be in the ring; a first or last minute that is only partly
+ * covered, judged by the earliest and latest hit recorded for it, is counted by the database over that sub-minute
+ * range while all whole minutes come from memory. When the number of tracked uris exceeds its limit the least recently
+ * hit uri is evicted and ranges reaching back to its last hit fall through to the database from then on.
+ * <p>
+ * The counters only see hits that pass through this instance, so the window must stay disabled when several
+ * stat-server instances share one database.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RecentStatsWindow {
+    private static final long NO_MINUTE = Long.MIN_VALUE;
+    private static final char WILDCARD = '*';
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final StatsRepository statsRepository;
+
+    @Value("${stats.window.enabled:false}")
+    private boolean enabled;
+
+    @Value("${stats.window.hours:6}")
+    private int hours;
+
+    @Value("${stats.window.max-uris:10000}")
+    private int maxUris;
+
+    private int minutes;
+    private long[] slotMinute;
+    private long[] firstMillis;
+    private long[] lastMillis;
+    private Map<Key, UriCounts> counters;
+    private long trackedFrom;
+    private long incompleteUntil = NO_MINUTE;
+    private Counter servedCounter;
+    private Counter partialCounter;
+    private Counter missedCounter;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        minutes = hours * 60;
+        servedCounter = meterRegistry.counter("stats.window.queries", "result", "served");
+        partialCounter = meterRegistry.counter("stats.window.queries", "result", "partial");
+        missedCounter = meterRegistry.counter("stats.window.queries", "result", "fallthrough");
+        Gauge.builder("stats.window.uris", this, RecentStatsWindow::trackedUris)
+                .description("Uris the recent stats window keeps counters for")
+                .register(meterRegistry);
+        rebuild();
+    }
+
+    /**
+     * Reloads the counters from the hits stored for the current window. Runs on start-up, before the server accepts
+     * requests, so no hit can slip in between the load and the first recorded one.
+     */
+    public synchronized void rebuild() {
+        slotMinute = new long[minutes];
+        firstMillis = new long[minutes];
+        lastMillis = new long[minutes];
+        Arrays.fill(slotMinute, NO_MINUTE);
+        counters = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, UriCounts> eldest) {
+                if (size() <= maxUris) {
+                    return false;
+                }
+                incompleteUntil = Math.max(incompleteUntil, eldest.getValue().lastMinute);
+                return true;
+            }
+        };
+        incompleteUntil = NO_MINUTE;
+        trackedFrom = minuteOf(millisOf(LocalDateTime.now())) - minutes + 1;
+
+        String truncated = "DATE_TRUNC('minute', s.created)";
+        jdbcTemplate.query("SELECT a.name AS app, u.uri AS uri, COUNT(*) AS hits, "
+                + "MIN(s.created) AS first_hit, MAX(s.created) AS last_hit FROM stats s "
+                + "JOIN apps a ON a.id = s.app_id JOIN uris u ON u.id = s.uri_id WHERE s.created >= ? "
+                + "GROUP BY a.name, u.uri, " + truncated, rs -> {
+            record(new Key(rs.getString("app"), rs.getString("uri")), rs.getInt("hits"),
+                    millisOf(rs.getTimestamp("first_hit")), millisOf(rs.getTimestamp("last_hit")));
+        }, dateTimeOf(trackedFrom));
+        log.info("Recent stats window rebuilt: {} uris over the last {} minutes", counters.size(), minutes);
+    }
+
+    public void record(EndpointHit hit) {
+        if (!enabled) {
+            return;
+        }
+        long millis = millisOf(hit.getTimestamp());
+        synchronized (this) {
+            record(new Key(hit.getApp(), hit.getUri()), 1, millis, millis);
+        }
+    }
+
+    public void recordAll(List<EndpointHit> hits) {
+        hits.forEach(this::record);
+    }
+
+    /**
+     * Answers a non-unique stats request from memory, or returns an empty optional when the window cannot answer it
+     * exactly and the request has to go to the database.
+     */
+    public Optional<List<ViewStats>> getStats(ViewsStatsRequest request) {
+        if (!enabled || request.isUnique()) {
+            return Optional.empty();
+        }
+        Snapshot snapshot = snapshot(request);
+        if (snapshot == null) {
+            missedCounter.increment();
+            return Optional.empty();
+        }
+        if (snapshot.headEnd != null) {
+            merge(snapshot.hits, statsRepository.getStats(request.toBuilder()
+                    .end(snapshot.headEnd)
+                    .limit(null)
+                    .build()));
+        }
+        if (snapshot.tailStart != null) {
+            merge(snapshot.hits, statsRepository.getStats(request.toBuilder()
+                    .start(snapshot.tailStart)
+                    .limit(null)
+                    .build()));
+        }
+        (snapshot.headEnd == null && snapshot.tailStart == null ? servedCounter : partialCounter).increment();
+
+        List<ViewStats> stats = new ArrayList<>();
+        snapshot.hits.forEach((key, hits) -> stats.add(ViewStats.builder()
+                .app(key.app)
+                .uri(key.uri)
+                .hits(hits)
+                .build()));
+        stats.sort(Comparator.comparing(ViewStats::getHits).reversed().thenComparing(ViewStats::getUri));
+        if (request.getLimit() != null && stats.size() > request.getLimit()) {
+            return Optional.of(stats.subList(0, request.getLimit()));
+        }
+        return Optional.of(stats);
+    }
+
+    /**
+     * Sums the whole minutes of the range that are held in memory. A first or last minute that also holds hits
+     * outside the range is left out and reported as a sub-minute range for the database to count instead.
+     */
+    private synchronized Snapshot snapshot(ViewsStatsRequest request) {
+        long startMillis = millisOf(request.getStart());
+        long endMillis = millisOf(request.getEnd());
+        long startMinute = minuteOf(startMillis);
+        long endMinute = minuteOf(endMillis);
+        if (endMinute - startMinute >= minutes || startMinute < trackedFrom || startMinute <= incompleteUntil) {
+            return null;
+        }
+        for (long minute = startMinute; minute <= endMinute; minute++) {
+            if (slotMinute[slot(minute)] > minute) {
+                return null;
+            }
+        }
+        int startSlot = slot(startMinute);
+        int endSlot = slot(endMinute);
+        boolean partialHead = slotMinute[startSlot] == startMinute && firstMillis[startSlot] < startMillis;
+        boolean partialTail = slotMinute[endSlot] == endMinute && lastMillis[endSlot] > endMillis;
+        if (startMinute == endMinute && (partialHead || partialTail)) {
+            return null;
+        }
+        Set<String> exact = new HashSet<>();
+        List<String> prefixes = new ArrayList<>();
+        for (String uri : request.getUris()) {
+            int wildcard = uri.indexOf(WILDCARD);
+            if (wildcard < 0) {
+                exact.add(uri);
+            } else if (wildcard == uri.length() - 1) {
+                prefixes.add(uri.substring(0, wildcard));
+            } else {
+                return null;
+            }
+        }
+
+        Snapshot snapshot = new Snapshot();
+        long fromMinute = partialHead ? startMinute + 1 : startMinute;
+        long toMinute = partialTail ? endMinute - 1 : endMinute;
+        for (Map.Entry<Key, UriCounts> entry : counters.entrySet()) {
+            String uri = entry.getKey().uri;
+            if (!request.getUris().isEmpty() && !exact.contains(uri)
+                    && prefixes.stream().noneMatch(uri::startsWith)) {
+                continue;
+            }
+            int[] counts = entry.getValue().counts;
+            long hits = 0;
+            for (long minute = fromMinute; minute <= toMinute; minute++) {
+                int slot = slot(minute);
+                if (slotMinute[slot] == minute) {
+                    hits += counts[slot];
+                }
+            }
+            if (hits > 0) {
+                snapshot.hits.put(entry.getKey(), hits);
+            }
+        }
+        if (partialHead) {
+            snapshot.headEnd = dateTimeOf(startMinute + 1).minus(1, ChronoUnit.MICROS);
+        }
+        if (partialTail) {
+            snapshot.tailStart = dateTimeOf(endMinute);
+        }
+        return snapshot;
+    }
+
+    private synchronized int trackedUris() {
+        return counters.size();
+    }
+
+    private static void merge(Map<Key, Long> hits, List<ViewStats> stats) {
+        for (ViewStats stat : stats) {
+            hits.merge(new Key(stat.getApp(), stat.getUri()), stat.getHits(), Long::sum);
+        }
+    }
+
+    private void record(Key key, int hits, long first, long last) {
+        long minute = minuteOf(first);
+        int slot = slot(minute);
+        if (minute < trackedFrom || slotMinute[slot] > minute) {
+            return;
+        }
+        if (slotMinute[slot] < minute) {
+            slotMinute[slot] = minute;
+            firstMillis[slot] = Long.MAX_VALUE;
+            lastMillis[slot] = Long.MIN_VALUE;
+            for (UriCounts counts : counters.values()) {
+                counts.counts[slot] = 0;
+            }
+        }
+        UriCounts counts = counters.computeIfAbsent(key, k -> new UriCounts(minutes));
+        counts.counts[slot] += hits;
+        counts.lastMinute = Math.max(counts.lastMinute, minute);
+        firstMillis[slot] = Math.min(firstMillis[slot], first);
+        lastMillis[slot] = Math.max(lastMillis[slot], last);
+    }
+
+    private int slot(long minute) {
+        return (int) Math.floorMod(minute, (long) minutes);
+    }
+
+    private static long minuteOf(long millis) {
+        return Math.floorDiv(millis, 60_000L);
+    }
+
+    private static long millisOf(LocalDateTime time) {
+        return time.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static LocalDateTime dateTimeOf(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+
+    private static long millisOf(Timestamp timestamp) {
+        return millisOf(timestamp.toLocalDateTime());
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static class Key {
+        private final String app;
+        private final String uri;
+    }
+
+    private static final class Snapshot {
+        private final Map<Key, Long> hits = new HashMap<>();
+        private LocalDateTime headEnd;
+        private LocalDateTime tailStart;
+    }
+
+    private static final class UriCounts {
+        private final int[] counts;
+        private long lastMinute = NO_MINUTE;
+
+        private UriCounts(int minutes) {
+            counts = new int[minutes];
+        }
+    }
+}
\ No newline at end of file
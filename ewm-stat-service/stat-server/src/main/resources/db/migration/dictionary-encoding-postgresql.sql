@@ -0,0 +1,76 @@
+-- Moves an existing PostgreSQL stats database from the string layout (app, uri, ip VARCHAR) to the
+-- dictionary-encoded layout of schema.sql. Run it once, with the stat-server stopped, before starting the new version
+-- with spring.sql.init.mode=never; schema.sql recreates the tables from scratch and would discard the migrated data.
+
+BEGIN;
+
+CREATE TABLE APPS
+(
+    id   INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE URIS
+(
+    id  INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    uri VARCHAR(255) NOT NULL UNIQUE
+);
+
+INSERT INTO APPS (name)
+SELECT DISTINCT app FROM STATS;
+
+INSERT INTO URIS (uri)
+SELECT DISTINCT uri FROM STATS;
+
+-- inet_send() yields family, netmask, is_cidr and length bytes followed by the address itself
+CREATE TABLE STATS_ENCODED
+(
+    id      BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    app_id  INT   NOT NULL REFERENCES APPS (id),
+    uri_id  INT   NOT NULL REFERENCES URIS (id),
+    ip      BYTEA NOT NULL,
+    created TIMESTAMP WITHOUT TIME ZONE NOT NULL
+);
+
+INSERT INTO STATS_ENCODED (id, app_id, uri_id, ip, created)
+SELECT s.id, a.id, u.id, substring(inet_send(s.ip::inet) FROM 5), s.created
+FROM STATS s
+         JOIN APPS a ON a.name = s.app
+         JOIN URIS u ON u.uri = s.uri;
+
+SELECT setval(pg_get_serial_sequence('stats_encoded', 'id'), COALESCE(MAX(id), 0) + 1, false) FROM STATS_ENCODED;
+ALTER TABLE STATS_ENCODED ALTER COLUMN id SET GENERATED ALWAYS;
+
+DROP TABLE STATS;
+ALTER TABLE STATS_ENCODED RENAME TO STATS;
+ALTER INDEX stats_encoded_pkey RENAME TO stats_pkey;
+CREATE INDEX STATS_CREATED_IDX ON STATS (created);
+
+-- Sketches now hash the binary address rather than its text, so both aggregates are rebuilt from the raw hits: the
+-- rollup job starts again from id 0 and queries read the not yet rolled up rows directly in the meantime.
+DROP TABLE STATS_ROLLUP;
+DROP TABLE STATS_SKETCH;
+
+CREATE TABLE STATS_ROLLUP
+(
+    granularity VARCHAR(16) NOT NULL,
+    bucket      TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app_id      INT         NOT NULL REFERENCES APPS (id),
+    uri_id      INT         NOT NULL REFERENCES URIS (id),
+    hits        BIGINT      NOT NULL,
+    PRIMARY KEY (granularity, bucket, app_id, uri_id)
+);
+
+CREATE TABLE STATS_SKETCH
+(
+    granularity VARCHAR(16) NOT NULL,
+    bucket      TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app_id      INT         NOT NULL REFERENCES APPS (id),
+    uri_id      INT         NOT NULL REFERENCES URIS (id),
+    sketch      BYTEA       NOT NULL,
+    PRIMARY KEY (granularity, bucket, app_id, uri_id)
+);
+
+UPDATE STATS_ROLLUP_STATE SET last_hit_id = 0 WHERE id = 1;
+
+COMMIT;
@@ -0,0 +1,18 @@
+-- Runs after schema.sql on PostgreSQL and swaps the plain STATS table for one range-partitioned by created.
+-- StatsPartitionManager creates the partitions ahead of time and expires old ones; hits that fall outside every
+-- partition land in STATS_DEFAULT.
+DROP TABLE IF EXISTS STATS CASCADE;
+
+CREATE TABLE IF NOT EXISTS STATS
+(
+    id      BIGINT GENERATED ALWAYS AS IDENTITY,
+    app_id  INT   NOT NULL REFERENCES APPS (id),
+    uri_id  INT   NOT NULL REFERENCES URIS (id),
+    ip      BYTEA NOT NULL,
+    created TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    PRIMARY KEY (id, created)
+    ) PARTITION BY RANGE (created);
+
+CREATE TABLE IF NOT EXISTS STATS_DEFAULT PARTITION OF STATS DEFAULT;
+
+CREATE INDEX IF NOT EXISTS STATS_CREATED_IDX ON STATS (created);
@@ -1,10 +1,105 @@
 DROP TABLE IF EXISTS STATS CASCADE;
+DROP TABLE IF EXISTS STATS_ROLLUP CASCADE;
+DROP TABLE IF EXISTS STATS_SKETCH CASCADE;
+DROP TABLE IF EXISTS STATS_ROLLUP_STATE CASCADE;
+DROP TABLE IF EXISTS STATS_TOP CASCADE;
+DROP TABLE IF EXISTS STATS_DAILY CASCADE;
+DROP TABLE IF EXISTS STATS_VISITORS CASCADE;
+DROP TABLE IF EXISTS STATS_HIT_IDS CASCADE;
+DROP TABLE IF EXISTS IPS CASCADE;
+DROP TABLE IF EXISTS APPS CASCADE;
+DROP TABLE IF EXISTS URIS CASCADE;
+
+CREATE TABLE IF NOT EXISTS APPS
+(
+    id   INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+    );
+
+CREATE TABLE IF NOT EXISTS URIS
+(
+    id  INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    uri VARCHAR(255) NOT NULL UNIQUE
+    );
 
 CREATE TABLE IF NOT EXISTS STATS
 (
     id      BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY UNIQUE,
-    app     VARCHAR(255) NOT NULL,
-    uri     VARCHAR(255) NOT NULL,
-    ip      VARCHAR(255) NOT NULL,
+    app_id  INT   NOT NULL REFERENCES APPS (id),
+    uri_id  INT   NOT NULL REFERENCES URIS (id),
+    ip      BYTEA NOT NULL,
     created TIMESTAMP WITHOUT TIME ZONE NOT NULL
-    );
\ No newline at end of file
+    );
+
+CREATE INDEX IF NOT EXISTS STATS_CREATED_IDX ON STATS (created);
+
+CREATE TABLE IF NOT EXISTS STATS_ROLLUP
+(
+    granularity VARCHAR(16) NOT NULL,
+    bucket      TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app_id      INT         NOT NULL REFERENCES APPS (id),
+    uri_id      INT         NOT NULL REFERENCES URIS (id),
+    hits        BIGINT      NOT NULL,
+    PRIMARY KEY (granularity, bucket, app_id, uri_id)
+    );
+
+CREATE TABLE IF NOT EXISTS STATS_SKETCH
+(
+    granularity VARCHAR(16) NOT NULL,
+    bucket      TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app_id      INT         NOT NULL REFERENCES APPS (id),
+    uri_id      INT         NOT NULL REFERENCES URIS (id),
+    sketch      BYTEA       NOT NULL,
+    PRIMARY KEY (granularity, bucket, app_id, uri_id)
+    );
+
+CREATE TABLE IF NOT EXISTS STATS_TOP
+(
+    granularity VARCHAR(16) NOT NULL,
+    bucket      TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    summary     BYTEA       NOT NULL,
+    PRIMARY KEY (granularity, bucket)
+    );
+
+CREATE TABLE IF NOT EXISTS STATS_DAILY
+(
+    app_id INT       NOT NULL REFERENCES APPS (id),
+    uri_id INT       NOT NULL REFERENCES URIS (id),
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits   BIGINT    NOT NULL,
+    PRIMARY KEY (app_id, uri_id, bucket)
+    );
+
+CREATE INDEX IF NOT EXISTS STATS_DAILY_BUCKET_IDX ON STATS_DAILY (bucket);
+
+CREATE TABLE IF NOT EXISTS IPS
+(
+    id INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    ip BYTEA NOT NULL UNIQUE
+    );
+
+CREATE TABLE IF NOT EXISTS STATS_VISITORS
+(
+    granularity VARCHAR(16) NOT NULL,
+    bucket      TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    app_id      INT         NOT NULL REFERENCES APPS (id),
+    uri_id      INT         NOT NULL REFERENCES URIS (id),
+    visitors    BYTEA       NOT NULL,
+    PRIMARY KEY (granularity, bucket, app_id, uri_id)
+    );
+
+CREATE TABLE IF NOT EXISTS STATS_HIT_IDS
+(
+    id      BIGINT PRIMARY KEY,
+    created TIMESTAMP WITHOUT TIME ZONE NOT NULL
+    );
+
+CREATE INDEX IF NOT EXISTS STATS_HIT_IDS_CREATED_IDX ON STATS_HIT_IDS (created);
+
+CREATE TABLE IF NOT EXISTS STATS_ROLLUP_STATE
+(
+    id          INT PRIMARY KEY,
+    last_hit_id BIGINT NOT NULL
+    );
+
+INSERT INTO STATS_ROLLUP_STATE (id, last_hit_id) VALUES (1, 0);
\ No newline at end of file
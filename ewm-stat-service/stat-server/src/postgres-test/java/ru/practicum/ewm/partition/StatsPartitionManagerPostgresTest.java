@@ -0,0 +1,152 @@
+package ru.practicum.ewm.partition;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.dictionary.StatsDictionary;
+import ru.practicum.ewm.repository.StatsRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Runs the partition maintenance against a real PostgreSQL, where schema-postgresql.sql makes the stats table
+ * range-partitioned. The H2 tests only cover the range delete fallback.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(properties = {
+        "spring.sql.init.mode=always",
+        "spring.sql.init.schema-locations=classpath:schema.sql,classpath:schema-postgresql.sql",
+        "stats.partition.enabled=false",
+        "stats.partition.premake=2",
+        "stats.partition.retention-days=3"})
+class StatsPartitionManagerPostgresTest {
+    private static final LocalDate TODAY = LocalDate.of(2023, 3, 10);
+    private static final String DEFAULT_PARTITION = "stats_default";
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private StatsPartitionManager partitionManager;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatsDictionary statsDictionary;
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.driver-class-name", POSTGRES::getDriverClassName);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @BeforeEach
+    void setUp() {
+        clean();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clean();
+    }
+
+    @Test
+    void maintainShouldCreatePartitionsAheadOfToday() {
+        partitionManager.maintain(TODAY);
+
+        assertEquals(List.of(name(TODAY), name(TODAY.plusDays(1)), name(TODAY.plusDays(2)), DEFAULT_PARTITION),
+                partitions());
+
+        partitionManager.maintain(TODAY);
+
+        assertEquals(4, partitions().size());
+    }
+
+    @Test
+    void hitsOutsidePartitionsShouldWaitInDefaultUntilTheirPartitionIsCreated() {
+        partitionManager.maintain(TODAY);
+        LocalDateTime current = TODAY.atTime(12, 0);
+        LocalDateTime ahead = TODAY.plusDays(5).atTime(12, 0);
+        statsRepository.saveHits(List.of(hit(current), hit(ahead)));
+
+        assertEquals(name(TODAY), partitionOf(current));
+        assertEquals(DEFAULT_PARTITION, partitionOf(ahead));
+
+        partitionManager.maintain(TODAY.plusDays(3));
+
+        assertEquals(name(TODAY), partitionOf(current));
+        assertEquals(name(TODAY.plusDays(5)), partitionOf(ahead));
+        assertEquals(0, count("SELECT COUNT(*) FROM " + DEFAULT_PARTITION));
+    }
+
+    @Test
+    void retentionShouldDropExpiredPartitionsAndTrimDefault() {
+        partitionManager.maintain(TODAY);
+        LocalDateTime retained = TODAY.plusDays(1).atTime(12, 0);
+        statsRepository.saveHits(List.of(hit(TODAY.minusDays(2).atTime(12, 0)), hit(TODAY.atTime(12, 0)),
+                hit(retained)));
+
+        partitionManager.maintain(TODAY.plusDays(4));
+
+        assertFalse(partitions().contains(name(TODAY)));
+        assertEquals(List.of(name(TODAY.plusDays(1)), name(TODAY.plusDays(2)), name(TODAY.plusDays(4)),
+                name(TODAY.plusDays(5)), name(TODAY.plusDays(6)), DEFAULT_PARTITION), partitions());
+        assertEquals(1, count("SELECT COUNT(*) FROM stats"));
+        assertEquals(name(TODAY.plusDays(1)), partitionOf(retained));
+    }
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+                + "WHERE i.inhparent = 'stats'::regclass ORDER BY c.relname", String.class);
+    }
+
+    private String partitionOf(LocalDateTime created) {
+        return jdbcTemplate.queryForObject("SELECT tableoid::regclass::text FROM stats WHERE created = ?",
+                String.class, created);
+    }
+
+    private int count(String query) {
+        return jdbcTemplate.queryForObject(query, Integer.class);
+    }
+
+    private static String name(LocalDate day) {
+        return StatsPartition.of(day, PartitionGranularity.DAY).getName();
+    }
+
+    private static EndpointHit hit(LocalDateTime timestamp) {
+        return EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("192.168.0.1")
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private void clean() {
+        partitions().stream()
+                .filter(partition -> !partition.equals(DEFAULT_PARTITION))
+                .forEach(partition -> jdbcTemplate.execute("DROP TABLE " + partition));
+        jdbcTemplate.update("DELETE FROM stats");
+        statsDictionary.clear();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,105 @@
+package ru.practicum.ewm.admission;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GradientLimitTest {
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    void limitShouldGrowToMaximumWhileLatencyHoldsAndLimitIsUsed() {
+        GradientLimit limit = new GradientLimit(20, 4, 50);
+
+        for (int window = 0; window < 100; window++) {
+            window(limit, MILLIS, limit.getLimit(), false);
+        }
+
+        assertEquals(50, limit.getLimit());
+    }
+
+    @Test
+    void limitShouldNotGrowWhileMostOfItIsIdle() {
+        GradientLimit limit = new GradientLimit(20, 4, 50);
+
+        for (int window = 0; window < 20; window++) {
+            window(limit, MILLIS, 3, false);
+        }
+
+        assertEquals(20, limit.getLimit());
+    }
+
+    @Test
+    void limitShouldShrinkWhenLatencyRunsAheadOfBaseline() {
+        GradientLimit limit = new GradientLimit(20, 4, 200);
+        for (int window = 0; window < 5; window++) {
+            window(limit, MILLIS, limit.getLimit(), false);
+        }
+        int before = limit.getLimit();
+
+        for (int window = 0; window < 20; window++) {
+            window(limit, 20 * MILLIS, limit.getLimit(), false);
+        }
+
+        assertTrue(before > 20, "limit grew to " + before);
+        assertTrue(limit.getLimit() < before / 2, "limit shrank only to " + limit.getLimit());
+        assertTrue(limit.getLimit() >= 4);
+    }
+
+    @Test
+    void limitShouldRecoverOnceLatencyReturnsToNormal() {
+        GradientLimit limit = new GradientLimit(20, 4, 200);
+        for (int window = 0; window < 5; window++) {
+            window(limit, MILLIS, limit.getLimit(), false);
+        }
+        for (int window = 0; window < 10; window++) {
+            window(limit, 20 * MILLIS, limit.getLimit(), false);
+        }
+        int degraded = limit.getLimit();
+
+        for (int window = 0; window < 30; window++) {
+            window(limit, MILLIS, limit.getLimit(), false);
+        }
+
+        assertTrue(limit.getLimit() > degraded + 10, degraded + " -> " + limit.getLimit());
+    }
+
+    @Test
+    void droppedRequestShouldCutLimitMultiplicatively() {
+        GradientLimit limit = new GradientLimit(20, 4, 200);
+
+        window(limit, MILLIS, 20, true);
+
+        assertEquals(18, limit.getLimit());
+    }
+
+    @Test
+    void limitShouldNotFallBelowMinimum() {
+        GradientLimit limit = new GradientLimit(10, 8, 200);
+
+        for (int window = 0; window < 10; window++) {
+            window(limit, MILLIS, 10, true);
+        }
+
+        assertEquals(8, limit.getLimit());
+    }
+
+    @Test
+    void inconsistentBoundsShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new GradientLimit(2, 4, 10));
+        assertThrows(IllegalArgumentException.class, () -> new GradientLimit(20, 4, 10));
+        assertThrows(IllegalArgumentException.class, () -> new GradientLimit(1, 0, 10));
+    }
+
+    /**
+     * Feeds exactly one window of samples: as many as the current limit, and at least ten.
+     */
+    private static void window(GradientLimit limit, long rttNanos, int inFlight, boolean dropped) {
+        int samples = Math.max(10, limit.getLimit());
+        for (int i = 0; i < samples; i++) {
+            limit.onSample(rttNanos, inFlight, dropped && i == 0);
+        }
+    }
+}
\ No newline at end of file
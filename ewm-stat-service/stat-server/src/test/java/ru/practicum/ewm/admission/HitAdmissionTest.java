@@ -0,0 +1,139 @@
+package ru.practicum.ewm.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.ewm.exceptions.HitRejectedException;
+
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HitAdmissionTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void hitsBeyondLimitShouldBeRejectedWhileOthersAreInFlight() throws InterruptedException {
+        HitAdmission admission = admission(2);
+        CountDownLatch entered = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            threads.add(Thread.ofVirtual().start(() -> admission.admit(() -> {
+                entered.countDown();
+                await(release);
+            })));
+        }
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        HitRejectedException e = assertThrows(HitRejectedException.class, () -> admission.admit(() -> {
+        }));
+        assertEquals(3, e.getRetryAfterSeconds());
+        assertEquals(2.0, meterRegistry.get("stats.admission.in-flight").gauge().value());
+
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        AtomicInteger saved = new AtomicInteger();
+        admission.admit(saved::incrementAndGet);
+
+        assertEquals(1, saved.get());
+        assertEquals(3, meterRegistry.get("stats.admission.hits").tag("result", "accepted").counter().count());
+        assertEquals(1, meterRegistry.get("stats.admission.hits").tag("result", "rejected").counter().count());
+        assertEquals(0.0, meterRegistry.get("stats.admission.in-flight").gauge().value());
+    }
+
+    @Test
+    void databaseFailuresShouldShrinkLimit() {
+        HitAdmission admission = admission(10);
+
+        for (int i = 0; i < 10; i++) {
+            assertThrows(QueryTimeoutException.class, () -> admission.admit(() -> {
+                throw new QueryTimeoutException("statement timeout");
+            }));
+        }
+
+        assertEquals(9.0, meterRegistry.get("stats.admission.limit").gauge().value());
+    }
+
+    @Test
+    void invalidHitsShouldPassThroughWithoutCountingAsOverload() {
+        HitAdmission admission = admission(10);
+
+        for (int i = 0; i < 10; i++) {
+            assertThrows(InvalidParameterException.class, () -> admission.admit(() -> {
+                throw new InvalidParameterException("bad ip");
+            }));
+        }
+
+        assertEquals(10.0, meterRegistry.get("stats.admission.limit").gauge().value());
+    }
+
+    @Test
+    void disabledAdmissionShouldRunEverySave() {
+        HitAdmission disabled = new HitAdmission(meterRegistry);
+        disabled.start();
+        AtomicInteger saved = new AtomicInteger();
+
+        for (int i = 0; i < 100; i++) {
+            disabled.admit(saved::incrementAndGet);
+        }
+
+        assertEquals(100, saved.get());
+    }
+
+    @Test
+    void batchesShouldTakeSlotsByTheirSize() throws InterruptedException {
+        HitAdmission admission = admission(2);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread batch = Thread.ofVirtual().start(() -> admission.admitBatch(150, () -> {
+            entered.countDown();
+            await(release);
+            return 150;
+        }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        assertEquals(2.0, meterRegistry.get("stats.admission.in-flight").gauge().value());
+        assertThrows(HitRejectedException.class, () -> admission.admit(() -> {
+        }));
+        assertThrows(HitRejectedException.class, () -> admission.admitBatch(10, () -> 10));
+
+        release.countDown();
+        batch.join();
+
+        assertEquals(500, admission.admitBatch(500, () -> 500));
+        assertEquals(650, meterRegistry.get("stats.admission.hits").tag("result", "accepted").counter().count());
+        assertEquals(11, meterRegistry.get("stats.admission.hits").tag("result", "rejected").counter().count());
+    }
+
+    private HitAdmission admission(int initialLimit) {
+        HitAdmission admission = new HitAdmission(meterRegistry);
+        ReflectionTestUtils.setField(admission, "enabled", true);
+        ReflectionTestUtils.setField(admission, "initialLimit", initialLimit);
+        ReflectionTestUtils.setField(admission, "minLimit", 1);
+        ReflectionTestUtils.setField(admission, "maxLimit", 10);
+        ReflectionTestUtils.setField(admission, "hitsPerSlot", 100);
+        ReflectionTestUtils.setField(admission, "retryAfterSeconds", 3L);
+        admission.start();
+        return admission;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,112 @@
+package ru.practicum.ewm.admission;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestConcurrencyFilterTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void requestsShouldPassWhenLimitIsOff() throws Exception {
+        RequestConcurrencyFilter filter = filter(0, 0);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void requestBeyondLimitShouldBeRejectedWhenQueueIsFull() throws Exception {
+        RequestConcurrencyFilter filter = filter(1, 0);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain blocking = (request, response) -> {
+            entered.countDown();
+            await(release);
+        };
+        Thread holder = Thread.ofVirtual().start(() -> doFilter(filter, blocking));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        MockFilterChain skipped = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest(), rejected, skipped);
+
+        assertEquals(503, rejected.getStatus());
+        assertEquals("3", rejected.getHeader("Retry-After"));
+        assertNull(skipped.getRequest());
+        assertEquals(1, meterRegistry.get("stats.requests.rejected").counter().count());
+
+        release.countDown();
+        holder.join();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+    }
+
+    @Test
+    void queuedRequestShouldBeServedOncePermitIsReleased() throws Exception {
+        RequestConcurrencyFilter filter = filter(1, 1);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        FilterChain blocking = (request, response) -> {
+            entered.countDown();
+            await(release);
+        };
+        Thread holder = Thread.ofVirtual().start(() -> doFilter(filter, blocking));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        MockFilterChain chain = new MockFilterChain();
+        Thread queued = Thread.ofVirtual().start(() -> doFilter(filter, chain));
+        while (meterRegistry.get("stats.requests.queued").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        holder.join();
+        queued.join();
+
+        assertNotNull(chain.getRequest());
+        assertEquals(0, meterRegistry.get("stats.requests.rejected").counter().count());
+    }
+
+    private RequestConcurrencyFilter filter(int maxConcurrent, int maxQueued) {
+        RequestConcurrencyFilter filter = new RequestConcurrencyFilter(meterRegistry);
+        ReflectionTestUtils.setField(filter, "maxConcurrent", maxConcurrent);
+        ReflectionTestUtils.setField(filter, "maxQueued", maxQueued);
+        ReflectionTestUtils.setField(filter, "queueTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(filter, "retryAfterSeconds", 3L);
+        filter.start();
+        return filter;
+    }
+
+    private static void doFilter(RequestConcurrencyFilter filter, FilterChain chain) {
+        try {
+            filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), chain);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
\ No newline at end of file
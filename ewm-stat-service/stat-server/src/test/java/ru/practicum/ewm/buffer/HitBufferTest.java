@@ -0,0 +1,211 @@
+package ru.practicum.ewm.buffer;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.cache.StatsQueryCache;
+import ru.practicum.ewm.dedup.HitDeduplicator;
+import ru.practicum.ewm.exceptions.BufferOverflowException;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.topk.TopHitsWindow;
+import ru.practicum.ewm.window.RecentStatsWindow;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HitBufferTest {
+    private final List<EndpointHit> saved = new CopyOnWriteArrayList<>();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HitDeduplicator deduplicator = mock(HitDeduplicator.class);
+    private final StatsQueryCache queryCache = mock(StatsQueryCache.class);
+    private final RecentStatsWindow recentStats = mock(RecentStatsWindow.class);
+    private final TopHitsWindow topHits = mock(TopHitsWindow.class);
+    private final List<EndpointHit> recorded = new CopyOnWriteArrayList<>();
+    private final List<EndpointHit> counted = new CopyOnWriteArrayList<>();
+    private final List<EndpointHit> ranked = new CopyOnWriteArrayList<>();
+    private final List<EndpointHit> forgotten = new CopyOnWriteArrayList<>();
+    private volatile boolean failing;
+    private CountDownLatch flushGate;
+    private volatile Thread flushThread;
+    private HitBuffer hitBuffer;
+
+    @BeforeEach
+    void setUp() {
+        flushGate = new CountDownLatch(0);
+        StatsRepository repository = mock(StatsRepository.class);
+        when(repository.saveHits(anyList())).thenAnswer(invocation -> {
+            flushGate.await();
+            if (failing) {
+                throw new IllegalStateException("Database is down");
+            }
+            flushThread = Thread.currentThread();
+            List<EndpointHit> hits = invocation.getArgument(0);
+            saved.addAll(hits);
+            return hits.size();
+        });
+        doAnswer(invocation -> recorded.addAll(invocation.getArgument(0))).when(queryCache).recordAll(anyList());
+        doAnswer(invocation -> counted.addAll(invocation.getArgument(0))).when(recentStats).recordAll(anyList());
+        doAnswer(invocation -> ranked.addAll(invocation.getArgument(0))).when(topHits).recordAll(anyList());
+        doAnswer(invocation -> forgotten.addAll(invocation.getArgument(0))).when(deduplicator).forget(anyList());
+        hitBuffer = new HitBuffer(repository, meterRegistry, deduplicator, queryCache, recentStats, topHits);
+        ReflectionTestUtils.setField(hitBuffer, "enabled", true);
+        ReflectionTestUtils.setField(hitBuffer, "capacity", 2);
+        ReflectionTestUtils.setField(hitBuffer, "flushSize", 10);
+        ReflectionTestUtils.setField(hitBuffer, "flushIntervalMs", 50L);
+        ReflectionTestUtils.setField(hitBuffer, "overflowPolicy", OverflowPolicy.BLOCK);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        flushGate.countDown();
+        hitBuffer.stop();
+    }
+
+    @Test
+    void bufferedHitsShouldBeFlushedAfterInterval() throws InterruptedException {
+        hitBuffer.start();
+
+        hitBuffer.add(hit("/events/1"));
+        hitBuffer.add(hit("/events/2"));
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+        while (saved.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(2, saved.size());
+        assertEquals(0, hitBuffer.size());
+    }
+
+    @Test
+    void flusherShouldRunOnVirtualThreadWhenEnabled() throws InterruptedException {
+        ReflectionTestUtils.setField(hitBuffer, "virtualThreads", true);
+        hitBuffer.start();
+
+        hitBuffer.add(hit("/events/1"));
+        hitBuffer.stop();
+
+        assertEquals(1, saved.size());
+        assertTrue(flushThread.isVirtual());
+        assertEquals("hit-buffer-flusher", flushThread.getName());
+    }
+
+    @Test
+    void stopShouldFlushRemainingHits() throws InterruptedException {
+        ReflectionTestUtils.setField(hitBuffer, "capacity", 100);
+        ReflectionTestUtils.setField(hitBuffer, "flushIntervalMs", 10_000L);
+        hitBuffer.start();
+
+        for (int i = 0; i < 25; i++) {
+            hitBuffer.add(hit("/events/" + i));
+        }
+        hitBuffer.stop();
+
+        assertEquals(25, saved.size());
+        assertEquals(saved, recorded);
+        assertEquals(saved, counted);
+        assertEquals(saved, ranked);
+    }
+
+    @Test
+    void failedFlushShouldForgetDedupIds() throws InterruptedException {
+        failing = true;
+        hitBuffer.start();
+        EndpointHit hit = hit("/events/1");
+
+        hitBuffer.add(hit);
+        hitBuffer.stop();
+
+        assertEquals(0, saved.size());
+        assertEquals(List.of(hit), forgotten);
+        verify(queryCache, never()).recordAll(anyList());
+        verify(recentStats, never()).recordAll(anyList());
+        verify(topHits, never()).recordAll(anyList());
+    }
+
+    @Test
+    void flusherShouldSurviveFailureToForgetDedupIds() throws InterruptedException {
+        failing = true;
+        CountDownLatch forgetFailed = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            forgetFailed.countDown();
+            throw new IllegalStateException("Database is down");
+        }).when(deduplicator).forget(anyList());
+        hitBuffer.start();
+
+        hitBuffer.add(hit("/events/1"));
+        assertTrue(forgetFailed.await(5, TimeUnit.SECONDS));
+        failing = false;
+        hitBuffer.add(hit("/events/2"));
+        hitBuffer.stop();
+
+        assertEquals(List.of("/events/2"), saved.stream().map(EndpointHit::getUri).toList());
+    }
+
+    @Test
+    void dropPolicyShouldDiscardHitsWhenFull() {
+        ReflectionTestUtils.setField(hitBuffer, "overflowPolicy", OverflowPolicy.DROP);
+        ReflectionTestUtils.setField(hitBuffer, "flushSize", 1);
+        flushGate = new CountDownLatch(1);
+        hitBuffer.start();
+
+        int accepted = 0;
+        for (int i = 1; i <= 5; i++) {
+            if (hitBuffer.add(hit("/events/" + i))) {
+                accepted++;
+            }
+        }
+
+        assertTrue(accepted <= 3);
+        assertTrue(meterRegistry.get("stats.buffer.hits.dropped").counter().count() > 0);
+    }
+
+    @Test
+    void rejectPolicyShouldThrowWhenFull() {
+        ReflectionTestUtils.setField(hitBuffer, "overflowPolicy", OverflowPolicy.REJECT);
+        ReflectionTestUtils.setField(hitBuffer, "flushSize", 1);
+        flushGate = new CountDownLatch(1);
+        hitBuffer.start();
+
+        assertThrows(BufferOverflowException.class, () -> {
+            for (int i = 0; i < 5; i++) {
+                hitBuffer.add(hit("/events/" + i));
+            }
+        });
+    }
+
+    @Test
+    void disabledBufferShouldNotStartFlusher() throws InterruptedException {
+        ReflectionTestUtils.setField(hitBuffer, "enabled", false);
+        hitBuffer.start();
+
+        assertFalse(hitBuffer.isEnabled());
+        assertEquals(0, hitBuffer.size());
+    }
+
+    private EndpointHit hit(String uri) {
+        return EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("192.168.1.1")
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,112 @@
+package ru.practicum.ewm.bulk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.ewm.BulkLoadResult;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.dictionary.StatsDictionary;
+import ru.practicum.ewm.repository.StatsRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.InvalidParameterException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(properties = "stats.bulk.chunk-size=500")
+class HitBulkLoaderTest {
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0, 0);
+
+    @Autowired
+    private HitBulkLoader bulkLoader;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatsDictionary statsDictionary;
+
+    @BeforeEach
+    void setUp() {
+        clean();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clean();
+    }
+
+    @Test
+    void loadShouldFallBackToBatchesOnH2() {
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            hits.add(EndpointHit.builder()
+                    .app("ewm-main-service")
+                    .uri("/events/" + i % 7)
+                    .ip("10.0.0." + i % 50)
+                    .timestamp(START.plusMinutes(i))
+                    .build());
+        }
+        List<Integer> chunks = new ArrayList<>();
+
+        BulkLoadResult result = bulkLoader.load(hits.iterator(), chunk -> chunks.add(chunk.size()));
+
+        assertEquals("batch", result.getMethod());
+        assertEquals(1200, result.getRows());
+        assertEquals(List.of(500, 500, 200), chunks);
+        List<ViewStats> stats = statsRepository.getStats(ViewsStatsRequest.builder()
+                .start(START)
+                .end(START.plusDays(1))
+                .uris(List.of())
+                .build());
+        assertEquals(1200, stats.stream().mapToLong(ViewStats::getHits).sum());
+    }
+
+    @Test
+    void copyRowShouldUseCsvWithHexBytea() {
+        StringBuilder csv = new StringBuilder();
+
+        HitBulkLoader.appendRow(csv, 3, 42, new byte[]{10, 0, 0, (byte) 255}, LocalDateTime.of(2023, 1, 1, 10, 0, 5));
+
+        assertEquals("3,42,\\x0a0000ff,2023-01-01T10:00:05\n", csv.toString());
+    }
+
+    @Test
+    void importFileShouldStayInsideImportDir(@TempDir Path dir) throws Exception {
+        assertThrows(InvalidParameterException.class, () -> bulkLoader.resolveImportFile("hits.ndjson"));
+
+        ReflectionTestUtils.setField(bulkLoader, "importDir", dir.toString());
+        try {
+            Files.writeString(dir.resolve("hits.ndjson"), "");
+            assertEquals(dir.resolve("hits.ndjson"), bulkLoader.resolveImportFile("hits.ndjson"));
+            assertThrows(InvalidParameterException.class, () -> bulkLoader.resolveImportFile("../hits.ndjson"));
+            assertThrows(InvalidParameterException.class, () -> bulkLoader.resolveImportFile("missing.ndjson"));
+        } finally {
+            ReflectionTestUtils.setField(bulkLoader, "importDir", "");
+        }
+    }
+
+    private void clean() {
+        jdbcTemplate.update("DELETE FROM stats");
+        statsDictionary.clear();
+        jdbcTemplate.update("DELETE FROM stats_rollup");
+        jdbcTemplate.update("DELETE FROM stats_sketch");
+        jdbcTemplate.update("DELETE FROM stats_top");
+        jdbcTemplate.update("UPDATE stats_rollup_state SET last_hit_id = 0");
+    }
+}
\ No newline at end of file
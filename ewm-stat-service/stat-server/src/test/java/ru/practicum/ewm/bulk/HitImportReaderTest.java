@@ -0,0 +1,85 @@
+package ru.practicum.ewm.bulk;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.export.ExportFormat;
+import ru.practicum.ewm.export.HitExportWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidParameterException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HitImportReaderTest {
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void shouldReadBackWhatExportWrites() throws Exception {
+        List<EndpointHit> hits = List.of(
+                hit("/events/1", LocalDateTime.of(2023, 1, 1, 10, 0, 0)),
+                hit("/events/\"quoted\", with\nline break", LocalDateTime.of(2023, 1, 1, 11, 30, 15)));
+
+        for (ExportFormat format : ExportFormat.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (HitExportWriter writer = new HitExportWriter(format, false, objectMapper, out)) {
+                hits.forEach(writer::write);
+            }
+
+            List<EndpointHit> read = read(format, out.toString(StandardCharsets.UTF_8));
+
+            assertEquals(hits.size(), read.size(), format.name());
+            for (int i = 0; i < hits.size(); i++) {
+                assertEquals(hits.get(i).getUri(), read.get(i).getUri(), format.name());
+                assertEquals(hits.get(i).getIp(), read.get(i).getIp(), format.name());
+                assertEquals(hits.get(i).getTimestamp(), read.get(i).getTimestamp(), format.name());
+            }
+        }
+    }
+
+    @Test
+    void csvColumnsShouldBeMatchedByHeader() throws Exception {
+        List<EndpointHit> read = read(ExportFormat.CSV,
+                "timestamp,ip,uri,app\r\n2023-01-01 10:00:00,10.0.0.1,/events/1,ewm-main-service\r\n\r\n");
+
+        assertEquals(1, read.size());
+        assertEquals("ewm-main-service", read.get(0).getApp());
+        assertEquals("10.0.0.1", read.get(0).getIp());
+    }
+
+    @Test
+    void malformedCsvShouldBeRejected() {
+        assertThrows(InvalidParameterException.class, () -> read(ExportFormat.CSV, "app,uri,timestamp\n"));
+        assertThrows(InvalidParameterException.class, () -> read(ExportFormat.CSV,
+                "app,uri,ip,timestamp\newm-main-service,/events/1,10.0.0.1\n"));
+        assertThrows(InvalidParameterException.class, () -> read(ExportFormat.CSV,
+                "app,uri,ip,timestamp\newm-main-service,/events/1,10.0.0.1,yesterday\n"));
+        assertThrows(InvalidParameterException.class, () -> read(ExportFormat.CSV,
+                "app,uri,ip,timestamp\newm-main-service,\"/events/1,10.0.0.1,2023-01-01 10:00:00\n"));
+    }
+
+    private List<EndpointHit> read(ExportFormat format, String content) throws Exception {
+        List<EndpointHit> hits = new ArrayList<>();
+        try (HitImportReader reader = new HitImportReader(format, objectMapper,
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)))) {
+            reader.forEachRemaining(hits::add);
+        }
+        return hits;
+    }
+
+    private static EndpointHit hit(String uri, LocalDateTime timestamp) {
+        return EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("192.168.1.1")
+                .timestamp(timestamp)
+                .build();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,150 @@
+package ru.practicum.ewm.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewsStatsRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatsQueryCacheTest {
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2023, 1, 2, 12, 0, 0);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger queries = new AtomicInteger();
+    private final Supplier<List<ViewStats>> query = () -> List.of(ViewStats.builder()
+            .app("ewm-main-service")
+            .uri("/events/1")
+            .hits((long) queries.incrementAndGet())
+            .build());
+
+    private StatsQueryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new StatsQueryCache(meterRegistry);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        ReflectionTestUtils.setField(cache, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(cache, "endGranularityMs", 10_000L);
+        cache.start();
+    }
+
+    @Test
+    void equivalentRequestsShouldShareOneEntry() {
+        cache.get(request(List.of("/events/1", "/events/2"), END), query);
+        cache.get(request(List.of("/events/2", "/events/1", "/events/1"), END.plusSeconds(9)), query);
+
+        assertEquals(1, queries.get());
+        assertEquals(1.0, meterRegistry.counter("stats.cache.requests", "result", "hit").count());
+        assertEquals(1.0, meterRegistry.counter("stats.cache.requests", "result", "miss").count());
+
+        cache.get(request(List.of("/events/1", "/events/2"), END.plusSeconds(10)), query);
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryShouldBeEvictedWhenFull() {
+        cache.get(request(List.of("/events/1"), END), query);
+        cache.get(request(List.of("/events/2"), END), query);
+        cache.get(request(List.of("/events/1"), END), query);
+        cache.get(request(List.of("/events/3"), END), query);
+        cache.get(request(List.of("/events/1"), END), query);
+
+        assertEquals(3, queries.get());
+        assertEquals(1.0, meterRegistry.counter("stats.cache.evictions", "cause", "size").count());
+        assertEquals(2.0, meterRegistry.get("stats.cache.size").gauge().value());
+    }
+
+    @Test
+    void expiredEntryShouldBeRecomputed() {
+        ReflectionTestUtils.setField(cache, "ttlMs", 0L);
+
+        cache.get(request(List.of("/events/1"), END), query);
+        cache.get(request(List.of("/events/1"), END), query);
+
+        assertEquals(2, queries.get());
+        assertEquals(1.0, meterRegistry.counter("stats.cache.evictions", "cause", "expired").count());
+    }
+
+    @Test
+    void ingestedHitShouldInvalidateOnlyOverlappingEntries() {
+        cache.get(request(List.of("/events/1"), END), query);
+        cache.get(request(List.of("/events/1"), START.plusHours(1)), query);
+
+        cache.record(hit(START.plusHours(5)));
+        assertEquals(2L, cache.get(request(List.of("/events/1"), START.plusHours(1)), query).get(0).getHits());
+        assertEquals(3L, cache.get(request(List.of("/events/1"), END), query).get(0).getHits());
+        assertEquals(3L, cache.get(request(List.of("/events/1"), END), query).get(0).getHits());
+        assertEquals(1.0, meterRegistry.counter("stats.cache.evictions", "cause", "invalidated").count());
+    }
+
+    @Test
+    void resultOfQueryOverlappingRecordedHitShouldNotBeCached() {
+        List<ViewStats> first = cache.get(request(List.of("/events/1"), END), () -> {
+            cache.record(hit(START.plusHours(5)));
+            return query.get();
+        });
+
+        assertEquals(1L, first.get(0).getHits());
+        assertEquals(2L, cache.get(request(List.of("/events/1"), END), query).get(0).getHits());
+        assertEquals(2L, cache.get(request(List.of("/events/1"), END), query).get(0).getHits());
+    }
+
+    @Test
+    void hitAtEndOfSharedBucketShouldInvalidateEntry() {
+        cache.get(request(List.of("/events/1"), END), query);
+
+        cache.record(hit(END.plusSeconds(5)));
+
+        assertEquals(2L, cache.get(request(List.of("/events/1"), END.plusSeconds(9)), query).get(0).getHits());
+    }
+
+    @Test
+    void batchShouldQueryOnlyMissedRequestsTogether() {
+        cache.get(request(List.of("/events/2"), END), query);
+        List<List<ViewsStatsRequest>> batches = new ArrayList<>();
+
+        List<List<ViewStats>> results = cache.getAll(List.of(
+                request(List.of("/events/1"), END),
+                request(List.of("/events/2"), END)), missed -> {
+            batches.add(missed);
+            return missed.stream().map(request -> query.get()).toList();
+        });
+
+        assertEquals(1, batches.size());
+        assertEquals(List.of("/events/1"), batches.get(0).get(0).getUris());
+        assertEquals(1, batches.get(0).size());
+        assertEquals(2L, results.get(0).get(0).getHits());
+        assertEquals(1L, results.get(1).get(0).getHits());
+        assertEquals(2L, cache.get(request(List.of("/events/1"), END), query).get(0).getHits());
+    }
+
+    private static EndpointHit hit(LocalDateTime timestamp) {
+        return EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("10.0.0.1")
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private static ViewsStatsRequest request(List<String> uris, LocalDateTime end) {
+        return ViewsStatsRequest.builder()
+                .start(START)
+                .end(end)
+                .uris(uris)
+                .build();
+    }
+}
\ No newline at end of file
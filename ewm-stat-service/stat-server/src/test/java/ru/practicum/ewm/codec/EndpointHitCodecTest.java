@@ -0,0 +1,135 @@
+package ru.practicum.ewm.codec;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.EndpointHit;
+
+import java.security.InvalidParameterException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class EndpointHitCodecTest {
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2024, 3, 1, 12, 30, 15);
+
+    @Test
+    void hitsShouldSurviveRoundTrip() {
+        List<EndpointHit> hits = List.of(
+                hit("ewm-main-service", "/events/1", "192.168.0.1", TIMESTAMP),
+                hit("ewm-main-service", "/events/привет", "2001:db8:0:0:0:0:0:1", TIMESTAMP.plusSeconds(1)),
+                hit("other", "/", "10.0.0.1", LocalDateTime.of(1969, 12, 31, 23, 59, 59)));
+
+        List<EndpointHit> decoded = EndpointHitCodec.decode(EndpointHitCodec.encode(hits));
+
+        assertEquals(hits.size(), decoded.size());
+        for (int i = 0; i < hits.size(); i++) {
+            assertEquals(hits.get(i).getApp(), decoded.get(i).getApp());
+            assertEquals(hits.get(i).getUri(), decoded.get(i).getUri());
+            assertEquals(hits.get(i).getTimestamp(), decoded.get(i).getTimestamp());
+            assertEquals(IpAddresses.decode(IpAddresses.encode(hits.get(i).getIp())), decoded.get(i).getIp());
+        }
+    }
+
+    @Test
+    void repeatedAppShouldBeWrittenOnce() {
+        byte[] one = EndpointHitCodec.encode(List.of(hit("ewm-main-service", "/events/1", "10.0.0.1", TIMESTAMP)));
+        byte[] two = EndpointHitCodec.encode(List.of(
+                hit("ewm-main-service", "/events/1", "10.0.0.1", TIMESTAMP),
+                hit("ewm-main-service", "/events/1", "10.0.0.1", TIMESTAMP)));
+
+        int record = one.length - 3;
+        assertEquals(record - "ewm-main-service".length() - 1, two.length - one.length);
+        assertEquals(8 + 1 + 1 + "/events/1".length() + 1 + 4 + 1, two.length - one.length);
+    }
+
+    @Test
+    void hitIdsShouldSurviveRoundTrip() {
+        List<EndpointHit> hits = List.of(
+                EndpointHit.builder().id(-7L).app("a").uri("/").ip("10.0.0.1").timestamp(TIMESTAMP).build(),
+                hit("a", "/", "10.0.0.1", TIMESTAMP),
+                EndpointHit.builder().id(Long.MAX_VALUE).app("a").uri("/").ip("10.0.0.1").timestamp(TIMESTAMP).build());
+
+        List<EndpointHit> decoded = EndpointHitCodec.decode(EndpointHitCodec.encode(hits));
+
+        assertEquals(-7L, decoded.get(0).getId());
+        assertNull(decoded.get(1).getId());
+        assertEquals(Long.MAX_VALUE, decoded.get(2).getId());
+    }
+
+    @Test
+    void versionOneStreamShouldStillBeRead() {
+        byte[] v1 = {'E', 'H', 1, 0, 0, 0, 0, 0, 0, 0x03, (byte) 0xe8, 0, 1, 'a', 1, '/', 4, 10, 0, 0, 1};
+
+        List<EndpointHit> decoded = EndpointHitCodec.decode(v1);
+
+        assertEquals(1, decoded.size());
+        assertNull(decoded.get(0).getId());
+        assertEquals("a", decoded.get(0).getApp());
+        assertEquals("/", decoded.get(0).getUri());
+        assertEquals("10.0.0.1", decoded.get(0).getIp());
+        assertEquals(LocalDateTime.of(1970, 1, 1, 0, 0, 1), decoded.get(0).getTimestamp());
+    }
+
+    @Test
+    void truncatedInputShouldBeRejected() {
+        byte[] bytes = EndpointHitCodec.encode(List.of(hit("ewm-main-service", "/events/1", "10.0.0.1", TIMESTAMP)));
+
+        for (int length = 0; length < bytes.length; length++) {
+            if (length == 3) {
+                assertEquals(0, EndpointHitCodec.decode(Arrays.copyOf(bytes, length)).size());
+                continue;
+            }
+            byte[] truncated = Arrays.copyOf(bytes, length);
+            assertThrows(InvalidParameterException.class, () -> EndpointHitCodec.decode(truncated));
+        }
+    }
+
+    @Test
+    void unknownHeaderShouldBeRejected() {
+        assertThrows(InvalidParameterException.class, () -> EndpointHitCodec.decode(new byte[]{'{', '"', 'a'}));
+    }
+
+    @Test
+    void negativeAppIndexShouldBeRejected() {
+        byte[] bytes = {'E', 'H', 2, 0, 0, 0, 0, 0, 0, 0x03, (byte) 0xe8,
+                (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x0f, 1, 'a', 1, '/', 4, 10, 0, 0, 1, 0};
+
+        assertThrows(InvalidParameterException.class, () -> EndpointHitCodec.decode(bytes));
+    }
+
+    @Test
+    void negativeStringLengthShouldBeRejected() {
+        byte[] bytes = {'E', 'H', 2, 0, 0, 0, 0, 0, 0, 0x03, (byte) 0xe8, 0,
+                (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x08, 'a', 1, '/', 4, 10, 0, 0, 1, 0};
+
+        assertThrows(InvalidParameterException.class, () -> EndpointHitCodec.decode(bytes));
+    }
+
+    @Test
+    void oversizedVarintShouldBeRejected() {
+        byte[] fifthByteTooLarge = {'E', 'H', 2, 0, 0, 0, 0, 0, 0, 0x03, (byte) 0xe8,
+                (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x10, 1, 'a', 1, '/', 4, 10, 0, 0, 1, 0};
+        byte[] sixBytes = {'E', 'H', 2, 0, 0, 0, 0, 0, 0, 0x03, (byte) 0xe8,
+                (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0, 1, 'a', 1, '/', 4, 10, 0, 0, 1, 0};
+
+        assertThrows(InvalidParameterException.class, () -> EndpointHitCodec.decode(fifthByteTooLarge));
+        assertThrows(InvalidParameterException.class, () -> EndpointHitCodec.decode(sixBytes));
+    }
+
+    @Test
+    void largestVarintShouldStillBeRead() {
+        byte[] bytes = {'E', 'H', 2, 0, 0, 0, 0, 0, 0, 0x03, (byte) 0xe8,
+                (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 0x07, 1, 'a', 1, '/', 4, 10, 0, 0, 1, 0};
+
+        InvalidParameterException e = assertThrows(InvalidParameterException.class,
+                () -> EndpointHitCodec.decode(bytes));
+        assertEquals("Unknown app index " + Integer.MAX_VALUE, e.getMessage());
+    }
+
+    private static EndpointHit hit(String app, String uri, String ip, LocalDateTime timestamp) {
+        return EndpointHit.builder().app(app).uri(uri).ip(ip).timestamp(timestamp).build();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package ru.practicum.ewm.codec;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.InetAddress;
+import java.security.InvalidParameterException;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IpAddressesTest {
+
+    @Test
+    void ipv4ShouldUseFourBytes() {
+        byte[] bytes = IpAddresses.encode("192.168.1.254");
+
+        assertArrayEquals(new byte[]{(byte) 192, (byte) 168, 1, (byte) 254}, bytes);
+        assertEquals("192.168.1.254", IpAddresses.decode(bytes));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"::1", "::", "2001:db8::8a2e:370:7334", "fe80::1%eth0", "::ffff:192.168.1.1",
+            "2001:0db8:0000:0000:0000:ff00:0042:8329", "1::", "1:2:3:4:5:6:7::"})
+    void ipv6ShouldMatchJdkParsing(String ip) throws Exception {
+        String literal = ip.contains("%") ? ip.substring(0, ip.indexOf('%')) : ip;
+        byte[] expected = InetAddress.getByName(literal).getAddress();
+        byte[] bytes = IpAddresses.encode(ip);
+
+        if (expected.length == 4) {
+            assertArrayEquals(expected, java.util.Arrays.copyOfRange(bytes, 12, 16));
+        } else {
+            assertArrayEquals(expected, bytes);
+        }
+        assertEquals(16, bytes.length);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "localhost", "256.1.1.1", "1.2.3", "1.2.3.4.5", "1::2::3", "12345::", ":1:2",
+            "1:2:3:4:5:6:7:8:9", "1:2:3:4:5:6:7:8::"})
+    void invalidAddressesShouldBeRejected(String ip) {
+        assertThrows(InvalidParameterException.class, () -> IpAddresses.encode(ip));
+    }
+}
\ No newline at end of file
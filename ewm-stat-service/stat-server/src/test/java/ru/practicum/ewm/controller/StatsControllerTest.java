@@ -1,28 +1,62 @@
 package ru.practicum.ewm.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.ewm.BulkLoadResult;
 import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.TopViewStats;
+import ru.practicum.ewm.UriTimeSeries;
 import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewTimeSeries;
 import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.admission.HitAdmission;
+import ru.practicum.ewm.bulk.HitBulkLoader;
+import ru.practicum.ewm.codec.EndpointHitCodec;
+import ru.practicum.ewm.exceptions.HitRejectedException;
+import ru.practicum.ewm.rollup.TimeBucket;
 import ru.practicum.ewm.service.StatsService;
+import ru.practicum.ewm.topk.TopHits;
 
+import java.security.InvalidParameterException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.IntSupplier;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(StatsController.class)
@@ -36,6 +70,15 @@ class StatsControllerTest {
     @MockBean
     private StatsService statsService;
 
+    @MockBean
+    private HitBulkLoader bulkLoader;
+
+    @MockBean
+    private HitAdmission hitAdmission;
+
+    @MockBean
+    private MeterRegistry meterRegistry;
+
     private EndpointHit endpointHit;
     private ViewStats viewStats;
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
@@ -62,6 +105,13 @@ class StatsControllerTest {
                 .uri("/events/1")
                 .hits(5L)
                 .build();
+
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Runnable.class).run();
+            return null;
+        }).when(hitAdmission).admit(any());
+        when(hitAdmission.admitBatch(anyInt(), any()))
+                .thenAnswer(invocation -> invocation.getArgument(1, IntSupplier.class).getAsInt());
     }
 
     @Test
@@ -74,6 +124,101 @@ class StatsControllerTest {
                 .andExpect(status().isCreated());
     }
 
+    @Test
+    void hit_OverAdmissionLimit_ShouldReturnTooManyRequestsWithRetryAfter() throws Exception {
+        doThrow(new HitRejectedException("Too many hits in flight, limit 4", 2)).when(hitAdmission).admit(any());
+
+        mockMvc.perform(post("/hit")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(endpointHit)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.error").value("Too many hits in flight, limit 4"));
+
+        verify(statsService, never()).saveHit(any(EndpointHit.class));
+    }
+
+    @Test
+    void hitBatch_ShouldReturnAcceptedCount() throws Exception {
+        when(statsService.saveHits(anyList())).thenReturn(2);
+
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(endpointHit, endpointHit))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.accepted").value(2));
+    }
+
+    @Test
+    void hitBatch_OverAdmissionLimit_ShouldReturnTooManyRequests() throws Exception {
+        doThrow(new HitRejectedException("Too many hits in flight, limit 4", 2))
+                .when(hitAdmission).admitBatch(eq(2), any());
+
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(endpointHit, endpointHit))))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"));
+
+        verify(statsService, never()).saveHits(anyList());
+    }
+
+    @Test
+    void hitBatch_WithStreamOverAdmissionLimit_ShouldSaveNothing() throws Exception {
+        doThrow(new HitRejectedException("Too many hits in flight, limit 4", 2))
+                .when(hitAdmission).admitBatch(anyInt(), any());
+
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(EndpointHitCodec.MEDIA_TYPE)
+                        .content(EndpointHitCodec.encode(List.of(endpointHit, endpointHit, endpointHit))))
+                .andExpect(status().isTooManyRequests());
+
+        verify(statsService, never()).saveHits(anyList());
+    }
+
+    @Test
+    void hitBatch_WithNdjsonStream_ShouldReturnAcceptedCount() throws Exception {
+        when(statsService.saveHits(anyList())).thenAnswer(invocation -> invocation.getArgument(0, List.class).size());
+        String line = objectMapper.writeValueAsString(endpointHit);
+
+        mockMvc.perform(post("/hit/batch")
+                        .contentType("application/x-ndjson")
+                        .content(line + "\n" + line + "\n" + line + "\n"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.accepted").value(3));
+    }
+
+    @Test
+    void hit_WithBinaryBody_ShouldReturnCreatedStatus() throws Exception {
+        mockMvc.perform(post("/hit")
+                        .contentType(EndpointHitCodec.MEDIA_TYPE)
+                        .content(EndpointHitCodec.encode(List.of(endpointHit))))
+                .andExpect(status().isCreated());
+
+        verify(statsService).saveHit(any(EndpointHit.class));
+    }
+
+    @Test
+    void hitBatch_WithBinaryBody_ShouldSaveAllHits() throws Exception {
+        when(statsService.saveHits(anyList())).thenAnswer(invocation -> invocation.getArgument(0, List.class).size());
+
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(EndpointHitCodec.MEDIA_TYPE)
+                        .content(EndpointHitCodec.encode(List.of(endpointHit, endpointHit, endpointHit))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.accepted").value(3));
+    }
+
+    @Test
+    void hitBatch_WithTruncatedBinaryBody_ShouldReturnBadRequest() throws Exception {
+        byte[] body = EndpointHitCodec.encode(List.of(endpointHit));
+
+        mockMvc.perform(post("/hit/batch")
+                        .contentType(EndpointHitCodec.MEDIA_TYPE)
+                        .content(Arrays.copyOf(body, body.length - 2)))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getStats_ShouldReturnOkStatus() throws Exception {
         List<ViewStats> stats = List.of(viewStats);
@@ -91,6 +236,18 @@ class StatsControllerTest {
                 .andExpect(jsonPath("$[0].hits").value(viewStats.getHits()));
     }
 
+    @Test
+    void getStats_WhenConnectionPoolExhausted_ShouldReturnServiceUnavailable() throws Exception {
+        when(statsService.getViewStatsList(any(ViewsStatsRequest.class)))
+                .thenThrow(new CannotGetJdbcConnectionException("Connection is not available"));
+
+        mockMvc.perform(get("/stats")
+                        .param("start", startStr)
+                        .param("end", endStr)
+                        .param("uris", "/events/1"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
     @Test
     void hit_WithMinimalData_ShouldReturnCreatedStatus() throws Exception {
         EndpointHit minimalHit = EndpointHit.builder()
@@ -119,4 +276,206 @@ class StatsControllerTest {
                         .param("end", endStr))
                 .andExpect(status().isOk());
     }
+
+    @Test
+    void getStats_WithApproximateUnique_ShouldReturnErrorBoundHeader() throws Exception {
+        when(statsService.getViewStatsList(any(ViewsStatsRequest.class)))
+                .thenReturn(List.of(viewStats));
+        when(statsService.getApproximationError()).thenReturn(0.05);
+
+        mockMvc.perform(get("/stats")
+                        .param("start", startStr)
+                        .param("end", endStr)
+                        .param("unique", "true")
+                        .param("approximate", "true"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Stats-Error-Bound", "0.05"))
+                .andExpect(jsonPath("$[0].hits").value(viewStats.getHits()));
+    }
+
+    @Test
+    void getStats_WithNonPositiveLimit_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/stats")
+                        .param("start", startStr)
+                        .param("end", endStr)
+                        .param("uris", "/events/*")
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void queryStats_ShouldReturnResultsPerWindow() throws Exception {
+        when(statsService.getViewStatsLists(anyList()))
+                .thenReturn(List.of(List.of(viewStats), List.of()));
+        String body = "[{\"start\":\"" + startStr + "\",\"end\":\"" + endStr + "\",\"uris\":[\"/events/1\"]},"
+                + "{\"start\":\"" + startStr + "\",\"end\":\"" + endStr + "\",\"unique\":true}]";
+
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0][0].uri").value(viewStats.getUri()))
+                .andExpect(jsonPath("$[0][0].hits").value(viewStats.getHits()))
+                .andExpect(jsonPath("$[1]").isEmpty());
+
+        ArgumentCaptor<List<ViewsStatsRequest>> captor = ArgumentCaptor.captor();
+        verify(statsService).getViewStatsLists(captor.capture());
+        assertEquals(List.of("/events/1"), captor.getValue().get(0).getUris());
+        assertEquals(List.of(), captor.getValue().get(1).getUris());
+        assertTrue(captor.getValue().get(1).isUnique());
+    }
+
+    @Test
+    void queryStats_WithEndBeforeStart_ShouldReturnBadRequest() throws Exception {
+        String body = "[{\"start\":\"" + endStr + "\",\"end\":\"" + startStr + "\"}]";
+
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/stats/query")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+        verify(statsService, never()).getViewStatsLists(anyList());
+    }
+
+    @Test
+    void exportHits_AsCsv_ShouldStreamRowsFromService() throws Exception {
+        endpointHit = EndpointHit.builder()
+                .id(7L)
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("192.168.1.1")
+                .timestamp(LocalDateTime.of(2023, 1, 2, 12, 0, 0))
+                .build();
+        doAnswer(invocation -> {
+            invocation.<Consumer<EndpointHit>>getArgument(2).accept(endpointHit);
+            return null;
+        }).when(statsService).exportHits(any(LocalDateTime.class), any(LocalDateTime.class), any());
+
+        MvcResult result = mockMvc.perform(get("/hits/export")
+                        .param("start", startStr)
+                        .param("end", endStr)
+                        .param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(content().string("id,app,uri,ip,timestamp\n"
+                        + "7,ewm-main-service,/events/1,192.168.1.1,2023-01-02 12:00:00\n"));
+    }
+
+    @Test
+    void exportHits_WithGzipAccepted_ShouldCompressResponse() throws Exception {
+        MvcResult result = mockMvc.perform(get("/hits/export")
+                        .param("start", startStr)
+                        .param("end", endStr)
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Content-Type", "application/x-ndjson"));
+    }
+
+    @Test
+    void getTimeSeries_ShouldReturnColumnarSeries() throws Exception {
+        when(statsService.getTimeSeries(any(ViewsStatsRequest.class), eq(TimeBucket.HOUR)))
+                .thenReturn(ViewTimeSeries.builder()
+                        .bucket("HOUR")
+                        .timestamps(List.of(LocalDateTime.of(2023, 1, 1, 10, 0), LocalDateTime.of(2023, 1, 1, 11, 0)))
+                        .series(List.of(new UriTimeSeries("ewm-main-service", "/events/1", new long[]{3, 0})))
+                        .build());
+
+        mockMvc.perform(get("/stats/timeseries")
+                        .param("start", startStr)
+                        .param("end", endStr)
+                        .param("uris", "/events/1")
+                        .param("bucket", "hour"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.timestamps[1]").value("2023-01-01 11:00:00"))
+                .andExpect(jsonPath("$.series[0].uri").value("/events/1"))
+                .andExpect(jsonPath("$.series[0].counts[0]").value(3))
+                .andExpect(jsonPath("$.series[0].counts[1]").value(0));
+    }
+
+    @Test
+    void getTimeSeries_WithUnknownBucket_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/stats/timeseries")
+                        .param("start", startStr)
+                        .param("end", endStr)
+                        .param("bucket", "week"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getTopStats_ShouldReturnHitsWithErrorBounds() throws Exception {
+        when(statsService.getTopStats(any(ViewsStatsRequest.class)))
+                .thenReturn(new TopHits(List.of(new TopViewStats("ewm-main-service", "/events/1", 120L, 4L)), 3L));
+
+        mockMvc.perform(get("/stats/top")
+                        .param("start", startStr)
+                        .param("end", endStr)
+                        .param("k", "1")
+                        .param("app", "ewm-main-service"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].uri").value("/events/1"))
+                .andExpect(jsonPath("$[0].hits").value(120))
+                .andExpect(jsonPath("$[0].error").value(4))
+                .andExpect(header().string("X-Stats-Error-Bound", "3"));
+    }
+
+    @Test
+    void getTopStats_WithNonPositiveK_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/stats/top")
+                        .param("start", startStr)
+                        .param("end", endStr)
+                        .param("k", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void exportHits_WithUnknownFormat_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/hits/export")
+                        .param("start", startStr)
+                        .param("end", endStr)
+                        .param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void importHits_AsCsv_ShouldBulkLoadParsedRows() throws Exception {
+        List<String> uris = new ArrayList<>();
+        when(statsService.bulkLoad(any())).thenAnswer(invocation -> {
+            invocation.<Iterator<EndpointHit>>getArgument(0).forEachRemaining(hit -> uris.add(hit.getUri()));
+            return BulkLoadResult.builder().method("batch").rows(uris.size()).elapsedMs(1).rowsPerSecond(2000).build();
+        });
+
+        mockMvc.perform(post("/hits/import")
+                        .contentType("text/csv")
+                        .content("app,uri,ip,timestamp\n"
+                                + "ewm-main-service,/events/1,192.168.1.1,2023-01-02 12:00:00\n"
+                                + "ewm-main-service,/events/2,192.168.1.1,2023-01-02 12:00:01\n"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.method").value("batch"))
+                .andExpect(jsonPath("$.rows").value(2))
+                .andExpect(jsonPath("$.rowsPerSecond").value(2000));
+
+        assertEquals(List.of("/events/1", "/events/2"), uris);
+    }
+
+    @Test
+    void importFile_WhenDisabled_ShouldReturnBadRequest() throws Exception {
+        doThrow(new InvalidParameterException("File import is disabled")).when(bulkLoader)
+                .resolveImportFile(anyString());
+
+        mockMvc.perform(post("/hits/import/file")
+                        .param("name", "hits.ndjson"))
+                .andExpect(status().isBadRequest());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package ru.practicum.ewm.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void addedKeysShouldAlwaysBeFound() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        Random random = new Random(23);
+        long[] keys = new long[10_000];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = i % 2 == 0 ? i : random.nextLong();
+            filter.put(keys[i]);
+        }
+
+        for (long key : keys) {
+            assertTrue(filter.mightContain(key));
+        }
+    }
+
+    @Test
+    void falsePositiveRateShouldStayNearTarget() {
+        BloomFilter filter = new BloomFilter(100_000, 0.01);
+        for (long key = 0; key < 100_000; key++) {
+            filter.put(key);
+        }
+
+        int falsePositives = 0;
+        for (long key = 1_000_000; key < 1_100_000; key++) {
+            if (filter.mightContain(key)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1_500, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void putShouldReportWhetherKeyWasNew() {
+        BloomFilter filter = new BloomFilter(1_000, 0.01);
+
+        assertTrue(filter.put(42));
+        assertFalse(filter.put(42));
+    }
+
+    @Test
+    void rotatingFilterShouldRememberKeysForOneRotationOnly() {
+        RotatingBloomFilter filter = new RotatingBloomFilter(1_000, 0.001);
+        filter.put(7);
+
+        filter.rotate();
+        assertTrue(filter.mightContain(7));
+
+        filter.rotate();
+        assertFalse(filter.mightContain(7));
+    }
+
+    @Test
+    void invalidSizingShouldBeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1.0));
+    }
+}
\ No newline at end of file
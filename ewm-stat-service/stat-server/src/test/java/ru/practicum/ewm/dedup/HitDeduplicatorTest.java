@@ -0,0 +1,158 @@
+package ru.practicum.ewm.dedup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.dictionary.StatsDictionary;
+import ru.practicum.ewm.service.StatsService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs with a filter far too small for the ids it sees, so that most lookups are false positives and have to be
+ * settled by the exact check.
+ */
+@SpringBootTest(properties = {
+        "stats.dedup.enabled=true",
+        "stats.dedup.expected-hits=16",
+        "stats.dedup.fpp=0.5",
+        "stats.dedup.flush-interval-ms=3600000"})
+class HitDeduplicatorTest {
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2024, 5, 1, 10, 0, 0);
+
+    @Autowired
+    private HitDeduplicator deduplicator;
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatsDictionary statsDictionary;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        clean();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clean();
+    }
+
+    @Test
+    void falsePositivesShouldNotDropNewHits() {
+        double falsePositives = counter("false-positive");
+
+        for (long id = 1; id <= 500; id++) {
+            assertFalse(deduplicator.isDuplicate(hit(id)), "id " + id);
+        }
+
+        assertTrue(counter("false-positive") - falsePositives > 100);
+    }
+
+    @Test
+    void retriesShouldBeDroppedBeforeAndAfterFlush() {
+        for (long id = 1; id <= 200; id++) {
+            deduplicator.isDuplicate(hit(id));
+        }
+        for (long id = 1; id <= 100; id++) {
+            assertTrue(deduplicator.isDuplicate(hit(id)), "pending id " + id);
+        }
+
+        deduplicator.flush();
+
+        assertEquals(200, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats_hit_ids", Integer.class));
+        for (long id = 1; id <= 200; id++) {
+            assertTrue(deduplicator.isDuplicate(hit(id)), "stored id " + id);
+        }
+        assertFalse(deduplicator.isDuplicate(hit(201L)));
+    }
+
+    @Test
+    void hitsWithoutIdShouldNeverBeDuplicates() {
+        EndpointHit hit = hit(null);
+
+        assertFalse(deduplicator.isDuplicate(hit));
+        assertFalse(deduplicator.isDuplicate(hit));
+    }
+
+    @Test
+    void forgottenIdShouldBeAcceptedAgain() {
+        assertFalse(deduplicator.isDuplicate(hit(1L)));
+        assertFalse(deduplicator.isDuplicate(hit(2L)));
+        deduplicator.forget(List.of(hit(1L)));
+        deduplicator.flush();
+        deduplicator.forget(List.of(hit(2L)));
+
+        assertFalse(deduplicator.isDuplicate(hit(1L)));
+        assertFalse(deduplicator.isDuplicate(hit(2L)));
+    }
+
+    @Test
+    void forgetShouldDeleteIdWrittenByFlushStillInProgress() {
+        assertFalse(deduplicator.isDuplicate(hit(3L)));
+        jdbcTemplate.update("INSERT INTO stats_hit_ids (id, created) VALUES (?, CURRENT_TIMESTAMP)", 3L);
+
+        deduplicator.forget(List.of(hit(3L)));
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats_hit_ids", Integer.class));
+        assertFalse(deduplicator.isDuplicate(hit(3L)));
+    }
+
+    @Test
+    void storedIdsShouldBeLoadedOnStart() {
+        deduplicator.isDuplicate(hit(77L));
+        deduplicator.flush();
+
+        deduplicator.start();
+
+        assertTrue(deduplicator.isDuplicate(hit(77L)));
+    }
+
+    @Test
+    void retriedHitShouldBeStoredOnce() {
+        statsService.saveHit(hit(5L));
+        statsService.saveHit(hit(5L));
+        statsService.saveHits(List.of(hit(5L), hit(6L), hit(6L), hit(null), hit(null)));
+
+        assertEquals(4, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats", Integer.class));
+    }
+
+    private double counter(String result) {
+        return meterRegistry.get("stats.dedup.hits").tag("result", result).counter().count();
+    }
+
+    private static EndpointHit hit(Long id) {
+        return EndpointHit.builder()
+                .id(id)
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("10.0.0.1")
+                .timestamp(TIMESTAMP)
+                .build();
+    }
+
+    private void clean() {
+        deduplicator.flush();
+        jdbcTemplate.update("DELETE FROM stats_hit_ids");
+        deduplicator.start();
+        jdbcTemplate.update("DELETE FROM stats");
+        statsDictionary.clear();
+    }
+}
\ No newline at end of file
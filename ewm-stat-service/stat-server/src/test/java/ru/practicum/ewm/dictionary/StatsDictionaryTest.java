@@ -0,0 +1,100 @@
+package ru.practicum.ewm.dictionary;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class StatsDictionaryTest {
+
+    @Autowired
+    private StatsDictionary dictionary;
+
+    @Autowired
+    private SortedUriIndex sortedUriIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM stats");
+        dictionary.clear();
+    }
+
+    @Test
+    void idInsertedByRolledBackTransactionShouldNotBeCached() {
+        transactionTemplate.executeWithoutResult(status -> {
+            dictionary.uriId("/events/rolled-back");
+            status.setRollbackOnly();
+        });
+        assertEquals(0, count("/events/rolled-back"));
+
+        int id = dictionary.uriId("/events/rolled-back");
+
+        assertEquals(1, count("/events/rolled-back"));
+        assertEquals(id, jdbcTemplate.queryForObject("SELECT id FROM uris WHERE uri = ?", Integer.class,
+                "/events/rolled-back"));
+    }
+
+    @Test
+    void existingNameShouldResolveInsideTransaction() {
+        jdbcTemplate.update("INSERT INTO uris (uri) VALUES (?)", "/events/existing");
+
+        int id = transactionTemplate.execute(status -> dictionary.uriId("/events/existing"));
+
+        assertEquals(1, count("/events/existing"));
+        assertEquals(id, dictionary.uriId("/events/existing"));
+    }
+
+    @Test
+    void prefixShouldFindInternedUrisAndResyncUrisCommittedOutOfOrder() {
+        int interned = dictionary.uriId("/prefix/interned");
+        assertEquals(List.of(interned), dictionary.findUriIds(List.of("/prefix/*")));
+
+        jdbcTemplate.update("INSERT INTO uris (id, uri) OVERRIDING SYSTEM VALUE VALUES (-1, '/prefix/late')");
+        assertFalse(dictionary.findUriIds(List.of("/prefix/*")).contains(-1));
+
+        sortedUriIndex.resync();
+
+        List<Integer> ids = dictionary.findUriIds(List.of("/prefix/*"));
+        assertTrue(ids.contains(-1));
+        assertTrue(ids.contains(interned));
+        jdbcTemplate.update("DELETE FROM uris WHERE id = -1");
+        sortedUriIndex.resync();
+    }
+
+    @Test
+    void prefixShouldCatchUpWithUrisOfOtherInstancesOncePerRefreshInterval() {
+        ReflectionTestUtils.setField(sortedUriIndex, "refreshIntervalMs", 60_000L);
+        try {
+            int interned = dictionary.uriId("/refresh/interned");
+            assertEquals(List.of(interned), dictionary.findUriIds(List.of("/refresh/*")));
+
+            jdbcTemplate.update("INSERT INTO uris (uri) VALUES ('/refresh/other')");
+            assertEquals(List.of(interned), dictionary.findUriIds(List.of("/refresh/*")));
+
+            ReflectionTestUtils.setField(sortedUriIndex, "nextRefresh", System.nanoTime());
+            assertEquals(2, dictionary.findUriIds(List.of("/refresh/*")).size());
+        } finally {
+            ReflectionTestUtils.setField(sortedUriIndex, "refreshIntervalMs", 1000L);
+        }
+    }
+
+    private int count(String uri) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM uris WHERE uri = ?", Integer.class, uri);
+    }
+}
\ No newline at end of file
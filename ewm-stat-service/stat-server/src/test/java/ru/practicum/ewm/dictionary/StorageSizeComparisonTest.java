@@ -0,0 +1,89 @@
+package ru.practicum.ewm.dictionary;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import ru.practicum.ewm.codec.IpAddresses;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Loads the same generated hits into the legacy string layout and the dictionary-encoded layout of a file-backed H2
+ * database and compares the space each layout takes, indexes included.
+ */
+class StorageSizeComparisonTest {
+    private static final int HITS = 50_000;
+
+    @TempDir
+    private Path directory;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:file:" + directory.resolve("size"), "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Test
+    void dictionaryEncodedLayoutShouldTakeLessSpace() {
+        jdbcTemplate.execute("CREATE TABLE legacy (id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY, "
+                + "app VARCHAR(255) NOT NULL, uri VARCHAR(255) NOT NULL, ip VARCHAR(255) NOT NULL, "
+                + "created TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX legacy_created_idx ON legacy (created)");
+        jdbcTemplate.execute("CREATE TABLE apps (id INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY, "
+                + "name VARCHAR(255) NOT NULL UNIQUE)");
+        jdbcTemplate.execute("CREATE TABLE uris (id INT GENERATED ALWAYS AS IDENTITY PRIMARY KEY, "
+                + "uri VARCHAR(255) NOT NULL UNIQUE)");
+        jdbcTemplate.execute("CREATE TABLE stats (id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY, "
+                + "app_id INT NOT NULL, uri_id INT NOT NULL, ip BYTEA NOT NULL, created TIMESTAMP NOT NULL)");
+        jdbcTemplate.execute("CREATE INDEX stats_created_idx ON stats (created)");
+
+        jdbcTemplate.update("INSERT INTO apps (name) VALUES ('ewm-main-service')");
+        for (int i = 0; i < 1000; i++) {
+            jdbcTemplate.update("INSERT INTO uris (uri) VALUES (?)", "/events/" + i);
+        }
+
+        Random random = new Random(1);
+        List<Object[]> legacyRows = new ArrayList<>();
+        List<Object[]> encodedRows = new ArrayList<>();
+        LocalDateTime origin = LocalDateTime.of(2023, 1, 1, 0, 0);
+        for (int i = 0; i < HITS; i++) {
+            int uri = random.nextInt(1000);
+            String ip = "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256);
+            Timestamp created = Timestamp.valueOf(origin.plusSeconds(random.nextInt(30 * 24 * 60 * 60)));
+            legacyRows.add(new Object[]{"ewm-main-service", "/events/" + uri, ip, created});
+            encodedRows.add(new Object[]{1, uri + 1, IpAddresses.encode(ip), created});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO legacy (app, uri, ip, created) VALUES (?, ?, ?, ?)", legacyRows);
+        jdbcTemplate.batchUpdate("INSERT INTO stats (app_id, uri_id, ip, created) VALUES (?, ?, ?, ?)", encodedRows);
+        jdbcTemplate.execute("CHECKPOINT");
+
+        long legacySize = diskSpace("LEGACY");
+        long encodedSize = diskSpace("STATS") + diskSpace("APPS") + diskSpace("URIS");
+        double ratio = (double) encodedSize / legacySize;
+
+        assertTrue(ratio < 0.5, String.format("dictionary-encoded layout takes %d of %d bytes (%.1f%%)",
+                encodedSize, legacySize, 100 * ratio));
+    }
+
+    private long diskSpace(String table) {
+        return jdbcTemplate.queryForObject("SELECT DISK_SPACE_USED(?)", Long.class, table);
+    }
+}
\ No newline at end of file
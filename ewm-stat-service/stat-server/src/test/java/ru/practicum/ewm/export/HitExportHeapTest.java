@@ -0,0 +1,97 @@
+package ru.practicum.ewm.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.repository.StatsRepository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Exports a seeded table through the cursor of {@link StatsRepository#exportHits}. The table itself sits in the heap
+ * of the embedded database, but does not change during the export, so any growth between samples is held by the
+ * cursor or the writer.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:export-heap;DB_CLOSE_DELAY=-1",
+        "spring.sql.init.mode=always"})
+class HitExportHeapTest {
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2023, 1, 1, 0, 0, 0);
+    private static final int ROWS = 400_000;
+    private static final int SAMPLE_EVERY = 80_000;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void heapShouldStayFlatWhileExportingSeededTable() throws IOException {
+        seed();
+        CountingOutputStream out = new CountingOutputStream();
+        long[] heap = new long[ROWS / SAMPLE_EVERY];
+        int[] exported = new int[1];
+
+        try (HitExportWriter writer = new HitExportWriter(ExportFormat.NDJSON, true, objectMapper, out)) {
+            statsRepository.exportHits(ORIGIN, ORIGIN.plusSeconds(ROWS), hit -> {
+                writer.write(hit);
+                if (++exported[0] % SAMPLE_EVERY == 0) {
+                    heap[exported[0] / SAMPLE_EVERY - 1] = usedHeap();
+                }
+            });
+        }
+
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (int i = 1; i < heap.length; i++) {
+            min = Math.min(min, heap[i]);
+            max = Math.max(max, heap[i]);
+        }
+        assertEquals(ROWS, exported[0]);
+        assertTrue(out.count > 0);
+        assertTrue(max - min < 16 * 1024 * 1024, "heap grew by " + (max - min) / 1024 + " KiB");
+    }
+
+    private void seed() {
+        jdbcTemplate.update("INSERT INTO apps (name) VALUES ('ewm-main-service')");
+        jdbcTemplate.update("INSERT INTO uris (uri) SELECT '/events/' || X FROM SYSTEM_RANGE(1, 10000)");
+        int appId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM apps", Integer.class);
+        int uriId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM uris", Integer.class);
+        jdbcTemplate.update("INSERT INTO stats (app_id, uri_id, ip, created) "
+                + "SELECT CAST(? AS INT), CAST(? AS INT) + MOD(X, 10000), X'0a000001', "
+                + "DATEADD('SECOND', X, CAST(? AS TIMESTAMP)) FROM SYSTEM_RANGE(0, ?)", appId, uriId, ORIGIN, ROWS - 1);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,61 @@
+package ru.practicum.ewm.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import ru.practicum.ewm.EndpointHit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HitExportWriterTest {
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2023, 1, 2, 12, 0, 5);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void csvShouldQuoteFieldsWithSeparators() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (HitExportWriter writer = new HitExportWriter(ExportFormat.CSV, false, objectMapper, out)) {
+            writer.write(hit(1, "/events/1"));
+            writer.write(hit(2, "/search?q=\"a,b\""));
+        }
+
+        assertEquals("id,app,uri,ip,timestamp\n"
+                + "1,ewm-main-service,/events/1,10.0.0.1,2023-01-02 12:00:05\n"
+                + "2,ewm-main-service,\"/search?q=\"\"a,b\"\"\",10.0.0.1,2023-01-02 12:00:05\n",
+                out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void ndjsonShouldWriteOneHitPerLineAndGzip() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (HitExportWriter writer = new HitExportWriter(ExportFormat.NDJSON, true, objectMapper, out)) {
+            writer.write(hit(1, "/events/1"));
+            writer.write(hit(2, "/events/2"));
+        }
+
+        String[] lines = new String(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        EndpointHit second = objectMapper.readValue(lines[1], EndpointHit.class);
+        assertEquals(2L, second.getId());
+        assertEquals("/events/2", second.getUri());
+        assertEquals(TIMESTAMP, second.getTimestamp());
+    }
+
+    private static EndpointHit hit(long id, String uri) {
+        return EndpointHit.builder()
+                .id(id)
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("10.0.0.1")
+                .timestamp(TIMESTAMP)
+                .build();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,89 @@
+package ru.practicum.ewm.integration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.dictionary.StatsDictionary;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Reads stats right after each hit with the query cache on, the way the postman checks do.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "stats.cache.enabled=true")
+class CachedStatsIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatsDictionary statsDictionary;
+
+    private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() {
+        baseUrl = "http://localhost:" + port;
+        jdbcTemplate.update("DELETE FROM stats");
+        statsDictionary.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM stats");
+        statsDictionary.clear();
+    }
+
+    @Test
+    void statsShouldCountHitSavedRightAfterCachedQuery() {
+        LocalDateTime now = LocalDateTime.now();
+
+        hit(now);
+        long before = hits(now);
+        hit(now);
+
+        assertEquals(1L, before);
+        assertEquals(before + 1, hits(now));
+    }
+
+    private void hit(LocalDateTime now) {
+        EndpointHit hit = EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("192.168.1.1")
+                .timestamp(now)
+                .build();
+        assertEquals(HttpStatus.CREATED, restTemplate.postForEntity(baseUrl + "/hit", hit, Void.class)
+                .getStatusCode());
+    }
+
+    private long hits(LocalDateTime now) {
+        ResponseEntity<ViewStats[]> response = restTemplate.getForEntity(
+                baseUrl + "/stats?start={start}&end={end}&uris={uris}&unique=false",
+                ViewStats[].class,
+                now.minusDays(1).format(formatter),
+                now.plusDays(1).format(formatter),
+                "/events/1");
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        return response.getBody()[0].getHits();
+    }
+}
\ No newline at end of file
@@ -15,6 +15,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.jdbc.core.JdbcTemplate;
 import ru.practicum.ewm.EndpointHit;
 import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.dictionary.StatsDictionary;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -37,6 +38,9 @@ public class StatsServiceIntegrationTest {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private StatsDictionary statsDictionary;
+
     private final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     private String baseUrl;
 
@@ -44,11 +48,13 @@ public class StatsServiceIntegrationTest {
     void setUp() {
         baseUrl = "http://localhost:" + port;
         jdbcTemplate.update("DELETE FROM stats");
+        statsDictionary.clear();
     }
 
     @AfterEach
     void tearDown() {
         jdbcTemplate.update("DELETE FROM stats");
+        statsDictionary.clear();
     }
 
     @Test
@@ -0,0 +1,96 @@
+package ru.practicum.ewm.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.ewm.ViewsStatsRequest;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StatsMetricsTest {
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private StatsMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new StatsMetrics(meterRegistry);
+        ReflectionTestUtils.setField(metrics, "sampleRate", 1.0);
+        metrics.start();
+    }
+
+    @Test
+    void uriCountsShouldFallIntoDecadeBuckets() {
+        int[][] expected = {{0, 0}, {1, 1}, {2, 2}, {10, 2}, {11, 3}, {100, 3}, {101, 4}, {1000, 4}, {1001, 5},
+                {1_000_000, 5}};
+
+        for (int[] pair : expected) {
+            assertEquals(pair[1], StatsMetrics.uriBucket(pair[0]), "uris " + pair[0]);
+        }
+    }
+
+    @Test
+    void savesShouldBeTimedByMode() {
+        metrics.hitsSaved(true, 1, 20_000);
+        metrics.hitsSaved(true, 5, 40_000);
+        metrics.hitsSaved(false, 1, 1_000_000);
+
+        Timer buffered = meterRegistry.get("stats.hit.save").tag("mode", "buffered").timer();
+        Timer direct = meterRegistry.get("stats.hit.save").tag("mode", "direct").timer();
+        assertEquals(2, buffered.count());
+        assertEquals(60, buffered.totalTime(TimeUnit.MICROSECONDS), 1e-9);
+        assertEquals(1, direct.count());
+    }
+
+    @Test
+    void queriesShouldBeTimedByUniqueAndUriBucket() {
+        metrics.queried(request(false, List.of()), 3, scan(10));
+        metrics.queried(request(true, Collections.nCopies(20, "/events/1")), 2, scan(50));
+        metrics.queried(request(true, List.of("/events/1", "/events/2")), 1, scan(7));
+
+        assertEquals(1, meterRegistry.get("stats.query").tags("unique", "false", "uris", "all").timer().count());
+        assertEquals(1, meterRegistry.get("stats.query").tags("unique", "true", "uris", "11-100").timer().count());
+        assertEquals(1, meterRegistry.get("stats.query").tags("unique", "true", "uris", "2-10").timer().count());
+        assertEquals(0, meterRegistry.get("stats.query").tags("unique", "true", "uris", "1").timer().count());
+        assertEquals(3, meterRegistry.get("stats.query.rows.returned").tag("unique", "false").counter().count());
+        assertEquals(3, meterRegistry.get("stats.query.rows.returned").tag("unique", "true").counter().count());
+        assertEquals(10, meterRegistry.get("stats.query.rows.scanned").tag("unique", "false").counter().count());
+        assertEquals(57, meterRegistry.get("stats.query.rows.scanned").tag("unique", "true").counter().count());
+    }
+
+    @Test
+    void nestedScanShouldAddItsRowsToTheOuterOne() {
+        QueryScan.add(100);
+        QueryScan outer = QueryScan.start();
+        QueryScan.add(2);
+        QueryScan inner = QueryScan.start();
+        QueryScan.add(5);
+        inner.finish();
+        QueryScan.add(1);
+        outer.finish();
+        QueryScan.add(100);
+
+        assertEquals(5, inner.getRows());
+        assertEquals(8, outer.getRows());
+    }
+
+    private static ViewsStatsRequest request(boolean unique, List<String> uris) {
+        return ViewsStatsRequest.builder()
+                .uris(uris)
+                .unique(unique)
+                .build();
+    }
+
+    private static QueryScan scan(long rows) {
+        QueryScan scan = QueryScan.start();
+        QueryScan.add(rows);
+        scan.finish();
+        return scan;
+    }
+}
\ No newline at end of file
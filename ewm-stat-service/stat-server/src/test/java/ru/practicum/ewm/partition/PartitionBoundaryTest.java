@@ -0,0 +1,126 @@
+package ru.practicum.ewm.partition;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.dictionary.StatsDictionary;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.rollup.RollupJob;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Places hits right before, on and right after daily partition bounds and checks that ranges starting, ending or
+ * crossing those bounds count them exactly, both from raw rows and from rollups.
+ */
+@SpringBootTest(properties = {"stats.partition.enabled=false", "stats.partition.retention-days=5"})
+class PartitionBoundaryTest {
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 3, 1);
+    private static final int DAYS = 6;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private StatsPartitionManager partitionManager;
+
+    @Autowired
+    private RollupJob rollupJob;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatsDictionary statsDictionary;
+
+    @BeforeEach
+    void setUp() {
+        clean();
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int day = 0; day < DAYS; day++) {
+            LocalDateTime bound = StatsPartition.of(FIRST_DAY.plusDays(day), PartitionGranularity.DAY)
+                    .getTo().atStartOfDay();
+            hits.add(hit("/events/1", bound.minusNanos(1000)));
+            hits.add(hit("/events/1", bound));
+            hits.add(hit("/events/2", bound.plusSeconds(1)));
+        }
+        statsRepository.saveHits(hits);
+    }
+
+    @AfterEach
+    void tearDown() {
+        clean();
+    }
+
+    @Test
+    void rangesAcrossPartitionBoundsShouldCountExactly() {
+        assertCounts();
+        rollupJob.rollUpTo(jdbcTemplate.queryForObject("SELECT MAX(id) FROM stats", Long.class));
+        assertCounts();
+    }
+
+    @Test
+    void retentionShouldExpireOnlyHitsBeforeTheWindow() {
+        partitionManager.maintain(FIRST_DAY.plusDays(7));
+
+        LocalDateTime retainFrom = FIRST_DAY.plusDays(2).atStartOfDay();
+        assertEquals(3 * (DAYS - 2) + 2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stats WHERE created < ?", Integer.class,
+                retainFrom));
+    }
+
+    private void assertCounts() {
+        LocalDateTime day2 = FIRST_DAY.plusDays(2).atStartOfDay();
+        LocalDateTime day4 = FIRST_DAY.plusDays(4).atStartOfDay();
+
+        // bounds exactly on partition edges: [day2, day4] includes the hits stamped exactly day2 and day4
+        assertEquals(Map.of("/events/1", 5L, "/events/2", 2L), query(day2, day4));
+        // one microsecond before an edge to the edge itself
+        assertEquals(Map.of("/events/1", 2L), query(day2.minusNanos(1000), day2));
+        // a window that straddles the edge by one second either way
+        assertEquals(Map.of("/events/1", 2L, "/events/2", 1L), query(day2.minusSeconds(1), day2.plusSeconds(1)));
+        // everything
+        assertEquals(Map.of("/events/1", 2L * DAYS, "/events/2", (long) DAYS),
+                query(FIRST_DAY.atStartOfDay(), FIRST_DAY.plusDays(DAYS + 1).atStartOfDay()));
+    }
+
+    private Map<String, Long> query(LocalDateTime start, LocalDateTime end) {
+        return statsRepository.getStats(ViewsStatsRequest.builder()
+                        .start(start)
+                        .end(end)
+                        .uris(List.of())
+                        .build())
+                .stream()
+                .collect(Collectors.toMap(ViewStats::getUri, ViewStats::getHits));
+    }
+
+    private static EndpointHit hit(String uri, LocalDateTime timestamp) {
+        return EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("192.168.0.1")
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private void clean() {
+        jdbcTemplate.update("DELETE FROM stats");
+        statsDictionary.clear();
+        jdbcTemplate.update("DELETE FROM stats_rollup");
+        jdbcTemplate.update("DELETE FROM stats_sketch");
+        jdbcTemplate.update("UPDATE stats_rollup_state SET last_hit_id = 0 WHERE id = 1");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,50 @@
+package ru.practicum.ewm.partition;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class PartitionPlanTest {
+
+    @Test
+    void planShouldCreateMissingPartitionsAheadAndExpireOldOnes() {
+        LocalDate today = LocalDate.of(2023, 3, 10);
+        List<LocalDate> existing = List.of(LocalDate.of(2023, 3, 1), LocalDate.of(2023, 3, 2),
+                LocalDate.of(2023, 3, 3), LocalDate.of(2023, 3, 10), LocalDate.of(2023, 3, 12));
+
+        PartitionPlan plan = PartitionPlan.of(today, PartitionGranularity.DAY, 3, 7, existing);
+
+        assertEquals(List.of(
+                new StatsPartition(LocalDate.of(2023, 3, 11), LocalDate.of(2023, 3, 12)),
+                new StatsPartition(LocalDate.of(2023, 3, 13), LocalDate.of(2023, 3, 14))
+        ), plan.getToCreate());
+        assertEquals(LocalDate.of(2023, 3, 3), plan.getRetainFrom());
+        assertEquals(List.of(LocalDate.of(2023, 3, 1), LocalDate.of(2023, 3, 2)), plan.getToExpire());
+    }
+
+    @Test
+    void monthlyPartitionsShouldStartOnFirstDay() {
+        LocalDate today = LocalDate.of(2023, 1, 31);
+
+        PartitionPlan plan = PartitionPlan.of(today, PartitionGranularity.MONTH, 1, 0, List.of());
+
+        assertEquals(List.of(
+                new StatsPartition(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 2, 1)),
+                new StatsPartition(LocalDate.of(2023, 2, 1), LocalDate.of(2023, 3, 1))
+        ), plan.getToCreate());
+        assertFalse(plan.hasRetention());
+    }
+
+    @Test
+    void partitionNameShouldRoundTripItsStart() {
+        StatsPartition partition = StatsPartition.of(LocalDate.of(2023, 12, 31), PartitionGranularity.DAY);
+
+        assertEquals("stats_p20231231", partition.getName());
+        assertEquals(LocalDate.of(2023, 12, 31), StatsPartition.parseStart(partition.getName()).orElseThrow());
+        assertFalse(StatsPartition.parseStart("stats_default").isPresent());
+    }
+}
\ No newline at end of file
@@ -6,14 +6,22 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
+import ru.practicum.ewm.EndpointHit;
 import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewTimeSeries;
 import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.dictionary.StatsDictionary;
+import ru.practicum.ewm.rollup.TimeBucket;
 
+import java.security.InvalidParameterException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SpringBootTest
 @Sql(scripts = "classpath:schema.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
@@ -25,6 +33,9 @@ class StatsRepositoryTest {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private StatsDictionary statsDictionary;
+
     private LocalDateTime start;
     private LocalDateTime end;
     private List<String> uris;
@@ -32,25 +43,32 @@ class StatsRepositoryTest {
     @BeforeEach
     void setUp() {
         jdbcTemplate.update("DELETE FROM stats");
+        statsDictionary.clear();
 
         start = LocalDateTime.of(2023, 1, 1, 0, 0, 0);
         end = LocalDateTime.of(2023, 1, 3, 0, 0, 0);
         uris = List.of("/events/1", "/events/2");
 
-        jdbcTemplate.update(
-                "INSERT INTO stats (app, uri, ip, created) VALUES (?, ?, ?, ?)",
-                "ewm-main-service", "/events/1", "192.168.1.1", LocalDateTime.of(2023, 1, 2, 12, 0, 0)
-        );
+        statsRepository.saveHit(EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("192.168.1.1")
+                .timestamp(LocalDateTime.of(2023, 1, 2, 12, 0, 0))
+                .build());
 
-        jdbcTemplate.update(
-                "INSERT INTO stats (app, uri, ip, created) VALUES (?, ?, ?, ?)",
-                "ewm-main-service", "/events/1", "192.168.1.2", LocalDateTime.of(2023, 1, 2, 13, 0, 0)
-        );
+        statsRepository.saveHit(EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("192.168.1.2")
+                .timestamp(LocalDateTime.of(2023, 1, 2, 13, 0, 0))
+                .build());
 
-        jdbcTemplate.update(
-                "INSERT INTO stats (app, uri, ip, created) VALUES (?, ?, ?, ?)",
-                "ewm-main-service", "/events/2", "192.168.1.1", LocalDateTime.of(2023, 1, 2, 14, 0, 0)
-        );
+        statsRepository.saveHit(EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri("/events/2")
+                .ip("192.168.1.1")
+                .timestamp(LocalDateTime.of(2023, 1, 2, 14, 0, 0))
+                .build());
     }
 
     @Test
@@ -149,4 +167,186 @@ class StatsRepositoryTest {
         }
         assertEquals(3L, totalHits);
     }
+
+    @Test
+    void saveHitsShouldInsertAllHitsInBatches() {
+        List<EndpointHit> hits = List.of(
+                EndpointHit.builder().app("ewm-main-service").uri("/events/1").ip("192.168.1.3")
+                        .timestamp(LocalDateTime.of(2023, 1, 2, 15, 0, 0)).build(),
+                EndpointHit.builder().app("ewm-main-service").uri("/events/2").ip("192.168.1.3")
+                        .timestamp(LocalDateTime.of(2023, 1, 2, 16, 0, 0)).build()
+        );
+
+        int accepted = statsRepository.saveHits(hits);
+
+        assertEquals(2, accepted);
+        List<ViewStats> result = statsRepository.getStats(ViewsStatsRequest.builder()
+                .start(start)
+                .end(end)
+                .uris(uris)
+                .build());
+        for (ViewStats stat : result) {
+            if (stat.getUri().equals("/events/1")) {
+                assertEquals(3L, stat.getHits());
+            } else if (stat.getUri().equals("/events/2")) {
+                assertEquals(2L, stat.getHits());
+            }
+        }
+    }
+
+    @Test
+    void largeUriFilterShouldBeBoundAsOneArray() {
+        List<Object[]> known = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            known.add(new Object[]{"/compilations/" + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO uris (uri) VALUES (?)", known);
+        List<String> filter = new ArrayList<>(known.stream().map(row -> (String) row[0]).toList());
+        filter.set(filter.size() / 2, "/events/1");
+
+        List<ViewStats> result = statsRepository.getStats(ViewsStatsRequest.builder()
+                .start(start)
+                .end(end)
+                .uris(filter)
+                .build());
+
+        assertEquals(1, result.size());
+        assertEquals("/events/1", result.get(0).getUri());
+        assertEquals(2L, result.get(0).getHits());
+    }
+
+    @Test
+    void prefixPatternShouldMatchEveryUriUnderIt() {
+        statsRepository.saveHit(EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri("/eventsfeed")
+                .ip("192.168.1.1")
+                .timestamp(LocalDateTime.of(2023, 1, 2, 15, 0, 0))
+                .build());
+        jdbcTemplate.update("INSERT INTO uris (uri) VALUES ('/events/3')");
+
+        List<ViewStats> result = statsRepository.getStats(ViewsStatsRequest.builder()
+                .start(start)
+                .end(end)
+                .uris(List.of("/events/*"))
+                .build());
+
+        assertEquals(List.of("/events/1", "/events/2"), result.stream().map(ViewStats::getUri).toList());
+        assertEquals(List.of(2L, 1L), result.stream().map(ViewStats::getHits).toList());
+    }
+
+    @Test
+    void prefixPatternShouldSeeUrisAddedAfterFirstLookup() {
+        ViewsStatsRequest request = ViewsStatsRequest.builder()
+                .start(start)
+                .end(end)
+                .uris(List.of("/events/*"))
+                .unique(true)
+                .build();
+        assertEquals(2, statsRepository.getUniqueStats(request).size());
+
+        statsRepository.saveHit(EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri("/events/3")
+                .ip("192.168.1.1")
+                .timestamp(LocalDateTime.of(2023, 1, 2, 15, 0, 0))
+                .build());
+
+        assertEquals(3, statsRepository.getUniqueStats(request).size());
+    }
+
+    @Test
+    void limitShouldKeepTheMostVisitedUris() {
+        List<ViewStats> result = statsRepository.getStats(ViewsStatsRequest.builder()
+                .start(start)
+                .end(end)
+                .uris(List.of("/events/*"))
+                .limit(1)
+                .build());
+
+        assertEquals(1, result.size());
+        assertEquals("/events/1", result.get(0).getUri());
+    }
+
+    @Test
+    void batchShouldAnswerEveryRequestLikeASingleQuery() {
+        List<ViewsStatsRequest> requests = List.of(
+                ViewsStatsRequest.builder().start(start).end(end).uris(uris).build(),
+                ViewsStatsRequest.builder().start(start).end(end).uris(List.of("/events/9")).build(),
+                ViewsStatsRequest.builder()
+                        .start(LocalDateTime.of(2023, 1, 2, 12, 30, 0))
+                        .end(end)
+                        .uris(List.of())
+                        .build(),
+                ViewsStatsRequest.builder().start(start).end(end).uris(List.of("/events/*")).limit(1).build());
+
+        List<List<ViewStats>> results = statsRepository.getStats(requests);
+
+        assertEquals(requests.size(), results.size());
+        for (int i = 0; i < requests.size(); i++) {
+            List<ViewStats> expected = statsRepository.getStats(requests.get(i));
+            assertEquals(expected.size(), results.get(i).size(), "request " + i);
+            for (int j = 0; j < expected.size(); j++) {
+                assertEquals(expected.get(j).getUri(), results.get(i).get(j).getUri());
+                assertEquals(expected.get(j).getHits(), results.get(i).get(j).getHits());
+            }
+        }
+        assertEquals(2L, results.get(0).get(0).getHits());
+        assertEquals(0, results.get(1).size());
+        assertEquals(2, results.get(2).size());
+    }
+
+    @Test
+    void wildcardOutsideTheEndShouldBeRejected() {
+        ViewsStatsRequest request = ViewsStatsRequest.builder()
+                .start(start)
+                .end(end)
+                .uris(List.of("/events/*/comments"))
+                .build();
+
+        assertThrows(InvalidParameterException.class, () -> statsRepository.getStats(request));
+    }
+
+    @Test
+    void exportHitsShouldStreamRawHitsInTimeOrder() {
+        List<EndpointHit> exported = new ArrayList<>();
+
+        statsRepository.exportHits(start, LocalDateTime.of(2023, 1, 2, 13, 0, 0), exported::add);
+
+        assertEquals(List.of("/events/1", "/events/1"), exported.stream().map(EndpointHit::getUri).toList());
+        assertEquals(List.of("192.168.1.1", "192.168.1.2"), exported.stream().map(EndpointHit::getIp).toList());
+        assertEquals(LocalDateTime.of(2023, 1, 2, 12, 0, 0), exported.get(0).getTimestamp());
+        assertNotNull(exported.get(0).getId());
+    }
+
+    @Test
+    void timeSeriesShouldListEveryBucketOfTheRange() {
+        ViewsStatsRequest request = ViewsStatsRequest.builder()
+                .start(LocalDateTime.of(2023, 1, 2, 11, 30, 0))
+                .end(LocalDateTime.of(2023, 1, 2, 14, 10, 0))
+                .uris(uris)
+                .build();
+
+        ViewTimeSeries result = statsRepository.getTimeSeries(request, TimeBucket.HOUR);
+
+        assertEquals("HOUR", result.getBucket());
+        assertEquals(List.of(LocalDateTime.of(2023, 1, 2, 11, 0, 0), LocalDateTime.of(2023, 1, 2, 12, 0, 0),
+                LocalDateTime.of(2023, 1, 2, 13, 0, 0), LocalDateTime.of(2023, 1, 2, 14, 0, 0)),
+                result.getTimestamps());
+        assertEquals(2, result.getSeries().size());
+        assertEquals("/events/1", result.getSeries().get(0).getUri());
+        assertArrayEquals(new long[]{0, 1, 1, 0}, result.getSeries().get(0).getCounts());
+        assertArrayEquals(new long[]{0, 0, 0, 1}, result.getSeries().get(1).getCounts());
+    }
+
+    @Test
+    void timeSeriesShouldRejectTooManyBuckets() {
+        ViewsStatsRequest request = ViewsStatsRequest.builder()
+                .start(start)
+                .end(start.plusYears(1))
+                .uris(List.of())
+                .build();
+
+        assertThrows(InvalidParameterException.class, () -> statsRepository.getTimeSeries(request, TimeBucket.MINUTE));
+    }
 }
\ No newline at end of file
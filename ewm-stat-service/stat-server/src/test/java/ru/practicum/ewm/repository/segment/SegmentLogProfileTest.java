@@ -0,0 +1,59 @@
+package ru.practicum.ewm.repository.segment;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.service.StatsService;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+@SpringBootTest
+@ActiveProfiles("segment-log")
+class SegmentLogProfileTest {
+    @TempDir
+    private static Path directory;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private StatsService statsService;
+
+    @DynamicPropertySource
+    static void segmentProperties(DynamicPropertyRegistry registry) {
+        registry.add("stats.segment.dir", directory::toString);
+    }
+
+    @Test
+    void profileShouldStoreHitsInSegments() {
+        LocalDateTime timestamp = LocalDateTime.of(2023, 6, 1, 12, 0, 0);
+        statsService.saveHits(List.of(
+                EndpointHit.builder().app("ewm-main-service").uri("/events/1").ip("10.0.0.1").timestamp(timestamp)
+                        .build(),
+                EndpointHit.builder().app("ewm-main-service").uri("/events/1").ip("10.0.0.2").timestamp(timestamp)
+                        .build()));
+
+        List<ViewStats> stats = statsService.getViewStatsList(ViewsStatsRequest.builder()
+                .start(timestamp.minusHours(1))
+                .end(timestamp.plusHours(1))
+                .uris(List.of("/events/1"))
+                .build());
+
+        assertInstanceOf(SegmentLogStatsRepository.class, statsRepository);
+        assertEquals(1, stats.size());
+        assertEquals(2, stats.get(0).getHits());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,249 @@
+package ru.practicum.ewm.repository.segment;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewTimeSeries;
+import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.rollup.TimeBucket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.InvalidParameterException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SegmentLogStatsRepositoryTest {
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2023, 3, 1, 0, 0, 0);
+    private static final int RANGE_SECONDS = 3 * 24 * 60 * 60;
+
+    @TempDir
+    private Path directory;
+
+    private final Random random = new Random(5);
+    private SegmentLogStatsRepository repository;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        repository = open();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        repository.close();
+    }
+
+    @Test
+    void queriesShouldMatchExactCountsAcrossSegments() throws IOException {
+        List<EndpointHit> hits = randomHits(20_000);
+        repository.saveHits(hits);
+        assertTrue(segmentFiles().size() > 5);
+
+        for (int i = 0; i < 100; i++) {
+            LocalDateTime start = randomTime();
+            LocalDateTime end = start.plusSeconds(random.nextInt(RANGE_SECONDS / 2));
+            List<String> uris = switch (i % 3) {
+                case 0 -> List.of();
+                case 1 -> List.of("/events/1", "/events/3");
+                default -> List.of("/events/1*");
+            };
+            ViewsStatsRequest request = ViewsStatsRequest.builder()
+                    .start(start)
+                    .end(end)
+                    .uris(uris)
+                    .build();
+
+            assertEquals(expected(hits, request, false), toMap(repository.getStats(request)), request.toString());
+            assertEquals(expected(hits, request, true), toMap(repository.getUniqueStats(request)), request.toString());
+        }
+    }
+
+    @Test
+    void batchShouldMatchExactCountsOfEveryWindow() {
+        List<EndpointHit> hits = randomHits(20_000);
+        repository.saveHits(hits);
+
+        List<ViewsStatsRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            LocalDateTime start = randomTime();
+            requests.add(ViewsStatsRequest.builder()
+                    .start(start)
+                    .end(start.plusSeconds(random.nextInt(RANGE_SECONDS / 2)))
+                    .uris(i % 2 == 0 ? List.of() : List.of("/events/2", "/events/1*"))
+                    .build());
+        }
+        List<List<ViewStats>> results = repository.getStats(requests);
+
+        for (int i = 0; i < requests.size(); i++) {
+            assertEquals(expected(hits, requests.get(i), false), toMap(results.get(i)), requests.get(i).toString());
+        }
+    }
+
+    @Test
+    void hitsShouldSurviveReopen() throws IOException {
+        List<EndpointHit> hits = randomHits(5_000);
+        repository.saveHits(hits);
+        repository.close();
+
+        repository = open();
+        EndpointHit late = hit("/events/1", ORIGIN.plusHours(1));
+        repository.saveHit(late);
+        hits.add(late);
+
+        ViewsStatsRequest request = allTime();
+        assertEquals(expected(hits, request, false), toMap(repository.getStats(request)));
+    }
+
+    @Test
+    void tornTailShouldBeDiscardedOnOpen() throws IOException {
+        repository.saveHits(List.of(hit("/events/1", ORIGIN), hit("/events/2", ORIGIN.plusMinutes(1)),
+                hit("/events/2", ORIGIN.plusMinutes(2))));
+        repository.close();
+
+        Path tail = segmentFiles().get(segmentFiles().size() - 1);
+        try (FileChannel channel = FileChannel.open(tail, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer content = ByteBuffer.allocate((int) channel.size());
+            channel.read(content, 0);
+            int end = content.capacity();
+            while (content.get(end - 1) == 0) {
+                end--;
+            }
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xff}), end - 10);
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 40, 3, 1, 2}), end);
+        }
+
+        repository = open();
+        assertEquals(Map.of("app/events/1", 1L, "app/events/2", 1L), toMap(repository.getStats(allTime())));
+
+        repository.saveHit(hit("/events/3", ORIGIN.plusMinutes(3)));
+        repository.close();
+        repository = open();
+        assertEquals(Map.of("app/events/1", 1L, "app/events/2", 1L, "app/events/3", 1L),
+                toMap(repository.getStats(allTime())));
+    }
+
+    @Test
+    void timeSeriesShouldCountHitsPerBucket() {
+        repository.saveHits(List.of(hit("/events/1", ORIGIN.plusMinutes(5)), hit("/events/1", ORIGIN.plusHours(2)),
+                hit("/events/1", ORIGIN.plusHours(2).plusMinutes(59))));
+
+        ViewTimeSeries series = repository.getTimeSeries(ViewsStatsRequest.builder()
+                .start(ORIGIN)
+                .end(ORIGIN.plusHours(3))
+                .uris(List.of())
+                .build(), TimeBucket.HOUR);
+
+        assertEquals(4, series.getTimestamps().size());
+        assertArrayEquals(new long[]{1, 0, 2, 0}, series.getSeries().get(0).getCounts());
+    }
+
+    @Test
+    void invalidWildcardShouldBeRejected() {
+        ViewsStatsRequest request = ViewsStatsRequest.builder()
+                .start(ORIGIN)
+                .end(ORIGIN.plusDays(1))
+                .uris(List.of("/events/*/comments"))
+                .build();
+
+        assertThrows(InvalidParameterException.class, () -> repository.getStats(request));
+    }
+
+    private SegmentLogStatsRepository open() throws IOException {
+        SegmentLogStatsRepository opened = new SegmentLogStatsRepository();
+        ReflectionTestUtils.setField(opened, "directory", directory);
+        ReflectionTestUtils.setField(opened, "segmentSize", 64 * 1024);
+        ReflectionTestUtils.setField(opened, "maxBuckets", 10_000);
+        opened.open();
+        return opened;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        }
+    }
+
+    private static ViewsStatsRequest allTime() {
+        return ViewsStatsRequest.builder()
+                .start(ORIGIN.minusYears(1))
+                .end(ORIGIN.plusYears(1))
+                .uris(List.of())
+                .build();
+    }
+
+    private static Map<String, Long> expected(List<EndpointHit> hits, ViewsStatsRequest request, boolean unique) {
+        Map<String, Set<String>> ips = new HashMap<>();
+        Map<String, Long> counts = new HashMap<>();
+        for (EndpointHit hit : hits) {
+            if (hit.getTimestamp().isBefore(request.getStart()) || hit.getTimestamp().isAfter(request.getEnd())) {
+                continue;
+            }
+            boolean matches = request.getUris().isEmpty() || request.getUris().stream().anyMatch(uri ->
+                    uri.endsWith("*") ? hit.getUri().startsWith(uri.substring(0, uri.length() - 1))
+                            : hit.getUri().equals(uri));
+            if (matches) {
+                String key = hit.getApp() + hit.getUri();
+                counts.merge(key, 1L, Long::sum);
+                ips.computeIfAbsent(key, k -> new HashSet<>()).add(hit.getIp());
+            }
+        }
+        if (unique) {
+            ips.forEach((key, set) -> counts.put(key, (long) set.size()));
+        }
+        return counts;
+    }
+
+    private static Map<String, Long> toMap(List<ViewStats> stats) {
+        Map<String, Long> result = new HashMap<>();
+        for (ViewStats stat : stats) {
+            result.put(stat.getApp() + stat.getUri(), stat.getHits());
+        }
+        return result;
+    }
+
+    private List<EndpointHit> randomHits(int count) {
+        List<EndpointHit> hits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            hits.add(EndpointHit.builder()
+                    .app(random.nextInt(5) == 0 ? "other-app" : "app")
+                    .uri("/events/" + random.nextInt(30))
+                    .ip(random.nextInt(10) == 0 ? "2001:db8::" + random.nextInt(20) : "10.0.0." + random.nextInt(50))
+                    .timestamp(randomTime())
+                    .build());
+        }
+        return hits;
+    }
+
+    private LocalDateTime randomTime() {
+        return ORIGIN.plusSeconds(random.nextInt(RANGE_SECONDS));
+    }
+
+    private static EndpointHit hit(String uri, LocalDateTime timestamp) {
+        return EndpointHit.builder()
+                .app("app")
+                .uri(uri)
+                .ip("10.0.0.1")
+                .timestamp(timestamp)
+                .build();
+    }
+}
\ No newline at end of file
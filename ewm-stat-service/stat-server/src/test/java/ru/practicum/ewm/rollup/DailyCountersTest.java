@@ -0,0 +1,181 @@
+package ru.practicum.ewm.rollup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.dictionary.StatsDictionary;
+import ru.practicum.ewm.repository.StatsRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "stats.daily.enabled=true")
+class DailyCountersTest {
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2023, 3, 1, 0, 0, 0);
+    private static final int RANGE_SECONDS = 5 * 24 * 60 * 60;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private RollupJob rollupJob;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatsDictionary statsDictionary;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Random random = new Random(7);
+
+    @BeforeEach
+    void setUp() {
+        clean();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clean();
+    }
+
+    @Test
+    void burstOnOneUriShouldCostOneUpsertPerDay() {
+        double upserts = meterRegistry.counter("stats.daily.upserts").count();
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            hits.add(hit("/events/1", ORIGIN.plusSeconds(i)));
+        }
+        hits.add(hit("/events/1", ORIGIN.plusDays(1)));
+
+        statsRepository.saveHits(hits);
+        statsRepository.saveHit(hit("/events/1", ORIGIN.plusHours(5)));
+
+        assertEquals(3.0, meterRegistry.counter("stats.daily.upserts").count() - upserts);
+        assertEquals(List.of(1001L, 1L), jdbcTemplate.queryForList(
+                "SELECT hits FROM stats_daily ORDER BY bucket", Long.class));
+    }
+
+    @Test
+    void dailyQueriesShouldMatchRawQueriesOnRandomRanges() {
+        statsRepository.saveHits(randomHits(3000));
+        rollupJob.rollUpTo(jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM stats", Long.class));
+        statsRepository.saveHits(randomHits(500));
+        statsRepository.saveHit(hit("/events/2", ORIGIN.plusDays(2)));
+
+        for (int i = 0; i < 200; i++) {
+            ViewsStatsRequest request = randomRequest(i);
+
+            assertEquals(rawStats(request), toMap(statsRepository.getStats(request)), request.toString());
+        }
+    }
+
+    @Test
+    void batchShouldMatchRawQueriesOnRandomRanges() {
+        statsRepository.saveHits(randomHits(3000));
+        rollupJob.rollUpTo(jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM stats", Long.class));
+        statsRepository.saveHits(randomHits(500));
+
+        List<ViewsStatsRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            requests.add(randomRequest(i));
+        }
+        requests.add(ViewsStatsRequest.builder()
+                .start(ORIGIN)
+                .end(ORIGIN.plusDays(5))
+                .uris(List.of("/events/9"))
+                .build());
+        List<List<ViewStats>> results = statsRepository.getStats(requests);
+
+        assertEquals(requests.size(), results.size());
+        for (int i = 0; i < requests.size(); i++) {
+            assertEquals(rawStats(requests.get(i)), toMap(results.get(i)), requests.get(i).toString());
+        }
+    }
+
+    private ViewsStatsRequest randomRequest(int i) {
+        LocalDateTime start = randomTime();
+        LocalDateTime end = i % 10 == 0 ? ORIGIN.plusDays(random.nextInt(6)) : randomTime();
+        if (end.isBefore(start)) {
+            LocalDateTime swap = start;
+            start = end;
+            end = swap;
+        }
+        List<String> uris = random.nextBoolean() ? List.of() : List.of("/events/1", "/events/2");
+        return ViewsStatsRequest.builder()
+                .start(start)
+                .end(end)
+                .uris(uris)
+                .build();
+    }
+
+    private List<EndpointHit> randomHits(int count) {
+        List<EndpointHit> hits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            hits.add(hit("/events/" + random.nextInt(6), randomTime()));
+        }
+        return hits;
+    }
+
+    private LocalDateTime randomTime() {
+        LocalDateTime time = ORIGIN.plusSeconds(random.nextInt(RANGE_SECONDS));
+        return random.nextInt(4) == 0 ? time.withSecond(0).withMinute(0) : time;
+    }
+
+    private static EndpointHit hit(String uri, LocalDateTime timestamp) {
+        return EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("10.0.0.1")
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private Map<String, Long> rawStats(ViewsStatsRequest request) {
+        String query = "SELECT a.name AS app, u.uri AS uri, COUNT (s.ip) AS hits FROM stats s "
+                + "JOIN apps a ON a.id = s.app_id JOIN uris u ON u.id = s.uri_id "
+                + "WHERE (s.created >= ? AND s.created <= ?) ";
+        if (!request.getUris().isEmpty()) {
+            query += "AND u.uri IN ('" + String.join("', '", request.getUris()) + "') ";
+        }
+        query += "GROUP BY a.name, u.uri";
+        Map<String, Long> result = new HashMap<>();
+        jdbcTemplate.query(query, rs -> {
+            result.put(rs.getString("app") + rs.getString("uri"), rs.getLong("hits"));
+        }, request.getStart(), request.getEnd());
+        return result;
+    }
+
+    private Map<String, Long> toMap(List<ViewStats> stats) {
+        Map<String, Long> result = new HashMap<>();
+        for (ViewStats stat : stats) {
+            result.put(stat.getApp() + stat.getUri(), stat.getHits());
+        }
+        return result;
+    }
+
+    private void clean() {
+        jdbcTemplate.update("DELETE FROM stats");
+        jdbcTemplate.update("DELETE FROM stats_daily");
+        statsDictionary.clear();
+        jdbcTemplate.update("DELETE FROM stats_rollup");
+        jdbcTemplate.update("DELETE FROM stats_sketch");
+        jdbcTemplate.update("DELETE FROM stats_top");
+        jdbcTemplate.update("UPDATE stats_rollup_state SET last_hit_id = 0");
+    }
+}
\ No newline at end of file
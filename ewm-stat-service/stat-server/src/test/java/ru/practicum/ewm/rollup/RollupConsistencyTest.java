@@ -0,0 +1,208 @@
+package ru.practicum.ewm.rollup;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.UriTimeSeries;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewTimeSeries;
+import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.dictionary.StatsDictionary;
+import ru.practicum.ewm.repository.StatsRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class RollupConsistencyTest {
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2023, 3, 1, 0, 0, 0);
+    private static final int RANGE_SECONDS = 4 * 24 * 60 * 60;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private RollupJob rollupJob;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatsDictionary statsDictionary;
+
+    private final Random random = new Random(42);
+
+    @BeforeEach
+    void setUp() {
+        clean();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clean();
+    }
+
+    @Test
+    void rollupQueriesShouldMatchRawQueriesOnRandomRanges() {
+        statsRepository.saveHits(randomHits(3000));
+        rollupJob.rollUpTo(maxHitId());
+        statsRepository.saveHits(randomHits(500));
+
+        for (int i = 0; i < 200; i++) {
+            LocalDateTime start = randomTime();
+            LocalDateTime end = random.nextInt(10) == 0 ? start.plusSeconds(random.nextInt(120)) : randomTime();
+            if (end.isBefore(start)) {
+                LocalDateTime swap = start;
+                start = end;
+                end = swap;
+            }
+            List<String> uris = random.nextBoolean() ? List.of() : List.of("/events/1", "/events/3");
+            ViewsStatsRequest request = ViewsStatsRequest.builder()
+                    .start(start)
+                    .end(end)
+                    .uris(uris)
+                    .build();
+
+            assertEquals(rawStats(request), toMap(statsRepository.getStats(request)), request.toString());
+        }
+    }
+
+    @Test
+    void rollupShouldFoldLateHitsOnlyOnce() {
+        statsRepository.saveHits(randomHits(100));
+        rollupJob.rollUpTo(maxHitId());
+        rollupJob.rollUpTo(maxHitId());
+        statsRepository.saveHits(List.of(EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("10.0.0.1")
+                .timestamp(ORIGIN.plusHours(1))
+                .build()));
+        rollupJob.rollUpTo(maxHitId());
+
+        ViewsStatsRequest request = ViewsStatsRequest.builder()
+                .start(ORIGIN)
+                .end(ORIGIN.plusSeconds(RANGE_SECONDS))
+                .uris(List.of())
+                .build();
+        assertEquals(rawStats(request), toMap(statsRepository.getStats(request)));
+    }
+
+    @Test
+    void scheduledRunShouldOnlyFoldIdsSeenOnPreviousRun() {
+        statsRepository.saveHits(randomHits(100));
+        rollupJob.rollUp();
+        long seen = maxHitId();
+        statsRepository.saveHits(randomHits(100));
+
+        rollupJob.rollUp();
+
+        assertEquals(seen, jdbcTemplate.queryForObject(
+                "SELECT last_hit_id FROM stats_rollup_state WHERE id = 1", Long.class));
+    }
+
+    @Test
+    void timeSeriesFromRollupsShouldMatchRawBuckets() {
+        statsRepository.saveHits(randomHits(3000));
+        rollupJob.rollUpTo(maxHitId());
+        statsRepository.saveHits(randomHits(500));
+
+        for (int i = 0; i < 60; i++) {
+            TimeBucket bucket = TimeBucket.values()[i % TimeBucket.values().length];
+            LocalDateTime start = randomTime();
+            int maxSeconds = bucket == TimeBucket.MINUTE ? 6 * 60 * 60 : RANGE_SECONDS;
+            LocalDateTime end = start.plusSeconds(random.nextInt(maxSeconds));
+            ViewsStatsRequest request = ViewsStatsRequest.builder()
+                    .start(start)
+                    .end(end)
+                    .uris(List.of())
+                    .build();
+
+            ViewTimeSeries series = statsRepository.getTimeSeries(request, bucket);
+            Map<String, Long> actual = new HashMap<>();
+            for (UriTimeSeries item : series.getSeries()) {
+                for (int j = 0; j < item.getCounts().length; j++) {
+                    if (item.getCounts()[j] > 0) {
+                        actual.put(item.getApp() + item.getUri() + series.getTimestamps().get(j), item.getCounts()[j]);
+                    }
+                }
+            }
+            assertEquals(rawBuckets(request, bucket), actual, request + " " + bucket);
+        }
+    }
+
+    private List<EndpointHit> randomHits(int count) {
+        List<EndpointHit> hits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            hits.add(EndpointHit.builder()
+                    .app(random.nextInt(5) == 0 ? "other-app" : "ewm-main-service")
+                    .uri("/events/" + random.nextInt(6))
+                    .ip("10.0.0." + random.nextInt(50))
+                    .timestamp(randomTime())
+                    .build());
+        }
+        return hits;
+    }
+
+    private LocalDateTime randomTime() {
+        LocalDateTime time = ORIGIN.plusSeconds(random.nextInt(RANGE_SECONDS));
+        return random.nextInt(4) == 0 ? time.withSecond(0) : time;
+    }
+
+    private Map<String, Long> rawStats(ViewsStatsRequest request) {
+        String query = "SELECT a.name AS app, u.uri AS uri, COUNT (s.ip) AS hits FROM stats s "
+                + "JOIN apps a ON a.id = s.app_id JOIN uris u ON u.id = s.uri_id "
+                + "WHERE (s.created >= ? AND s.created <= ?) ";
+        if (!request.getUris().isEmpty()) {
+            query += "AND u.uri IN ('" + String.join("', '", request.getUris()) + "') ";
+        }
+        query += "GROUP BY a.name, u.uri";
+        Map<String, Long> result = new HashMap<>();
+        jdbcTemplate.query(query, rs -> {
+            result.put(rs.getString("app") + rs.getString("uri"), rs.getLong("hits"));
+        }, request.getStart(), request.getEnd());
+        return result;
+    }
+
+    private Map<String, Long> rawBuckets(ViewsStatsRequest request, TimeBucket bucket) {
+        String truncated = "DATE_TRUNC('" + bucket.getSqlUnit() + "', s.created)";
+        Map<String, Long> result = new HashMap<>();
+        jdbcTemplate.query("SELECT a.name AS app, u.uri AS uri, " + truncated + " AS bucket, COUNT (s.ip) AS hits "
+                + "FROM stats s JOIN apps a ON a.id = s.app_id JOIN uris u ON u.id = s.uri_id "
+                + "WHERE (s.created >= ? AND s.created <= ?) GROUP BY a.name, u.uri, " + truncated, rs -> {
+            result.put(rs.getString("app") + rs.getString("uri") + rs.getTimestamp("bucket").toLocalDateTime(),
+                    rs.getLong("hits"));
+        }, request.getStart(), request.getEnd());
+        return result;
+    }
+
+    private Map<String, Long> toMap(List<ViewStats> stats) {
+        Map<String, Long> result = new HashMap<>();
+        for (ViewStats stat : stats) {
+            result.put(stat.getApp() + stat.getUri(), stat.getHits());
+        }
+        return result;
+    }
+
+    private long maxHitId() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM stats", Long.class);
+    }
+
+    private void clean() {
+        jdbcTemplate.update("DELETE FROM stats");
+        statsDictionary.clear();
+        jdbcTemplate.update("DELETE FROM stats_rollup");
+        jdbcTemplate.update("DELETE FROM stats_sketch");
+        jdbcTemplate.update("UPDATE stats_rollup_state SET last_hit_id = 0");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+package ru.practicum.ewm.rollup;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class RollupPlanTest {
+
+    @Test
+    void planShouldUseCoarsestBucketsAndKeepRaggedEdges() {
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 22, 58, 30);
+        LocalDateTime end = LocalDateTime.of(2023, 1, 4, 1, 2, 15);
+
+        RollupPlan plan = RollupPlan.of(start, end);
+
+        assertEquals(LocalDateTime.of(2023, 1, 1, 22, 59), plan.getAlignedStart());
+        assertEquals(LocalDateTime.of(2023, 1, 4, 1, 2), plan.getAlignedEnd());
+        assertEquals(List.of(
+                new RangeSegment(TimeBucket.MINUTE, LocalDateTime.of(2023, 1, 1, 22, 59),
+                        LocalDateTime.of(2023, 1, 1, 23, 0)),
+                new RangeSegment(TimeBucket.HOUR, LocalDateTime.of(2023, 1, 1, 23, 0),
+                        LocalDateTime.of(2023, 1, 2, 0, 0)),
+                new RangeSegment(TimeBucket.DAY, LocalDateTime.of(2023, 1, 2, 0, 0),
+                        LocalDateTime.of(2023, 1, 4, 0, 0)),
+                new RangeSegment(TimeBucket.HOUR, LocalDateTime.of(2023, 1, 4, 0, 0),
+                        LocalDateTime.of(2023, 1, 4, 1, 0)),
+                new RangeSegment(TimeBucket.MINUTE, LocalDateTime.of(2023, 1, 4, 1, 0),
+                        LocalDateTime.of(2023, 1, 4, 1, 2))
+        ), plan.getSegments());
+    }
+
+    @Test
+    void planWithinOneMinuteShouldHaveNoAlignedPart() {
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 10, 0, 5);
+
+        assertFalse(RollupPlan.of(start, start.plusSeconds(30)).hasAlignedPart());
+        assertFalse(RollupPlan.of(start, start.minusDays(1)).hasAlignedPart());
+    }
+}
\ No newline at end of file
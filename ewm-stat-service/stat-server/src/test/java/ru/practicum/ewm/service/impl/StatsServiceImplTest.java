@@ -6,17 +6,36 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.RecoverableDataAccessException;
+import ru.practicum.ewm.BulkLoadResult;
 import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.TopViewStats;
 import ru.practicum.ewm.ViewStats;
 import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.buffer.HitBuffer;
+import ru.practicum.ewm.bulk.HitBulkLoader;
+import ru.practicum.ewm.cache.StatsQueryCache;
+import ru.practicum.ewm.dedup.HitDeduplicator;
+import ru.practicum.ewm.metrics.StatsMetrics;
 import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.topk.HeavyHitters;
+import ru.practicum.ewm.topk.TopHits;
+import ru.practicum.ewm.topk.TopHitsWindow;
+import ru.practicum.ewm.window.RecentStatsWindow;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -27,6 +46,30 @@ class StatsServiceImplTest {
     @Mock
     private StatsRepository statsRepository;
 
+    @Mock
+    private HitBuffer hitBuffer;
+
+    @Mock
+    private RecentStatsWindow recentStats;
+
+    @Mock
+    private TopHitsWindow topHits;
+
+    @Mock
+    private HeavyHitters heavyHitters;
+
+    @Mock
+    private StatsQueryCache queryCache;
+
+    @Mock
+    private HitBulkLoader bulkLoader;
+
+    @Mock
+    private StatsMetrics metrics;
+
+    @Mock
+    private HitDeduplicator deduplicator;
+
     @InjectMocks
     private StatsServiceImpl statsService;
 
@@ -58,6 +101,71 @@ class StatsServiceImplTest {
         verify(statsRepository, times(1)).saveHit(any(EndpointHit.class));
     }
 
+    @Test
+    void saveHit_WhenBufferEnabled_ShouldQueueHitInsteadOfWriting() {
+        when(hitBuffer.isEnabled()).thenReturn(true);
+        when(hitBuffer.add(endpointHit)).thenReturn(true);
+
+        statsService.saveHit(endpointHit);
+
+        verify(hitBuffer).add(endpointHit);
+        verify(statsRepository, never()).saveHit(any(EndpointHit.class));
+        verify(queryCache, never()).record(endpointHit);
+        verify(recentStats, never()).record(endpointHit);
+        verify(topHits, never()).record(endpointHit);
+    }
+
+    @Test
+    void saveHit_WhenDuplicate_ShouldSkipWrite() {
+        when(deduplicator.isDuplicate(endpointHit)).thenReturn(true);
+
+        statsService.saveHit(endpointHit);
+
+        verify(statsRepository, never()).saveHit(any(EndpointHit.class));
+        verify(recentStats, never()).record(any(EndpointHit.class));
+    }
+
+    @Test
+    void saveHit_WhenWriteFails_ShouldForgetHitId() {
+        doThrow(new RecoverableDataAccessException("down")).when(statsRepository).saveHit(endpointHit);
+
+        assertThrows(RecoverableDataAccessException.class, () -> statsService.saveHit(endpointHit));
+        verify(deduplicator).forget(List.of(endpointHit));
+    }
+
+    @Test
+    void saveHit_WhenForgetFailsToo_ShouldThrowWriteFailure() {
+        RecoverableDataAccessException failure = new RecoverableDataAccessException("down");
+        RecoverableDataAccessException forgetFailure = new RecoverableDataAccessException("still down");
+        doThrow(failure).when(statsRepository).saveHit(endpointHit);
+        doThrow(forgetFailure).when(deduplicator).forget(List.of(endpointHit));
+
+        RecoverableDataAccessException thrown = assertThrows(RecoverableDataAccessException.class,
+                () -> statsService.saveHit(endpointHit));
+
+        assertEquals(failure, thrown);
+        assertEquals(List.of(forgetFailure), List.of(thrown.getSuppressed()));
+    }
+
+    @Test
+    void saveHits_WhenDuplicatesDropped_ShouldReportOnlyAcceptedHits() {
+        EndpointHit retry = EndpointHit.builder()
+                .id(7L)
+                .app("ewm-main-service")
+                .uri("/events/1")
+                .ip("192.168.1.1")
+                .timestamp(LocalDateTime.now())
+                .build();
+        when(deduplicator.isEnabled()).thenReturn(true);
+        when(deduplicator.isDuplicate(endpointHit)).thenReturn(false);
+        when(deduplicator.isDuplicate(retry)).thenReturn(true);
+        when(statsRepository.saveHits(List.of(endpointHit))).thenReturn(1);
+
+        assertEquals(1, statsService.saveHits(List.of(endpointHit, retry)));
+
+        verify(metrics).hitsSaved(eq(false), eq(1), anyLong());
+    }
+
     @Test
     void getViewStatsList_WhenStartAfterEnd_ShouldNotThrowException() {
         LocalDateTime invalidStart = LocalDateTime.of(2023, 1, 3, 0, 0, 0);
@@ -181,4 +289,92 @@ class StatsServiceImplTest {
         assertEquals(expectedResponse, result);
         verify(statsRepository).getStats(any(ViewsStatsRequest.class));
     }
+
+    @Test
+    void getViewStatsList_WhenRecentWindowAnswers_ShouldNotQueryRepository() {
+        List<ViewStats> expectedResponse = List.of(
+                ViewStats.builder()
+                        .app("ewm-main-service")
+                        .uri("/events/1")
+                        .hits(3L)
+                        .build()
+        );
+        ViewsStatsRequest request = ViewsStatsRequest.builder()
+                .start(start)
+                .end(end)
+                .uris(uris)
+                .build();
+        when(recentStats.getStats(request)).thenReturn(Optional.of(expectedResponse));
+
+        List<ViewStats> result = statsService.getViewStatsList(request);
+
+        assertEquals(expectedResponse, result);
+        verify(statsRepository, never()).getStats(any(ViewsStatsRequest.class));
+    }
+
+    @Test
+    void getTopStats_ShouldDelegateToHeavyHitters() {
+        ViewsStatsRequest request = ViewsStatsRequest.builder()
+                .start(start)
+                .end(end)
+                .limit(5)
+                .build();
+        TopHits expectedResponse = new TopHits(List.of(new TopViewStats("ewm-main-service", "/events/1", 10L, 2L)), 2L);
+        when(heavyHitters.top(request)).thenReturn(expectedResponse);
+
+        assertEquals(expectedResponse, statsService.getTopStats(request));
+        verify(statsRepository, never()).getStats(any(ViewsStatsRequest.class));
+    }
+
+    @Test
+    void getViewStatsList_WhenCacheEnabled_ShouldAnswerFromCache() {
+        ViewsStatsRequest request = ViewsStatsRequest.builder()
+                .start(start)
+                .end(end)
+                .uris(uris)
+                .build();
+        List<ViewStats> cached = List.of(ViewStats.builder().app("ewm-main-service").uri("/events/1").hits(4L).build());
+        when(queryCache.isEnabled()).thenReturn(true);
+        when(queryCache.get(eq(request), any())).thenReturn(cached);
+
+        assertEquals(cached, statsService.getViewStatsList(request));
+        verify(statsRepository, never()).getStats(any(ViewsStatsRequest.class));
+    }
+
+    @Test
+    void getViewStatsLists_ShouldQueryLeftoverCountsTogether() {
+        ViewsStatsRequest recent = ViewsStatsRequest.builder().start(end.minusHours(1)).end(end).uris(uris).build();
+        ViewsStatsRequest unique = ViewsStatsRequest.builder().start(start).end(end).uris(uris).unique(true).build();
+        ViewsStatsRequest week = ViewsStatsRequest.builder().start(end.minusWeeks(1)).end(end).uris(uris).build();
+        ViewsStatsRequest allTime = ViewsStatsRequest.builder().start(start).end(end).uris(uris).build();
+        List<ViewStats> recentStatsList = List.of(ViewStats.builder().app("a").uri("/events/1").hits(1L).build());
+        List<ViewStats> uniqueStats = List.of(ViewStats.builder().app("a").uri("/events/1").hits(2L).build());
+        List<ViewStats> weekStats = List.of(ViewStats.builder().app("a").uri("/events/1").hits(3L).build());
+        List<ViewStats> allTimeStats = List.of(ViewStats.builder().app("a").uri("/events/1").hits(4L).build());
+        when(recentStats.getStats(recent)).thenReturn(Optional.of(recentStatsList));
+        when(statsRepository.getUniqueStats(unique)).thenReturn(uniqueStats);
+        when(statsRepository.getStats(List.of(week, allTime))).thenReturn(List.of(weekStats, allTimeStats));
+
+        List<List<ViewStats>> result = statsService.getViewStatsLists(List.of(recent, unique, week, allTime));
+
+        assertEquals(List.of(recentStatsList, uniqueStats, weekStats, allTimeStats), result);
+        verify(statsRepository, never()).getStats(any(ViewsStatsRequest.class));
+        verify(metrics).batchQueried(eq(4), eq(4), any());
+    }
+
+    @Test
+    void bulkLoad_ShouldFeedEveryCommittedChunkToWindows() {
+        List<EndpointHit> hits = List.of(endpointHit);
+        BulkLoadResult loaded = BulkLoadResult.builder().method("batch").rows(1).build();
+        when(bulkLoader.load(any(), any())).thenAnswer(invocation -> {
+            invocation.<Consumer<List<EndpointHit>>>getArgument(1).accept(hits);
+            return loaded;
+        });
+
+        assertEquals(loaded, statsService.bulkLoad(hits.iterator()));
+        verify(recentStats).recordAll(hits);
+        verify(topHits).recordAll(hits);
+        verify(queryCache).recordAll(hits);
+        verify(statsRepository, never()).saveHits(any());
+    }
 }
\ No newline at end of file
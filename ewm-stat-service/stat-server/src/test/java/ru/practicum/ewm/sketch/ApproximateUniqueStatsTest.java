@@ -0,0 +1,151 @@
+package ru.practicum.ewm.sketch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.dictionary.StatsDictionary;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.rollup.RollupJob;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ApproximateUniqueStatsTest {
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2023, 5, 1, 0, 0, 0);
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private RollupJob rollupJob;
+
+    @Autowired
+    private SketchStore sketchStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatsDictionary statsDictionary;
+
+    @BeforeEach
+    void setUp() {
+        clean();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clean();
+    }
+
+    @Test
+    void approximateUniqueStatsShouldStayWithinErrorBound() {
+        Random random = new Random(7);
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            hits.add(EndpointHit.builder()
+                    .app("ewm-main-service")
+                    .uri("/events/" + random.nextInt(3))
+                    .ip("10." + random.nextInt(20) + "." + random.nextInt(256) + "." + random.nextInt(256))
+                    .timestamp(ORIGIN.plusSeconds(random.nextInt(3 * 24 * 60 * 60)))
+                    .build());
+        }
+        statsRepository.saveHits(hits.subList(0, 15_000));
+        rollupJob.rollUpTo(jdbcTemplate.queryForObject("SELECT MAX(id) FROM stats", Long.class));
+        statsRepository.saveHits(hits.subList(15_000, hits.size()));
+
+        ViewsStatsRequest request = ViewsStatsRequest.builder()
+                .start(ORIGIN.plusMinutes(90).plusSeconds(17))
+                .end(ORIGIN.plusDays(2).plusHours(20).plusSeconds(3))
+                .uris(List.of())
+                .unique(true)
+                .approximate(true)
+                .build();
+        Map<String, Long> exact = statsRepository.getUniqueStats(request).stream()
+                .collect(Collectors.toMap(ViewStats::getUri, ViewStats::getHits));
+        List<ViewStats> approximate = statsRepository.getApproximateUniqueStats(request);
+
+        double bound = 3 * HyperLogLog.standardError(sketchStore.getPrecision());
+        assertEquals(exact.size(), approximate.size());
+        for (ViewStats stat : approximate) {
+            long expected = exact.get(stat.getUri());
+            assertTrue(Math.abs(stat.getHits() - expected) <= bound * expected,
+                    stat.getUri() + ": " + stat.getHits() + " vs " + expected);
+        }
+    }
+
+    @Test
+    void shortRangeShouldFallBackToExactCount() {
+        statsRepository.saveHits(List.of(
+                EndpointHit.builder().app("ewm-main-service").uri("/events/1").ip("10.0.0.1")
+                        .timestamp(ORIGIN.plusMinutes(5)).build(),
+                EndpointHit.builder().app("ewm-main-service").uri("/events/1").ip("10.0.0.1")
+                        .timestamp(ORIGIN.plusMinutes(6)).build()));
+
+        List<ViewStats> result = statsRepository.getApproximateUniqueStats(ViewsStatsRequest.builder()
+                .start(ORIGIN)
+                .end(ORIGIN.plusMinutes(30))
+                .uris(List.of())
+                .build());
+
+        assertEquals(1, result.size());
+        assertEquals(1L, result.get(0).getHits());
+    }
+
+    @Test
+    void foldingInStepsShouldMergeIntoStoredSketches() {
+        Random random = new Random(3);
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            hits.add(EndpointHit.builder()
+                    .app("ewm-main-service")
+                    .uri("/events/" + random.nextInt(5))
+                    .ip("10.0." + random.nextInt(4) + "." + random.nextInt(256))
+                    .timestamp(ORIGIN.plusMinutes(random.nextInt(3 * 24 * 60)))
+                    .build());
+        }
+        statsRepository.saveHits(hits.subList(0, 1_000));
+        long middle = jdbcTemplate.queryForObject("SELECT MAX(id) FROM stats", Long.class);
+        statsRepository.saveHits(hits.subList(1_000, hits.size()));
+        long last = jdbcTemplate.queryForObject("SELECT MAX(id) FROM stats", Long.class);
+
+        sketchStore.fold(0, middle);
+        sketchStore.fold(middle, last);
+        Map<String, String> stepwise = storedSketches();
+        jdbcTemplate.update("DELETE FROM stats_sketch");
+        sketchStore.fold(0, last);
+
+        assertEquals(storedSketches(), stepwise);
+    }
+
+    private Map<String, String> storedSketches() {
+        return jdbcTemplate.query("SELECT granularity, bucket, app_id, uri_id, sketch FROM stats_sketch",
+                (rs, rowNum) -> Map.entry(rs.getString("granularity") + rs.getTimestamp("bucket") + rs.getInt("app_id")
+                        + "/" + rs.getInt("uri_id"), Base64.getEncoder().encodeToString(rs.getBytes("sketch"))))
+                .stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    private void clean() {
+        jdbcTemplate.update("DELETE FROM stats");
+        statsDictionary.clear();
+        jdbcTemplate.update("DELETE FROM stats_rollup");
+        jdbcTemplate.update("DELETE FROM stats_sketch");
+        jdbcTemplate.update("UPDATE stats_rollup_state SET last_hit_id = 0");
+    }
+}
\ No newline at end of file
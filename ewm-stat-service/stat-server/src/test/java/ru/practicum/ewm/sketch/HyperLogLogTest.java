@@ -0,0 +1,68 @@
+package ru.practicum.ewm.sketch;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+    private static final int PRECISION = 12;
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 500, 5_000, 50_000, 500_000})
+    void estimateShouldStayWithinErrorBound(int cardinality) {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        for (int i = 0; i < cardinality; i++) {
+            String ip = "10." + (i >>> 16 & 0xff) + "." + (i >>> 8 & 0xff) + "." + (i & 0xff);
+            sketch.add(ip);
+            sketch.add(ip);
+        }
+
+        double error = Math.abs(sketch.estimate() - cardinality) / (double) cardinality;
+
+        assertTrue(error <= 3 * HyperLogLog.standardError(PRECISION),
+                "estimate " + sketch.estimate() + " for " + cardinality);
+    }
+
+    @Test
+    void mergedSketchShouldEstimateUnion() {
+        HyperLogLog left = new HyperLogLog(PRECISION);
+        HyperLogLog right = new HyperLogLog(PRECISION);
+        HyperLogLog union = new HyperLogLog(PRECISION);
+        for (int i = 0; i < 20_000; i++) {
+            left.add("user-" + i);
+            union.add("user-" + i);
+        }
+        for (int i = 10_000; i < 30_000; i++) {
+            right.add("user-" + i);
+            union.add("user-" + i);
+        }
+
+        left.merge(right);
+
+        assertEquals(union.estimate(), left.estimate());
+        assertTrue(Math.abs(left.estimate() - 30_000) / 30_000.0 <= 3 * HyperLogLog.standardError(PRECISION));
+    }
+
+    @Test
+    void serializedSketchShouldRoundTrip() {
+        HyperLogLog sketch = new HyperLogLog(PRECISION);
+        for (int i = 0; i < 1000; i++) {
+            sketch.add("192.168.0." + i);
+        }
+
+        HyperLogLog restored = HyperLogLog.fromBytes(sketch.toBytes());
+
+        assertEquals(sketch.estimate(), restored.estimate());
+        assertArrayEquals(sketch.toBytes(), restored.toBytes());
+    }
+
+    @Test
+    void sketchesWithDifferentPrecisionShouldNotMerge() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(12).merge(new HyperLogLog(10)));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,191 @@
+package ru.practicum.ewm.topk;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.TopViewStats;
+import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.dictionary.StatsDictionary;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.rollup.RollupJob;
+import ru.practicum.ewm.service.StatsService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"stats.top.window.enabled=true", "stats.top.capacity=20"})
+class HeavyHittersTest {
+    private static final String APP = "ewm-main-service";
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private RollupJob rollupJob;
+
+    @Autowired
+    private TopHitsWindow topHitsWindow;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatsDictionary statsDictionary;
+
+    private final Random random = new Random(11);
+
+    @BeforeEach
+    void setUp() {
+        clean();
+        topHitsWindow.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clean();
+    }
+
+    @Test
+    void topShouldCombineStoredAndRecentSummaries() {
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        LocalDateTime start = now.minusDays(3).truncatedTo(ChronoUnit.DAYS).plusHours(5).plusMinutes(17);
+        List<EndpointHit> old = skewedHits(APP, start, now.minusDays(1), 4000);
+        statsRepository.saveHits(old);
+        rollupJob.rollUpTo(jdbcTemplate.queryForObject("SELECT MAX(id) FROM stats", Long.class));
+        List<EndpointHit> recent = skewedHits(APP, now.minusHours(2), now.minusMinutes(1), 2000);
+        statsService.saveHits(recent);
+
+        List<EndpointHit> all = new ArrayList<>(old);
+        all.addAll(recent);
+        List<TopViewStats> top = statsService.getTopStats(request(start, now, null, 5)).getStats();
+
+        assertTop(exactCounts(all), top, 5);
+    }
+
+    @Test
+    void topShouldMergeSummariesFoldedInSteps() {
+        LocalDateTime start = LocalDateTime.of(2023, 6, 1, 0, 0);
+        List<EndpointHit> hits = skewedHits(APP, start, start.plusDays(2), 3000);
+        statsRepository.saveHits(hits.subList(0, 1500));
+        rollupJob.rollUpTo(jdbcTemplate.queryForObject("SELECT MAX(id) FROM stats", Long.class));
+        statsRepository.saveHits(hits.subList(1500, hits.size()));
+        rollupJob.rollUpTo(jdbcTemplate.queryForObject("SELECT MAX(id) FROM stats", Long.class));
+
+        List<TopViewStats> top = statsService.getTopStats(request(start, start.plusDays(2), null, 5)).getStats();
+
+        assertTop(exactCounts(hits), top, 5);
+    }
+
+    @Test
+    void topShouldFilterByApp() {
+        LocalDateTime start = LocalDateTime.of(2023, 5, 1, 0, 0);
+        List<EndpointHit> hits = skewedHits(APP, start, start.plusDays(2), 1500);
+        hits.addAll(skewedHits("other", start, start.plusDays(2), 1500));
+        statsRepository.saveHits(hits);
+        rollupJob.rollUpTo(jdbcTemplate.queryForObject("SELECT MAX(id) FROM stats", Long.class));
+
+        List<TopViewStats> top = statsService.getTopStats(request(start, start.plusDays(2), "other", 3)).getStats();
+
+        assertEquals(3, top.size());
+        top.forEach(stats -> assertEquals("other", stats.getApp()));
+        assertTop(exactCounts(hits.stream().filter(hit -> hit.getApp().equals("other")).toList()), top, 3);
+    }
+
+    @Test
+    void uncommonAppShouldGetFloorAsBoundOfMissingUris() {
+        LocalDateTime start = LocalDateTime.of(2023, 7, 1, 0, 0);
+        List<EndpointHit> hits = skewedHits(APP, start, start.plusDays(1), 3000);
+        List<EndpointHit> quiet = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            for (int j = 0; j <= i % 3; j++) {
+                quiet.add(EndpointHit.builder()
+                        .app("quiet")
+                        .uri("/quiet/" + i)
+                        .ip("10.0.1." + j)
+                        .timestamp(start.plusMinutes(i * 30L + j))
+                        .build());
+            }
+        }
+        hits.addAll(quiet);
+        statsRepository.saveHits(hits);
+        rollupJob.rollUpTo(jdbcTemplate.queryForObject("SELECT MAX(id) FROM stats", Long.class));
+
+        TopHits top = statsService.getTopStats(request(start, start.plusDays(1), "quiet", 10));
+
+        assertTrue(top.getStats().size() < 10);
+        List<String> listed = top.getStats().stream().map(TopViewStats::getUri).toList();
+        exactCounts(quiet).forEach((uri, count) -> {
+            if (!listed.contains(uri)) {
+                assertTrue(count <= top.getFloor(), uri + " " + count + " > " + top.getFloor());
+            }
+        });
+    }
+
+    private static void assertTop(Map<String, Long> exact, List<TopViewStats> top, int k) {
+        assertEquals(k, top.size());
+        List<String> heaviest = exact.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(k)
+                .map(Map.Entry::getKey)
+                .toList();
+        for (TopViewStats stats : top) {
+            long count = exact.get(stats.getUri());
+            assertTrue(stats.getHits() >= count && stats.getHits() - stats.getError() <= count, stats.toString());
+        }
+        assertEquals(heaviest.get(0), top.get(0).getUri());
+    }
+
+    private static ViewsStatsRequest request(LocalDateTime start, LocalDateTime end, String app, int k) {
+        return ViewsStatsRequest.builder()
+                .start(start)
+                .end(end)
+                .application(app)
+                .limit(k)
+                .build();
+    }
+
+    private List<EndpointHit> skewedHits(String app, LocalDateTime from, LocalDateTime to, int count) {
+        long seconds = ChronoUnit.SECONDS.between(from, to);
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int uri = (int) (Math.pow(random.nextDouble(), 4) * 300);
+            hits.add(EndpointHit.builder()
+                    .app(app)
+                    .uri("/events/" + uri)
+                    .ip("10.0.0." + random.nextInt(200))
+                    .timestamp(from.plusSeconds((long) (random.nextDouble() * seconds)))
+                    .build());
+        }
+        return hits;
+    }
+
+    private static Map<String, Long> exactCounts(List<EndpointHit> hits) {
+        Map<String, Long> counts = new HashMap<>();
+        hits.forEach(hit -> counts.merge(hit.getUri(), 1L, Long::sum));
+        return counts;
+    }
+
+    private void clean() {
+        jdbcTemplate.update("DELETE FROM stats");
+        statsDictionary.clear();
+        jdbcTemplate.update("DELETE FROM stats_rollup");
+        jdbcTemplate.update("DELETE FROM stats_sketch");
+        jdbcTemplate.update("DELETE FROM stats_top");
+        jdbcTemplate.update("UPDATE stats_rollup_state SET last_hit_id = 0");
+    }
+}
\ No newline at end of file
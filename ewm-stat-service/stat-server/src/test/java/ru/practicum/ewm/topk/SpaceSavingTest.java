@@ -0,0 +1,111 @@
+package ru.practicum.ewm.topk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingTest {
+    private static final int CAPACITY = 100;
+
+    private final Random random = new Random(7);
+
+    @Test
+    void countsShouldBoundTrueCountsOnSkewedStream() {
+        List<Integer> stream = skewedStream(200_000, 20_000);
+        SpaceSaving<Integer> summary = new SpaceSaving<>(CAPACITY);
+        stream.forEach(key -> summary.add(key, 1));
+
+        assertBounds(exactCounts(stream), summary, stream.size());
+    }
+
+    @Test
+    void mergedSummaryShouldKeepBounds() {
+        List<Integer> stream = skewedStream(200_000, 20_000);
+        SpaceSaving<Integer> merged = new SpaceSaving<>(CAPACITY);
+        for (int part = 0; part < 20; part++) {
+            SpaceSaving<Integer> summary = new SpaceSaving<>(CAPACITY);
+            for (int i = part * 10_000; i < (part + 1) * 10_000; i++) {
+                summary.add(stream.get(i), 1);
+            }
+            merged.merge(summary);
+        }
+
+        assertBounds(exactCounts(stream), merged, stream.size());
+    }
+
+    @Test
+    void weightedUpdatesShouldBeExactWhileCountersFit() {
+        SpaceSaving<String> summary = new SpaceSaving<>(CAPACITY);
+        summary.add("/events/1", 5);
+        summary.add("/events/2", 3);
+        summary.add("/events/1", 2);
+
+        List<SpaceSaving.Counter<String>> top = summary.top(5);
+        assertEquals(2, top.size());
+        assertEquals("/events/1", top.get(0).getKey());
+        assertEquals(7, top.get(0).getCount());
+        assertEquals(0, top.get(0).getError());
+        assertEquals(0, summary.getFloor());
+    }
+
+    private void assertBounds(Map<Integer, Long> exact, SpaceSaving<Integer> summary, long total) {
+        Map<Integer, SpaceSaving.Counter<Integer>> counters = new HashMap<>();
+        summary.counters().forEach(counter -> counters.put(counter.getKey(), counter));
+        assertTrue(summary.getFloor() <= total / CAPACITY);
+        exact.forEach((key, count) -> {
+            SpaceSaving.Counter<Integer> counter = counters.get(key);
+            if (counter == null) {
+                assertTrue(count <= summary.getFloor(), "missing key " + key + " seen " + count + " times");
+            } else {
+                assertTrue(counter.getCount() >= count, "undercounted key " + key);
+                assertTrue(counter.getCount() - counter.getError() <= count, "error too small for key " + key);
+            }
+        });
+        Set<Integer> heaviest = exact.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Long>comparingByValue().reversed())
+                .limit(5)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        assertEquals(heaviest, summary.top(5).stream().map(SpaceSaving.Counter::getKey).collect(Collectors.toSet()));
+    }
+
+    private List<Integer> skewedStream(int length, int keys) {
+        double[] cumulative = new double[keys];
+        double sum = 0;
+        for (int rank = 0; rank < keys; rank++) {
+            sum += 1.0 / (rank + 1);
+            cumulative[rank] = sum;
+        }
+        List<Integer> stream = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            double target = random.nextDouble() * sum;
+            int low = 0;
+            int high = keys - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            stream.add(low);
+        }
+        return stream;
+    }
+
+    private static Map<Integer, Long> exactCounts(List<Integer> stream) {
+        Map<Integer, Long> counts = new HashMap<>();
+        stream.forEach(key -> counts.merge(key, 1L, Long::sum));
+        return counts;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package ru.practicum.ewm.visitor;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoaringBitmapTest {
+    private final Random random = new Random(3);
+
+    @Test
+    void shouldBehaveLikeASetAcrossContainerTypes() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(3) == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(150_000);
+            bitmap.add(value);
+            expected.add(value);
+        }
+
+        assertEquals(expected.size(), bitmap.cardinality());
+        for (int value : expected) {
+            assertTrue(bitmap.contains(value));
+        }
+        assertFalse(bitmap.contains(-1));
+        assertEquals(expected.size(), RoaringBitmap.fromBytes(bitmap.toBytes()).cardinality());
+    }
+
+    @Test
+    void denseIdsShouldTakeAboutOneBitEach() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < 65_536; i++) {
+            bitmap.add(i);
+        }
+
+        assertEquals(65_536, bitmap.cardinality());
+        assertTrue(bitmap.toBytes().length <= 65_536 / 8 + 16);
+    }
+
+    @Test
+    void orShouldUnionArraysAndBitmaps() {
+        RoaringBitmap left = new RoaringBitmap();
+        RoaringBitmap right = new RoaringBitmap();
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            int value = random.nextInt(200_000);
+            left.add(value);
+            expected.add(value);
+        }
+        for (int i = 0; i < RoaringBitmap.ARRAY_LIMIT / 2; i++) {
+            int value = random.nextInt(400_000);
+            right.add(value);
+            expected.add(value);
+        }
+
+        left.or(RoaringBitmap.fromBytes(right.toBytes()));
+        right.or(new RoaringBitmap());
+
+        assertEquals(expected.size(), left.cardinality());
+        for (int value : expected) {
+            assertTrue(left.contains(value));
+        }
+        RoaringBitmap copy = RoaringBitmap.fromBytes(left.toBytes());
+        assertTrue(Arrays.equals(left.toBytes(), copy.toBytes()));
+    }
+
+    @Test
+    void corruptedBytesShouldBeRejected() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.add(42);
+        byte[] bytes = bitmap.toBytes();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> RoaringBitmap.fromBytes(Arrays.copyOf(bytes, bytes.length - 1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> RoaringBitmap.fromBytes(Arrays.copyOf(bytes, bytes.length + 1)));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,160 @@
+package ru.practicum.ewm.visitor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.dictionary.StatsDictionary;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.rollup.RollupJob;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "stats.visitors.enabled=true")
+class VisitorIndexTest {
+    private static final LocalDateTime ORIGIN = LocalDateTime.of(2023, 3, 1, 0, 0, 0);
+    private static final int RANGE_SECONDS = 5 * 24 * 60 * 60;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private RollupJob rollupJob;
+
+    @Autowired
+    private VisitorIndex visitorIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatsDictionary statsDictionary;
+
+    private final Random random = new Random(18);
+
+    @BeforeEach
+    void setUp() {
+        clean();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clean();
+    }
+
+    @Test
+    void uniqueQueriesShouldMatchCountDistinctOnRandomRanges() {
+        statsRepository.saveHits(randomHits(3000));
+        rollupJob.rollUpTo(maxHitId());
+        statsRepository.saveHits(randomHits(500));
+        rollupJob.rollUpTo(maxHitId());
+        statsRepository.saveHits(randomHits(500));
+
+        assertMatchesCountDistinct(200);
+    }
+
+    @Test
+    void missingIndexShouldBeRebuiltFromRawHits() {
+        statsRepository.saveHits(randomHits(2000));
+        rollupJob.rollUpTo(maxHitId());
+        jdbcTemplate.update("DELETE FROM stats_visitors");
+
+        visitorIndex.rebuildIfMissing();
+
+        assertEquals(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT DISTINCT DATE_TRUNC('day', created), "
+                + "app_id, uri_id FROM stats) AS d", Long.class), jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM stats_visitors", Long.class));
+        assertMatchesCountDistinct(50);
+    }
+
+    private void assertMatchesCountDistinct(int ranges) {
+        for (int i = 0; i < ranges; i++) {
+            LocalDateTime start = randomTime();
+            LocalDateTime end = randomTime();
+            if (end.isBefore(start)) {
+                LocalDateTime swap = start;
+                start = end;
+                end = swap;
+            }
+            List<String> uris = random.nextBoolean() ? List.of() : List.of("/events/1", "/events/3");
+            ViewsStatsRequest request = ViewsStatsRequest.builder()
+                    .start(start)
+                    .end(end)
+                    .uris(uris)
+                    .unique(true)
+                    .build();
+
+            assertEquals(countDistinct(request), toMap(statsRepository.getUniqueStats(request)), request.toString());
+        }
+    }
+
+    private List<EndpointHit> randomHits(int count) {
+        List<EndpointHit> hits = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String ip = random.nextInt(10) == 0 ? "2001:db8::" + Integer.toHexString(random.nextInt(300))
+                    : "10.0." + random.nextInt(4) + "." + random.nextInt(256);
+            hits.add(EndpointHit.builder()
+                    .app(random.nextInt(5) == 0 ? "other-app" : "ewm-main-service")
+                    .uri("/events/" + random.nextInt(6))
+                    .ip(ip)
+                    .timestamp(randomTime())
+                    .build());
+        }
+        return hits;
+    }
+
+    private LocalDateTime randomTime() {
+        LocalDateTime time = ORIGIN.plusSeconds(random.nextInt(RANGE_SECONDS));
+        return random.nextInt(4) == 0 ? time.withSecond(0).withMinute(0).withHour(0) : time;
+    }
+
+    private Map<String, Long> countDistinct(ViewsStatsRequest request) {
+        String query = "SELECT a.name AS app, u.uri AS uri, COUNT (DISTINCT s.ip) AS hits FROM stats s "
+                + "JOIN apps a ON a.id = s.app_id JOIN uris u ON u.id = s.uri_id "
+                + "WHERE (s.created >= ? AND s.created <= ?) ";
+        if (!request.getUris().isEmpty()) {
+            query += "AND u.uri IN ('" + String.join("', '", request.getUris()) + "') ";
+        }
+        query += "GROUP BY a.name, u.uri";
+        Map<String, Long> result = new HashMap<>();
+        jdbcTemplate.query(query, rs -> {
+            result.put(rs.getString("app") + rs.getString("uri"), rs.getLong("hits"));
+        }, request.getStart(), request.getEnd());
+        return result;
+    }
+
+    private Map<String, Long> toMap(List<ViewStats> stats) {
+        Map<String, Long> result = new HashMap<>();
+        for (ViewStats stat : stats) {
+            result.put(stat.getApp() + stat.getUri(), stat.getHits());
+        }
+        return result;
+    }
+
+    private long maxHitId() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM stats", Long.class);
+    }
+
+    private void clean() {
+        jdbcTemplate.update("DELETE FROM stats");
+        statsDictionary.clear();
+        jdbcTemplate.update("DELETE FROM stats_rollup");
+        jdbcTemplate.update("DELETE FROM stats_sketch");
+        jdbcTemplate.update("DELETE FROM stats_top");
+        jdbcTemplate.update("DELETE FROM stats_visitors");
+        jdbcTemplate.update("DELETE FROM ips");
+        jdbcTemplate.update("UPDATE stats_rollup_state SET last_hit_id = 0");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,187 @@
+package ru.practicum.ewm.window;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.ewm.EndpointHit;
+import ru.practicum.ewm.ViewStats;
+import ru.practicum.ewm.ViewsStatsRequest;
+import ru.practicum.ewm.dictionary.StatsDictionary;
+import ru.practicum.ewm.repository.StatsRepository;
+import ru.practicum.ewm.service.StatsService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"stats.window.enabled=true", "stats.window.hours=2"})
+class RecentStatsWindowTest {
+    private static final int WINDOW_SECONDS = 2 * 60 * 60;
+
+    @Autowired
+    private RecentStatsWindow recentStats;
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatsDictionary statsDictionary;
+
+    private final Random random = new Random(7);
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        clean();
+        recentStats.rebuild();
+        now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        clean();
+        ReflectionTestUtils.setField(recentStats, "maxUris", 10000);
+        recentStats.rebuild();
+    }
+
+    @Test
+    void windowShouldMatchSqlOnRandomRecentRanges() {
+        statsService.saveHits(randomHits(2000, WINDOW_SECONDS - 600));
+
+        int served = 0;
+        for (int i = 0; i < 300; i++) {
+            ViewsStatsRequest request = randomRequest();
+            Optional<List<ViewStats>> fromMemory = recentStats.getStats(request);
+            if (fromMemory.isPresent()) {
+                served++;
+                assertEquals(toMap(statsRepository.getStats(request)), toMap(fromMemory.get()), request.toString());
+            }
+        }
+        assertTrue(served > 250, "only " + served + " of 300 ranges were answered from memory");
+    }
+
+    @Test
+    void rangesEndingNowShouldBeServedFromMemory() {
+        statsService.saveHits(randomHits(200, 3600));
+        ViewsStatsRequest request = ViewsStatsRequest.builder()
+                .start(now.minusMinutes(30).plusSeconds(17))
+                .end(now)
+                .uris(List.of("/events/*"))
+                .build();
+
+        Optional<List<ViewStats>> fromMemory = recentStats.getStats(request);
+
+        assertTrue(fromMemory.isPresent());
+        assertEquals(toMap(statsRepository.getStats(request)), toMap(fromMemory.get()));
+    }
+
+    @Test
+    void rangesOutsideWindowOrUniqueShouldFallThrough() {
+        statsService.saveHits(randomHits(50, 600));
+
+        assertFalse(recentStats.getStats(request(now.minusHours(3), now)).isPresent());
+        assertFalse(recentStats.getStats(request(now.minusMinutes(5), now).toBuilder().unique(true).build())
+                .isPresent());
+    }
+
+    @Test
+    void rebuildShouldRestoreCountersFromDatabase() {
+        statsRepository.saveHits(randomHits(1000, WINDOW_SECONDS - 600));
+        ViewsStatsRequest request = request(now.minusMinutes(90), now);
+        assertEquals(Optional.of(Map.of()), recentStats.getStats(request).map(this::toMap));
+
+        recentStats.rebuild();
+
+        assertEquals(toMap(statsRepository.getStats(request)), toMap(recentStats.getStats(request).orElseThrow()));
+    }
+
+    @Test
+    void evictedUrisShouldMakeOlderRangesFallThrough() {
+        ReflectionTestUtils.setField(recentStats, "maxUris", 3);
+        recentStats.rebuild();
+        statsService.saveHit(hit("/events/1", now.minusMinutes(50)));
+        statsService.saveHit(hit("/events/2", now.minusMinutes(40)));
+        statsService.saveHit(hit("/events/3", now.minusMinutes(30)));
+        statsService.saveHit(hit("/events/4", now.minusMinutes(20)));
+
+        assertFalse(recentStats.getStats(request(now.minusMinutes(60), now)).isPresent());
+        assertEquals(Map.of("ewm-main-service/events/2", 1L, "ewm-main-service/events/3", 1L,
+                        "ewm-main-service/events/4", 1L),
+                toMap(recentStats.getStats(request(now.minusMinutes(45), now)).orElseThrow()));
+    }
+
+    private ViewsStatsRequest randomRequest() {
+        LocalDateTime start = now.minusSeconds(random.nextInt(WINDOW_SECONDS));
+        LocalDateTime end = start.plusSeconds(random.nextInt(WINDOW_SECONDS));
+        List<String> uris = switch (random.nextInt(3)) {
+            case 0 -> List.of();
+            case 1 -> List.of("/events/1", "/events/3");
+            default -> List.of("/events/1*");
+        };
+        return request(start, end).toBuilder()
+                .uris(uris)
+                .build();
+    }
+
+    private ViewsStatsRequest request(LocalDateTime start, LocalDateTime end) {
+        return ViewsStatsRequest.builder()
+                .start(start)
+                .end(end)
+                .uris(List.of())
+                .build();
+    }
+
+    private List<EndpointHit> randomHits(int count, int maxAgeSeconds) {
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            hits.add(hit(random.nextInt(4) == 0 ? "other-app" : "ewm-main-service", "/events/" + random.nextInt(20),
+                    now.minusSeconds(random.nextInt(maxAgeSeconds))));
+        }
+        return hits;
+    }
+
+    private EndpointHit hit(String uri, LocalDateTime timestamp) {
+        return hit("ewm-main-service", uri, timestamp);
+    }
+
+    private EndpointHit hit(String app, String uri, LocalDateTime timestamp) {
+        return EndpointHit.builder()
+                .app(app)
+                .uri(uri)
+                .ip("10.0.0." + random.nextInt(50))
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private Map<String, Long> toMap(List<ViewStats> stats) {
+        return stats.stream()
+                .collect(Collectors.toMap(stat -> stat.getApp() + stat.getUri(), ViewStats::getHits));
+    }
+
+    private void clean() {
+        jdbcTemplate.update("DELETE FROM stats");
+        statsDictionary.clear();
+        jdbcTemplate.update("DELETE FROM stats_rollup");
+        jdbcTemplate.update("DELETE FROM stats_sketch");
+        jdbcTemplate.update("UPDATE stats_rollup_state SET last_hit_id = 0 WHERE id = 1");
+    }
+}
\ No newline at end of file